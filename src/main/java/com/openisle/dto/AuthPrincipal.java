@@ -0,0 +1,58 @@
+package com.openisle.dto;
+
+import com.openisle.model.NotificationType;
+import com.openisle.model.Role;
+import lombok.Value;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * AuthPrincipal
+ *
+ * 已认证用户的不可变快照，由 {@link com.openisle.service.AuthPrincipalCache} 缓存，
+ * 供每个请求鉴权使用，不加载 {@link com.openisle.model.User} 实体及其通知偏好集合。
+ * 关闭的通知类型以序号位掩码保存（同 {@link com.openisle.service.UnreadNotificationCounter#mask}）。
+ */
+@Value
+public class AuthPrincipal {
+    long id;
+    String username;
+    Role role;
+    boolean approved;
+    boolean verified;
+    /** 关闭的站内通知类型 */
+    int disabledNotificationMask;
+    /** 关闭的邮件通知类型 */
+    int disabledEmailNotificationMask;
+
+    public boolean isAdmin() {
+        return role == Role.ADMIN;
+    }
+
+    public boolean isNotificationDisabled(NotificationType type) {
+        return (disabledNotificationMask & 1 << type.ordinal()) != 0;
+    }
+
+    public boolean isEmailNotificationDisabled(NotificationType type) {
+        return (disabledEmailNotificationMask & 1 << type.ordinal()) != 0;
+    }
+
+    public Set<NotificationType> getDisabledNotificationTypes() {
+        return types(disabledNotificationMask);
+    }
+
+    public Set<NotificationType> getDisabledEmailNotificationTypes() {
+        return types(disabledEmailNotificationMask);
+    }
+
+    private static Set<NotificationType> types(int mask) {
+        Set<NotificationType> types = EnumSet.noneOf(NotificationType.class);
+        for (NotificationType type : NotificationType.values()) {
+            if ((mask & 1 << type.ordinal()) != 0) {
+                types.add(type);
+            }
+        }
+        return types;
+    }
+}
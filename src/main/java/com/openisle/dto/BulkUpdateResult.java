@@ -0,0 +1,33 @@
+package com.openisle.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 批量更新/删除的执行结果。
+ */
+@Getter
+@ToString
+public class BulkUpdateResult {
+    /** 受影响的行数 */
+    private long affectedRows;
+    /** 执行的分段（事务）数 */
+    private int chunks;
+    /** 下一段的 ID 游标；为空表示已处理完 */
+    private Long nextCursor;
+    /** 耗时（毫秒） */
+    private long elapsedMillis;
+
+    public void chunk(long affected) {
+        chunks++;
+        affectedRows += affected;
+    }
+
+    public void next(Long cursor) {
+        nextCursor = cursor;
+    }
+
+    public void finished(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+}
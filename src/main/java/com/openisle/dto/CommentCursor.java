@@ -0,0 +1,68 @@
+package com.openisle.dto;
+
+import com.openisle.exception.FieldException;
+import com.openisle.model.CommentSort;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+
+/**
+ * CommentCursor
+ *
+ * 评论楼层（根评论）分页的游标，记录上一页最后一条根评论的排序键。
+ *
+ * 设计要点：
+ * - {@link CommentSort#NEWEST}/{@link CommentSort#OLDEST}: 键为 (createdAt, id)。
+ * - {@link CommentSort#MOST_INTERACTIONS}: 键为 (score, id)。
+ * - 编码见 {@link CursorCodec}。
+ */
+@Getter
+@AllArgsConstructor
+public class CommentCursor {
+    private final CommentSort sort;
+    private final LocalDateTime createdAt;
+    private final long score;
+    private final long id;
+
+    /** 编码为不透明令牌 */
+    public String encode() {
+        return switch (sort) {
+            case NEWEST -> CursorCodec.encode("N", CursorCodec.toMicros(createdAt), id);
+            case OLDEST -> CursorCodec.encode("O", CursorCodec.toMicros(createdAt), id);
+            case MOST_INTERACTIONS -> CursorCodec.encode("I", score, id);
+        };
+    }
+
+    /**
+     * 解析令牌。
+     *
+     * @param token 客户端回传的令牌，可为空
+     * @return 游标；令牌为空时返回 {@code null}（表示首页）
+     * @throws FieldException 令牌格式非法时
+     */
+    public static CommentCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String[] parts = CursorCodec.decode(token);
+            if (parts.length == 3) {
+                switch (parts[0]) {
+                    case "N":
+                        return new CommentCursor(CommentSort.NEWEST, CursorCodec.fromMicros(parts[1]), 0L, Long.parseLong(parts[2]));
+                    case "O":
+                        return new CommentCursor(CommentSort.OLDEST, CursorCodec.fromMicros(parts[1]), 0L, Long.parseLong(parts[2]));
+                    case "I":
+                        return new CommentCursor(CommentSort.MOST_INTERACTIONS, null, Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+                    default:
+                        break;
+                }
+            }
+        } catch (IllegalArgumentException | DateTimeException e) {
+            // Base64 或数字格式错误，统一按非法游标处理
+        }
+        throw new FieldException("cursor", "Invalid cursor");
+    }
+}
@@ -0,0 +1,25 @@
+package com.openisle.dto;
+
+import com.openisle.model.Comment;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CommentNode
+ *
+ * 评论树节点：评论本身（作者已加载）、楼中楼回复（按发布时间正序）与互动统计。
+ * 由 {@link com.openisle.service.CommentThreadService} 组装。
+ */
+@Data
+@NoArgsConstructor
+public class CommentNode {
+    private Comment comment;
+    /** 子树中的回复总数（不含自身） */
+    private int replyCount;
+    /** 互动分：子树回复数 + 自身收到的表态数（预先维护的 interaction_score） */
+    private long score;
+    private List<CommentNode> replies = new ArrayList<>();
+}
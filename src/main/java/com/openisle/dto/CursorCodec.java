@@ -0,0 +1,52 @@
+package com.openisle.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.StringJoiner;
+
+/**
+ * CursorCodec
+ *
+ * 游标令牌的共用编解码：{@link FeedCursor}、{@link CommentCursor}、{@link InboxCursor} 以及消息缓存的时间列都经由这里。
+ *
+ * 设计要点：
+ * - 令牌为以 {@value #SEP} 分隔的字段（首字段为类型标记），整体 Base64URL 编码（无填充），客户端视为不透明令牌原样回传。
+ * - 时间以 UTC 微秒表示，与数据库 DATETIME(6) 精度一致。
+ * - 格式错误抛出 {@link IllegalArgumentException}（含数字格式错误），由各游标统一转换为非法游标。
+ */
+public final class CursorCodec {
+    public static final char SEP = ':';
+
+    private CursorCodec() {
+    }
+
+    /** 按顺序拼接字段并编码为令牌 */
+    public static String encode(Object... fields) {
+        StringJoiner raw = new StringJoiner(String.valueOf(SEP));
+        for (Object field : fields) {
+            raw.add(String.valueOf(field));
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** 解码令牌为字段数组 */
+    public static String[] decode(String token) {
+        String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        return raw.split(String.valueOf(SEP));
+    }
+
+    public static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    public static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    public static LocalDateTime fromMicros(String value) {
+        return fromMicros(Long.parseLong(value));
+    }
+}
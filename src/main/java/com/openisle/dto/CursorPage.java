@@ -0,0 +1,27 @@
+package com.openisle.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * CursorPage
+ *
+ * 游标分页结果：当前页数据 + 下一页的续传令牌。
+ *
+ * 字段说明：
+ * - {@code items}: 当前页数据。
+ * - {@code nextCursor}: 不透明的续传令牌；为 {@code null} 表示已到末页。
+ */
+@Getter
+@AllArgsConstructor
+public class CursorPage<T> {
+    private final List<T> items;
+    private final String nextCursor;
+
+    /** 是否还有下一页 */
+    public boolean isHasMore() {
+        return nextCursor != null;
+    }
+}
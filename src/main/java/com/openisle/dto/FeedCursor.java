@@ -0,0 +1,83 @@
+package com.openisle.dto;
+
+import com.openisle.exception.FieldException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+
+/**
+ * FeedCursor
+ *
+ * 帖子信息流的游标（续传令牌），记录上一页最后一条记录的排序键。
+ *
+ * 设计要点：
+ * - {@link Kind#PINNED}/{@link Kind#LATEST}: 键为 (pinnedAt, createdAt, id)；置顶段与普通段分开翻页，
+ *   置顶段翻完后从普通段首页继续。
+ * - {@link Kind#VIEWS}: 键为 (views, id)。
+ * - 对外以 Base64URL 编码的紧凑字符串表示，客户端应视为不透明令牌原样回传；时间为 UTC 微秒，见 {@link CursorCodec}。
+ */
+@Getter
+@AllArgsConstructor
+public class FeedCursor {
+    public enum Kind {
+        PINNED, // 置顶段
+        LATEST, // 普通段（按发布时间）
+        VIEWS   // 按浏览量
+    }
+
+    private final Kind kind;
+    private final LocalDateTime pinnedAt;
+    private final LocalDateTime createdAt;
+    private final long views;
+    private final long id;
+
+    /** 编码为不透明令牌 */
+    public String encode() {
+        return switch (kind) {
+            case PINNED -> CursorCodec.encode("P", CursorCodec.toMicros(pinnedAt), CursorCodec.toMicros(createdAt), id);
+            case LATEST -> CursorCodec.encode("L", CursorCodec.toMicros(createdAt), id);
+            case VIEWS -> CursorCodec.encode("V", views, id);
+        };
+    }
+
+    /**
+     * 解析令牌。
+     *
+     * @param token 客户端回传的令牌，可为空
+     * @return 游标；令牌为空时返回 {@code null}（表示首页）
+     * @throws FieldException 令牌格式非法时
+     */
+    public static FeedCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String[] parts = CursorCodec.decode(token);
+            switch (parts[0]) {
+                case "P":
+                    if (parts.length == 4) {
+                        return new FeedCursor(Kind.PINNED, CursorCodec.fromMicros(parts[1]), CursorCodec.fromMicros(parts[2]),
+                                0L, Long.parseLong(parts[3]));
+                    }
+                    break;
+                case "L":
+                    if (parts.length == 3) {
+                        return new FeedCursor(Kind.LATEST, null, CursorCodec.fromMicros(parts[1]), 0L, Long.parseLong(parts[2]));
+                    }
+                    break;
+                case "V":
+                    if (parts.length == 3) {
+                        return new FeedCursor(Kind.VIEWS, null, null, Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        } catch (IllegalArgumentException | DateTimeException e) {
+            // Base64 或数字格式错误，统一按非法游标处理
+        }
+        throw new FieldException("cursor", "Invalid cursor");
+    }
+}
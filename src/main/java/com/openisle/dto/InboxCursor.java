@@ -0,0 +1,48 @@
+package com.openisle.dto;
+
+import com.openisle.exception.FieldException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+
+/**
+ * InboxCursor
+ *
+ * 会话收件箱的游标，记录上一页最后一个会话的排序键 (lastActivityAt, conversationId)。
+ * 编码见 {@link CursorCodec}。
+ */
+@Getter
+@AllArgsConstructor
+public class InboxCursor {
+    private final LocalDateTime lastActivityAt;
+    private final long conversationId;
+
+    /** 编码为不透明令牌 */
+    public String encode() {
+        return CursorCodec.encode("A", CursorCodec.toMicros(lastActivityAt), conversationId);
+    }
+
+    /**
+     * 解析令牌。
+     *
+     * @param token 客户端回传的令牌，可为空
+     * @return 游标；令牌为空时返回 {@code null}（表示首页）
+     * @throws FieldException 令牌格式非法时
+     */
+    public static InboxCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String[] parts = CursorCodec.decode(token);
+            if (parts.length == 3 && parts[0].equals("A")) {
+                return new InboxCursor(CursorCodec.fromMicros(parts[1]), Long.parseLong(parts[2]));
+            }
+        } catch (IllegalArgumentException | DateTimeException e) {
+            // Base64 或数字格式错误，统一按非法游标处理
+        }
+        throw new FieldException("cursor", "Invalid cursor");
+    }
+}
@@ -0,0 +1,31 @@
+package com.openisle.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * InboxEntry
+ *
+ * 会话收件箱中的一项：会话元信息、最近活动与未读数，私聊会话附带参与者。
+ * 由 {@link com.openisle.service.ConversationInboxService} 组装。
+ */
+@Data
+@NoArgsConstructor
+public class InboxEntry {
+    private Long conversationId;
+    private boolean channel;
+    /** 频道名称/头像（仅频道） */
+    private String name;
+    private String avatar;
+    private LocalDateTime lastActivityAt;
+    private long unreadCount;
+    private Long lastMessageId;
+    private Long lastSenderId;
+    private String lastMessagePreview;
+    /** 私聊参与者（频道不加载成员列表） */
+    private List<UserSummary> participants = new ArrayList<>();
+}
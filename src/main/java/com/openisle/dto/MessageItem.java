@@ -0,0 +1,23 @@
+package com.openisle.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * MessageItem
+ *
+ * 消息历史的轻量投影：只含 ID 与时间，发送者、被回复消息由前端按需展开。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageItem {
+    private Long id;
+    private Long senderId;
+    /** 被回复的消息 ID（无回复为空） */
+    private Long replyToId;
+    private LocalDateTime createdAt;
+}
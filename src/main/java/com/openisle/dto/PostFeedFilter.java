@@ -0,0 +1,36 @@
+package com.openisle.dto;
+
+import com.openisle.model.PostSort;
+import com.openisle.model.PostStatus;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Collection;
+
+/**
+ * PostFeedFilter
+ *
+ * 帖子信息流的筛选条件，替代 {@code PostRepository} 中按 分类 × 标签 × 排序 组合出的各个查询方法。
+ *
+ * 字段说明：
+ * - {@code status}: 帖子状态，默认已发布。
+ * - {@code categoryIds}: 分类过滤，为空表示不限。
+ * - {@code tagIds}/{@code tagMatch}: 标签过滤；ANY 表示命中任一标签，ALL 表示包含全部标签。
+ * - {@code sort}: 排序方式，默认最新。
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class PostFeedFilter {
+    public enum TagMatch {
+        ANY, // 命中任一标签
+        ALL  // 同时包含全部标签
+    }
+
+    private PostStatus status = PostStatus.PUBLISHED;
+    private Collection<Long> categoryIds;
+    private Collection<Long> tagIds;
+    private TagMatch tagMatch = TagMatch.ANY;
+    private PostSort sort = PostSort.LATEST;
+}
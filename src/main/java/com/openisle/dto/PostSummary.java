@@ -0,0 +1,52 @@
+package com.openisle.dto;
+
+import com.openisle.model.PostStatus;
+import com.openisle.model.PostType;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PostSummary
+ *
+ * 帖子列表的轻量投影，不包含 LONGTEXT 正文。
+ *
+ * 标量字段由 JPQL 构造表达式直接填充；{@code author}/{@code category}/{@code tags}
+ * 由 {@link com.openisle.service.PostSummaryService} 按 ID 批量查询后回填。
+ */
+@Data
+@NoArgsConstructor
+public class PostSummary {
+    private Long id;
+    private String title;
+    private LocalDateTime createdAt;
+    private long views;
+    private PostStatus status;
+    private PostType type;
+    private boolean closed;
+    private LocalDateTime pinnedAt;
+    private Long authorId;
+    private Long categoryId;
+
+    private UserSummary author;
+    private CategorySummary category;
+    private List<TagSummary> tags = new ArrayList<>();
+
+    /** JPQL 构造表达式使用，参数顺序与 {@code PostRepository#findSummariesByIdIn} 一致 */
+    public PostSummary(Long id, String title, LocalDateTime createdAt, Long views, PostStatus status,
+                       PostType type, Boolean closed, LocalDateTime pinnedAt, Long authorId, Long categoryId) {
+        this.id = id;
+        this.title = title;
+        this.createdAt = createdAt;
+        this.views = views;
+        this.status = status;
+        this.type = type;
+        this.closed = closed;
+        this.pinnedAt = pinnedAt;
+        this.authorId = authorId;
+        this.categoryId = categoryId;
+    }
+}
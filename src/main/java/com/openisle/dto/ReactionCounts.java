@@ -0,0 +1,98 @@
+package com.openisle.dto;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.openisle.model.ReactionType;
+
+import java.nio.ByteBuffer;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 单个内容的表态计数：按 {@link ReactionType#ordinal()} 排列的定长计数数组。
+ *
+ * 持久化为 {@value #WIDTH} 个大端 int32（共 {@value #BYTES} 字节），见 {@code ReactionCounter}。
+ * 序列化为 JSON 时只输出非零项，形如 {@code {"LIKE": 3, "FIRE": 1}}。
+ */
+public class ReactionCounts {
+    /** 计数数组宽度，与 {@link ReactionType} 的取值个数一致（列宽注解需要编译期常量，不一致时类加载失败） */
+    public static final int WIDTH = 25;
+    public static final int BYTES = WIDTH * Integer.BYTES;
+
+    static {
+        if (ReactionType.values().length != WIDTH) {
+            throw new IllegalStateException("ReactionCounts.WIDTH is " + WIDTH + " but ReactionType has "
+                    + ReactionType.values().length + " values; update WIDTH (and the reaction_counters.counts column)");
+        }
+    }
+
+    private final int[] counts;
+
+    private ReactionCounts(int[] counts) {
+        this.counts = counts;
+    }
+
+    public static ReactionCounts empty() {
+        return new ReactionCounts(new int[WIDTH]);
+    }
+
+    /**
+     * 从存储格式解码；长度不足的数组按 0 补齐。
+     *
+     * @param bytes 大端 int32 数组
+     * @return 计数
+     */
+    public static ReactionCounts decode(byte[] bytes) {
+        int[] counts = new int[WIDTH];
+        if (bytes != null) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            for (int i = 0; i < WIDTH && buffer.remaining() >= Integer.BYTES; i++) {
+                counts[i] = buffer.getInt();
+            }
+        }
+        return new ReactionCounts(counts);
+    }
+
+    /** 编码为存储格式 */
+    public byte[] encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(BYTES);
+        for (int count : counts) {
+            buffer.putInt(count);
+        }
+        return buffer.array();
+    }
+
+    public int get(ReactionType type) {
+        return counts[type.ordinal()];
+    }
+
+    /**
+     * 调整某类表态的计数，结果不小于 0。
+     *
+     * @param type  表态类型
+     * @param delta 增量（可为负）
+     */
+    public void add(ReactionType type, int delta) {
+        int i = type.ordinal();
+        counts[i] = Math.max(0, counts[i] + delta);
+    }
+
+    public int total() {
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /** 非零计数，按类型顺序排列 */
+    @JsonValue
+    public Map<ReactionType, Integer> asMap() {
+        Map<ReactionType, Integer> map = new EnumMap<>(ReactionType.class);
+        for (ReactionType type : ReactionType.values()) {
+            if (counts[type.ordinal()] > 0) {
+                map.put(type, counts[type.ordinal()]);
+            }
+        }
+        return map;
+    }
+}
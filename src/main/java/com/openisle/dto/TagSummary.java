@@ -0,0 +1,20 @@
+package com.openisle.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * TagSummary
+ *
+ * 列表展示用的标签轻量投影。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TagSummary {
+    private Long id;
+    private String name;
+    private String icon;
+    private String smallIcon;
+}
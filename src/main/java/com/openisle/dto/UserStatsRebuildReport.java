@@ -0,0 +1,65 @@
+package com.openisle.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 用户统计全量重建报告：记录重建前存储值与明细表实际值之间的偏差。
+ */
+@Getter
+@ToString
+public class UserStatsRebuildReport {
+    /** 扫描的用户数 */
+    private long usersScanned;
+    /** 缺失而新建的行数 */
+    private long rowsInserted;
+    /** 存在偏差而被校正的行数 */
+    private long rowsCorrected;
+    /** 用户已不存在而删除的行数 */
+    private long rowsRemoved;
+    /** 各列出现偏差的行数 */
+    private final Map<String, Long> driftedRows = new LinkedHashMap<>();
+    /** 各计数列的累计绝对偏差 */
+    private final Map<String, Long> totalDrift = new LinkedHashMap<>();
+    /** 各计数列的最大单行绝对偏差 */
+    private final Map<String, Long> maxDrift = new LinkedHashMap<>();
+    /** 耗时（毫秒） */
+    private long elapsedMillis;
+
+    public void scanned() {
+        usersScanned++;
+    }
+
+    public void inserted() {
+        rowsInserted++;
+    }
+
+    public void corrected() {
+        rowsCorrected++;
+    }
+
+    public void removed() {
+        rowsRemoved++;
+    }
+
+    /**
+     * 记录一列的偏差。
+     *
+     * @param column 列名
+     * @param amount 绝对偏差；时间列传 0，仅计入偏差行数
+     */
+    public void drift(String column, long amount) {
+        driftedRows.merge(column, 1L, Long::sum);
+        if (amount > 0) {
+            totalDrift.merge(column, amount, Long::sum);
+            maxDrift.merge(column, amount, Math::max);
+        }
+    }
+
+    public void finished(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+}
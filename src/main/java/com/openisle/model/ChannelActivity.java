@@ -0,0 +1,41 @@
+package com.openisle.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * ChannelActivity
+ *
+ * 频道的最近活动（每个频道一行），是会话列表中频道部分的读模型；私聊见 {@link ConversationInbox}。
+ *
+ * 设计说明：
+ * - 频道成员多，消息发送时只更新这一行，不逐个改写成员的收件箱行；成员的会话列表经 {@code message_participants} 连接本表排序。
+ * - 由 {@code ConversationInboxService} 在消息发送、成员加入时于同一事务内维护。
+ * - 只保存 ID，不建外键。
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "channel_activity")
+public class ChannelActivity {
+    @Id
+    @Column(name = "conversation_id")
+    private Long conversationId; // 频道会话 ID
+
+    @Column(name = "last_activity_at", nullable = false)
+    private LocalDateTime lastActivityAt; // 最近一条消息时间（无消息时为频道创建时间）
+
+    @Column(name = "last_message_id")
+    private Long lastMessageId; // 最近一条消息 ID
+
+    @Column(name = "last_sender_id")
+    private Long lastSenderId; // 最近一条消息的发送者 ID
+
+    @Column(name = "last_message_preview", length = 200)
+    private String lastMessagePreview; // 最近一条消息的摘要
+}
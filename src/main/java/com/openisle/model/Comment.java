@@ -7,6 +7,10 @@ import lombok.Setter;
 import org.hibernate.annotations.SQLDelete;
 import org.hibernate.annotations.Where;
 import org.hibernate.annotations.CreationTimestamp;
+import com.openisle.search.SearchIndexListener;
+import com.openisle.service.CommentScoreListener;
+import com.openisle.service.LikeLeaderboardListener;
+import com.openisle.service.UserStatsListener;
 
 import java.time.LocalDateTime;
 
@@ -16,6 +20,10 @@ import java.time.LocalDateTime;
  * 设计说明：
  * - 逻辑删除：通过 `@SQLDelete` 与 `@Where`，删除操作改为设置 `deleted_at`，默认查询仅返回未删除记录。
  * - 内容存储：正文使用 TEXT，满足大多数评论长度需求。
+ * - 索引 `(post_id, deleted_at, id)` 支撑按帖子一次性加载评论树。
+ * - 互动分 `interaction_score` = 子树回复数 + 自身收到的表态数，由 `CommentScoreListener` 增量维护，
+ *   实体侧只读（不参与 INSERT/UPDATE，避免用过期值覆盖）；索引 `(post_id, interaction_score DESC, id)`
+ *   使按互动排序的分页成为索引范围扫描。
  * - 关联关系：
  *   - `author` 指向用户；
  *   - `post` 指向所属帖子；
@@ -25,9 +33,14 @@ import java.time.LocalDateTime;
 @Getter
 @Setter
 @NoArgsConstructor
-@Table(name = "comments")
+@Table(name = "comments", indexes = {
+        @Index(name = "idx_comments_post_deleted_id", columnList = "post_id, deleted_at, id"),
+        @Index(name = "idx_comments_post_score", columnList = "post_id, interaction_score DESC, id")
+})
 @SQLDelete(sql = "UPDATE comments SET deleted_at = CURRENT_TIMESTAMP(6) WHERE id = ?")
 @Where(clause = "deleted_at IS NULL")
+@EntityListeners({SearchIndexListener.class, UserStatsListener.class, LikeLeaderboardListener.class,
+        CommentScoreListener.class})
 public class Comment {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -58,4 +71,8 @@ public class Comment {
 
     @Column(name = "deleted_at")
     private LocalDateTime deletedAt; // 逻辑删除时间
+
+    @Column(name = "interaction_score", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "BIGINT DEFAULT 0")
+    private long interactionScore; // 互动分（子树回复数 + 表态数）
 }
@@ -0,0 +1,50 @@
+package com.openisle.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * ConversationInbox
+ *
+ * 会话收件箱（私聊的每个参与者一行），是会话列表的反规范化读模型；频道见 {@link ChannelActivity}，
+ * 未读数见 {@link MessageParticipant#getUnreadCount()}。
+ *
+ * 设计说明：
+ * - 由 {@code ConversationInboxService} 在消息发送、参与者加入/退出时于同一事务内维护。
+ * - 索引 {@code (user_id, last_activity_at, conversation_id)} 使分页收件箱成为一次索引范围扫描。
+ * - 只保存 ID，不建外键，随参与者记录一起清理。
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "conversation_inbox",
+        uniqueConstraints = @UniqueConstraint(name = "uk_conversation_inbox", columnNames = {"conversation_id", "user_id"}),
+        indexes = @Index(name = "idx_conversation_inbox_user_activity", columnList = "user_id, last_activity_at, conversation_id"))
+public class ConversationInbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId; // 参与者用户 ID
+
+    @Column(name = "conversation_id", nullable = false)
+    private Long conversationId; // 会话 ID
+
+    @Column(name = "last_activity_at", nullable = false)
+    private LocalDateTime lastActivityAt; // 最近一条消息时间（无消息时为加入时间）
+
+    @Column(name = "last_message_id")
+    private Long lastMessageId; // 最近一条消息 ID
+
+    @Column(name = "last_sender_id")
+    private Long lastSenderId; // 最近一条消息的发送者 ID
+
+    @Column(name = "last_message_preview", length = 200)
+    private String lastMessagePreview; // 最近一条消息的摘要
+}
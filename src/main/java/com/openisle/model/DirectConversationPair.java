@@ -0,0 +1,40 @@
+package com.openisle.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * DirectConversationPair
+ *
+ * 私聊会话的规范化索引：两位用户按 ID 排序为 (minUserId, maxUserId)，映射到唯一的私聊会话。
+ *
+ * 设计说明：
+ * - {@code (min_user_id, max_user_id)} 唯一约束保证并发创建时同一对用户只会产生一个私聊，
+ *   查找私聊即一次唯一键探测，见 {@code DirectConversationService}。
+ * - 只保存 ID，不建外键。
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "direct_conversation_pairs",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_direct_conversation_pair", columnNames = {"min_user_id", "max_user_id"}),
+                @UniqueConstraint(name = "uk_direct_conversation_pair_conversation", columnNames = "conversation_id")
+        })
+public class DirectConversationPair {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "min_user_id", nullable = false)
+    private Long minUserId; // 两位用户中较小的 ID
+
+    @Column(name = "max_user_id", nullable = false)
+    private Long maxUserId; // 两位用户中较大的 ID
+
+    @Column(name = "conversation_id", nullable = false)
+    private Long conversationId; // 私聊会话 ID
+}
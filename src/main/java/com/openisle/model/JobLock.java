@@ -0,0 +1,41 @@
+package com.openisle.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * JobLock
+ *
+ * 定时任务的互斥租约：每个任务一行，持有者在租约到期前独占执行，见 {@code JobLockService}。
+ *
+ * 设计说明：
+ * - 只经由 JdbcTemplate 的条件 UPDATE/INSERT 读写，实体仅用于建表。
+ * - 持有者崩溃时租约到期后自动让出，不需要人工清理。
+ * - 一次性任务（启动回填等）完成后写入 {@code completed_at}，之后各节点重启都不再执行。
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "job_locks")
+public class JobLock {
+    @Id
+    @Column(length = 64)
+    private String name; // 任务名
+
+    @Column(nullable = false, length = 128)
+    private String owner; // 持有节点
+
+    @Column(name = "locked_until", nullable = false)
+    private LocalDateTime lockedUntil; // 租约到期时间
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt; // 一次性任务的完成时间，未完成为空
+}
@@ -1,6 +1,9 @@
 package com.openisle.model;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.openisle.push.PushListener;
+import com.openisle.service.ConversationInboxListener;
+import com.openisle.service.MessageUnreadListener;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -13,12 +16,15 @@ import java.time.LocalDateTime;
  * Message
  *
  * 会话中的单条消息实体。支持引用上条消息（回复）、记录发送者与归属会话，并由数据库生成创建时间。
+ * 写入后由 {@code ConversationInboxListener} 刷新各参与者的会话收件箱，由 {@code MessageUnreadListener} 递增未读数；
+ * 索引 {@code (conversation_id, created_at)} 支撑已读时统计剩余未读。
  */
 @Entity
 @Getter
 @Setter
 @NoArgsConstructor
-@Table(name = "messages")
+@EntityListeners({ConversationInboxListener.class, MessageUnreadListener.class, PushListener.class})
+@Table(name = "messages", indexes = @Index(name = "idx_messages_conversation_created", columnList = "conversation_id, created_at"))
 public class Message {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -42,6 +48,6 @@ public class Message {
 
     /** 创建时间（自动生成，不可更新） */
     @CreationTimestamp
-    @Column(nullable = false, updatable = false)
+    @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 }
@@ -2,6 +2,8 @@ package com.openisle.model;
 
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.openisle.service.ConversationInboxListener;
+import com.openisle.service.MessageUnreadListener;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -13,12 +15,18 @@ import java.time.LocalDateTime;
  * MessageParticipant
  *
  * 会话参与者实体，表示某用户加入了某个会话，并记录其最后阅读时间。
+ * 加入与退出由 {@code ConversationInboxListener} 同步到会话收件箱；
+ * {@code unreadCount} 由 {@code MessageUnreadListener} 在消息发送与已读（更新 {@code lastReadAt}）时维护。
  */
 @Entity
 @Getter
 @Setter
 @NoArgsConstructor
-@Table(name = "message_participants")
+@EntityListeners({ConversationInboxListener.class, MessageUnreadListener.class})
+@Table(name = "message_participants", indexes = {
+        @Index(name = "idx_message_participants_conversation_user", columnList = "conversation_id, user_id"),
+        @Index(name = "idx_message_participants_user", columnList = "user_id, unread_count")
+})
 public class MessageParticipant {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -38,4 +46,12 @@ public class MessageParticipant {
     /** 最后读取会话的时间（可为空） */
     @Column
     private LocalDateTime lastReadAt;
+
+    /** 他人发送的未读消息数，只经由 {@code MessageUnreadService} 的 SQL 原子更新，实体不写入 */
+    @Column(name = "unread_count", columnDefinition = "BIGINT DEFAULT 0", insertable = false, updatable = false)
+    private long unreadCount;
+
+    /** 最近一次与数据库同步时的最后读取时间，用于判断更新是否为已读操作（不持久化） */
+    @Transient
+    private LocalDateTime storedLastReadAt;
 }
@@ -6,6 +6,8 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.hibernate.annotations.CreationTimestamp;
+import com.openisle.notification.NotificationActorListener;
+import com.openisle.service.UnreadNotificationListener;
 
 import java.time.LocalDateTime;
 
@@ -19,18 +21,33 @@ import java.time.LocalDateTime;
  * - {@code type}: 通知类别（如点赞、评论、关注等）。
  * - {@code user}: 通知接收者（被通知的用户）。
  * - {@code post}/{@code comment}: 关联内容，二者可空（根据通知类型按需关联）。
- * - {@code fromUser}: 触发该通知的用户（如点赞者、评论者）。
+ * - {@code fromUser}: 触发该通知的用户（如点赞者、评论者）；聚合通知中为最近一位参与者。
  * - {@code reactionType}: 若由反应触发，记录反应类型（通常为 LIKE）。
  * - {@code content}: 附加信息，展示在通知文案中。
  * - {@code approved}: 可选审批标记，表示该通知是否通过某种审核流程。
  * - {@code read}: 是否已读，默认为 {@code false}。
- * - {@code createdAt}: 创建时间，自动生成。
+ * - {@code createdAt}: 创建时间，自动生成；聚合通知每并入一次事件即更新为该事件时间。
+ * - 聚合：高频类型（如 REACTION、POST_VIEWED）在时间窗口内按 (接收者, 类型, 帖子/评论, 反应类型) 合并为一行，
+ *   {@code actorCount} 为参与人数，{@code recentActorIds} 为最近几位参与者，完整名单见 {@link NotificationActor}。
+ * - 未读计数：由 {@code UnreadNotificationListener} 在写入后维护按类型的未读计数器，
+ *   索引 {@code (user_id, is_read, type)} 供计数器加载与对账时的分组统计使用。
+ * - 批量操作：{@code (user_id, is_read, id)} 支撑按 ID 游标分段标记已读，{@code (type, from_user_id)} 支撑按触发者撤销。
+ * - 分区与保留：MySQL 上可按 {@code created_at} 月分区，{@code (user_id, created_at)} 支撑列表的倒序分页，
+ *   {@code (is_read, created_at)} 支撑过期已读通知的清理，见 {@code NotificationRetentionService}。
  */
 @Entity
 @Getter
 @Setter
 @NoArgsConstructor
-@Table(name ="notifications")
+@EntityListeners({UnreadNotificationListener.class, NotificationActorListener.class})
+@Table(name ="notifications", indexes = {
+        @Index(name = "idx_notifications_user_read_type", columnList = "user_id, is_read, type"),
+        @Index(name = "idx_notifications_coalesce", columnList = "user_id, type, post_id, comment_id, is_read"),
+        @Index(name = "idx_notifications_user_read_id", columnList = "user_id, is_read, id"),
+        @Index(name = "idx_notifications_type_from_user", columnList = "type, from_user_id"),
+        @Index(name = "idx_notifications_user_created", columnList = "user_id, created_at"),
+        @Index(name = "idx_notifications_read_created", columnList = "is_read, created_at")
+})
 public class Notification {
     /** 主键ID */
     @Id
@@ -75,13 +92,25 @@ public class Notification {
     @Column
     private Boolean approved;
 
+    /** 参与人数（聚合通知），普通通知为 1 */
+    @Column(name = "actor_count", nullable = false, columnDefinition = "INT DEFAULT 1")
+    private int actorCount = 1;
+
+    /** 最近的参与者 ID，逗号分隔、最新在前（聚合通知） */
+    @Column(name = "recent_actor_ids", length = 255)
+    private String recentActorIds;
+
     /** 是否已读（必须），默认 false */
     @Column(name ="is_read", nullable = false)
     private boolean read =false;
 
     /** 创建时间（自动生成，不可更新） */
     @CreationTimestamp
-    @Column(nullable = false, updatable = false,
+    @Column(name = "created_at", nullable = false, updatable = false,
             columnDefinition = "DATETIME(6) DEFAULT CURRENT_TIMESTAMP(6)")
     private LocalDateTime createdAt;
+
+    /** 最近一次与数据库同步时的已读状态，用于判断更新是否改变了未读数（不持久化） */
+    @Transient
+    private boolean storedRead;
 }
@@ -0,0 +1,38 @@
+package com.openisle.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * 聚合通知的参与者。
+ *
+ * 设计说明：
+ * - 聚合通知（{@code actor_count > 1} 的行）只在通知表保存计数与最近几位参与者，
+ *   完整的参与者名单记录在本表，撤销时据此精确扣减。
+ * - 只保存 ID，不建外键，通知行删除时由 {@code NotificationActorListener} 一并清理。
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "notification_actors",
+        uniqueConstraints = @UniqueConstraint(name = "uk_notification_actor", columnNames = {"notification_id", "actor_id"}),
+        indexes = @Index(name = "idx_notification_actors_actor", columnList = "actor_id"))
+public class NotificationActor {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "notification_id", nullable = false)
+    private Long notificationId; // 聚合通知 ID
+
+    @Column(name = "actor_id", nullable = false)
+    private Long actorId; // 参与者（触发用户）ID
+
+    @Column(name = "acted_at", nullable = false)
+    private LocalDateTime actedAt; // 最近一次参与时间
+}
@@ -4,6 +4,9 @@ package com.openisle.model;
  * NotificationType
  *
  * 站内通知类型枚举。每个枚举值代表一类事件，便于消息聚合、筛选与订阅控制。
+ *
+ * 注意：未读计数按序号存储、排除列表按序号转换为 int 位掩码（{@code UnreadNotificationCounter}），
+ * 新增类型只能追加在末尾，且总数不超过 31。
  */
 public enum NotificationType {
     POST_VIEWED,              // 有人查看了你的帖子
@@ -12,6 +12,8 @@ import java.util.HashSet;
 import java.util.Set;
 
 import com.openisle.model.Tag;
+import com.openisle.search.SearchIndexListener;
+import com.openisle.service.UserStatsListener;
 
 /**
  * 帖子实体（主贴/主题）。
@@ -21,13 +23,22 @@ import com.openisle.model.Tag;
  * - `@Inheritance(strategy = JOINED)` 预留了帖子类型的继承扩展能力（如投票贴、抽奖贴等），
  *   在子类表中仅保存子类特有字段，主表保存共有字段。
  * - 创建时间 `createdAt` 由数据库自动填充，精度为微秒，便于基于时间排序与统计。
+ * - 列表索引与游标分页的排序键保持一致：`(status, pinned_at, created_at, id)` 与 `(status, views, id)`，
+ *   深翻页时数据库可直接从索引定位起点，无需扫描并丢弃前面的行。
+ * - 标题与正文的变更由 {@link SearchIndexListener} 在事务提交后同步到全文索引；
+ *   发帖、状态变化与删除由 {@link UserStatsListener} 同步到用户统计快照。
  */
 @Entity
 @Getter
 @Setter
 @NoArgsConstructor
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+        @Index(name = "idx_posts_status_pinned_created", columnList = "status, pinned_at, created_at, id"),
+        @Index(name = "idx_posts_category_status_pinned_created", columnList = "category_id, status, pinned_at, created_at, id"),
+        @Index(name = "idx_posts_status_views", columnList = "status, views, id")
+})
 @Inheritance(strategy = InheritanceType.JOINED)
+@EntityListeners({SearchIndexListener.class, UserStatsListener.class})
 public class Post {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -40,7 +51,7 @@ public class Post {
     private String content; // 正文内容，使用 LONGTEXT 以支持较长文本
 
     @CreationTimestamp
-    @Column(nullable = false, updatable = false,
+    @Column(name = "created_at", nullable = false, updatable = false,
             columnDefinition = "DATETIME(6) DEFAULT CURRENT_TIMESTAMP(6)")
     private LocalDateTime createdAt; // 创建时间，由数据库自动生成
 
@@ -72,9 +83,17 @@ public class Post {
     @Column(nullable = false)
     private boolean closed =false; // 是否关闭评论/互动
 
-    @Column
+    @Column(name = "pinned_at")
     private LocalDateTime pinnedAt; // 置顶时间（为空表示未置顶）
 
     @Column(nullable = true)
     private Boolean rssExcluded = true; // 是否排除在 RSS 源之外
+
+    /** 最近一次与数据库同步时的状态，用于判断更新是否影响作者统计（不持久化） */
+    @Transient
+    private PostStatus storedStatus;
+
+    /** 最近一次与数据库同步时的作者 ID（不持久化） */
+    @Transient
+    private Long storedAuthorId;
 }
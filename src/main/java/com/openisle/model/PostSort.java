@@ -0,0 +1,11 @@
+package com.openisle.model;
+
+/**
+ * PostSort
+ *
+ * 帖子列表（信息流）排序方式枚举，决定游标分页使用的排序键。
+ */
+public enum PostSort {
+    LATEST,     // 置顶优先，其余按发布时间倒序：(pinnedAt, createdAt, id)
+    MOST_VIEWED // 按浏览量倒序：(views, id)
+}
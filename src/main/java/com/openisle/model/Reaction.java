@@ -6,6 +6,10 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.hibernate.annotations.CreationTimestamp;
+import com.openisle.service.CommentScoreListener;
+import com.openisle.service.LikeLeaderboardListener;
+import com.openisle.service.ReactionCounterListener;
+import com.openisle.service.UserStatsListener;
 
 /**
  * 反应/表情实体。
@@ -14,6 +18,9 @@ import org.hibernate.annotations.CreationTimestamp;
  * - 支持用户对帖子、评论进行表情反应（如点赞、踩、推荐等）。
  * - 通过联合唯一约束确保同一用户对同一内容只能有一种类型的反应。
  * - 使用懒加载优化性能，减少不必要的关联查询。
+ * - 新增/撤销时由 {@link UserStatsListener} 同步维护发起者与内容作者的点赞统计，
+ *   由 {@link ReactionCounterListener} 同步维护被表态内容的计数，点赞由 {@link LikeLeaderboardListener} 同步到作者排行，
+ *   评论上的表态由 {@link CommentScoreListener} 计入评论互动分。
  * 
  * 注意：Message 功能未实现，Message 类未创建。
  * 如需调用相关消息功能，请先补齐对应实体与业务逻辑，或暂时避免依赖。
@@ -31,6 +38,8 @@ import org.hibernate.annotations.CreationTimestamp;
 //                ,
 //                @UniqueConstraint(columnNames = {"user_id", "message_id", "type"})
         })
+@EntityListeners({UserStatsListener.class, ReactionCounterListener.class, LikeLeaderboardListener.class,
+        CommentScoreListener.class})
 public class Reaction {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,41 @@
+package com.openisle.model;
+
+import com.openisle.dto.ReactionCounts;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 表态计数（反规范化）。
+ *
+ * 设计说明：
+ * - 每个被表态的内容（帖子/评论/消息）一行，{@code counts} 为按表态类型序号排列的定长计数数组，
+ *   渲染表态汇总时无需再加载 {@link Reaction} 明细。
+ * - 由 {@code ReactionCounterListener} 在表态新增/撤销的同一事务内加行锁更新。
+ * - {@code (target_type, target_id)} 唯一，一页内容的计数可用一条 IN 查询读出。
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "reaction_counters",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"target_type", "target_id"}))
+public class ReactionCounter {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id; // 主键，自增 ID
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "target_type", nullable = false, length = 16)
+    private ReactionTargetType targetType; // 内容类型
+
+    @Column(name = "target_id", nullable = false)
+    private Long targetId; // 内容 ID
+
+    @Column(nullable = false, length = ReactionCounts.BYTES)
+    private byte[] counts; // 各类型计数（见 ReactionCounts）
+
+    @Column(nullable = false)
+    private int total = 0; // 表态总数
+}
@@ -0,0 +1,23 @@
+package com.openisle.model;
+
+/**
+ * ReactionTargetType
+ *
+ * 表态所针对的内容类型，对应 {@code reactions} 表中的外键列。
+ */
+public enum ReactionTargetType {
+    POST("post_id"),       // 帖子
+    COMMENT("comment_id"), // 评论
+    MESSAGE("message_id"); // 站内消息
+
+    private final String column;
+
+    ReactionTargetType(String column) {
+        this.column = column;
+    }
+
+    /** {@code reactions} 表中指向该类内容的外键列 */
+    public String column() {
+        return column;
+    }
+}
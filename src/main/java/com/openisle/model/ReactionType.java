@@ -4,6 +4,8 @@ package com.openisle.model;
  * ReactionType
  *
  * 反应/表情类型枚举，用于帖子与评论的互动统计与筛选展示。
+ *
+ * 注意：表态计数按序号存储（{@code ReactionCounts}），新增类型只能追加在末尾，并同步调整 {@code ReactionCounts.WIDTH}。
  */
 public enum ReactionType {
     LIKE,                 // 赞
@@ -0,0 +1,11 @@
+package com.openisle.model;
+
+/**
+ * SearchDocumentType
+ *
+ * 全文索引中的文档类型，对应 {@code search_index_changes.target_type}。
+ */
+public enum SearchDocumentType {
+    POST,   // 帖子
+    COMMENT // 评论
+}
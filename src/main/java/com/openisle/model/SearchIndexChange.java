@@ -0,0 +1,40 @@
+package com.openisle.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * SearchIndexChange
+ *
+ * 全文索引的变更日志：帖子/评论每次新增、修改、删除追加一行，多节点各自按自增 ID 水位补齐本地索引，见 {@code SearchIndexService}。
+ *
+ * 设计说明：
+ * - 与业务写入同一事务提交，推送总线丢失的变更仍可由日志找回。
+ * - 只经由 JdbcTemplate 读写，实体仅用于建表；超过保留期的行按 {@code created_at} 批量删除。
+ * - 只保存 ID，不建外键；重新索引时以数据库最新状态为准。
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "search_index_changes",
+        indexes = @Index(name = "idx_search_index_changes_created", columnList = "created_at"))
+public class SearchIndexChange {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id; // 主键，自增 ID（即水位）
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "target_type", nullable = false, length = 16)
+    private SearchDocumentType targetType; // 文档类型
+
+    @Column(name = "target_id", nullable = false)
+    private Long targetId; // 帖子/评论 ID
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt; // 记录时间
+}
@@ -1,5 +1,6 @@
 package com.openisle.model;
 
+import com.openisle.service.AuthPrincipalListener;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -29,6 +30,7 @@ import java.util.Set;
 @Setter
 @NoArgsConstructor
 @Table(name = "users")
+@EntityListeners(AuthPrincipalListener.class)
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -93,4 +95,8 @@ public class User {
     @Column(nullable = false, updatable = false,
             columnDefinition = "DATETIME(6) DEFAULT CURRENT_TIMESTAMP(6)")
     private LocalDateTime createdAt; // 注册时间
+
+    /** 最近一次与数据库同步时鉴权快照相关字段的取值，用于判断更新是否需要失效快照（不持久化） */
+    @Transient
+    private String storedPrincipalState;
 }
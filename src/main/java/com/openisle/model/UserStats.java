@@ -0,0 +1,51 @@
+package com.openisle.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * 用户统计快照（物化视图）。
+ *
+ * 设计说明：
+ * - 每个用户一行，主键即用户 ID；个人主页的统计数据只需一次主键查询。
+ * - 发帖/评论/表态写入时由 {@code UserStatsListener} 在同一事务内增量维护，
+ *   浏览量由 {@code PostViewCounter} 写回时同步累加。
+ * - 与各明细表的口径保持一致：浏览量与最近发帖时间只统计已发布帖子，评论不含已删除评论。
+ * - 出现偏差时可由 {@code UserStatsService#rebuild()} 全量校正。
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "user_stats")
+public class UserStats {
+    @Id
+    @Column(name = "user_id")
+    private Long userId; // 用户 ID（主键，与 users.id 一致）
+
+    @Column(nullable = false)
+    private long postCount = 0; // 发帖数（全部状态）
+
+    @Column(nullable = false)
+    private long publishedViews = 0; // 已发布帖子的累计浏览量
+
+    private LocalDateTime lastPostAt; // 最近一次发布帖子时间
+
+    @Column(nullable = false)
+    private long commentCount = 0; // 评论数（不含已删除）
+
+    private LocalDateTime lastCommentAt; // 最近一次评论时间
+
+    @Column(nullable = false)
+    private long likesSent = 0; // 发出的点赞数
+
+    @Column(nullable = false)
+    private long likesReceived = 0; // 帖子/评论收到的点赞数
+
+    @Column(nullable = false)
+    private long reactionsReceived = 0; // 帖子/评论收到的全部表态数（不限类型）
+}
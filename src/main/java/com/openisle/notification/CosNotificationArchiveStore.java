@@ -0,0 +1,46 @@
+package com.openisle.notification;
+
+import com.qcloud.cos.COSClient;
+import com.qcloud.cos.ClientConfig;
+import com.qcloud.cos.auth.BasicCOSCredentials;
+import com.qcloud.cos.region.Region;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+/**
+ * CosNotificationArchiveStore
+ *
+ * 对象存储归档（{@code app.notifications.archive.store=cos}）：上传到 {@code cos.bucket-name} 下的
+ * {@code app.notifications.archive.cos-prefix} 前缀，复用站点的 COS 凭据，各节点共享。
+ */
+@Component
+@ConditionalOnProperty(name = "app.notifications.archive.store", havingValue = "cos")
+public class CosNotificationArchiveStore implements NotificationArchiveStore {
+    private final COSClient client;
+    private final String bucket;
+    private final String prefix;
+
+    public CosNotificationArchiveStore(@Value("${cos.secret-id}") String secretId,
+                                       @Value("${cos.secret-key}") String secretKey,
+                                       @Value("${cos.region}") String region,
+                                       @Value("${cos.bucket-name}") String bucket,
+                                       @Value("${app.notifications.archive.cos-prefix:notification-archive/}") String prefix) {
+        this.client = new COSClient(new BasicCOSCredentials(secretId, secretKey), new ClientConfig(new Region(region)));
+        this.bucket = bucket;
+        this.prefix = prefix;
+    }
+
+    @Override
+    public void save(String name, Path file) {
+        client.putObject(bucket, prefix + name, file.toFile());
+    }
+
+    @PreDestroy
+    public void close() {
+        client.shutdown();
+    }
+}
@@ -0,0 +1,17 @@
+package com.openisle.notification;
+
+/**
+ * FanoutBroker
+ *
+ * 扇出消息的投递通道。每个分片内的消息按投递顺序被单个消费者处理，
+ * 同一接收者的通知因此不会并发写入。
+ */
+public interface FanoutBroker {
+    /**
+     * 投递一批扇出消息。
+     *
+     * @param shard 分片号，见 {@link NotificationFanoutService#shard(long)}
+     * @param batch 消息
+     */
+    void publish(int shard, NotificationFanoutBatch batch);
+}
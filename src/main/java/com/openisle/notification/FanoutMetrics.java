@@ -0,0 +1,83 @@
+package com.openisle.notification;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * FanoutMetrics
+ *
+ * 扇出管道的运行指标：积压批次数、队列延迟（入队到写入）与批大小。
+ * 累计值通过 {@link #snapshot()} 读取；窗口内的最大延迟与批大小每分钟输出一次日志后清零。
+ */
+@Slf4j
+@Component
+public class FanoutMetrics {
+    private final LongAdder published = new LongAdder();
+    private final LongAdder consumed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder inserted = new LongAdder();
+    private final LongAdder filtered = new LongAdder();
+    private final LongAdder lagTotal = new LongAdder();
+    private final AtomicLong lastLag = new AtomicLong();
+    private final LongAccumulator windowMaxLag = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator windowMaxBatch = new LongAccumulator(Math::max, 0);
+    private final LongAdder windowBatches = new LongAdder();
+    private final LongAdder windowRecipients = new LongAdder();
+
+    /** 指标快照 */
+    public record Snapshot(long published, long consumed, long failed, long backlog, long inserted, long filtered,
+                           long lastLagMillis, double avgLagMillis, double avgBatchSize) {
+    }
+
+    void published(int recipients) {
+        published.increment();
+        windowBatches.increment();
+        windowRecipients.add(recipients);
+        windowMaxBatch.accumulate(recipients);
+    }
+
+    void consumed(NotificationFanoutBatch batch, int insertedRows) {
+        long lag = Math.max(0, System.currentTimeMillis() - batch.getEnqueuedAt());
+        consumed.increment();
+        inserted.add(insertedRows);
+        filtered.add((batch.getRecipientIds() == null ? 0 : batch.getRecipientIds().size()) - insertedRows);
+        lagTotal.add(lag);
+        lastLag.set(lag);
+        windowMaxLag.accumulate(lag);
+    }
+
+    void failed() {
+        failed.increment();
+    }
+
+    public Snapshot snapshot() {
+        long published = this.published.sum();
+        long consumed = this.consumed.sum();
+        long inserted = this.inserted.sum();
+        long filtered = this.filtered.sum();
+        return new Snapshot(published, consumed, failed.sum(), Math.max(0, published - consumed), inserted, filtered,
+                lastLag.get(),
+                consumed == 0 ? 0 : (double) lagTotal.sum() / consumed,
+                consumed == 0 ? 0 : (double) (inserted + filtered) / consumed);
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void report() {
+        long batches = windowBatches.sumThenReset();
+        long recipients = windowRecipients.sumThenReset();
+        long maxBatch = windowMaxBatch.getThenReset();
+        long maxLag = windowMaxLag.getThenReset();
+        if (batches == 0 && maxLag == 0) {
+            return;
+        }
+        Snapshot s = snapshot();
+        log.info("Notification fan-out: {} batches / {} recipients in last window (max batch {}), max lag {} ms, " +
+                        "backlog {} batches, {} inserted, {} filtered, {} failed",
+                batches, recipients, maxBatch, maxLag, s.backlog(), s.inserted(), s.filtered(), s.failed());
+    }
+}
@@ -0,0 +1,79 @@
+package com.openisle.notification;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * InMemoryFanoutBroker
+ *
+ * 进程内的扇出通道（{@code app.notifications.fanout.broker=memory}），用于测试与无 RabbitMQ 的单机部署。
+ * 每个分片一个单线程执行器，保持与 RabbitMQ 分片队列相同的顺序语义；进程退出时未处理的消息丢失。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.notifications.fanout.broker", havingValue = "memory")
+@RequiredArgsConstructor
+public class InMemoryFanoutBroker implements FanoutBroker {
+    private final NotificationFanoutWriter writer;
+
+    private final Map<Integer, ExecutorService> shards = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    @Override
+    public void publish(int shard, NotificationFanoutBatch batch) {
+        ExecutorService executor = shards.computeIfAbsent(shard, s -> Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "notification-fanout-" + s);
+            t.setDaemon(true);
+            return t;
+        }));
+        pending.incrementAndGet();
+        executor.execute(() -> {
+            try {
+                writer.write(batch);
+            } catch (RuntimeException e) {
+                log.error("Notification fan-out batch failed: {} to {} recipients", batch.getType(),
+                        batch.getRecipientIds().size(), e);
+            } finally {
+                synchronized (pending) {
+                    if (pending.decrementAndGet() == 0) {
+                        pending.notifyAll();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * 等待已投递的消息全部处理完。
+     *
+     * @return 超时前处理完返回 {@code true}
+     */
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (pending) {
+            while (pending.get() > 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(pending, remaining);
+            }
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shards.values().forEach(ExecutorService::shutdown);
+    }
+}
@@ -0,0 +1,33 @@
+package com.openisle.notification;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * LocalNotificationArchiveStore
+ *
+ * 默认的归档存储（{@code app.notifications.archive.store=local}）：写入 {@code app.notifications.archive.dir}。
+ * 多节点部署时该目录应挂载共享存储（如 NFS），否则归档落在当次执行任务的节点上；也可改用 {@link CosNotificationArchiveStore}。
+ * 先复制为同目录下的临时文件再原子改名，读取方不会看到写了一半的文件。
+ */
+@Component
+@ConditionalOnProperty(name = "app.notifications.archive.store", havingValue = "local", matchIfMissing = true)
+public class LocalNotificationArchiveStore implements NotificationArchiveStore {
+    @Value("${app.notifications.archive.dir:data/notification-archive}")
+    private String archiveDir;
+
+    @Override
+    public void save(String name, Path file) throws IOException {
+        Path dir = Path.of(archiveDir);
+        Files.createDirectories(dir);
+        Path tmp = dir.resolve(name + ".tmp");
+        Files.copy(file, tmp, StandardCopyOption.REPLACE_EXISTING);
+        Files.move(tmp, dir.resolve(name), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
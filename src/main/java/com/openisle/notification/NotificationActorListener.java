@@ -0,0 +1,26 @@
+package com.openisle.notification;
+
+import com.openisle.model.Notification;
+import jakarta.persistence.PostRemove;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * NotificationActorListener
+ *
+ * 通知实体被删除时（含 {@code deleteBy...} 派生删除）在同一事务内清理聚合通知的参与者记录。
+ */
+@Component
+@RequiredArgsConstructor
+public class NotificationActorListener {
+    private final ObjectProvider<NotificationCoalescer> coalescer;
+
+    @PostRemove
+    public void onRemove(Notification notification) {
+        NotificationCoalescer service = coalescer.getIfAvailable();
+        if (service != null && (notification.getActorCount() > 1 || service.coalesces(notification.getType()))) {
+            service.notificationRemoved(notification.getId());
+        }
+    }
+}
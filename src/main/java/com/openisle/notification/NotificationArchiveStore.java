@@ -0,0 +1,18 @@
+package com.openisle.notification;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 通知归档文件的存储，见 {@link NotificationRetentionService}。
+ * 归档只在获得任务租约的一个节点上执行，存储必须是各节点共享的位置。
+ */
+public interface NotificationArchiveStore {
+    /**
+     * 保存归档文件；同名文件已存在时覆盖。
+     *
+     * @param name 文件名，如 {@code notifications-2025-01.jsonl.gz}
+     * @param file 本机上写好的临时文件，由调用方在保存后删除
+     */
+    void save(String name, Path file) throws IOException;
+}
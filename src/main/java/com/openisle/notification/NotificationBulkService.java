@@ -0,0 +1,107 @@
+package com.openisle.notification;
+
+import com.openisle.dto.BulkUpdateResult;
+import com.openisle.model.NotificationType;
+import com.openisle.model.ReactionType;
+import com.openisle.repository.NotificationRepository;
+import com.openisle.service.UnreadNotificationCounter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * NotificationBulkService
+ *
+ * 通知的集合式批量操作，替代逐条加载实体再保存/删除的派生方法。
+ *
+ * 设计要点：
+ * - 按 ID 升序分段，每段一个事务，单个事务的锁持有时间与总量无关。
+ * - 已读：每段先取出游标之后的未读 ID，再以一条 UPDATE 标记 (游标, 本段最大 ID] 区间，
+ *   提交后丢弃该用户的未读计数，下次读取时重新加载。
+ * - 撤销：分段调用 {@link NotificationCoalescer#revoke}，聚合行只扣除该触发者。
+ * - 每个操作返回 {@link BulkUpdateResult}，包含受影响行数与分段数。
+ */
+@Service
+@RequiredArgsConstructor
+public class NotificationBulkService {
+    /** 每段（事务）处理的最大行数 */
+    static final int CHUNK = 1000;
+
+    private final NotificationRepository notificationRepository;
+    private final NotificationCoalescer coalescer;
+    private final UnreadNotificationCounter unreadCounter;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * 游标分页式已读：将 {@code afterId} 之后最多 {@code limit} 条未读通知标记为已读。
+     *
+     * @return 结果中的 {@code nextCursor} 为下一次调用的 {@code afterId}，为空表示已无更多未读
+     */
+    public BulkUpdateResult markRead(long userId, long afterId, int limit) {
+        long start = System.currentTimeMillis();
+        BulkUpdateResult result = new BulkUpdateResult();
+        result.next(markChunk(userId, afterId, Long.MAX_VALUE, Math.max(1, Math.min(limit, CHUNK)), result));
+        result.finished(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * 将 ID 区间 (afterId, toId] 内的未读通知全部标记为已读，分段执行。
+     */
+    public BulkUpdateResult markReadRange(long userId, long afterId, long toId) {
+        long start = System.currentTimeMillis();
+        BulkUpdateResult result = new BulkUpdateResult();
+        Long cursor = afterId;
+        while (cursor != null) {
+            cursor = markChunk(userId, cursor, toId, CHUNK, result);
+        }
+        result.finished(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * 全部已读：标记 ID 不超过水位线的未读通知，水位线之后到达的通知保持未读。
+     *
+     * @param watermarkId 客户端已看到的最新通知 ID
+     */
+    public BulkUpdateResult markAllRead(long userId, long watermarkId) {
+        return markReadRange(userId, 0, watermarkId);
+    }
+
+    /**
+     * 分段撤销某触发者产生的通知，为空的条件不参与过滤。
+     */
+    public BulkUpdateResult revoke(NotificationType type, long fromUserId, Long postId, Long commentId,
+                                   ReactionType reactionType) {
+        long start = System.currentTimeMillis();
+        BulkUpdateResult result = new BulkUpdateResult();
+        while (true) {
+            Integer affected = transactionTemplate.execute(status ->
+                    coalescer.revoke(type, fromUserId, postId, commentId, reactionType, CHUNK));
+            if (affected == null || affected == 0) {
+                break;
+            }
+            result.chunk(affected);
+        }
+        result.finished(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /** 处理一段，返回下一段的游标；没有更多时返回 {@code null} */
+    private Long markChunk(long userId, long afterId, long maxId, int limit, BulkUpdateResult result) {
+        return transactionTemplate.execute(status -> {
+            List<Long> ids = notificationRepository.findUnreadIdsAfter(userId, afterId, maxId, PageRequest.of(0, limit));
+            if (ids.isEmpty()) {
+                return null;
+            }
+            long toId = ids.get(ids.size() - 1);
+            int updated = notificationRepository.markReadInRange(userId, afterId, toId);
+            unreadCounter.invalidate(userId);
+            result.chunk(updated);
+            return ids.size() < limit ? null : toId;
+        });
+    }
+}
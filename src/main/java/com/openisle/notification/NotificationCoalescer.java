@@ -0,0 +1,280 @@
+package com.openisle.notification;
+
+import com.openisle.model.NotificationType;
+import com.openisle.model.ReactionType;
+import com.openisle.service.UnreadNotificationCounter;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * NotificationCoalescer
+ *
+ * 高频通知的合并写入。同一接收者、同一类型、同一帖子/评论、同一反应类型的事件，
+ * 若在 {@code app.notifications.coalesce.window-minutes} 内存在未读的聚合行，则并入该行：
+ * 参与人数 +1、更新最近参与者与时间；否则新建一行。合并的类型由 {@code app.notifications.coalesce.types} 配置。
+ *
+ * 设计要点：
+ * - 窗口按聚合行最近一次并入的时间滑动；行被标记已读后，新事件另起一行。
+ * - 未读数只在新建行时 +1，按“未读的聚合行”计数。
+ * - 参与者名单记录在 {@code notification_actors}，{@link #revoke} 据此扣减参与人数，减到 0 才删除通知行。
+ * - 并发的首个事件可能各自建行，之后的事件并入最新的一行，不影响正确性。
+ */
+@Service
+@RequiredArgsConstructor
+public class NotificationCoalescer {
+    /** 聚合行保留的最近参与者个数 */
+    static final int RECENT_ACTORS = 5;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UnreadNotificationCounter unreadCounter;
+
+    @Value("${app.notifications.coalesce.types:REACTION,POST_VIEWED}")
+    private String[] coalescedTypeNames;
+
+    @Value("${app.notifications.coalesce.window-minutes:60}")
+    private long windowMinutes;
+
+    private Set<NotificationType> coalescedTypes;
+
+    @PostConstruct
+    void init() {
+        Set<NotificationType> types = EnumSet.noneOf(NotificationType.class);
+        for (String name : coalescedTypeNames) {
+            if (!name.isBlank()) {
+                types.add(NotificationType.valueOf(name.trim()));
+            }
+        }
+        coalescedTypes = types;
+    }
+
+    /** 该类型是否合并写入 */
+    public boolean coalesces(NotificationType type) {
+        return coalescedTypes.contains(type);
+    }
+
+    /**
+     * 记录一次通知事件。
+     *
+     * @param type         通知类型
+     * @param userId       接收者 ID
+     * @param fromUserId   触发者 ID，匿名时为空
+     * @param postId       关联帖子 ID，可为空
+     * @param commentId    关联评论 ID，可为空
+     * @param reactionType 反应类型，可为空
+     * @param content      附加文案，可为空（聚合行保留最近一次的文案）
+     * @return 写入或并入的通知 ID
+     */
+    @Transactional
+    public long record(NotificationType type, long userId, Long fromUserId, Long postId, Long commentId,
+                       ReactionType reactionType, String content) {
+        LocalDateTime now = LocalDateTime.now();
+        if (!coalesces(type)) {
+            return insert(type, userId, fromUserId, postId, commentId, reactionType, content, now);
+        }
+        List<Object> args = new ArrayList<>(List.of(userId, type.name(), Timestamp.valueOf(now.minusMinutes(windowMinutes))));
+        String sql = "SELECT id, actor_count, from_user_id, recent_actor_ids FROM notifications " +
+                "WHERE user_id = ? AND type = ? AND is_read = FALSE AND created_at >= ?" +
+                matches("post_id", postId, args) + matches("comment_id", commentId, args) +
+                matches("reaction_type", reactionType == null ? null : reactionType.name(), args) +
+                " ORDER BY id DESC LIMIT 1 FOR UPDATE";
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(sql, args.toArray());
+        if (rows.isEmpty()) {
+            long id = insert(type, userId, fromUserId, postId, commentId, reactionType, content, now);
+            if (fromUserId != null) {
+                touchActor(id, fromUserId, now);
+            }
+            return id;
+        }
+        Map<String, Object> row = rows.get(0);
+        long id = ((Number) row.get("id")).longValue();
+        Long previousActor = row.get("from_user_id") == null ? null : ((Number) row.get("from_user_id")).longValue();
+        if (((Number) row.get("actor_count")).intValue() == 1 && previousActor != null && !previousActor.equals(fromUserId)) {
+            // 启用合并前写入的普通行没有参与者记录，补上原触发者
+            addActorIfAbsent(id, previousActor, Timestamp.valueOf(now.minusNanos(1000)));
+        }
+        int added = fromUserId == null || touchActor(id, fromUserId, now) ? 1 : 0;
+        jdbcTemplate.update("UPDATE notifications SET actor_count = actor_count + ?, from_user_id = COALESCE(?, from_user_id), " +
+                        "recent_actor_ids = ?, content = COALESCE(?, content), created_at = ? WHERE id = ?",
+                added, fromUserId, recentActors((String) row.get("recent_actor_ids"), fromUserId), content,
+                Timestamp.valueOf(now), id);
+        return id;
+    }
+
+    /**
+     * 撤销某触发者产生的通知：从聚合行中扣除该参与者，参与人数归零时删除；
+     * 未合并的普通行直接删除。为空的条件不参与过滤。
+     *
+     * @return 受影响（扣减或删除）的通知行数
+     */
+    @Transactional
+    public int revoke(NotificationType type, long fromUserId, Long postId, Long commentId, ReactionType reactionType) {
+        return revoke(type, fromUserId, postId, commentId, reactionType, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 同 {@link #revoke(NotificationType, long, Long, Long, ReactionType)}，本次最多处理 {@code limit} 行，
+     * 供分段撤销控制单个事务的锁持有时间；返回 0 表示已无可撤销的行。
+     */
+    @Transactional
+    public int revoke(NotificationType type, long fromUserId, Long postId, Long commentId, ReactionType reactionType, int limit) {
+        List<Object> filterArgs = new ArrayList<>();
+        String filters = filter("n.post_id", postId, filterArgs) + filter("n.comment_id", commentId, filterArgs) +
+                filter("n.reaction_type", reactionType == null ? null : reactionType.name(), filterArgs);
+        List<Object> args = new ArrayList<>(List.of(fromUserId, type.name()));
+        args.addAll(filterArgs);
+        args.add(limit);
+        List<Long> aggregated = jdbcTemplate.queryForList("SELECT n.id FROM notifications n " +
+                "JOIN notification_actors a ON a.notification_id = n.id WHERE a.actor_id = ? AND n.type = ?" + filters +
+                " ORDER BY n.id LIMIT ?", Long.class, args.toArray());
+
+        int affected = 0;
+        for (Long id : aggregated) {
+            List<Map<String, Object>> locked = jdbcTemplate.queryForList(
+                    "SELECT user_id, actor_count, is_read FROM notifications WHERE id = ? FOR UPDATE", id);
+            if (locked.isEmpty() || jdbcTemplate.update("DELETE FROM notification_actors WHERE notification_id = ? AND actor_id = ?",
+                    id, fromUserId) == 0) {
+                continue;
+            }
+            Map<String, Object> row = locked.get(0);
+            List<Long> remaining = jdbcTemplate.queryForList("SELECT actor_id FROM notification_actors WHERE notification_id = ? " +
+                    "ORDER BY acted_at DESC, id DESC LIMIT " + RECENT_ACTORS, Long.class, id);
+            int actorCount = ((Number) row.get("actor_count")).intValue() - 1;
+            if (actorCount <= 0) {
+                jdbcTemplate.update("DELETE FROM notification_actors WHERE notification_id = ?", id);
+                if (jdbcTemplate.update("DELETE FROM notifications WHERE id = ?", id) > 0 && !Boolean.TRUE.equals(row.get("is_read"))) {
+                    unreadCounter.changed(((Number) row.get("user_id")).longValue(), type, -1);
+                }
+            } else {
+                jdbcTemplate.update("UPDATE notifications SET actor_count = ?, from_user_id = ?, recent_actor_ids = ? WHERE id = ?",
+                        actorCount, remaining.isEmpty() ? null : remaining.get(0), join(remaining), id);
+            }
+            affected++;
+        }
+        if (aggregated.size() >= limit) {
+            return affected;
+        }
+
+        // 未合并的普通行：锁定一批后按 ID 集合删除
+        args = new ArrayList<>(List.of(type.name(), fromUserId));
+        args.addAll(filterArgs);
+        args.add(limit - aggregated.size());
+        List<Map<String, Object>> plain = jdbcTemplate.queryForList("SELECT n.id, n.user_id, n.is_read FROM notifications n " +
+                "WHERE n.type = ? AND n.from_user_id = ?" + filters +
+                " AND NOT EXISTS (SELECT 1 FROM notification_actors a WHERE a.notification_id = n.id) ORDER BY n.id LIMIT ? FOR UPDATE",
+                args.toArray());
+        if (plain.isEmpty()) {
+            return affected;
+        }
+        StringBuilder sql = new StringBuilder("DELETE FROM notifications WHERE id IN (");
+        List<Object> ids = new ArrayList<>(plain.size());
+        for (Map<String, Object> row : plain) {
+            sql.append(ids.isEmpty() ? "?" : ", ?");
+            ids.add(row.get("id"));
+            if (!Boolean.TRUE.equals(row.get("is_read"))) {
+                unreadCounter.changed(((Number) row.get("user_id")).longValue(), type, -1);
+            }
+        }
+        return affected + jdbcTemplate.update(sql.append(')').toString(), ids.toArray());
+    }
+
+    /** 通知行被删除后清理其参与者记录 */
+    public void notificationRemoved(long notificationId) {
+        jdbcTemplate.update("DELETE FROM notification_actors WHERE notification_id = ?", notificationId);
+    }
+
+    /** 记录参与者；已存在时只刷新时间。返回是否新增 */
+    private boolean touchActor(long notificationId, long actorId, LocalDateTime now) {
+        Timestamp at = Timestamp.valueOf(now);
+        if (jdbcTemplate.update("UPDATE notification_actors SET acted_at = ? WHERE notification_id = ? AND actor_id = ?",
+                at, notificationId, actorId) > 0) {
+            return false;
+        }
+        jdbcTemplate.update("INSERT INTO notification_actors (notification_id, actor_id, acted_at) VALUES (?, ?, ?)",
+                notificationId, actorId, at);
+        return true;
+    }
+
+    private void addActorIfAbsent(long notificationId, long actorId, Timestamp at) {
+        jdbcTemplate.update("INSERT INTO notification_actors (notification_id, actor_id, acted_at) SELECT ?, ?, ? " +
+                "WHERE NOT EXISTS (SELECT 1 FROM notification_actors WHERE notification_id = ? AND actor_id = ?)",
+                notificationId, actorId, at, notificationId, actorId);
+    }
+
+    private long insert(NotificationType type, long userId, Long fromUserId, Long postId, Long commentId,
+                        ReactionType reactionType, String content, LocalDateTime now) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement("INSERT INTO notifications (type, user_id, from_user_id, post_id, " +
+                    "comment_id, reaction_type, content, actor_count, recent_actor_ids, is_read, created_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, 1, ?, FALSE, ?)", new String[]{"id"});
+            ps.setString(1, type.name());
+            ps.setLong(2, userId);
+            ps.setObject(3, fromUserId, Types.BIGINT);
+            ps.setObject(4, postId, Types.BIGINT);
+            ps.setObject(5, commentId, Types.BIGINT);
+            ps.setString(6, reactionType == null ? null : reactionType.name());
+            ps.setString(7, content);
+            ps.setString(8, fromUserId == null ? null : fromUserId.toString());
+            ps.setTimestamp(9, Timestamp.valueOf(now));
+            return ps;
+        }, keys);
+        unreadCounter.changed(userId, type, 1);
+        return keys.getKey().longValue();
+    }
+
+    /** 合并键的等值条件，空值匹配 IS NULL */
+    private static String matches(String column, Object value, List<Object> args) {
+        if (value == null) {
+            return " AND " + column + " IS NULL";
+        }
+        args.add(value);
+        return " AND " + column + " = ?";
+    }
+
+    /** 撤销时的过滤条件，空值表示不过滤 */
+    private static String filter(String column, Object value, List<Object> args) {
+        if (value == null) {
+            return "";
+        }
+        args.add(value);
+        return " AND " + column + " = ?";
+    }
+
+    private static String recentActors(String recent, Long actorId) {
+        Set<Long> ids = new LinkedHashSet<>();
+        if (actorId != null) {
+            ids.add(actorId);
+        }
+        if (recent != null && !recent.isBlank()) {
+            for (String id : recent.split(",")) {
+                if (ids.size() >= RECENT_ACTORS) {
+                    break;
+                }
+                ids.add(Long.parseLong(id.trim()));
+            }
+        }
+        return ids.isEmpty() ? null : join(new ArrayList<>(ids));
+    }
+
+    private static String join(List<Long> ids) {
+        return ids.isEmpty() ? null : ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+}
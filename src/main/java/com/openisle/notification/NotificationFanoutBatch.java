@@ -0,0 +1,29 @@
+package com.openisle.notification;
+
+import com.openisle.model.NotificationType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * NotificationFanoutBatch
+ *
+ * 一条扇出消息：同一事件发给同一分片内的一批接收者，消费端一次批量插入。
+ * 只携带 ID，序列化为 JSON 在队列中传递。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationFanoutBatch {
+    private NotificationType type;
+    private Long fromUserId;
+    private Long postId;
+    private Long commentId;
+    private String content;
+    /** 接收者 ID，均属于同一分片 */
+    private List<Long> recipientIds;
+    /** 入队时间（毫秒），用于统计队列延迟 */
+    private long enqueuedAt;
+}
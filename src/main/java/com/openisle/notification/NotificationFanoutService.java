@@ -0,0 +1,112 @@
+package com.openisle.notification;
+
+import com.openisle.model.NotificationType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * NotificationFanoutService
+ *
+ * 面向关注者/订阅者的通知扇出（如 FOLLOWED_POST、USER_ACTIVITY、POST_UPDATED），
+ * 把逐条插入通知从发帖/评论的请求路径上移走。
+ *
+ * 设计要点：
+ * - 接收者去重并排除触发者本人后，按接收者 ID 分片（{@code rabbitmq.sharding.enabled} 时
+ *   {@value #SHARDS} 个分片，否则 1 个），每个分片再按 {@code app.notifications.fanout.batch-size} 切成批次。
+ * - 当前有事务时在提交后投递，保证消费端能看到帖子/评论；事务回滚则不投递。
+ * - 消费端由 {@link NotificationFanoutWriter} 批量过滤、批量插入；投递为至少一次语义。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class NotificationFanoutService {
+    /** 启用分片时的分片数 */
+    static final int SHARDS = 16;
+
+    private final FanoutBroker broker;
+    private final FanoutMetrics metrics;
+
+    @Value("${rabbitmq.sharding.enabled:true}")
+    private boolean shardingEnabled;
+
+    @Value("${app.notifications.fanout.batch-size:500}")
+    private int batchSize;
+
+    /** 分片数 */
+    public int shards() {
+        return shardingEnabled ? SHARDS : 1;
+    }
+
+    /** 接收者所属的分片 */
+    public int shard(long recipientId) {
+        return Math.floorMod(Long.hashCode(recipientId * 0x9E3779B97F4A7C15L), shards());
+    }
+
+    /**
+     * 向一组接收者扇出同一条通知。
+     *
+     * @param type         通知类型
+     * @param fromUserId   触发者 ID，可为空
+     * @param postId       关联帖子 ID，可为空
+     * @param commentId    关联评论 ID，可为空
+     * @param content      附加文案，可为空
+     * @param recipientIds 接收者 ID
+     */
+    public void fanout(NotificationType type, Long fromUserId, Long postId, Long commentId, String content,
+                       Collection<Long> recipientIds) {
+        Objects.requireNonNull(type, "type");
+        Set<Long> unique = new LinkedHashSet<>(recipientIds);
+        unique.remove(null);
+        if (fromUserId != null) {
+            unique.remove(fromUserId);
+        }
+        if (unique.isEmpty()) {
+            return;
+        }
+        List<List<Long>> shards = new ArrayList<>();
+        for (int i = 0; i < shards(); i++) {
+            shards.add(new ArrayList<>());
+        }
+        for (Long id : unique) {
+            shards.get(shard(id)).add(id);
+        }
+        Runnable publish = () -> {
+            long now = System.currentTimeMillis();
+            int size = Math.max(1, batchSize);
+            for (int shard = 0; shard < shards.size(); shard++) {
+                List<Long> ids = shards.get(shard);
+                for (int from = 0; from < ids.size(); from += size) {
+                    List<Long> chunk = List.copyOf(ids.subList(from, Math.min(from + size, ids.size())));
+                    metrics.published(chunk.size());
+                    broker.publish(shard, new NotificationFanoutBatch(type, fromUserId, postId, commentId,
+                            content, chunk, now));
+                }
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    try {
+                        publish.run();
+                    } catch (RuntimeException e) {
+                        log.error("Notification fan-out of {} to {} recipients failed", type, unique.size(), e);
+                    }
+                }
+            });
+        } else {
+            publish.run();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.openisle.notification;
+
+import com.openisle.service.UnreadNotificationCounter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * NotificationFanoutWriter
+ *
+ * 扇出消息的消费端：一条查询过滤掉关闭了该通知类型的接收者，再以 JDBC 批量插入通知，
+ * 并在同一事务内累计未读数增量（提交后生效）。
+ */
+@Component
+@RequiredArgsConstructor
+public class NotificationFanoutWriter {
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UnreadNotificationCounter unreadCounter;
+    private final FanoutMetrics metrics;
+
+    /**
+     * 在独立事务内写入一批通知，并记录指标；失败时抛出异常，由投递通道决定重试。
+     *
+     * @return 实际插入的行数
+     */
+    public int write(NotificationFanoutBatch batch) {
+        Integer inserted;
+        try {
+            inserted = transactionTemplate.execute(status -> insert(batch));
+        } catch (RuntimeException e) {
+            metrics.failed();
+            throw e;
+        }
+        int rows = inserted == null ? 0 : inserted;
+        metrics.consumed(batch, rows);
+        return rows;
+    }
+
+    private int insert(NotificationFanoutBatch batch) {
+        List<Long> recipients = batch.getRecipientIds();
+        if (recipients == null || recipients.isEmpty()) {
+            return 0;
+        }
+        Set<Long> disabled = disabledRecipients(batch, recipients);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Object[]> rows = new ArrayList<>(recipients.size());
+        for (Long userId : recipients) {
+            if (!disabled.contains(userId)) {
+                rows.add(new Object[]{batch.getType().name(), userId, batch.getPostId(), batch.getCommentId(),
+                        batch.getFromUserId(), batch.getContent(), now});
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO notifications (type, user_id, post_id, comment_id, from_user_id, content, is_read, created_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, FALSE, ?)", rows);
+            for (Object[] row : rows) {
+                unreadCounter.changed((Long) row[1], batch.getType(), 1);
+            }
+        }
+        return rows.size();
+    }
+
+    private Set<Long> disabledRecipients(NotificationFanoutBatch batch, List<Long> recipients) {
+        StringBuilder sql = new StringBuilder("SELECT user_id FROM user_disabled_notification_types " +
+                "WHERE notification_type = ? AND user_id IN (");
+        List<Object> args = new ArrayList<>(recipients.size() + 1);
+        args.add(batch.getType().name());
+        for (int i = 0; i < recipients.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+            args.add(recipients.get(i));
+        }
+        sql.append(')');
+        return new HashSet<>(jdbcTemplate.queryForList(sql.toString(), Long.class, args.toArray()));
+    }
+}
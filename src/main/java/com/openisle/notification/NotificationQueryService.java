@@ -0,0 +1,66 @@
+package com.openisle.notification;
+
+import com.openisle.model.Notification;
+import com.openisle.model.NotificationType;
+import com.openisle.model.User;
+import com.openisle.repository.NotificationRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collection;
+
+/**
+ * NotificationQueryService
+ *
+ * 通知列表查询。默认只读取最近 {@code app.notifications.recent-months} 个自然月（含当月）的通知，
+ * 查询带 {@code created_at} 下界，按月分区时只扫描这几个分区；{@code includeHistory} 为真时才查询全部历史。
+ */
+@Service
+@RequiredArgsConstructor
+public class NotificationQueryService {
+    private final NotificationRepository notificationRepository;
+
+    @Value("${app.notifications.recent-months:3}")
+    private int recentMonths;
+
+    /**
+     * 分页查询用户的通知（按创建时间倒序）。
+     *
+     * @param read           为空时不按已读状态过滤
+     * @param excludedTypes  为空时不排除类型
+     * @param includeHistory 是否包含最近几个月之前的历史通知
+     */
+    public Page<Notification> list(User user, Boolean read, Collection<NotificationType> excludedTypes,
+                                   boolean includeHistory, Pageable pageable) {
+        boolean exclude = excludedTypes != null && !excludedTypes.isEmpty();
+        if (includeHistory) {
+            if (read == null) {
+                return exclude
+                        ? notificationRepository.findByUserAndTypeNotInOrderByCreatedAtDesc(user, excludedTypes, pageable)
+                        : notificationRepository.findByUserOrderByCreatedAtDesc(user, pageable);
+            }
+            return exclude
+                    ? notificationRepository.findByUserAndReadAndTypeNotInOrderByCreatedAtDesc(user, read, excludedTypes, pageable)
+                    : notificationRepository.findByUserAndReadOrderByCreatedAtDesc(user, read, pageable);
+        }
+        LocalDateTime since = recentSince();
+        if (read == null) {
+            return exclude
+                    ? notificationRepository.findByUserAndTypeNotInAndCreatedAtGreaterThanEqualOrderByCreatedAtDesc(user, excludedTypes, since, pageable)
+                    : notificationRepository.findByUserAndCreatedAtGreaterThanEqualOrderByCreatedAtDesc(user, since, pageable);
+        }
+        return exclude
+                ? notificationRepository.findByUserAndReadAndTypeNotInAndCreatedAtGreaterThanEqualOrderByCreatedAtDesc(user, read, excludedTypes, since, pageable)
+                : notificationRepository.findByUserAndReadAndCreatedAtGreaterThanEqualOrderByCreatedAtDesc(user, read, since, pageable);
+    }
+
+    /** 最近窗口的起点：按月对齐，与分区边界一致 */
+    public LocalDateTime recentSince() {
+        return YearMonth.now().minusMonths(Math.max(0, recentMonths - 1)).atDay(1).atStartOfDay();
+    }
+}
@@ -0,0 +1,309 @@
+package com.openisle.notification;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openisle.dto.BulkUpdateResult;
+import com.openisle.service.JobLockService;
+import com.openisle.service.UnreadNotificationCounter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * NotificationRetentionService
+ *
+ * 通知表的按月分区、保留策略与归档。
+ *
+ * 设计要点：
+ * - 分区（仅 MySQL）：按 {@code created_at} 做 RANGE COLUMNS 月分区，主键改为 {@code (id, created_at)}，并删除通知表上的外键。
+ *   表结构变更由 {@code db/migration/notifications_partitioning.sql} 在低峰期人工执行，应用代码不做 DDL 迁移；
+ *   执行后开启 {@code app.notifications.partitioning.enabled}，定时任务提前创建未来 {@code months-ahead} 个月的分区。
+ * - 保留：已读通知保留 {@code app.notifications.retention.read-days} 天，按 ID 分段删除。
+ * - 归档：早于 {@code app.notifications.archive.after-months} 个月的整月数据按 ID 顺序流式写入本机临时文件
+ *   {@code notifications-yyyy-MM.jsonl.gz}，交给共享的 {@link NotificationArchiveStore} 保存，随后只删除已写入归档的行
+ *   （ID 不超过归档的最大 ID）：已分区且该月没有归档之后写入的行时分段删除参与者后 DROP PARTITION，否则连同参与者分段删除；
+ *   该月仍有未读通知的用户在提交后重新加载未读计数。
+ * - 多节点：每日维护经 {@link JobLockService} 的租约只在一个节点上执行。
+ * - 查询侧只读取最近几个月的分区，见 {@link NotificationQueryService}。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class NotificationRetentionService {
+    /** 每段（事务）处理的行数 */
+    static final int CHUNK = 5000;
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UnreadNotificationCounter unreadCounter;
+    private final NotificationArchiveStore archiveStore;
+    private final JobLockService jobLockService;
+
+    @Value("${app.notifications.partitioning.enabled:false}")
+    private boolean partitioningEnabled;
+
+    @Value("${app.notifications.partitioning.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${app.notifications.retention.read-days:180}")
+    private int readRetentionDays;
+
+    @Value("${app.notifications.archive.after-months:12}")
+    private int archiveAfterMonths;
+
+    @Value("${app.notifications.retention.lease-minutes:360}")
+    private long leaseMinutes;
+
+    /** 每日维护：补建分区、清理过期已读通知、归档旧月份；同一时刻只在一个节点上执行 */
+    @Scheduled(cron = "${app.notifications.retention.cron:0 30 3 * * *}")
+    public void maintain() {
+        try {
+            jobLockService.runExclusively("notification-retention", Duration.ofMinutes(leaseMinutes), this::runMaintenance);
+        } catch (RuntimeException e) {
+            log.error("Notification retention failed", e);
+        }
+    }
+
+    private void runMaintenance() {
+        if (partitioningEnabled) {
+            if (partitioned()) {
+                ensurePartitions();
+            } else {
+                log.warn("Notification partitioning is enabled but the table is not partitioned; " +
+                        "run db/migration/notifications_partitioning.sql first");
+            }
+        }
+        BulkUpdateResult purged = purgeRead();
+        log.info("Notification retention: {} read notifications purged in {} ms", purged.getAffectedRows(), purged.getElapsedMillis());
+        archive();
+    }
+
+    /** 通知表当前是否已分区 */
+    public boolean partitioned() {
+        if (!mysql()) {
+            return false;
+        }
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.PARTITIONS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'notifications' AND PARTITION_NAME IS NOT NULL", Long.class);
+        return count != null && count > 0;
+    }
+
+    /** 提前创建未来几个月的分区（从 pmax 中拆分，pmax 为空时不移动数据） */
+    public void ensurePartitions() {
+        if (!partitioned()) {
+            return;
+        }
+        Set<String> existing = new HashSet<>(partitionNames());
+        YearMonth last = YearMonth.now().plusMonths(monthsAhead);
+        StringBuilder missing = new StringBuilder();
+        for (YearMonth month = YearMonth.now(); !month.isAfter(last); month = month.plusMonths(1)) {
+            if (!existing.contains(month.atDay(1).format(PARTITION_NAME))) {
+                missing.append(partitionDefinition(month)).append(", ");
+            }
+        }
+        if (!missing.isEmpty()) {
+            jdbcTemplate.execute("ALTER TABLE notifications REORGANIZE PARTITION pmax INTO (" + missing +
+                    "PARTITION pmax VALUES LESS THAN (MAXVALUE))");
+        }
+    }
+
+    /** 分段删除超过保留期的已读通知 */
+    public BulkUpdateResult purgeRead() {
+        long start = System.currentTimeMillis();
+        BulkUpdateResult result = new BulkUpdateResult();
+        Timestamp cutoff = Timestamp.valueOf(LocalDate.now().minusDays(readRetentionDays).atStartOfDay());
+        while (true) {
+            Integer deleted = transactionTemplate.execute(status -> {
+                List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM notifications WHERE is_read = TRUE AND created_at < ? " +
+                        "ORDER BY id LIMIT " + CHUNK, Long.class, cutoff);
+                return deleteIds(ids);
+            });
+            if (deleted == null || deleted == 0) {
+                break;
+            }
+            result.chunk(deleted);
+        }
+        result.finished(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /** 归档所有早于 {@code archive.after-months} 的整月 */
+    public BulkUpdateResult archive() {
+        long start = System.currentTimeMillis();
+        BulkUpdateResult result = new BulkUpdateResult();
+        YearMonth cutoff = YearMonth.now().minusMonths(archiveAfterMonths);
+        LocalDateTime oldest = jdbcTemplate.queryForObject("SELECT MIN(created_at) FROM notifications", LocalDateTime.class);
+        if (oldest != null) {
+            for (YearMonth month = YearMonth.from(oldest); month.isBefore(cutoff); month = month.plusMonths(1)) {
+                BulkUpdateResult archived = archiveMonth(month);
+                result.chunk(archived.getAffectedRows());
+                log.info("Archived notifications of {}: {} rows in {} ms", month, archived.getAffectedRows(), archived.getElapsedMillis());
+            }
+        }
+        result.finished(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * 归档一个月的通知：流式写入压缩文件后删除。
+     *
+     * @return 归档的行数
+     */
+    public BulkUpdateResult archiveMonth(YearMonth month) {
+        long start = System.currentTimeMillis();
+        BulkUpdateResult result = new BulkUpdateResult();
+        Timestamp from = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        Timestamp to = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+        String name = "notifications-" + month + ".jsonl.gz";
+        Set<Long> unreadUsers = new HashSet<>();
+        long lastArchivedId = 0;
+        Path tmp = null;
+        try {
+            tmp = Files.createTempFile("notifications-" + month, ".jsonl.gz");
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(tmp)),
+                    StandardCharsets.UTF_8))) {
+                while (true) {
+                    List<Map<String, Object>> rows = readChunk(from, to, lastArchivedId);
+                    for (Map<String, Object> row : rows) {
+                        out.write(MAPPER.writeValueAsString(row));
+                        out.write('\n');
+                        if (!Boolean.TRUE.equals(row.get("is_read"))) {
+                            unreadUsers.add(((Number) row.get("user_id")).longValue());
+                        }
+                    }
+                    result.chunk(rows.size());
+                    if (!rows.isEmpty()) {
+                        lastArchivedId = ((Number) rows.get(rows.size() - 1).get("id")).longValue();
+                    }
+                    if (rows.size() < CHUNK) {
+                        break;
+                    }
+                }
+            }
+            archiveStore.save(name, tmp);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot archive notifications of " + month, e);
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException e) {
+                    log.warn("Cannot delete temporary archive {}", tmp, e);
+                }
+            }
+        }
+
+        long archivedUpTo = lastArchivedId;
+        String partition = month.atDay(1).format(PARTITION_NAME);
+        if (partitioned() && partitionNames().contains(partition) && !hasRowsAfter(from, to, archivedUpTo)) {
+            long cursor = 0;
+            while (true) {
+                List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM notifications WHERE created_at >= ? AND created_at < ? " +
+                        "AND id > ? ORDER BY id LIMIT " + CHUNK, Long.class, from, to, cursor);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                transactionTemplate.executeWithoutResult(status -> deleteActors(ids));
+                cursor = ids.get(ids.size() - 1);
+            }
+            jdbcTemplate.execute("ALTER TABLE notifications DROP PARTITION " + partition);
+        } else {
+            while (true) {
+                Integer deleted = transactionTemplate.execute(status -> deleteIds(jdbcTemplate.queryForList(
+                        "SELECT id FROM notifications WHERE created_at >= ? AND created_at < ? AND id <= ? ORDER BY id LIMIT " + CHUNK,
+                        Long.class, from, to, archivedUpTo)));
+                if (deleted == null || deleted == 0) {
+                    break;
+                }
+            }
+        }
+        unreadUsers.forEach(unreadCounter::invalidate);
+        result.finished(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /** 该月是否有归档之后才写入的行（这些行不在归档文件中，不能随分区一起删除） */
+    private boolean hasRowsAfter(Timestamp from, Timestamp to, long archivedUpTo) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM notifications WHERE created_at >= ? AND created_at < ? AND id > ?",
+                Long.class, from, to, archivedUpTo);
+        return count != null && count > 0;
+    }
+
+    private List<Map<String, Object>> readChunk(Timestamp from, Timestamp to, long afterId) {
+        return jdbcTemplate.query("SELECT id, type, user_id, from_user_id, post_id, comment_id, reaction_type, content, approved, " +
+                "is_read, actor_count, recent_actor_ids, created_at FROM notifications " +
+                "WHERE created_at >= ? AND created_at < ? AND id > ? ORDER BY id LIMIT " + CHUNK, (rs, i) -> {
+            ResultSetMetaData meta = rs.getMetaData();
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int c = 1; c <= meta.getColumnCount(); c++) {
+                Object value = rs.getObject(c);
+                row.put(meta.getColumnLabel(c).toLowerCase(), value instanceof Timestamp ts ? ts.toLocalDateTime().toString()
+                        : value instanceof LocalDateTime time ? time.toString() : value);
+            }
+            return row;
+        }, from, to, afterId);
+    }
+
+    private int deleteIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        deleteActors(ids);
+        return jdbcTemplate.update("DELETE FROM notifications WHERE id IN " + placeholders(ids.size()), ids.toArray());
+    }
+
+    private void deleteActors(List<Long> ids) {
+        jdbcTemplate.update("DELETE FROM notification_actors WHERE notification_id IN " + placeholders(ids.size()), ids.toArray());
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder in = new StringBuilder("(");
+        for (int i = 0; i < count; i++) {
+            in.append(i == 0 ? "?" : ", ?");
+        }
+        return in.append(')').toString();
+    }
+
+    private List<String> partitionNames() {
+        return new ArrayList<>(jdbcTemplate.queryForList("SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'notifications' AND PARTITION_NAME IS NOT NULL", String.class));
+    }
+
+    private static String partitionDefinition(YearMonth month) {
+        return "PARTITION " + month.atDay(1).format(PARTITION_NAME) + " VALUES LESS THAN ('" + month.plusMonths(1).atDay(1) + " 00:00:00')";
+    }
+
+    private boolean mysql() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        return product != null && product.toLowerCase().contains("mysql");
+    }
+}
@@ -0,0 +1,181 @@
+package com.openisle.notification;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.ImmediateRequeueAmqpException;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageListener;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.context.SmartLifecycle;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RabbitFanoutBroker
+ *
+ * 基于 RabbitMQ 的扇出通道：直连交换机 {@value #EXCHANGE} 以分片号为路由键，
+ * 每个分片一个队列 {@code notifications.fanout.{shard}}、一个消费者，同一接收者的通知顺序写入。
+ *
+ * 设计要点：
+ * - 交换机、队列与绑定由 {@link #declarables()} 提供给 RabbitAdmin，连接建立（含重连）时自动声明。
+ * - 消息体为 {@link NotificationFanoutBatch} 的 JSON。写入失败时不在监听线程上等待：把消息连同尝试次数头
+ *   重新发布到重试交换机 {@value #RETRY_EXCHANGE}，重试队列 {@value #RETRY_QUEUE} 按 {@code retry-delay-ms} 的 TTL
+ *   过期后经死信交换机回到原分片（路由键不变），原消息确认；分片队列本身不带参数，已有队列无需重建。
+ * - 达到 {@value #MAX_ATTEMPTS} 次或无法解析的消息发布到死信队列 {@value #DEAD_QUEUE}（附失败原因头），供人工排查与重放；
+ *   转发失败时拒绝并立即重新入队，不丢弃消息。
+ */
+@Slf4j
+public class RabbitFanoutBroker implements FanoutBroker, SmartLifecycle {
+    static final String EXCHANGE = "notifications.fanout";
+    static final String QUEUE_PREFIX = "notifications.fanout.";
+    static final String RETRY_EXCHANGE = "notifications.fanout.retry";
+    static final String RETRY_QUEUE = "notifications.fanout.retry";
+    static final String DEAD_QUEUE = "notifications.fanout.dead";
+    /** 已失败的尝试次数 */
+    static final String ATTEMPTS_HEADER = "x-fanout-attempts";
+    static final String ERROR_HEADER = "x-fanout-error";
+    /** 单条消息的最大写入尝试次数 */
+    static final int MAX_ATTEMPTS = 3;
+    private static final int PREFETCH = 10;
+
+    private final ConnectionFactory connectionFactory;
+    private final RabbitTemplate rabbitTemplate;
+    private final ObjectMapper objectMapper;
+    private final NotificationFanoutWriter writer;
+    private final int shards;
+    private final boolean durable;
+    private final long retryDelayMillis;
+
+    private final List<SimpleMessageListenerContainer> containers = new ArrayList<>();
+    private volatile boolean running;
+
+    public RabbitFanoutBroker(ConnectionFactory connectionFactory, RabbitTemplate rabbitTemplate, ObjectMapper objectMapper,
+                              NotificationFanoutWriter writer, int shards, boolean durable, long retryDelayMillis) {
+        this.connectionFactory = connectionFactory;
+        this.rabbitTemplate = rabbitTemplate;
+        this.objectMapper = objectMapper;
+        this.writer = writer;
+        this.shards = shards;
+        this.durable = durable;
+        this.retryDelayMillis = retryDelayMillis;
+    }
+
+    /** 交换机、分片队列、重试队列、死信队列与绑定 */
+    Declarables declarables() {
+        DirectExchange exchange = new DirectExchange(EXCHANGE, durable, false);
+        DirectExchange retryExchange = new DirectExchange(RETRY_EXCHANGE, durable, false);
+        Queue retry = (durable ? QueueBuilder.durable(RETRY_QUEUE) : QueueBuilder.nonDurable(RETRY_QUEUE))
+                .ttl((int) retryDelayMillis)
+                .deadLetterExchange(EXCHANGE)
+                .build();
+        List<Declarable> declarables = new ArrayList<>();
+        declarables.add(exchange);
+        declarables.add(retryExchange);
+        declarables.add(retry);
+        declarables.add(new Queue(DEAD_QUEUE, durable));
+        for (int shard = 0; shard < shards; shard++) {
+            Queue queue = new Queue(QUEUE_PREFIX + shard, durable);
+            String routingKey = Integer.toString(shard);
+            declarables.add(queue);
+            declarables.add(BindingBuilder.bind(queue).to(exchange).with(routingKey));
+            declarables.add(BindingBuilder.bind(retry).to(retryExchange).with(routingKey));
+        }
+        return new Declarables(declarables);
+    }
+
+    @Override
+    public void publish(int shard, NotificationFanoutBatch batch) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setDeliveryMode(durable ? MessageDeliveryMode.PERSISTENT : MessageDeliveryMode.NON_PERSISTENT);
+        try {
+            rabbitTemplate.send(EXCHANGE, Integer.toString(shard), new Message(objectMapper.writeValueAsBytes(batch), properties));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize notification fan-out batch", e);
+        }
+    }
+
+    void consume(Message message) {
+        NotificationFanoutBatch batch;
+        try {
+            batch = objectMapper.readValue(message.getBody(), NotificationFanoutBatch.class);
+        } catch (IOException e) {
+            log.error("Malformed notification fan-out batch moved to {}", DEAD_QUEUE, e);
+            forward("", DEAD_QUEUE, message, attempts(message), e);
+            return;
+        }
+        try {
+            writer.write(batch);
+        } catch (RuntimeException e) {
+            int attempts = attempts(message) + 1;
+            if (attempts >= MAX_ATTEMPTS) {
+                log.error("Notification fan-out batch failed {} times, moved to {}: type={}, post={}, comment={}, recipients={}",
+                        attempts, DEAD_QUEUE, batch.getType(), batch.getPostId(), batch.getCommentId(), batch.getRecipientIds(), e);
+                forward("", DEAD_QUEUE, message, attempts, e);
+            } else {
+                log.warn("Notification fan-out batch failed (attempt {}), retrying in {} ms: {}", attempts, retryDelayMillis, e.toString());
+                forward(RETRY_EXCHANGE, message.getMessageProperties().getReceivedRoutingKey(), message, attempts, e);
+            }
+        }
+    }
+
+    private static int attempts(Message message) {
+        Object value = message.getMessageProperties().getHeader(ATTEMPTS_HEADER);
+        return value instanceof Number number ? number.intValue() : 0;
+    }
+
+    /** 转发到重试或死信队列后确认原消息；转发失败时原消息重新入队 */
+    private void forward(String exchange, String routingKey, Message message, int attempts, Exception cause) {
+        MessageProperties properties = message.getMessageProperties();
+        properties.setHeader(ATTEMPTS_HEADER, attempts);
+        properties.setHeader(ERROR_HEADER, String.valueOf(cause));
+        properties.setDeliveryMode(durable ? MessageDeliveryMode.PERSISTENT : MessageDeliveryMode.NON_PERSISTENT);
+        try {
+            rabbitTemplate.send(exchange, routingKey, new Message(message.getBody(), properties));
+        } catch (RuntimeException e) {
+            throw new ImmediateRequeueAmqpException("Cannot forward notification fan-out batch to " + routingKey, e);
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        for (int shard = 0; shard < shards; shard++) {
+            SimpleMessageListenerContainer container = new SimpleMessageListenerContainer(connectionFactory);
+            container.setQueueNames(QUEUE_PREFIX + shard);
+            container.setConcurrentConsumers(1);
+            container.setPrefetchCount(PREFETCH);
+            container.setMissingQueuesFatal(false);
+            container.setDefaultRequeueRejected(false);
+            container.setMessageListener((MessageListener) this::consume);
+            container.afterPropertiesSet();
+            container.start();
+            containers.add(container);
+        }
+        running = true;
+    }
+
+    @Override
+    public synchronized void stop() {
+        containers.forEach(SimpleMessageListenerContainer::stop);
+        containers.clear();
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
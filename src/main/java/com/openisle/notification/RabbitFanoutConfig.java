@@ -0,0 +1,36 @@
+package com.openisle.notification;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * RabbitFanoutConfig
+ *
+ * 默认的扇出通道（{@code app.notifications.fanout.broker=rabbit}）：分片数取决于
+ * {@code rabbitmq.sharding.enabled}，队列持久化取决于 {@code rabbitmq.queue.durable}。
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.notifications.fanout.broker", havingValue = "rabbit", matchIfMissing = true)
+public class RabbitFanoutConfig {
+
+    @Bean
+    public RabbitFanoutBroker rabbitFanoutBroker(ConnectionFactory connectionFactory, RabbitTemplate rabbitTemplate,
+                                                 ObjectMapper objectMapper, NotificationFanoutWriter writer,
+                                                 @Value("${rabbitmq.sharding.enabled:true}") boolean sharding,
+                                                 @Value("${rabbitmq.queue.durable:true}") boolean durable,
+                                                 @Value("${app.notifications.fanout.retry-delay-ms:5000}") long retryDelayMillis) {
+        return new RabbitFanoutBroker(connectionFactory, rabbitTemplate, objectMapper, writer,
+                sharding ? NotificationFanoutService.SHARDS : 1, durable, retryDelayMillis);
+    }
+
+    @Bean
+    public Declarables notificationFanoutDeclarables(RabbitFanoutBroker rabbitFanoutBroker) {
+        return rabbitFanoutBroker.declarables();
+    }
+}
@@ -0,0 +1,32 @@
+package com.openisle.push;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * LocalPushBus
+ *
+ * 进程内广播通道（{@code app.push.bus=local}），用于单节点部署与测试：
+ * 同一个实例被多个 {@link PushDispatcher} 订阅时即模拟多节点的 Redis 频道。
+ */
+@Component
+@ConditionalOnProperty(name = "app.push.bus", havingValue = "local")
+public class LocalPushBus implements PushBus {
+    private final List<Consumer<PushEvent>> subscribers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(PushEvent event) {
+        for (Consumer<PushEvent> subscriber : subscribers) {
+            subscriber.accept(event);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<PushEvent> subscriber) {
+        subscribers.add(subscriber);
+    }
+}
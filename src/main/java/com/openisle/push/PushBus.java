@@ -0,0 +1,12 @@
+package com.openisle.push;
+
+import java.util.function.Consumer;
+
+/**
+ * 推送事件的跨节点广播通道：每个节点发布的事件都会投递给所有节点（含自身）的订阅者。
+ */
+public interface PushBus {
+    void publish(PushEvent event);
+
+    void subscribe(Consumer<PushEvent> subscriber);
+}
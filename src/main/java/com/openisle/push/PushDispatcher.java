@@ -0,0 +1,157 @@
+package com.openisle.push;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PushDispatcher
+ *
+ * 每个节点一个：从 {@link PushBus} 接收全部事件，只保留本机有订阅者的目标，按目标合并后定时下发。
+ *
+ * 设计要点：
+ * - 过滤：{@link PushSink#connected} 为假的事件直接丢弃，节点的工作量只与本机连接相关。
+ * - 合并：同一 (类型, 目标) 在 {@code app.push.coalesce-ms} 窗口内的事件合并为一帧；
+ *   消息 ID 最多保留 {@code app.push.max-batch} 个，超出时置 {@code resync} 由客户端拉取。
+ * - 背压：待下发目标数达到 {@code app.push.max-pending} 时，新目标的事件被丢弃并计数（已在等待的目标仍可合并）；
+ *   慢连接由 WebSocket 传输层的发送缓冲与超时限制断开（见 {@link WebSocketConfig}），重连后客户端拉取补齐。
+ * - 指标：累计值通过 {@link #snapshot()} 读取，每分钟输出一次窗口内的最大延迟（发布到下发）。
+ */
+@Slf4j
+@Component
+public class PushDispatcher {
+
+    private record Key(PushEvent.Kind kind, long targetId) {
+    }
+
+    private static final class Pending {
+        final List<Long> ids = new ArrayList<>();
+        int count;
+        boolean resync;
+        long publishedAt = Long.MAX_VALUE;
+    }
+
+    /** 指标快照 */
+    public record Snapshot(long received, long filtered, long dropped, long frames, long events, long failed,
+                           long pending, long lastLagMillis, double avgLagMillis) {
+    }
+
+    private final PushSink sink;
+    private final int maxPending;
+    private final int maxBatch;
+    private final Map<Key, Pending> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder filtered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder events = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder lagTotal = new LongAdder();
+    private final AtomicLong lastLag = new AtomicLong();
+    private final LongAccumulator windowMaxLag = new LongAccumulator(Math::max, 0);
+    private final LongAdder windowDropped = new LongAdder();
+
+    public PushDispatcher(PushBus bus, PushSink sink,
+                          @Value("${app.push.max-pending:50000}") int maxPending,
+                          @Value("${app.push.max-batch:50}") int maxBatch) {
+        this.sink = sink;
+        this.maxPending = maxPending;
+        this.maxBatch = maxBatch;
+        bus.subscribe(this::accept);
+    }
+
+    void accept(PushEvent event) {
+        received.increment();
+        if (!sink.connected(event.getKind(), event.getTargetId())) {
+            filtered.increment();
+            return;
+        }
+        Key key = new Key(event.getKind(), event.getTargetId());
+        if (pending.size() >= maxPending && !pending.containsKey(key)) {
+            dropped.increment();
+            windowDropped.increment();
+            return;
+        }
+        pending.compute(key, (k, p) -> {
+            if (p == null) {
+                p = new Pending();
+            }
+            p.count++;
+            p.publishedAt = Math.min(p.publishedAt, event.getPublishedAt());
+            if (event.getRefId() != null) {
+                if (p.ids.size() < maxBatch) {
+                    p.ids.add(event.getRefId());
+                } else {
+                    p.resync = true;
+                }
+            }
+            return p;
+        });
+    }
+
+    /**
+     * 下发当前窗口内合并好的帧。
+     *
+     * @return 下发的帧数
+     */
+    @Scheduled(fixedDelayString = "${app.push.coalesce-ms:100}")
+    public int flush() {
+        int sent = 0;
+        for (Key key : new ArrayList<>(pending.keySet())) {
+            Pending p = pending.remove(key);
+            if (p == null) {
+                continue;
+            }
+            PushPayload payload = new PushPayload();
+            payload.setKind(key.kind());
+            payload.setTargetId(key.targetId());
+            payload.setIds(p.ids);
+            payload.setCount(p.count);
+            payload.setResync(p.resync);
+            payload.setPublishedAt(p.publishedAt);
+            try {
+                sink.send(payload);
+            } catch (RuntimeException e) {
+                failed.increment();
+                log.debug("Push to {} {} failed: {}", key.kind(), key.targetId(), e.getMessage());
+                continue;
+            }
+            long lag = Math.max(0, System.currentTimeMillis() - p.publishedAt);
+            frames.increment();
+            events.add(p.count);
+            lagTotal.add(lag);
+            lastLag.set(lag);
+            windowMaxLag.accumulate(lag);
+            sent++;
+        }
+        return sent;
+    }
+
+    public Snapshot snapshot() {
+        long frames = this.frames.sum();
+        return new Snapshot(received.sum(), filtered.sum(), dropped.sum(), frames, events.sum(), failed.sum(),
+                pending.size(), lastLag.get(), frames == 0 ? 0 : (double) lagTotal.sum() / frames);
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void report() {
+        long maxLag = windowMaxLag.getThenReset();
+        long drops = windowDropped.sumThenReset();
+        if (maxLag == 0 && drops == 0) {
+            return;
+        }
+        Snapshot s = snapshot();
+        log.info("Push: max lag {} ms, {} dropped in last window; {} frames / {} events delivered, {} filtered, {} failed",
+                maxLag, drops, s.frames(), s.events(), s.filtered(), s.failed());
+    }
+}
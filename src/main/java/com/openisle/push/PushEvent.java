@@ -0,0 +1,41 @@
+package com.openisle.push;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * PushEvent
+ *
+ * 节点间广播的推送事件，只携带 ID，序列化为 JSON 经 {@link PushBus} 传递。
+ */
+@Data
+@NoArgsConstructor
+public class PushEvent {
+    public enum Kind {
+        MESSAGE,      // 会话新消息，targetId 为会话 ID
+        NOTIFICATION, // 用户通知/未读数变化，targetId 为用户 ID
+        USER,         // 用户资料/权限变化，targetId 为用户 ID；只用于节点间缓存失效，不下发给客户端
+        SEARCH_POST,  // 帖子变更，targetId 为帖子 ID；只用于各节点更新本地搜索索引，不下发给客户端
+        SEARCH_COMMENT, // 评论变更，targetId 为评论 ID；同上
+        LEADERBOARD   // 作者的点赞排行变化，targetId 为作者 ID；只用于节点间缓存失效
+    }
+
+    private Kind kind;
+    private long targetId;
+    /** 消息 ID（其他事件为空） */
+    private Long refId;
+    /** 发送者 ID（通知事件为空） */
+    private Long senderId;
+    /** 发布时间（毫秒），用于统计推送延迟 */
+    private long publishedAt;
+    /** 发起节点标识：节点间缓存失效事件据此跳过本节点发出的事件（其他事件为空） */
+    private Long originNode;
+
+    public PushEvent(Kind kind, long targetId, Long refId, Long senderId, long publishedAt) {
+        this.kind = kind;
+        this.targetId = targetId;
+        this.refId = refId;
+        this.senderId = senderId;
+        this.publishedAt = publishedAt;
+    }
+}
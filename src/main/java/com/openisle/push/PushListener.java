@@ -0,0 +1,26 @@
+package com.openisle.push;
+
+import com.openisle.model.Message;
+import jakarta.persistence.PostPersist;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * PushListener
+ *
+ * 消息实体监听器：新消息在事务提交后推送给会话订阅者，见 {@link PushService}。
+ */
+@Component
+@RequiredArgsConstructor
+public class PushListener {
+    private final ObjectProvider<PushService> pushService;
+
+    @PostPersist
+    public void onPersist(Message message) {
+        PushService service = pushService.getIfAvailable();
+        if (service != null) {
+            service.messageCreated(message.getConversation().getId(), message.getId(), message.getSender().getId());
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.openisle.push;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PushPayload
+ *
+ * 下发给客户端的推送帧：同一目标在一个合并窗口内的事件合并为一帧。
+ *
+ * 字段说明：
+ * - {@code ids}: 新消息 ID（通知为空），最多 {@code app.push.max-batch} 个。
+ * - {@code count}: 合并的事件数。
+ * - {@code resync}: 事件过多被截断，客户端应通过接口重新拉取。
+ * - {@code publishedAt}: 窗口内最早事件的发布时间（毫秒）。
+ */
+@Data
+@NoArgsConstructor
+public class PushPayload {
+    private PushEvent.Kind kind;
+    private long targetId;
+    private List<Long> ids = new ArrayList<>();
+    private int count;
+    private boolean resync;
+    private long publishedAt;
+}
@@ -0,0 +1,74 @@
+package com.openisle.push;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * PushService
+ *
+ * 业务侧的推送入口：事件在当前事务提交后发布到 {@link PushBus}，回滚则不发布；无事务时立即发布。
+ * 推送只是提示，发布失败不影响业务写入，客户端总能通过接口拉取到最新数据。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PushService {
+    private final PushBus bus;
+
+    /** 会话新消息 */
+    public void messageCreated(long conversationId, long messageId, long senderId) {
+        publish(new PushEvent(PushEvent.Kind.MESSAGE, conversationId, messageId, senderId, 0));
+    }
+
+    /** 用户的通知或未读数发生变化 */
+    public void notificationsChanged(long userId) {
+        publish(new PushEvent(PushEvent.Kind.NOTIFICATION, userId, null, null, 0));
+    }
+
+    /** 用户资料或权限变化（各节点失效缓存的快照） */
+    public void userChanged(long userId) {
+        publish(new PushEvent(PushEvent.Kind.USER, userId, null, null, 0));
+    }
+
+    /** 帖子新增、修改或删除（各节点重新索引） */
+    public void postIndexChanged(long postId) {
+        publish(new PushEvent(PushEvent.Kind.SEARCH_POST, postId, null, null, 0));
+    }
+
+    /** 评论新增、修改或删除（各节点重新索引） */
+    public void commentIndexChanged(long commentId) {
+        publish(new PushEvent(PushEvent.Kind.SEARCH_COMMENT, commentId, null, null, 0));
+    }
+
+    /** 作者的点赞排行变化（其他节点丢弃缓存的排行） */
+    public void leaderboardChanged(long authorId, long originNode) {
+        PushEvent event = new PushEvent(PushEvent.Kind.LEADERBOARD, authorId, null, null, 0);
+        event.setOriginNode(originNode);
+        publish(event);
+    }
+
+    private void publish(PushEvent event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    send(event);
+                }
+            });
+        } else {
+            send(event);
+        }
+    }
+
+    private void send(PushEvent event) {
+        event.setPublishedAt(System.currentTimeMillis());
+        try {
+            bus.publish(event);
+        } catch (RuntimeException e) {
+            log.warn("Push publish failed for {} {}: {}", event.getKind(), event.getTargetId(), e.getMessage());
+        }
+    }
+}
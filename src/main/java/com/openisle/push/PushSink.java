@@ -0,0 +1,11 @@
+package com.openisle.push;
+
+/**
+ * 本节点的推送出口，默认实现为 STOMP（{@link StompPushSink}）。
+ */
+public interface PushSink {
+    /** 本节点是否可能有该目标的订阅者；为假时事件直接丢弃，不占合并缓冲 */
+    boolean connected(PushEvent.Kind kind, long targetId);
+
+    void send(PushPayload payload);
+}
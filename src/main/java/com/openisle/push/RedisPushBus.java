@@ -0,0 +1,107 @@
+package com.openisle.push;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * RedisPushBus
+ *
+ * 基于 Redis pub/sub 的跨节点广播（默认，{@code app.push.bus=redis}）：所有节点订阅同一频道，
+ * 每个事件只发布一次，各节点只向本机连接投递。
+ * 发布失败时退回本机投递并暂停访问 Redis 一段时间，单节点仍可收到推送，其他节点的客户端靠重连后拉取补齐。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.push.bus", havingValue = "redis", matchIfMissing = true)
+public class RedisPushBus implements PushBus, SmartLifecycle {
+    static final String CHANNEL = "push:events";
+    /** Redis 访问失败后暂停访问的时长 */
+    private static final long REDIS_BACKOFF_MS = 30_000;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final StringRedisTemplate redis;
+    private final RedisMessageListenerContainer container;
+    private final List<Consumer<PushEvent>> subscribers = new CopyOnWriteArrayList<>();
+    private volatile long redisRetryAt;
+    private volatile boolean running;
+
+    public RedisPushBus(StringRedisTemplate redis, RedisConnectionFactory connectionFactory) {
+        this.redis = redis;
+        this.container = new RedisMessageListenerContainer();
+        this.container.setConnectionFactory(connectionFactory);
+        this.container.addMessageListener((message, pattern) -> {
+            try {
+                deliver(MAPPER.readValue(message.getBody(), PushEvent.class));
+            } catch (Exception e) {
+                log.warn("Dropping malformed push event: {}", new String(message.getBody(), StandardCharsets.UTF_8));
+            }
+        }, new ChannelTopic(CHANNEL));
+    }
+
+    @Override
+    public void publish(PushEvent event) {
+        if (System.currentTimeMillis() >= redisRetryAt) {
+            try {
+                redis.convertAndSend(CHANNEL, MAPPER.writeValueAsString(event));
+                return;
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Cannot serialize push event", e);
+            } catch (RuntimeException e) {
+                redisRetryAt = System.currentTimeMillis() + REDIS_BACKOFF_MS;
+                log.warn("Redis unavailable for push, delivering locally for {} ms: {}", REDIS_BACKOFF_MS, e.getMessage());
+            }
+        }
+        deliver(event);
+    }
+
+    @Override
+    public void subscribe(Consumer<PushEvent> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    private void deliver(PushEvent event) {
+        for (Consumer<PushEvent> subscriber : subscribers) {
+            subscriber.accept(event);
+        }
+    }
+
+    @Override
+    public void start() {
+        try {
+            container.afterPropertiesSet();
+            container.start();
+        } catch (RuntimeException e) {
+            log.warn("Push channel subscription failed, cross-node push disabled: {}", e.getMessage());
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            container.stop();
+            container.destroy();
+        } catch (Exception e) {
+            log.debug("Push channel shutdown failed", e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,96 @@
+package com.openisle.push;
+
+import com.openisle.dto.AuthPrincipal;
+import com.openisle.repository.MessageParticipantRepository;
+import com.openisle.service.AuthPrincipalCache;
+import com.openisle.service.JwtService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+
+/**
+ * StompAuthInterceptor
+ *
+ * STOMP 入站鉴权：CONNECT 帧须携带 {@code Authorization: Bearer <token>}，连接的用户名设为用户 ID
+ * （与 {@link StompPushSink} 的用户队列一致）；订阅会话主题时校验参与者身份，仅允许订阅已知目的地。
+ * 连接只用于接收推送，除连接、订阅、退订与断开外的客户端帧（含 SEND）一律拒绝，防止客户端向会话主题伪造消息。
+ */
+@Component
+@RequiredArgsConstructor
+public class StompAuthInterceptor implements ChannelInterceptor {
+    private static final String BEARER = "Bearer ";
+    private static final String USER_QUEUE = "/user" + StompPushSink.NOTIFICATION_QUEUE;
+
+    private final JwtService jwtService;
+    private final AuthPrincipalCache principalCache;
+    private final MessageParticipantRepository participantRepository;
+
+    private record UserPrincipal(String name) implements Principal {
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+        switch (accessor.getCommand()) {
+            case CONNECT, STOMP -> accessor.setUser(
+                    new UserPrincipal(Long.toString(authenticate(accessor.getFirstNativeHeader("Authorization")))));
+            case SUBSCRIBE -> authorize(accessor.getUser(), accessor.getDestination());
+            case UNSUBSCRIBE, DISCONNECT -> {
+            }
+            // 推送只由服务端发出：客户端的 SEND（简单代理会直接转发给订阅者）及事务/确认帧一律拒绝
+            default -> throw new MessageDeliveryException("Command not allowed: " + accessor.getCommand());
+        }
+        return message;
+    }
+
+    private long authenticate(String header) {
+        if (header == null || !header.startsWith(BEARER)) {
+            throw new MessageDeliveryException("Missing token");
+        }
+        String username;
+        try {
+            username = jwtService.validateAndGetSubject(header.substring(BEARER.length()));
+        } catch (RuntimeException e) {
+            throw new MessageDeliveryException("Invalid token");
+        }
+        return principalCache.find(username)
+                .map(AuthPrincipal::getId)
+                .orElseThrow(() -> new MessageDeliveryException("User not found"));
+    }
+
+    private void authorize(Principal user, String destination) {
+        if (user == null || destination == null) {
+            throw new MessageDeliveryException("Not authenticated");
+        }
+        if (USER_QUEUE.equals(destination)) {
+            return;
+        }
+        if (destination.startsWith(StompPushSink.CONVERSATION_TOPIC)) {
+            long conversationId;
+            try {
+                conversationId = Long.parseLong(destination.substring(StompPushSink.CONVERSATION_TOPIC.length()));
+            } catch (NumberFormatException e) {
+                throw new MessageDeliveryException("Unknown destination");
+            }
+            if (participantRepository.findByConversationIdAndUserId(conversationId, Long.parseLong(user.getName())).isPresent()) {
+                return;
+            }
+            throw new MessageDeliveryException("Not a participant");
+        }
+        throw new MessageDeliveryException("Unknown destination");
+    }
+}
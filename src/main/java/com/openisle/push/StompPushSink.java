@@ -0,0 +1,93 @@
+package com.openisle.push;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * StompPushSink
+ *
+ * 通过 STOMP 下发推送帧：会话消息发往 {@code /topic/conversations/{id}}，
+ * 通知发往用户队列 {@code /user/queue/notifications}。
+ * 本机会话订阅按目的地计数（订阅、退订、断开事件维护），判断是否有订阅者时不遍历连接。
+ */
+@Component
+public class StompPushSink implements PushSink {
+    static final String CONVERSATION_TOPIC = "/topic/conversations/";
+    static final String NOTIFICATION_QUEUE = "/queue/notifications";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final SimpUserRegistry userRegistry;
+    /** 目的地 -> 本机订阅数 */
+    private final Map<String, Integer> subscribers = new ConcurrentHashMap<>();
+    /** 连接 ID -> (订阅 ID -> 目的地) */
+    private final Map<String, Map<String, String>> sessions = new ConcurrentHashMap<>();
+
+    public StompPushSink(SimpMessagingTemplate messagingTemplate, SimpUserRegistry userRegistry) {
+        this.messagingTemplate = messagingTemplate;
+        this.userRegistry = userRegistry;
+    }
+
+    @Override
+    public boolean connected(PushEvent.Kind kind, long targetId) {
+        return switch (kind) {
+            case MESSAGE -> subscribers.containsKey(CONVERSATION_TOPIC + targetId);
+            case NOTIFICATION -> userRegistry.getUser(Long.toString(targetId)) != null;
+            case USER, SEARCH_POST, SEARCH_COMMENT, LEADERBOARD -> false;
+        };
+    }
+
+    @Override
+    public void send(PushPayload payload) {
+        switch (payload.getKind()) {
+            case MESSAGE -> messagingTemplate.convertAndSend(CONVERSATION_TOPIC + payload.getTargetId(), payload);
+            case NOTIFICATION -> messagingTemplate.convertAndSendToUser(Long.toString(payload.getTargetId()),
+                    NOTIFICATION_QUEUE, payload);
+            case USER, SEARCH_POST, SEARCH_COMMENT, LEADERBOARD -> {
+            }
+        }
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        if (accessor.getSessionId() == null || destination == null || !destination.startsWith(CONVERSATION_TOPIC)) {
+            return;
+        }
+        sessions.computeIfAbsent(accessor.getSessionId(), k -> new ConcurrentHashMap<>())
+                .put(accessor.getSubscriptionId(), destination);
+        subscribers.merge(destination, 1, Integer::sum);
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        Map<String, String> subscriptions = accessor.getSessionId() == null ? null : sessions.get(accessor.getSessionId());
+        if (subscriptions != null && accessor.getSubscriptionId() != null) {
+            release(subscriptions.remove(accessor.getSubscriptionId()));
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, String> subscriptions = sessions.remove(event.getSessionId());
+        if (subscriptions != null) {
+            subscriptions.values().forEach(this::release);
+        }
+    }
+
+    private void release(String destination) {
+        if (destination != null) {
+            subscribers.computeIfPresent(destination, (k, n) -> n > 1 ? n - 1 : null);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.openisle.push;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+/**
+ * WebSocketConfig
+ *
+ * STOMP 端点 {@code /api/ws}，使用内置简单代理（{@code /topic} 会话广播、{@code /queue} 用户队列），
+ * 跨节点分发由 {@link PushBus} 完成。
+ * 慢连接保护：单个连接的发送缓冲超过 {@code app.push.send-buffer-bytes} 或单次发送超过
+ * {@code app.push.send-time-limit-ms} 时关闭该连接，不拖慢出站线程池与其他连接。
+ */
+@Configuration
+@EnableWebSocketMessageBroker
+@RequiredArgsConstructor
+public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+    /** 心跳间隔（毫秒），用于及时清理已断开的连接 */
+    private static final long HEARTBEAT_MS = 25_000;
+
+    private final StompAuthInterceptor authInterceptor;
+
+    @Value("${app.push.allowed-origins:${app.website-url:https://www.open-isle.com}}")
+    private String[] allowedOrigins;
+
+    @Value("${app.push.send-buffer-bytes:524288}")
+    private int sendBufferBytes;
+
+    @Value("${app.push.send-time-limit-ms:10000}")
+    private int sendTimeLimitMillis;
+
+    @Override
+    public void registerStompEndpoints(StompEndpointRegistry registry) {
+        registry.addEndpoint("/api/ws").setAllowedOriginPatterns(allowedOrigins);
+    }
+
+    @Override
+    public void configureMessageBroker(MessageBrokerRegistry registry) {
+        ThreadPoolTaskScheduler heartbeat = new ThreadPoolTaskScheduler();
+        heartbeat.setPoolSize(1);
+        heartbeat.setThreadNamePrefix("ws-heartbeat-");
+        heartbeat.setDaemon(true);
+        heartbeat.initialize();
+        registry.enableSimpleBroker("/topic", "/queue")
+                .setHeartbeatValue(new long[]{HEARTBEAT_MS, HEARTBEAT_MS})
+                .setTaskScheduler(heartbeat);
+        registry.setApplicationDestinationPrefixes("/app");
+        registry.setUserDestinationPrefix("/user");
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendBufferSizeLimit(sendBufferBytes)
+                .setSendTimeLimit(sendTimeLimitMillis);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(authInterceptor);
+    }
+}
@@ -1,15 +1,23 @@
 package com.openisle.repository;
 
+import com.openisle.dto.CategorySummary;
 import com.openisle.model.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
 import java.util.List;
 
 /**
  * CategoryRepository
  *
- * 分类仓库接口，提供基于名称的常用查询能力。
+ * 分类仓库接口，提供基于名称的常用查询能力，以及列表展示用的批量投影查询。
  */
 public interface CategoryRepository extends JpaRepository<Category, Long> {
     // 名称模糊搜索（忽略大小写）
     List<Category> findByNameContainingIgnoreCase(String keyword);
+    // 列表投影：按 ID 批量查询分类摘要
+    @Query("SELECT new com.openisle.dto.CategorySummary(c.id, c.name, c.icon, c.smallIcon) FROM Category c WHERE c.id IN :ids")
+    List<CategorySummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
 }
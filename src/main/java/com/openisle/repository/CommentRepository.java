@@ -15,20 +15,34 @@ import java.util.List;
  * 评论仓库接口。
  *
  * 提供针对评论的常用查询、统计能力，包括：
- * - 帖子根评论列表、子评论列表；
+ * - 帖子根评论列表、子评论列表，以及整棵评论树的一次性加载；
  * - 作者评论列表（支持分页、按时间倒序）；
  * - 内容关键字搜索；
  * - 参与互动用户去重、最新评论时间、按时间段的日聚合统计等。
  */
 public interface CommentRepository extends JpaRepository<Comment, Long> {
-    // 查询某帖子的根评论（parent 为空），按创建时间正序
+    // 查询某帖子的根评论（parent 为空），按创建时间正序；整棵评论树请使用 CommentThreadService
+    @Deprecated
     List<Comment> findByPostAndParentIsNullOrderByCreatedAtAsc(Post post);
-    // 查询某条评论的子评论，按创建时间正序
+    // 查询某条评论的子评论，按创建时间正序；逐层调用会产生 N+1 查询
+    @Deprecated
     List<Comment> findByParentOrderByCreatedAtAsc(Comment parent);
+    // 一次取出帖子下全部未删除评论（含作者），按 ID 升序，供内存组装评论树
+    @Query("SELECT c FROM Comment c JOIN FETCH c.author WHERE c.post.id = :postId ORDER BY c.id")
+    List<Comment> findThreadByPostId(@Param("postId") Long postId);
+    // 按互动分分页查询根评论（键集分页，首页 score 传 Long.MAX_VALUE），走 (post_id, interaction_score DESC, id) 索引
+    @Query("SELECT c FROM Comment c JOIN FETCH c.author WHERE c.post.id = :postId AND c.parent IS NULL " +
+            "AND (c.interactionScore < :score OR (c.interactionScore = :score AND c.id > :id)) " +
+            "ORDER BY c.interactionScore DESC, c.id ASC")
+    List<Comment> findRootsByInteractionScore(@Param("postId") Long postId, @Param("score") long score,
+                                              @Param("id") long id, Pageable pageable);
     // 查询某作者的评论，按创建时间倒序（支持分页）
     List<Comment> findByAuthorOrderByCreatedAtDesc(User author, Pageable pageable);
-    // 评论内容模糊匹配（忽略大小写）
+    // 关键字搜索（忽略大小写）；LIKE '%kw%' 无法走索引，请改用 com.openisle.search.SearchIndexService
+    @Deprecated
     List<Comment> findByContentContainingIgnoreCase(String keyword);
+    // 全文索引重建：按 ID 递增分批读取
+    List<Comment> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
 
     // 去重查询：参与指定帖子的评论作者集合
     @Query("SELECT DISTINCT c.author FROM Comment c WHERE c.post = :post")
@@ -0,0 +1,34 @@
+package com.openisle.repository;
+
+import com.openisle.model.ConversationInbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * ConversationInboxRepository
+ *
+ * 会话收件箱仓库接口：按 (lastActivityAt, conversationId) 倒序的键集分页，
+ * 走 {@code (user_id, last_activity_at, conversation_id)} 索引。
+ */
+@Repository
+public interface ConversationInboxRepository extends JpaRepository<ConversationInbox, Long> {
+    /** 收件箱首页 */
+    @Query("SELECT i FROM ConversationInbox i WHERE i.userId = :userId ORDER BY i.lastActivityAt DESC, i.conversationId DESC")
+    List<ConversationInbox> findFirstPage(@Param("userId") Long userId, Pageable pageable);
+
+    /** 收件箱游标之后的一页 */
+    @Query("SELECT i FROM ConversationInbox i WHERE i.userId = :userId " +
+            "AND (i.lastActivityAt < :at OR (i.lastActivityAt = :at AND i.conversationId < :conversationId)) " +
+            "ORDER BY i.lastActivityAt DESC, i.conversationId DESC")
+    List<ConversationInbox> findPageAfter(@Param("userId") Long userId, @Param("at") LocalDateTime at,
+                                          @Param("conversationId") Long conversationId, Pageable pageable);
+
+    Optional<ConversationInbox> findByConversationIdAndUserId(Long conversationId, Long userId);
+}
@@ -0,0 +1,18 @@
+package com.openisle.repository;
+
+import com.openisle.model.DirectConversationPair;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * DirectConversationPairRepository
+ *
+ * 私聊会话索引仓库接口：按规范化的用户对做唯一键查找。
+ */
+@Repository
+public interface DirectConversationPairRepository extends JpaRepository<DirectConversationPair, Long> {
+    /** 按 (较小用户 ID, 较大用户 ID) 查找私聊 */
+    Optional<DirectConversationPair> findByMinUserIdAndMaxUserId(Long minUserId, Long maxUserId);
+}
@@ -32,11 +32,13 @@ public interface MessageConversationRepository extends JpaRepository<MessageConv
 
     /**
      * 查询两个指定用户之间的双人私聊会话（非频道），按创建时间倒序返回。
+     * 需扫描全部非频道会话，请改用 {@code DirectConversationService#findConversationId}（唯一键探测）。
      *
      * @param user1 用户1
      * @param user2 用户2
      * @return 两人之间的会话列表（可能存在多个历史会话）
      */
+    @Deprecated
     @Query("SELECT c FROM MessageConversation c " +
            "WHERE c.channel = false AND size(c.participants) = 2 " +
            "AND EXISTS (SELECT 1 FROM c.participants p1 WHERE p1.user = :user1) " +
@@ -47,10 +49,12 @@ public interface MessageConversationRepository extends JpaRepository<MessageConv
     /**
      * 查询某用户参与的会话列表，并联带加载最后一条消息及其发送者、参与者与用户，
      * 结果按“最后消息时间（若无则按会话创建时间）”倒序排列。
+     * 无法分页且代价随参与者数 × 会话数增长，请改用 {@code ConversationInboxService#inbox}。
      *
      * @param userId 用户ID
      * @return 该用户参与的会话列表（含必要联表数据）
      */
+    @Deprecated
     @Query("SELECT DISTINCT c FROM MessageConversation c " +
            "JOIN c.participants p " +
            "LEFT JOIN FETCH c.lastMessage lm " +
@@ -2,8 +2,11 @@ package com.openisle.repository;
 
 import com.openisle.model.MessageParticipant;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,4 +21,7 @@ public interface MessageParticipantRepository extends JpaRepository<MessageParti
     Optional<MessageParticipant> findByConversationIdAndUserId(Long conversationId, Long userId);
     /** 查询某用户参与的所有会话参与记录 */
     List<MessageParticipant> findByUserId(Long userId);
+    /** 批量查询多个会话的参与者并联带加载用户，用于收件箱一次性填充参与者 */
+    @Query("SELECT p FROM MessageParticipant p JOIN FETCH p.user WHERE p.conversation.id IN :conversationIds")
+    List<MessageParticipant> findWithUsersByConversationIds(@Param("conversationIds") Collection<Long> conversationIds);
 }
@@ -19,13 +19,17 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
     /** 按会话查询消息并按创建时间正序返回（用于会话完整回放） */
     List<Message> findByConversationIdOrderByCreatedAtAsc(Long conversationId);
 
-    /** 按会话分页查询消息 */
+    /** 按会话分页查询消息（频道历史翻页请走 {@code ChannelMessageCache#page}，热门窗口内不查库） */
     Page<Message> findByConversationId(Long conversationId, Pageable pageable);
 
     /** 统计某会话在指定时间之后产生的消息数量 */
     long countByConversationIdAndCreatedAtAfter(Long conversationId, LocalDateTime createdAt);
 
     // 只计算不是指定用户发送的消息，即别人发给当前用户的信息
-    /** 统计指定时间后、排除某发送者ID的消息数量（用于未读对端消息数） */
+    /**
+     * 统计指定时间后、排除某发送者ID的消息数量（用于未读对端消息数）。
+     * 逐会话范围计数，未读角标请改用 {@code MessageUnreadService#unreadCounts}，一条查询返回全部会话。
+     */
+    @Deprecated
     long countByConversationIdAndCreatedAtAfterAndSenderIdNot(Long conversationId, LocalDateTime createdAt, Long senderId);
 }
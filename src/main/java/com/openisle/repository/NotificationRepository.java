@@ -7,9 +7,13 @@ import com.openisle.model.Comment;
 import com.openisle.model.NotificationType;
 import com.openisle.model.ReactionType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 
@@ -20,8 +24,13 @@ import java.util.List;
  *
  * 能力概览：
  * - 列表与分页：按用户、按是否已读、按排除的通知类型进行排序分页查询（按创建时间倒序）。
- * - 计数：未读/已读数量统计，支持排除部分通知类型后再统计。
+ *   通知表按月分区（见 {@code NotificationRetentionService}），带 {@code createdAt} 下界的方法只扫描最近的分区，
+ *   日常列表应使用它们（经 {@code NotificationQueryService}）；不带下界的方法会扫描全部分区，仅用于显式查询历史。
+ * - 批量已读：按 ID 区间集合更新（见 {@code NotificationBulkService}），不逐条加载实体。
+ * - 计数：未读/已读数量统计，支持排除部分通知类型后再统计（未读角标由 {@code UnreadNotificationCounter} 提供）。
  * - 清理：基于类型 + 触发用户 + 关联帖子/评论/反应类型的定向删除，用于撤销/更新通知。
+ *   合并写入的类型（见 {@code NotificationCoalescer}）一行可能包含多位触发者，撤销请改用
+ *   {@code NotificationCoalescer#revoke}，只扣除该触发者。
  */
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
     /** 按用户查询通知（倒序） */
@@ -41,15 +50,43 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
      * 按用户与已读状态分页查询通知（倒序），并排除指定类型集合。
      */
     Page<Notification> findByUserAndReadAndTypeNotInOrderByCreatedAtDesc(User user, boolean read, Collection<NotificationType> types, Pageable pageable);
+    /** 按用户分页查询 {@code since} 之后的通知（倒序），只扫描最近的分区 */
+    Page<Notification> findByUserAndCreatedAtGreaterThanEqualOrderByCreatedAtDesc(User user, LocalDateTime since, Pageable pageable);
+    /** 按用户与已读状态分页查询 {@code since} 之后的通知（倒序） */
+    Page<Notification> findByUserAndReadAndCreatedAtGreaterThanEqualOrderByCreatedAtDesc(User user, boolean read, LocalDateTime since,
+                                                                                      Pageable pageable);
+    /** 按用户分页查询 {@code since} 之后的通知（倒序），并排除指定类型集合 */
+    Page<Notification> findByUserAndTypeNotInAndCreatedAtGreaterThanEqualOrderByCreatedAtDesc(User user, Collection<NotificationType> types,
+                                                                                           LocalDateTime since, Pageable pageable);
+    /** 按用户与已读状态分页查询 {@code since} 之后的通知（倒序），并排除指定类型集合 */
+    Page<Notification> findByUserAndReadAndTypeNotInAndCreatedAtGreaterThanEqualOrderByCreatedAtDesc(User user, boolean read,
+                                                                                                  Collection<NotificationType> types,
+                                                                                                  LocalDateTime since, Pageable pageable);
+    /** 用户在 ID 游标之后的未读通知 ID（升序），用于分段批量已读 */
+    @Query("SELECT n.id FROM Notification n WHERE n.user.id = :userId AND n.read = false AND n.id > :afterId AND n.id <= :maxId ORDER BY n.id")
+    List<Long> findUnreadIdsAfter(@Param("userId") Long userId, @Param("afterId") long afterId, @Param("maxId") long maxId,
+                                  Pageable pageable);
+
+    /** 将用户在 (afterId, toId] 区间内的未读通知标记为已读，返回更新行数 */
+    @Modifying
+    @Query("UPDATE Notification n SET n.read = true WHERE n.user.id = :userId AND n.read = false AND n.id > :afterId AND n.id <= :toId")
+    int markReadInRange(@Param("userId") Long userId, @Param("afterId") long afterId, @Param("toId") long toId);
+
     /** 统计用户的（未）读通知数量 */
     long countByUserAndRead(User user, boolean read);
-    /** 统计用户的（未）读通知数量，排除指定类型集合 */
+    /**
+     * 统计用户的（未）读通知数量，排除指定类型集合。
+     * 未读角标请改用 {@code UnreadNotificationCounter#unreadCount}，不随通知量增长。
+     */
+    @Deprecated
     long countByUserAndReadAndTypeNotIn(User user, boolean read, Collection<NotificationType> types);
 
     /**
      * 删除给定类型且由某触发用户产生的所有通知。
      * 场景：撤销关注、撤销系统批量通知等。
+     * 逐条加载后删除，数量大时请改用 {@code NotificationBulkService#revoke} 分段删除。
      */
+    @Deprecated
     void deleteByTypeAndFromUser(NotificationType type, User fromUser);
 
     /**
@@ -60,18 +97,24 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     /**
      * 删除指定类型 + 触发用户 + 帖子维度的通知。
      * 场景：用户取消了对某帖子的操作（如取消订阅）。
+     * 逐条加载后删除，数量大时请改用 {@code NotificationBulkService#revoke} 分段删除。
      */
+    @Deprecated
     void deleteByTypeAndFromUserAndPost(NotificationType type, User fromUser, Post post);
 
     /**
      * 删除指定类型 + 触发用户 + 帖子 + 反应类型 的通知。
      * 场景：撤销针对某帖子的点赞/表情通知。
+     * 表态通知为合并写入，请改用 {@code NotificationBulkService#revoke}（经 {@code NotificationCoalescer} 只扣除该触发者）。
      */
+    @Deprecated
     void deleteByTypeAndFromUserAndPostAndReactionType(NotificationType type, User fromUser, Post post, ReactionType reactionType);
 
     /**
      * 删除指定类型 + 触发用户 + 评论 + 反应类型 的通知。
      * 场景：撤销针对某评论的点赞/表情通知。
+     * 表态通知为合并写入，请改用 {@code NotificationBulkService#revoke}（经 {@code NotificationCoalescer} 只扣除该触发者）。
      */
+    @Deprecated
     void deleteByTypeAndFromUserAndCommentAndReactionType(NotificationType type, User fromUser, Comment comment, ReactionType reactionType);
 }
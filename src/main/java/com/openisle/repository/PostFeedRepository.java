@@ -0,0 +1,30 @@
+package com.openisle.repository;
+
+import com.openisle.dto.FeedCursor;
+import com.openisle.dto.PostFeedFilter;
+
+import java.util.List;
+
+/**
+ * PostFeedRepository
+ *
+ * 帖子信息流的动态查询片段，由 {@link PostRepository} 继承。
+ *
+ * 设计要点：
+ * - 所有 分类 × 标签(任一/全部) × 排序 的组合由同一个 Criteria 查询根据 {@link PostFeedFilter} 生成。
+ * - 游标（keyset）分页：每一页都以上一页最后一条记录的排序键作为起点，
+ *   配合 {@code posts} 表上的复合索引，第 N 页与第 1 页的代价相同。
+ * - 第一阶段只取主键与排序键，不读取正文等大字段；实体/投影由调用方按 ID 批量加载。
+ */
+public interface PostFeedRepository {
+    /**
+     * 查询信息流中一段记录的排序键。
+     *
+     * @param filter 筛选条件
+     * @param kind   分段/排序键类型
+     * @param after  起始游标（不含），为 {@code null} 表示该段首页
+     * @param limit  最多返回条数
+     * @return 每行一条游标（含 id 与排序键），按排序键倒序
+     */
+    List<FeedCursor> findFeedKeys(PostFeedFilter filter, FeedCursor.Kind kind, FeedCursor after, int limit);
+}
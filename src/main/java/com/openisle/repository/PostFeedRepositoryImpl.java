@@ -0,0 +1,113 @@
+package com.openisle.repository;
+
+import com.openisle.dto.FeedCursor;
+import com.openisle.dto.PostFeedFilter;
+import com.openisle.model.Post;
+import com.openisle.model.Tag;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * PostFeedRepositoryImpl
+ *
+ * {@link PostFeedRepository} 的 Criteria 实现。
+ *
+ * 生成的 SQL 形态：
+ * - 标签任一：{@code EXISTS (SELECT 1 FROM post_tags WHERE post_id = p.id AND tag_id IN (...))}，半连接，无需 DISTINCT。
+ * - 标签全部：每个标签一个 EXISTS 探测，按 (post_id, tag_id) 主键逐个求交，
+ *   取代 {@code GROUP BY p.id HAVING COUNT(DISTINCT t.id)} 的临时表聚合。
+ * - 游标条件展开为 {@code key < :k OR (key = :k AND (...))}，排序列与
+ *   {@code idx_posts_status_pinned_created}/{@code idx_posts_status_views} 索引顺序一致。
+ * - 只选择 id 与排序键，均可由上述索引覆盖。
+ */
+public class PostFeedRepositoryImpl implements PostFeedRepository {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<FeedCursor> findFeedKeys(PostFeedFilter filter, FeedCursor.Kind kind, FeedCursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        Root<Post> p = cq.from(Post.class);
+        Path<Long> id = p.get("id");
+        Path<LocalDateTime> pinnedAt = p.get("pinnedAt");
+        Path<LocalDateTime> createdAt = p.get("createdAt");
+        Path<Long> views = p.get("views");
+
+        List<Predicate> where = new ArrayList<>();
+        where.add(cb.equal(p.get("status"), filter.getStatus()));
+        if (filter.getCategoryIds() != null && !filter.getCategoryIds().isEmpty()) {
+            where.add(p.get("category").get("id").in(filter.getCategoryIds()));
+        }
+        if (filter.getTagIds() != null && !filter.getTagIds().isEmpty()) {
+            if (filter.getTagMatch() == PostFeedFilter.TagMatch.ALL) {
+                for (Long tagId : new LinkedHashSet<>(filter.getTagIds())) {
+                    where.add(hasAnyTag(cb, cq, p, List.of(tagId)));
+                }
+            } else {
+                where.add(hasAnyTag(cb, cq, p, filter.getTagIds()));
+            }
+        }
+        switch (kind) {
+            case PINNED -> {
+                where.add(cb.isNotNull(pinnedAt));
+                if (after != null) {
+                    where.add(seek(cb, pinnedAt, after.getPinnedAt(),
+                            seek(cb, createdAt, after.getCreatedAt(), cb.lessThan(id, after.getId()))));
+                }
+                cq.orderBy(cb.desc(pinnedAt), cb.desc(createdAt), cb.desc(id));
+            }
+            case LATEST -> {
+                where.add(cb.isNull(pinnedAt));
+                if (after != null) {
+                    where.add(seek(cb, createdAt, after.getCreatedAt(), cb.lessThan(id, after.getId())));
+                }
+                cq.orderBy(cb.desc(createdAt), cb.desc(id));
+            }
+            case VIEWS -> {
+                if (after != null) {
+                    where.add(seek(cb, views, after.getViews(), cb.lessThan(id, after.getId())));
+                }
+                cq.orderBy(cb.desc(views), cb.desc(id));
+            }
+        }
+        cq.multiselect(id, pinnedAt, createdAt, views).where(where.toArray(new Predicate[0]));
+
+        List<Tuple> rows = entityManager.createQuery(cq).setMaxResults(limit).getResultList();
+        List<FeedCursor> keys = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            keys.add(new FeedCursor(kind, row.get(1, LocalDateTime.class), row.get(2, LocalDateTime.class),
+                    row.get(3, Long.class), row.get(0, Long.class)));
+        }
+        return keys;
+    }
+
+    /** 半连接：帖子至少带有给定标签之一 */
+    private static Predicate hasAnyTag(CriteriaBuilder cb, CriteriaQuery<?> cq, Root<Post> p, Collection<Long> tagIds) {
+        Subquery<Integer> sq = cq.subquery(Integer.class);
+        Join<Post, Tag> t = sq.correlate(p).join("tags");
+        sq.select(cb.literal(1)).where(t.get("id").in(tagIds));
+        return cb.exists(sq);
+    }
+
+    /** 倒序 keyset 条件：{@code key < value OR (key = value AND tieBreak)} */
+    private static <T extends Comparable<? super T>> Predicate seek(CriteriaBuilder cb, Expression<T> key,
+                                                                   T value, Predicate tieBreak) {
+        return cb.or(cb.lessThan(key, value), cb.and(cb.equal(key, value), tieBreak));
+    }
+}
@@ -1,9 +1,8 @@
 package com.openisle.repository;
 
+import com.openisle.dto.PostSummary;
 import com.openisle.model.Post;
 import com.openisle.model.User;
-import com.openisle.model.Category;
-import com.openisle.model.Tag;
 import com.openisle.model.PostStatus;
 import org.springframework.cglib.core.Local;
 import org.springframework.data.domain.Pageable;
@@ -23,83 +22,21 @@ import org.springframework.data.repository.query.Param;
  * 说明：
  * - 继承 {@link JpaRepository}，提供基础的 CRUD 与分页能力。
  * - 结合方法名约定与 JPQL 查询，覆盖常见列表/统计需求。
+ * - 继承 {@link PostFeedRepository}，由 {@link com.openisle.dto.PostFeedFilter} 动态生成信息流查询，
+ *   支持任意 分类 × 标签(任一/全部) × 排序 组合与游标分页，请通过 {@link com.openisle.service.PostFeedService} 查询。
  */
-public interface PostRepository extends JpaRepository<Post, Long> {
-    // 按状态筛选帖子
-    List<Post> findByStatus(PostStatus status);
-    List<Post> findByStatus(PostStatus status, Pageable pageable);
-    // 按状态并按创建时间倒序
-    List<Post> findByStatusOrderByCreatedAtDesc(PostStatus status);
-    List<Post> findByStatusOrderByCreatedAtDesc(PostStatus status, Pageable pageable);
-    // 按状态并按浏览量倒序
-    List<Post> findByStatusOrderByViewsDesc(PostStatus status);
-    List<Post> findByStatusOrderByViewsDesc(PostStatus status, Pageable pageable);
+public interface PostRepository extends JpaRepository<Post, Long>, PostFeedRepository {
     // 某作者的帖子（按创建时间倒序）
     List<Post> findByAuthorAndStatusOrderByCreatedAtDesc(User author, PostStatus status);
-    // 分类集合筛选（含分页/排序变体）
-    List<Post> findByCategoryInAndStatus(List<Category> categories, PostStatus status);
-    List<Post> findByCategoryInAndStatus(List<Category> categories, PostStatus status, Pageable pageable);
-    List<Post> findByCategoryInAndStatusOrderByCreatedAtDesc(List<Category> categories, PostStatus status);
-    List<Post> findByCategoryInAndStatusOrderByCreatedAtDesc(List<Category> categories, PostStatus status, Pageable pageable);
-    // 标签集合筛选（去重，含分页/排序变体）
-    List<Post> findDistinctByTagsInAndStatus(List<Tag> tags, PostStatus status);
-    List<Post> findDistinctByTagsInAndStatus(List<Tag> tags, PostStatus status, Pageable pageable);
-    List<Post> findDistinctByTagsInAndStatusOrderByCreatedAtDesc(List<Tag> tags, PostStatus status);
-    List<Post> findDistinctByTagsInAndStatusOrderByCreatedAtDesc(List<Tag> tags, PostStatus status, Pageable pageable);
-    List<Post> findDistinctByCategoryInAndTagsInAndStatus(List<Category> categories, List<Tag> tags, PostStatus status);
-    List<Post> findDistinctByCategoryInAndTagsInAndStatus(List<Category> categories, List<Tag> tags, PostStatus status, Pageable pageable);
-    List<Post> findDistinctByCategoryInAndTagsInAndStatusOrderByCreatedAtDesc(List<Category> categories, List<Tag> tags, PostStatus status);
-    List<Post> findDistinctByCategoryInAndTagsInAndStatusOrderByCreatedAtDesc(List<Category> categories, List<Tag> tags, PostStatus status, Pageable pageable);
-
-    // Queries requiring all provided tags to be present
-    // 查询包含“全部提供标签”的帖子（利用 HAVING 统计去重后的标签匹配数）
-    @Query("SELECT p FROM Post p JOIN p.tags t WHERE t IN :tags AND p.status = :status GROUP BY p.id HAVING COUNT(DISTINCT t.id) = :tagCount")
-    List<Post> findByAllTags(@Param("tags") List<Tag> tags, @Param("status") PostStatus status, @Param("tagCount") long tagCount);
-
-    @Query(value = "SELECT p FROM Post p JOIN p.tags t WHERE t IN :tags AND p.status = :status GROUP BY p.id HAVING COUNT(DISTINCT t.id) = :tagCount")
-    List<Post> findByAllTags(@Param("tags") List<Tag> tags, @Param("status") PostStatus status,  @Param("tagCount") long tagCount, Pageable pageable);
-
-    @Query("SELECT p FROM Post p JOIN p.tags t WHERE t IN :tags AND p.status = :status GROUP BY p.id HAVING COUNT(DISTINCT t.id) = :tagCount ORDER BY p.createdAt DESC")
-    List<Post> findByAllTagsOrderByCreatedAtDesc(@Param("tags") List<Tag> tags, @Param("status") PostStatus status, @Param("tagCount") long tagCount);
-
-    @Query(value = "SELECT p FROM Post p JOIN p.tags t WHERE t IN :tags AND p.status = :status GROUP BY p.id HAVING COUNT(DISTINCT t.id) = :tagCount ORDER BY p.createdAt DESC")
-    List<Post> findByAllTagsOrderByCreatedAtDesc(@Param("tags") List<Tag> tags, @Param("status") PostStatus status, @Param("tagCount") long tagCount, Pageable pageable);
-
-    @Query("SELECT p FROM Post p JOIN p.tags t WHERE t IN :tags AND p.status = :status GROUP BY p.id HAVING COUNT(DISTINCT t.id) = :tagCount ORDER BY p.views DESC")
-    List<Post> findByAllTagsOrderByViewsDesc(@Param("tags") List<Tag> tags, @Param("status") PostStatus status, @Param("tagCount") long tagCount);
-
-    @Query(value = "SELECT p FROM Post p JOIN p.tags t WHERE t IN :tags AND p.status = :status GROUP BY p.id HAVING COUNT(DISTINCT t.id) = :tagCount ORDER BY p.views DESC")
-    List<Post> findByAllTagsOrderByViewsDesc(@Param("tags") List<Tag> tags, @Param("status") PostStatus status, @Param("tagCount") long tagCount, Pageable pageable);
-
-    @Query("SELECT p FROM Post p JOIN p.tags t WHERE p.category IN :categories AND t IN :tags AND p.status = :status GROUP BY p.id HAVING COUNT(DISTINCT t.id) = :tagCount")
-    List<Post> findByCategoriesAndAllTags(@Param("categories") List<Category> categories, @Param("tags") List<Tag> tags, @Param("status") PostStatus status, @Param("tagCount") long tagCount);
-
-    @Query(value = "SELECT p FROM Post p JOIN p.tags t WHERE p.category IN :categories AND t IN :tags AND p.status = :status GROUP BY p.id HAVING COUNT(DISTINCT t.id) = :tagCount")
-    List<Post> findByCategoriesAndAllTags(@Param("categories") List<Category> categories, @Param("tags") List<Tag> tags, @Param("status") PostStatus status, @Param("tagCount") long tagCount, Pageable pageable);
-
-    @Query("SELECT p FROM Post p JOIN p.tags t WHERE p.category IN :categories AND t IN :tags AND p.status = :status GROUP BY p.id HAVING COUNT(DISTINCT t.id) = :tagCount ORDER BY p.views DESC")
-    List<Post> findByCategoriesAndAllTagsOrderByViewsDesc(@Param("categories") List<Category> categories, @Param("tags") List<Tag> tags, @Param("status") PostStatus status, @Param("tagCount") long tagCount);
-
-    @Query(value = "SELECT p FROM Post p JOIN p.tags t WHERE p.category IN :categories AND t IN :tags AND p.status = :status GROUP BY p.id HAVING COUNT(DISTINCT t.id) = :tagCount ORDER BY p.views DESC")
-    List<Post> findByCategoriesAndAllTagsOrderByViewsDesc(@Param("categories") List<Category> categories, @Param("tags") List<Tag> tags, @Param("status") PostStatus status, @Param("tagCount") long tagCount, Pageable pageable);
-
-    @Query("SELECT p FROM Post p JOIN p.tags t WHERE p.category IN :categories AND t IN :tags AND p.status = :status GROUP BY p.id HAVING COUNT(DISTINCT t.id) = :tagCount ORDER BY p.createdAt DESC")
-    List<Post> findByCategoriesAndAllTagsOrderByCreatedAtDesc(@Param("categories") List<Category> categories, @Param("tags") List<Tag> tags, @Param("status") PostStatus status, @Param("tagCount") long tagCount);
-
-    @Query(value = "SELECT p FROM Post p JOIN p.tags t WHERE p.category IN :categories AND t IN :tags AND p.status = :status GROUP BY p.id HAVING COUNT(DISTINCT t.id) = :tagCount ORDER BY p.createdAt DESC")
-    List<Post> findByCategoriesAndAllTagsOrderByCreatedAtDesc(@Param("categories") List<Category> categories, @Param("tags") List<Tag> tags, @Param("status") PostStatus status, @Param("tagCount") long tagCount, Pageable pageable);
-
-    // 分类/标签组合的热门聚合（按浏览量倒序）
-    List<Post> findByCategoryInAndStatusOrderByViewsDesc(List<Category> categories, PostStatus status);
-    List<Post> findByCategoryInAndStatusOrderByViewsDesc(List<Category> categories, PostStatus status, Pageable pageable);
-    List<Post> findDistinctByTagsInAndStatusOrderByViewsDesc(List<Tag> tags, PostStatus status);
-    List<Post> findDistinctByTagsInAndStatusOrderByViewsDesc(List<Tag> tags, PostStatus status, Pageable pageable);
-    List<Post> findDistinctByCategoryInAndTagsInAndStatusOrderByViewsDesc(List<Category> categories, List<Tag> tags, PostStatus status);
-    List<Post> findDistinctByCategoryInAndTagsInAndStatusOrderByViewsDesc(List<Category> categories, List<Tag> tags, PostStatus status, Pageable pageable);
-    // 关键字搜索（忽略大小写）
+    // 关键字搜索（忽略大小写）；LIKE '%kw%' 无法走索引，请改用 com.openisle.search.SearchIndexService
+    @Deprecated
     List<Post> findByContentContainingIgnoreCaseAndStatus(String keyword, PostStatus status);
+    @Deprecated
     List<Post> findByTitleContainingIgnoreCaseAndStatus(String keyword, PostStatus status);
+    @Deprecated
     List<Post> findByTitleContainingIgnoreCaseOrContentContainingIgnoreCaseAndStatus(String titleKeyword, String contentKeyword, PostStatus status);
+    // 全文索引重建：按 ID 递增分批读取
+    List<Post> findByIdGreaterThanAndStatusOrderByIdAsc(Long id, PostStatus status, Pageable pageable);
 
     // 用户近况：最后一条发布时间
     @Query("SELECT MAX(p.createdAt) FROM Post p WHERE p.author.username = :username AND p.status = com.openisle.model.PostStatus.PUBLISHED")
@@ -136,4 +73,13 @@ public interface PostRepository extends JpaRepository<Post, Long> {
 
     // 仅返回未排除 RSS 的最新帖子
     List<Post> findByStatusAndRssExcludedFalseOrderByCreatedAtDesc(PostStatus status, Pageable pageable);
+
+    // 列表投影：按 ID 批量查询帖子标量字段（不含正文），作者/分类只取外键
+    @Query("SELECT new com.openisle.dto.PostSummary(p.id, p.title, p.createdAt, p.views, p.status, p.type, " +
+            "p.closed, p.pinnedAt, p.author.id, p.category.id) FROM Post p WHERE p.id IN :ids")
+    List<PostSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // 列表投影：一次性查询一页帖子的全部标签，返回 [postId, tagId, name, icon, smallIcon]
+    @Query("SELECT p.id, t.id, t.name, t.icon, t.smallIcon FROM Post p JOIN p.tags t WHERE p.id IN :ids")
+    List<Object[]> findTagRowsByPostIdIn(@Param("ids") Collection<Long> ids);
 }
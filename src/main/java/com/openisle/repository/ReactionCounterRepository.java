@@ -0,0 +1,18 @@
+package com.openisle.repository;
+
+import com.openisle.model.ReactionCounter;
+import com.openisle.model.ReactionTargetType;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 表态计数仓库。
+ *
+ * 读取按内容批量进行；计数更新使用带行锁的 JDBC 语句，见 {@code ReactionCounterService}。
+ */
+public interface ReactionCounterRepository extends JpaRepository<ReactionCounter, Long> {
+    // 批量读取一组内容的计数（一条 IN 查询）
+    List<ReactionCounter> findByTargetTypeAndTargetIdIn(ReactionTargetType targetType, Collection<Long> targetIds);
+}
@@ -25,6 +25,8 @@ import java.util.Optional;
  * - 本仓库同时支持对帖子(Post)与评论(Comment)上的点赞/表态数据进行查询与统计。
  * - 约定：当前业务仅统计/筛选 {@code ReactionType.LIKE}（点赞）时使用到的部分查询，
  *   若未来扩展其他类型（例如 DISLIKE），需相应调整 JPQL 条件。
+ * - 个人主页的点赞统计请读取 {@code UserStatsService} 维护的快照；此处的聚合查询保留为口径参考。
+ * - 表态汇总（各类型计数）请读取 {@code ReactionCounterService}，无需加载全部表态明细。
  */
 public interface ReactionRepository extends JpaRepository<Reaction, Long> {
     /**
@@ -73,6 +75,7 @@ public interface ReactionRepository extends JpaRepository<Reaction, Long> {
      * @param pageable 限制返回数量及排序（JPQL已含排序，通常只需限制 size）
      * @return 帖子ID列表（按收到的点赞数降序）
      */
+    @Deprecated
     @Query("SELECT r.post.id FROM Reaction r WHERE r.post IS NOT NULL AND r.post.author.username = :username AND r.type = com.openisle.model.ReactionType.LIKE GROUP BY r.post.id ORDER BY COUNT(r.id) DESC")
     List<Long> findTopPostIds(@Param("username")  String username, Pageable pageable);
 
@@ -84,9 +87,33 @@ public interface ReactionRepository extends JpaRepository<Reaction, Long> {
      * @param pageable 限制返回数量及排序（JPQL已含排序，通常只需限制 size）
      * @return 评论ID列表（按收到的点赞数降序）
      */
+    @Deprecated
     @Query("SELECT r.comment.id FROM Reaction r WHERE r.comment IS NOT NULL AND r.comment.author.username = :username AND r.type = com.openisle.model.ReactionType.LIKE GROUP BY r.comment.id ORDER BY COUNT(r.id) DESC")
     List<Long> findTopCommentIds(@Param("username")  String username, Pageable pageable);
 
+    /**
+     * 指定作者(按 id)收到点赞最多的帖子及点赞数；同票时按帖子 ID 降序，排序确定。
+     * 直接按 {@code posts.author_id} 过滤，不关联用户表。个人主页请优先使用 {@code LikeLeaderboardService}。
+     *
+     * @param authorId 作者 ID
+     * @param pageable 限制返回数量
+     * @return [帖子ID, 点赞数] 列表
+     */
+    @Query("SELECT p.id, COUNT(r.id) FROM Reaction r JOIN r.post p WHERE p.author.id = :authorId " +
+            "AND r.type = com.openisle.model.ReactionType.LIKE GROUP BY p.id ORDER BY COUNT(r.id) DESC, p.id DESC")
+    List<Object[]> findTopLikedPostsByAuthorId(@Param("authorId") Long authorId, Pageable pageable);
+
+    /**
+     * 指定作者(按 id)收到点赞最多的评论及点赞数（不含已删除评论）；同票时按评论 ID 降序。
+     *
+     * @param authorId 作者 ID
+     * @param pageable 限制返回数量
+     * @return [评论ID, 点赞数] 列表
+     */
+    @Query("SELECT c.id, COUNT(r.id) FROM Reaction r JOIN r.comment c WHERE c.author.id = :authorId AND c.deletedAt IS NULL " +
+            "AND r.type = com.openisle.model.ReactionType.LIKE GROUP BY c.id ORDER BY COUNT(r.id) DESC, c.id DESC")
+    List<Object[]> findTopLikedCommentsByAuthorId(@Param("authorId") Long authorId, Pageable pageable);
+
     /**
      * 统计指定用户(@username)向外发送的点赞总数。
      *
@@ -4,6 +4,7 @@ package com.openisle.repository;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import com.openisle.dto.UserSummary;
 import com.openisle.model.User;
 import java.time.LocalDateTime;
 import java.util.Optional;
@@ -30,6 +31,9 @@ public interface UserRepository extends JpaRepository<User, Long> {
     long countByExperienceGreaterThanEqual(int experience);
     // 统计在指定时间前注册的用户数量
     long countByCreatedAtBefore(LocalDateTime createdAt);
+    // 列表投影：按 ID 批量查询用户摘要（不加载通知偏好等集合）
+    @Query("SELECT new com.openisle.dto.UserSummary(u.id, u.username, u.avatar) FROM User u WHERE u.id IN :ids")
+    java.util.List<UserSummary> findSummariesByIdIn(@Param("ids") java.util.Collection<Long> ids);
 
     // 时间序列统计：按天聚合注册数量
     @Query("SELECT FUNCTION('date', u.createdAt) AS d, COUNT(u) AS c FROM User u " +
@@ -0,0 +1,12 @@
+package com.openisle.repository;
+
+import com.openisle.model.UserStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * 用户统计快照仓库。
+ *
+ * 读取走主键查询；增量维护与全量重建使用 JDBC 原子更新，见 {@code UserStatsService}。
+ */
+public interface UserStatsRepository extends JpaRepository<UserStats, Long> {
+}
@@ -21,7 +21,8 @@ public interface UserVisitRepository extends JpaRepository<UserVisit, Long> {
     /**
      * 根据用户和访问日期查找访问记录
      * 由于 UserVisit 实体有唯一约束 (user_id, visit_date)，
-     * 所以同一个用户在同一天最多只有一条记录
+     * 所以同一个用户在同一天最多只有一条记录。
+     * 记录访问请使用 {@link com.openisle.service.UserVisitRecorder}，不要先查后插（每次请求一读一写，并发时违反唯一约束）
      * 
      * @param user 用户对象
      * @param date 访问日期
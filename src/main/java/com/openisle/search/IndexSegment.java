@@ -0,0 +1,287 @@
+package com.openisle.search;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.function.LongConsumer;
+
+/**
+ * IndexSegment
+ *
+ * 不可变的磁盘索引段，通过内存映射（mmap）读取，常驻堆内存只有少量元数据。
+ *
+ * 文件布局（大端序）：
+ * <pre>
+ * [postings]   每个词的倒排项：varint(docId 差值) varint(tf)，docId 升序
+ * [strings]    所有词的 UTF-8 字节
+ * [dictionary] termCount × (int 词偏移, int 词长度, long 倒排偏移, int 倒排项数)，按词字节序排列，可二分查找
+ * [docs]       docCount × (long docId, int 长度)，按 docId 升序，可二分查找
+ * [deleted]    deletedCount × long，本段存续期间删除的文档
+ * [footer]     各区偏移/数量、段序号与魔数
+ * </pre>
+ * 文件先写临时文件再原子重命名，读到的段总是完整的。
+ */
+final class IndexSegment implements PostingSource {
+    private static final int MAGIC = 0x4F495347; // "OISG"
+    private static final int FOOTER_BYTES = 8 + 8 + 4 + 8 + 4 + 8 + 4 + 4 + 4;
+    private static final int DICT_ENTRY_BYTES = 4 + 4 + 8 + 4;
+    private static final int DOC_ENTRY_BYTES = 8 + 4;
+
+    private final Path file;
+    private final MappedByteBuffer buf;
+    private final int seq;
+    private final int stringsOff;
+    private final int dictOff;
+    private final int termCount;
+    private final int docsOff;
+    private final int docCount;
+    private final int deletedOff;
+    private final int deletedCount;
+
+    private IndexSegment(Path file, MappedByteBuffer buf) throws IOException {
+        this.file = file;
+        this.buf = buf;
+        int f = buf.capacity() - FOOTER_BYTES;
+        if (f < 0 || buf.getInt(buf.capacity() - 4) != MAGIC) {
+            throw new IOException("Corrupted search segment: " + file);
+        }
+        stringsOff = (int) buf.getLong(f);
+        dictOff = (int) buf.getLong(f + 8);
+        termCount = buf.getInt(f + 16);
+        docsOff = (int) buf.getLong(f + 20);
+        docCount = buf.getInt(f + 28);
+        deletedOff = (int) buf.getLong(f + 32);
+        deletedCount = buf.getInt(f + 40);
+        seq = buf.getInt(f + 44);
+    }
+
+    static IndexSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Search segment too large to map: " + file);
+            }
+            // 映射在通道关闭后依然有效
+            return new IndexSegment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * 写出一个段文件。
+     *
+     * @param file     目标文件（先写到同目录临时文件，完成后原子替换）
+     * @param seq      段序号
+     * @param postings 按词字节序排列的倒排表
+     * @param lengths  文档长度（按 docId 升序）
+     * @param deleted  删除记录（升序）
+     */
+    static void write(Path file, int seq, Iterator<TermPostings> postings,
+                      SortedMap<Long, Integer> lengths, SortedSet<Long> deleted) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        List<byte[]> terms = new ArrayList<>();
+        List<long[]> entries = new ArrayList<>(); // [postingsOffset, count]
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            while (postings.hasNext()) {
+                TermPostings tp = postings.next();
+                terms.add(tp.term());
+                entries.add(new long[]{out.size(), tp.docIds().length});
+                long prev = 0;
+                for (int i = 0; i < tp.docIds().length; i++) {
+                    writeVarLong(out, tp.docIds()[i] - prev);
+                    writeVarLong(out, tp.tfs()[i]);
+                    prev = tp.docIds()[i];
+                }
+            }
+            long stringsOff = out.size();
+            for (byte[] term : terms) {
+                out.write(term);
+            }
+            long dictOff = out.size();
+            int termOff = 0;
+            for (int i = 0; i < terms.size(); i++) {
+                out.writeInt(termOff);
+                out.writeInt(terms.get(i).length);
+                out.writeLong(entries.get(i)[0]);
+                out.writeInt((int) entries.get(i)[1]);
+                termOff += terms.get(i).length;
+            }
+            long docsOff = out.size();
+            for (var e : lengths.entrySet()) {
+                out.writeLong(e.getKey());
+                out.writeInt(e.getValue());
+            }
+            long deletedOff = out.size();
+            for (long id : deleted) {
+                out.writeLong(id);
+            }
+            out.writeLong(stringsOff);
+            out.writeLong(dictOff);
+            out.writeInt(terms.size());
+            out.writeLong(docsOff);
+            out.writeInt(lengths.size());
+            out.writeLong(deletedOff);
+            out.writeInt(deleted.size());
+            out.writeInt(seq);
+            out.writeInt(MAGIC);
+            // DataOutputStream.size() 在超过 int 范围后停在 Integer.MAX_VALUE
+            if (out.size() == Integer.MAX_VALUE) {
+                throw new IOException("Search segment exceeds 2GB: " + file);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    Path file() {
+        return file;
+    }
+
+    long sizeInBytes() {
+        return buf.capacity();
+    }
+
+    @Override
+    public int seq() {
+        return seq;
+    }
+
+    int termCount() {
+        return termCount;
+    }
+
+    /** 第 i 个词的 UTF-8 字节（合并时按字节序遍历） */
+    byte[] termAt(int i) {
+        int e = dictOff + i * DICT_ENTRY_BYTES;
+        byte[] term = new byte[buf.getInt(e + 4)];
+        buf.get(stringsOff + buf.getInt(e), term);
+        return term;
+    }
+
+    /** 遍历第 i 个词的倒排项 */
+    void forEachPostingAt(int i, PostingConsumer consumer) {
+        int e = dictOff + i * DICT_ENTRY_BYTES;
+        int pos = (int) buf.getLong(e + 8);
+        int count = buf.getInt(e + 16);
+        long doc = 0;
+        for (int k = 0; k < count; k++) {
+            long delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buf.get(pos++);
+                delta |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            long tf = 0;
+            shift = 0;
+            do {
+                b = buf.get(pos++);
+                tf |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            doc += delta;
+            consumer.accept(doc, (int) tf);
+        }
+    }
+
+    @Override
+    public void forEachPosting(String term, PostingConsumer consumer) {
+        int i = findTerm(term.getBytes(StandardCharsets.UTF_8));
+        if (i >= 0) {
+            forEachPostingAt(i, consumer);
+        }
+    }
+
+    @Override
+    public int docFreq(String term) {
+        int i = findTerm(term.getBytes(StandardCharsets.UTF_8));
+        return i < 0 ? 0 : buf.getInt(dictOff + i * DICT_ENTRY_BYTES + 16);
+    }
+
+    @Override
+    public int docLength(long docId) {
+        int lo = 0;
+        int hi = docCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long id = buf.getLong(docsOff + mid * DOC_ENTRY_BYTES);
+            if (id < docId) {
+                lo = mid + 1;
+            } else if (id > docId) {
+                hi = mid - 1;
+            } else {
+                return buf.getInt(docsOff + mid * DOC_ENTRY_BYTES + 8);
+            }
+        }
+        return -1;
+    }
+
+    /** 遍历本段包含的文档 */
+    void forEachDoc(PostingConsumer consumer) {
+        for (int i = 0; i < docCount; i++) {
+            int e = docsOff + i * DOC_ENTRY_BYTES;
+            consumer.accept(buf.getLong(e), buf.getInt(e + 8));
+        }
+    }
+
+    /** 遍历本段记录的删除 */
+    void forEachDeleted(LongConsumer consumer) {
+        for (int i = 0; i < deletedCount; i++) {
+            consumer.accept(buf.getLong(deletedOff + i * 8));
+        }
+    }
+
+    private int findTerm(byte[] term) {
+        int lo = 0;
+        int hi = termCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compareTermAt(mid, term);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compareTermAt(int i, byte[] term) {
+        int e = dictOff + i * DICT_ENTRY_BYTES;
+        int off = stringsOff + buf.getInt(e);
+        int len = buf.getInt(e + 4);
+        int n = Math.min(len, term.length);
+        for (int k = 0; k < n; k++) {
+            int cmp = Integer.compare(buf.get(off + k) & 0xFF, term[k] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(len, term.length);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
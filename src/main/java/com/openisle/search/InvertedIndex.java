@@ -0,0 +1,432 @@
+package com.openisle.search;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * InvertedIndex
+ *
+ * 嵌入式倒排索引（LSM 结构），一个实例对应一类文档（帖子或评论）。
+ *
+ * 设计要点：
+ * - 写入先进入内存缓冲区 {@link MemTable}，达到 {@code maxBufferedDocs} 或定时刷盘后写成不可变的 {@link IndexSegment}。
+ * - 文档更新/删除不改写旧段：{@code owner} 记录每个文档当前版本所在来源的序号，检索时忽略旧版本倒排项；
+ *   删除记录随段文件持久化，重启时按序号回放即可恢复 {@code owner}。
+ * - 段数超过阈值时做一次全量合并，只保留存活文档。
+ * - 检索：查询词之间为 AND 语义（对中文二元组而言近似于子串匹配），按 BM25 打分排序。
+ * - 并发：读写锁保护内存结构；刷盘/合并写文件时不持有写锁。
+ */
+@Slf4j
+public class InvertedIndex {
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final String SEGMENT_PREFIX = "seg-";
+    private static final String SEGMENT_SUFFIX = ".idx";
+
+    private final Path dir;
+    private final int maxBufferedDocs;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** 保证同一时间只有一个刷盘/合并 */
+    private final Object flushMonitor = new Object();
+
+    /** 按序号升序的全部来源（段、刷盘中的缓冲区、当前缓冲区） */
+    private final TreeMap<Integer, PostingSource> sources = new TreeMap<>();
+    private final Map<Long, Integer> owner = new HashMap<>();
+    private MemTable active;
+    private long totalLength;
+
+    public InvertedIndex(Path dir, int maxBufferedDocs) throws IOException {
+        this.dir = dir;
+        this.maxBufferedDocs = maxBufferedDocs;
+        Files.createDirectories(dir);
+        load();
+    }
+
+    /** 存活文档数 */
+    public int docCount() {
+        lock.readLock().lock();
+        try {
+            return owner.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** 磁盘段数量 */
+    public int segmentCount() {
+        lock.readLock().lock();
+        try {
+            return (int) sources.values().stream().filter(s -> s instanceof IndexSegment).count();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 新增或替换文档。
+     *
+     * @param docId     文档 ID
+     * @param termFreqs 词频（见 {@link SearchTokenizer#indexTerms}）
+     * @param length    文档长度
+     */
+    public void put(long docId, Map<String, Integer> termFreqs, int length) throws IOException {
+        boolean full;
+        lock.writeLock().lock();
+        try {
+            detach(docId);
+            active.put(docId, termFreqs, length);
+            owner.put(docId, active.seq());
+            totalLength += length;
+            full = active.size() >= maxBufferedDocs;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    /** 删除文档 */
+    public void remove(long docId) {
+        lock.writeLock().lock();
+        try {
+            detach(docId);
+            active.markDeleted(docId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 检索。
+     *
+     * @param terms  查询词（见 {@link SearchTokenizer#queryTerms}）
+     * @param offset 跳过条数
+     * @param limit  返回条数
+     * @return 当前页文档 ID（相关度降序）与命中总数
+     */
+    public SearchResult search(List<String> terms, int offset, int limit) {
+        if (terms.isEmpty() || limit <= 0) {
+            return SearchResult.empty();
+        }
+        lock.readLock().lock();
+        try {
+            int n = owner.size();
+            if (n == 0) {
+                return SearchResult.empty();
+            }
+            float avgLength = Math.max(1f, (float) totalLength / n);
+            Map<String, Integer> df = new HashMap<>();
+            for (String term : terms) {
+                int f = 0;
+                for (PostingSource source : sources.values()) {
+                    f += source.docFreq(term);
+                }
+                if (f == 0) {
+                    return SearchResult.empty(); // AND 语义：任一词无命中即无结果
+                }
+                df.put(term, f);
+            }
+            // 从最稀有的词开始求交，候选集最小
+            List<String> ordered = new ArrayList<>(terms);
+            ordered.sort(Comparator.comparing(df::get));
+
+            Map<Long, float[]> scores = null;
+            for (String term : ordered) {
+                int f = df.get(term);
+                float idf = (float) Math.log(1 + (n - f + 0.5) / (f + 0.5));
+                Map<Long, float[]> matched = new HashMap<>();
+                Map<Long, float[]> previous = scores;
+                for (PostingSource source : sources.values()) {
+                    int seq = source.seq();
+                    source.forEachPosting(term, (docId, tf) -> {
+                        float[] acc = null;
+                        if (previous != null && (acc = previous.get(docId)) == null) {
+                            return; // 不在上一轮的交集中
+                        }
+                        Integer current = owner.get(docId);
+                        if (current == null || current != seq) {
+                            return; // 旧版本或已删除
+                        }
+                        if (acc == null) {
+                            // [0] 累计得分，[1] 文档长度归一化因子（每个文档只算一次）
+                            acc = new float[]{0f, K1 * (1 - B + B * source.docLength(docId) / avgLength)};
+                        }
+                        acc[0] += idf * tf * (K1 + 1) / (tf + acc[1]);
+                        matched.put(docId, acc);
+                    });
+                }
+                scores = matched;
+                if (scores.isEmpty()) {
+                    return SearchResult.empty();
+                }
+            }
+
+            int want = offset + limit;
+            PriorityQueue<Map.Entry<Long, float[]>> top = new PriorityQueue<>(
+                    Comparator.comparing((Map.Entry<Long, float[]> e) -> e.getValue()[0])
+                            .thenComparing(Map.Entry::getKey));
+            for (Map.Entry<Long, float[]> e : scores.entrySet()) {
+                top.offer(e);
+                if (top.size() > want) {
+                    top.poll();
+                }
+            }
+            List<Long> ranked = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                ranked.add(top.poll().getKey());
+            }
+            Collections.reverse(ranked);
+            List<Long> page = offset >= ranked.size() ? List.of() : ranked.subList(offset, ranked.size());
+            return new SearchResult(new ArrayList<>(page), scores.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** 将当前缓冲区写成磁盘段 */
+    public void flush() throws IOException {
+        synchronized (flushMonitor) {
+            MemTable frozen;
+            lock.writeLock().lock();
+            try {
+                if (active.isEmpty()) {
+                    return;
+                }
+                frozen = active;
+                active = new MemTable(frozen.seq() + 1);
+                sources.put(active.seq(), active);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            Path file = segmentFile(frozen.seq());
+            IndexSegment.write(file, frozen.seq(), frozen.sortedPostings().iterator(),
+                    frozen.sortedLengths(), frozen.sortedDeleted());
+            IndexSegment segment = IndexSegment.open(file);
+            lock.writeLock().lock();
+            try {
+                sources.put(segment.seq(), segment);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * 段数超过阈值时，将全部磁盘段合并为一个，只保留存活文档。
+     * 合并后的段沿用输入中最大的序号，重启回放顺序不变。
+     *
+     * @param maxSegments 段数阈值
+     * @return 是否执行了合并
+     */
+    public boolean maybeMerge(int maxSegments) throws IOException {
+        synchronized (flushMonitor) {
+            List<IndexSegment> inputs = new ArrayList<>();
+            Map<Long, Integer> live = new HashMap<>();
+            lock.readLock().lock();
+            try {
+                for (PostingSource source : sources.values()) {
+                    if (source instanceof IndexSegment segment) {
+                        inputs.add(segment);
+                    }
+                }
+                if (inputs.size() <= maxSegments) {
+                    return false;
+                }
+                Set<Integer> seqs = new HashSet<>();
+                inputs.forEach(s -> seqs.add(s.seq()));
+                owner.forEach((doc, seq) -> {
+                    if (seqs.contains(seq)) {
+                        live.put(doc, seq);
+                    }
+                });
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            IndexSegment last = inputs.get(inputs.size() - 1);
+            int mergedSeq = last.seq();
+            TreeMap<Long, Integer> lengths = new TreeMap<>();
+            TreeSet<Long> deleted = new TreeSet<>();
+            for (IndexSegment segment : inputs) {
+                segment.forEachDoc((doc, length) -> {
+                    Integer seq = live.get(doc);
+                    if (seq != null && seq == segment.seq()) {
+                        lengths.put(doc, length);
+                    }
+                });
+                // 合并输入在崩溃时可能残留，保留删除记录使回放结果一致
+                segment.forEachDeleted(deleted::add);
+            }
+            Path file = segmentFile(mergedSeq);
+            IndexSegment.write(file, mergedSeq, new MergeIterator(inputs, live), lengths, deleted);
+            IndexSegment merged = IndexSegment.open(file);
+
+            lock.writeLock().lock();
+            try {
+                for (IndexSegment segment : inputs) {
+                    sources.remove(segment.seq());
+                }
+                sources.put(mergedSeq, merged);
+                live.forEach((doc, seq) -> owner.replace(doc, seq, mergedSeq));
+            } finally {
+                lock.writeLock().unlock();
+            }
+            for (IndexSegment segment : inputs) {
+                if (segment.seq() != mergedSeq) {
+                    Files.deleteIfExists(segment.file());
+                }
+            }
+            return true;
+        }
+    }
+
+    /** 清空索引（全量重建前调用） */
+    public void clear() throws IOException {
+        synchronized (flushMonitor) {
+            lock.writeLock().lock();
+            try {
+                for (PostingSource source : sources.values()) {
+                    if (source instanceof IndexSegment segment) {
+                        Files.deleteIfExists(segment.file());
+                    }
+                }
+                int next = sources.isEmpty() ? 1 : sources.lastKey() + 1;
+                sources.clear();
+                owner.clear();
+                totalLength = 0;
+                active = new MemTable(next);
+                sources.put(next, active);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void detach(long docId) {
+        Integer seq = owner.remove(docId);
+        if (seq != null) {
+            PostingSource source = sources.get(seq);
+            int length = source == null ? -1 : source.docLength(docId);
+            if (length > 0) {
+                totalLength -= length;
+            }
+        }
+    }
+
+    private Path segmentFile(int seq) {
+        return dir.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, seq, SEGMENT_SUFFIX));
+    }
+
+    private void load() throws IOException {
+        List<IndexSegment> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.deleteIfExists(file); // 上次写到一半的段
+                } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    segments.add(IndexSegment.open(file));
+                }
+            }
+        }
+        segments.sort(Comparator.comparingInt(IndexSegment::seq));
+        for (IndexSegment segment : segments) {
+            segment.forEachDeleted(owner::remove);
+            segment.forEachDoc((doc, length) -> owner.put(doc, segment.seq()));
+            sources.put(segment.seq(), segment);
+        }
+        owner.forEach((doc, seq) -> totalLength += Math.max(0, sources.get(seq).docLength(doc)));
+        int next = segments.isEmpty() ? 1 : segments.get(segments.size() - 1).seq() + 1;
+        active = new MemTable(next);
+        sources.put(next, active);
+        log.info("Loaded search index {} with {} segments and {} documents", dir, segments.size(), owner.size());
+    }
+
+    /** 多段按词字节序归并，输出只含存活文档的倒排表 */
+    private static final class MergeIterator implements Iterator<TermPostings> {
+        private final List<IndexSegment> inputs;
+        private final Map<Long, Integer> live;
+        private final int[] cursor;
+        private final PriorityQueue<Integer> heap;
+        private final byte[][] heads;
+        private TermPostings next;
+
+        MergeIterator(List<IndexSegment> inputs, Map<Long, Integer> live) {
+            this.inputs = inputs;
+            this.live = live;
+            this.cursor = new int[inputs.size()];
+            this.heads = new byte[inputs.size()][];
+            this.heap = new PriorityQueue<>((a, b) -> Arrays.compareUnsigned(heads[a], heads[b]));
+            for (int i = 0; i < inputs.size(); i++) {
+                advance(i);
+            }
+        }
+
+        private void advance(int i) {
+            if (cursor[i] < inputs.get(i).termCount()) {
+                heads[i] = inputs.get(i).termAt(cursor[i]++);
+                heap.offer(i);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !heap.isEmpty()) {
+                byte[] term = heads[heap.peek()];
+                TreeMap<Long, Integer> merged = new TreeMap<>();
+                while (!heap.isEmpty() && Arrays.equals(heads[heap.peek()], term)) {
+                    int i = heap.poll();
+                    IndexSegment segment = inputs.get(i);
+                    segment.forEachPostingAt(cursor[i] - 1, (doc, tf) -> {
+                        Integer seq = live.get(doc);
+                        if (seq != null && seq == segment.seq()) {
+                            merged.put(doc, tf);
+                        }
+                    });
+                    advance(i);
+                }
+                if (!merged.isEmpty()) {
+                    long[] ids = new long[merged.size()];
+                    int[] tfs = new int[merged.size()];
+                    int k = 0;
+                    for (Map.Entry<Long, Integer> e : merged.entrySet()) {
+                        ids[k] = e.getKey();
+                        tfs[k++] = e.getValue();
+                    }
+                    next = new TermPostings(term, ids, tfs);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public TermPostings next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            TermPostings result = next;
+            next = null;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.openisle.search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * MemTable
+ *
+ * 内存中的可变索引缓冲区。新增/更新的文档先写入这里，累积到阈值或定时刷盘后转为不可变的 {@link IndexSegment}。
+ * 非线程安全，由 {@link InvertedIndex} 的读写锁保护；刷盘开始后不再修改。
+ */
+final class MemTable implements PostingSource {
+    private final int seq;
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+    private final Map<Long, Map<String, Integer>> docs = new HashMap<>();
+    private final Map<Long, Integer> lengths = new HashMap<>();
+    /** 本缓冲区存续期间被删除的文档，写入段文件供重启时回放 */
+    private final Set<Long> deleted = new HashSet<>();
+
+    MemTable(int seq) {
+        this.seq = seq;
+    }
+
+    @Override
+    public int seq() {
+        return seq;
+    }
+
+    void put(long docId, Map<String, Integer> termFreqs, int length) {
+        removeDoc(docId);
+        docs.put(docId, termFreqs);
+        lengths.put(docId, length);
+        termFreqs.forEach((term, tf) -> postings.computeIfAbsent(term, k -> new HashMap<>()).put(docId, tf));
+    }
+
+    void markDeleted(long docId) {
+        removeDoc(docId);
+        deleted.add(docId);
+    }
+
+    int size() {
+        return docs.size();
+    }
+
+    boolean isEmpty() {
+        return docs.isEmpty() && deleted.isEmpty();
+    }
+
+    @Override
+    public void forEachPosting(String term, PostingConsumer consumer) {
+        Map<Long, Integer> list = postings.get(term);
+        if (list != null) {
+            list.forEach(consumer::accept);
+        }
+    }
+
+    @Override
+    public int docFreq(String term) {
+        Map<Long, Integer> list = postings.get(term);
+        return list == null ? 0 : list.size();
+    }
+
+    @Override
+    public int docLength(long docId) {
+        Integer length = lengths.get(docId);
+        return length == null ? -1 : length;
+    }
+
+    /** 按词的 UTF-8 字节序输出倒排表 */
+    List<TermPostings> sortedPostings() {
+        List<TermPostings> result = new ArrayList<>(postings.size());
+        postings.forEach((term, list) -> {
+            TreeMap<Long, Integer> sorted = new TreeMap<>(list);
+            long[] ids = new long[sorted.size()];
+            int[] tfs = new int[sorted.size()];
+            int i = 0;
+            for (Map.Entry<Long, Integer> e : sorted.entrySet()) {
+                ids[i] = e.getKey();
+                tfs[i++] = e.getValue();
+            }
+            result.add(new TermPostings(term.getBytes(StandardCharsets.UTF_8), ids, tfs));
+        });
+        result.sort((a, b) -> Arrays.compareUnsigned(a.term(), b.term()));
+        return result;
+    }
+
+    TreeMap<Long, Integer> sortedLengths() {
+        return new TreeMap<>(lengths);
+    }
+
+    TreeSet<Long> sortedDeleted() {
+        return new TreeSet<>(deleted);
+    }
+
+    private void removeDoc(long docId) {
+        Map<String, Integer> old = docs.remove(docId);
+        if (old == null) {
+            return;
+        }
+        lengths.remove(docId);
+        for (String term : old.keySet()) {
+            Map<Long, Integer> list = postings.get(term);
+            if (list != null) {
+                list.remove(docId);
+                if (list.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+}
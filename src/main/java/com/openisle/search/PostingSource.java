@@ -0,0 +1,26 @@
+package com.openisle.search;
+
+/**
+ * PostingSource
+ *
+ * 倒排数据来源：内存缓冲区（{@link MemTable}）或磁盘段（{@link IndexSegment}）。
+ * 每个来源有唯一递增的序号 {@code seq}，文档的当前版本由 {@link InvertedIndex} 记录其所属序号。
+ */
+interface PostingSource {
+    /** 倒排项回调 */
+    @FunctionalInterface
+    interface PostingConsumer {
+        void accept(long docId, int termFrequency);
+    }
+
+    int seq();
+
+    /** 遍历某词的全部倒排项（含已被更新/删除的旧版本，由调用方按所属序号过滤） */
+    void forEachPosting(String term, PostingConsumer consumer);
+
+    /** 某词的倒排项数量 */
+    int docFreq(String term);
+
+    /** 文档长度；不存在时返回 -1 */
+    int docLength(long docId);
+}
@@ -0,0 +1,93 @@
+package com.openisle.search;
+
+import com.openisle.model.Comment;
+import com.openisle.model.Post;
+import com.openisle.model.SearchDocumentType;
+import com.openisle.push.PushService;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * SearchIndexListener
+ *
+ * 帖子/评论的 JPA 实体监听器：在事务提交后增量更新全文索引，回滚的写入不会进入索引。
+ * 有推送总线时在同一事务内写入变更日志，并经 {@link PushService} 广播变更的 ID，由每个节点按数据库最新状态重新索引
+ * （广播丢失时由 {@link SearchIndexService#catchUp()} 按日志补齐）；否则在写入时分词、提交后更新本机索引。
+ * 由 Spring 管理（Hibernate 通过 SpringBeanContainer 获取），{@link SearchIndexService} 延迟获取以避免与
+ * EntityManagerFactory 形成循环依赖；未注册该服务的上下文（如 JPA 切片测试）中不做任何处理。
+ */
+@Component
+@RequiredArgsConstructor
+public class SearchIndexListener {
+    private final ObjectProvider<SearchIndexService> searchIndexService;
+    private final ObjectProvider<PushService> pushService;
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Object entity) {
+        SearchIndexService service = searchIndexService.getIfAvailable();
+        if (service == null) {
+            return;
+        }
+        PushService push = service.distributed() ? pushService.getIfAvailable() : null;
+        if (push != null) {
+            broadcast(service, push, entity);
+        } else if (entity instanceof Post post) {
+            SearchIndexService.Document document = service.postDocument(post);
+            long id = post.getId();
+            afterCommit(() -> service.applyPost(id, document));
+        } else if (entity instanceof Comment comment) {
+            SearchIndexService.Document document = service.commentDocument(comment);
+            long id = comment.getId();
+            afterCommit(() -> service.applyComment(id, document));
+        }
+    }
+
+    @PostRemove
+    public void onRemove(Object entity) {
+        SearchIndexService service = searchIndexService.getIfAvailable();
+        if (service == null) {
+            return;
+        }
+        PushService push = service.distributed() ? pushService.getIfAvailable() : null;
+        if (push != null) {
+            broadcast(service, push, entity);
+        } else if (entity instanceof Post post) {
+            long id = post.getId();
+            afterCommit(() -> service.applyPost(id, null));
+        } else if (entity instanceof Comment comment) {
+            long id = comment.getId();
+            afterCommit(() -> service.applyComment(id, null));
+        }
+    }
+
+    /** 写入变更日志，并由 {@link PushService} 在提交后发布，各节点收到后重新读取 */
+    private static void broadcast(SearchIndexService service, PushService push, Object entity) {
+        if (entity instanceof Post post) {
+            service.recordChange(SearchDocumentType.POST, post.getId());
+            push.postIndexChanged(post.getId());
+        } else if (entity instanceof Comment comment) {
+            service.recordChange(SearchDocumentType.COMMENT, comment.getId());
+            push.commentIndexChanged(comment.getId());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
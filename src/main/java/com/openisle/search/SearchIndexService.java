@@ -0,0 +1,477 @@
+package com.openisle.search;
+
+import com.openisle.model.Comment;
+import com.openisle.model.Post;
+import com.openisle.model.PostStatus;
+import com.openisle.model.SearchDocumentType;
+import com.openisle.push.PushBus;
+import com.openisle.push.PushEvent;
+import com.openisle.push.PushService;
+import com.openisle.repository.CommentRepository;
+import com.openisle.repository.PostRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * SearchIndexService
+ *
+ * 帖子标题/正文与评论内容的全文检索服务，取代 {@code ContainingIgnoreCase} 生成的 {@code LIKE '%kw%'} 全表扫描。
+ *
+ * 设计要点：
+ * - 帖子与评论各自一个 {@link InvertedIndex}，段文件保存在 {@code app.search.index-dir} 下。
+ * - 只索引已发布的帖子与未删除的评论；标题词频加权 {@value #TITLE_WEIGHT} 倍。
+ * - 多节点：每个节点各有一份本地索引。{@link SearchIndexListener} 在事务提交后经 {@link PushService} 广播变更的 ID
+ *   （{@link PushEvent.Kind#SEARCH_POST}/{@link PushEvent.Kind#SEARCH_COMMENT}），每个节点（含发起节点）收到后
+ *   从数据库重新读取并更新本地索引；以提交后的最新状态为准，事件乱序或重复也会收敛。上下文中没有推送总线时直接更新本机索引。
+ * - 推送总线不保证送达：多节点时监听器同时在业务事务内写入变更日志（{@code search_index_changes}），
+ *   各节点定时（{@code app.search.catch-up-interval-ms}）按自增 ID 水位读取日志并重新索引，补齐丢失的事件。
+ *   自增 ID 的提交顺序与分配顺序可能不同，水位只推进到 {@code app.search.catch-up-settle-ms} 之前的日志，
+ *   更新的日志每轮重复读取（重新索引是幂等的）；水位随刷盘写入 {@code WATERMARK}，重启后从该处继续。
+ *   日志保留 {@code app.search.change-log-retention-hours}，节点停机超过保留期后启动时全量重建。
+ * - 全量重建写入新的一代目录（{@code gen-*}），完成后原子更新 {@code CURRENT} 指针并切换，重建期间检索仍使用旧索引；
+ *   重建期间变更的文档记录下来，在切换前按数据库最新状态重放到新索引，不会被重建读到的旧数据覆盖。
+ *   索引目录为空时启动后台重建。
+ * - 定时刷盘（{@code app.search.flush-interval-ms}），关闭时刷盘；异常退出会丢失最近一个周期的增量，
+ *   可调用 {@link #rebuild()} 全量重建。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SearchIndexService {
+    static final int TITLE_WEIGHT = 3;
+    private static final int REBUILD_BATCH = 500;
+    private static final int MAX_BUFFERED_DOCS = 20_000;
+    private static final int MAX_SEGMENTS = 10;
+
+    private static final String CURRENT = "CURRENT";
+    private static final String GENERATION_PREFIX = "gen-";
+    private static final String WATERMARK = "WATERMARK";
+
+    private final PostRepository postRepository;
+    private final CommentRepository commentRepository;
+    private final ObjectProvider<PushBus> pushBus;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.search.index-dir:data/search-index}")
+    private String indexDir;
+
+    @Value("${app.search.catch-up-settle-ms:120000}")
+    private long catchUpSettleMillis;
+
+    @Value("${app.search.change-log-retention-hours:24}")
+    private long changeLogRetentionHours;
+
+    private volatile InvertedIndex postIndex;
+    private volatile InvertedIndex commentIndex;
+    /** 当前一代的目录（无 {@code CURRENT} 指针时为索引根目录） */
+    private Path activeDir;
+    /** 是否通过推送总线接收变更 */
+    private volatile boolean distributed;
+    /** 保护索引切换与增量写入：切换前的最后一次重放与之后的写入不会交错 */
+    private final Object swapLock = new Object();
+    /** 刷盘与删除旧一代目录互斥 */
+    private final Object flushLock = new Object();
+    /** 进行中的重建（无重建时为空），记录期间变更的文档 ID */
+    private Replay replay;
+    /** 已补齐到的变更日志 ID（之前的日志均已写入本地索引） */
+    private volatile long watermark;
+    /** 补齐任务互斥（不与重建共用锁，重建期间照常补齐） */
+    private final Object catchUpLock = new Object();
+
+    /** 已分词的文档，在事务内构建、提交后写入索引 */
+    record Document(long id, Map<String, Integer> termFreqs, int length) {
+    }
+
+    /** 重建期间变更的帖子/评论 ID，切换前重放 */
+    private static final class Replay {
+        final Set<Long> posts = new LinkedHashSet<>();
+        final Set<Long> comments = new LinkedHashSet<>();
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        Path root = Path.of(indexDir);
+        Files.createDirectories(root);
+        Path current = root.resolve(CURRENT);
+        activeDir = Files.exists(current) ? root.resolve(Files.readString(current).trim()) : root;
+        postIndex = new InvertedIndex(activeDir.resolve("posts"), MAX_BUFFERED_DOCS);
+        commentIndex = new InvertedIndex(activeDir.resolve("comments"), MAX_BUFFERED_DOCS);
+        deleteStaleGenerations(root);
+        pushBus.ifAvailable(bus -> {
+            bus.subscribe(this::onEvent);
+            distributed = true;
+        });
+        boolean stale = distributed && !loadWatermark(root);
+        if (stale || postIndex.docCount() == 0 && commentIndex.docCount() == 0) {
+            Thread rebuild = new Thread(() -> {
+                try {
+                    rebuild();
+                } catch (RuntimeException | IOException e) {
+                    log.error("Search index rebuild failed", e);
+                }
+            }, "search-index-rebuild");
+            rebuild.setDaemon(true);
+            rebuild.start();
+        }
+    }
+
+    /**
+     * 帖子分词；未发布的帖子返回 {@code null}，表示应从索引中移除。
+     */
+    public Document postDocument(Post post) {
+        if (post.getStatus() != PostStatus.PUBLISHED) {
+            return null;
+        }
+        Map<String, Integer> terms = new HashMap<>();
+        int length = SearchTokenizer.indexTerms(post.getTitle(), TITLE_WEIGHT, terms)
+                + SearchTokenizer.indexTerms(post.getContent(), 1, terms);
+        return new Document(post.getId(), terms, length);
+    }
+
+    /**
+     * 评论分词；已删除的评论返回 {@code null}。
+     */
+    public Document commentDocument(Comment comment) {
+        if (comment.getDeletedAt() != null) {
+            return null;
+        }
+        Map<String, Integer> terms = new HashMap<>();
+        int length = SearchTokenizer.indexTerms(comment.getContent(), 1, terms);
+        return new Document(comment.getId(), terms, length);
+    }
+
+    /** 变更是否经推送总线分发（为真时由各节点收到事件后重新读取，不直接调用 {@code apply*}） */
+    public boolean distributed() {
+        return distributed;
+    }
+
+    public void applyPost(long postId, Document document) {
+        synchronized (swapLock) {
+            apply(postIndex, postId, document);
+            if (replay != null) {
+                replay.posts.add(postId);
+            }
+        }
+    }
+
+    public void applyComment(long commentId, Document document) {
+        synchronized (swapLock) {
+            apply(commentIndex, commentId, document);
+            if (replay != null) {
+                replay.comments.add(commentId);
+            }
+        }
+    }
+
+    /** 按数据库当前状态重新索引帖子（不存在或未发布时移除） */
+    public void reindexPost(long postId) {
+        applyPost(postId, postRepository.findById(postId).map(this::postDocument).orElse(null));
+    }
+
+    /** 按数据库当前状态重新索引评论（不存在或已删除时移除） */
+    public void reindexComment(long commentId) {
+        applyComment(commentId, commentRepository.findById(commentId).map(this::commentDocument).orElse(null));
+    }
+
+    /**
+     * 在当前事务内追加一条变更日志（多节点时由 {@link SearchIndexListener} 调用），随业务写入一起提交或回滚。
+     */
+    public void recordChange(SearchDocumentType type, long id) {
+        jdbcTemplate.update("INSERT INTO search_index_changes (target_type, target_id, created_at) VALUES (?, ?, ?)",
+                type.name(), id, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    /**
+     * 按变更日志补齐本地索引：重新索引水位之后的全部文档，水位推进到静置期之前最后一条连续的日志；
+     * 同时删除超过保留期的日志。单节点（无推送总线）时不记录日志，直接返回。
+     */
+    @Scheduled(fixedDelayString = "${app.search.catch-up-interval-ms:60000}")
+    public void catchUp() {
+        if (!distributed) {
+            return;
+        }
+        synchronized (catchUpLock) {
+            try {
+                LocalDateTime settled = LocalDateTime.now().minus(Duration.ofMillis(catchUpSettleMillis));
+                long cursor = watermark;
+                long next = watermark;
+                boolean advancing = true;
+                int reindexed = 0;
+                List<Change> batch;
+                do {
+                    batch = jdbcTemplate.query(
+                            "SELECT id, target_type, target_id, created_at FROM search_index_changes " +
+                                    "WHERE id > ? ORDER BY id LIMIT " + REBUILD_BATCH,
+                            (rs, i) -> new Change(rs.getLong(1), SearchDocumentType.valueOf(rs.getString(2)),
+                                    rs.getLong(3), rs.getTimestamp(4).toLocalDateTime()),
+                            cursor);
+                    Set<Long> posts = new LinkedHashSet<>();
+                    Set<Long> comments = new LinkedHashSet<>();
+                    for (Change change : batch) {
+                        (change.type() == SearchDocumentType.POST ? posts : comments).add(change.targetId());
+                        advancing &= change.createdAt().isBefore(settled);
+                        if (advancing) {
+                            next = change.id();
+                        }
+                        cursor = change.id();
+                    }
+                    posts.forEach(this::reindexPost);
+                    comments.forEach(this::reindexComment);
+                    reindexed += posts.size() + comments.size();
+                } while (batch.size() == REBUILD_BATCH);
+                watermark = next;
+                jdbcTemplate.update("DELETE FROM search_index_changes WHERE created_at < ?",
+                        Timestamp.valueOf(LocalDateTime.now().minusHours(changeLogRetentionHours)));
+                if (reindexed > 0) {
+                    log.debug("Search index caught up: {} documents, watermark {}", reindexed, next);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Failed to catch up search index from change log", e);
+            }
+        }
+    }
+
+    /** 变更日志中的一行 */
+    private record Change(long id, SearchDocumentType type, long targetId, LocalDateTime createdAt) {
+    }
+
+    private void onEvent(PushEvent event) {
+        try {
+            if (event.getKind() == PushEvent.Kind.SEARCH_POST) {
+                reindexPost(event.getTargetId());
+            } else if (event.getKind() == PushEvent.Kind.SEARCH_COMMENT) {
+                reindexComment(event.getTargetId());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to update search index for {} {}", event.getKind(), event.getTargetId(), e);
+        }
+    }
+
+    /**
+     * 检索帖子（标题 + 正文）。
+     *
+     * @param keyword 关键字
+     * @param page    页码（从 0 开始）
+     * @param size    每页条数
+     * @return 帖子 ID（按相关度降序）与命中总数；可交给 {@code PostSummaryService} 加载
+     */
+    public SearchResult searchPosts(String keyword, int page, int size) {
+        return postIndex.search(SearchTokenizer.queryTerms(keyword), page * size, size);
+    }
+
+    /**
+     * 检索评论内容。
+     *
+     * @param keyword 关键字
+     * @param page    页码（从 0 开始）
+     * @param size    每页条数
+     * @return 评论 ID（按相关度降序）与命中总数
+     */
+    public SearchResult searchComments(String keyword, int page, int size) {
+        return commentIndex.search(SearchTokenizer.queryTerms(keyword), page * size, size);
+    }
+
+    /**
+     * 全量重建：按 ID 分批读取已发布帖子与全部未删除评论写入新的一代，
+     * 重放期间的变更后切换，旧索引在切换前照常提供检索。
+     */
+    public synchronized void rebuild() throws IOException {
+        long start = System.currentTimeMillis();
+        Path root = Path.of(indexDir);
+        Path next = root.resolve(GENERATION_PREFIX + start);
+        InvertedIndex posts = new InvertedIndex(next.resolve("posts"), MAX_BUFFERED_DOCS);
+        InvertedIndex comments = new InvertedIndex(next.resolve("comments"), MAX_BUFFERED_DOCS);
+        Replay pending = new Replay();
+        synchronized (swapLock) {
+            replay = pending;
+        }
+        Path previous;
+        try {
+            long lastId = 0;
+            List<Post> postBatch;
+            do {
+                postBatch = postRepository.findByIdGreaterThanAndStatusOrderByIdAsc(
+                        lastId, PostStatus.PUBLISHED, PageRequest.of(0, REBUILD_BATCH));
+                for (Post post : postBatch) {
+                    apply(posts, post.getId(), postDocument(post));
+                    lastId = post.getId();
+                }
+            } while (postBatch.size() == REBUILD_BATCH);
+
+            lastId = 0;
+            List<Comment> commentBatch;
+            do {
+                commentBatch = commentRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, REBUILD_BATCH));
+                for (Comment comment : commentBatch) {
+                    apply(comments, comment.getId(), commentDocument(comment));
+                    lastId = comment.getId();
+                }
+            } while (commentBatch.size() == REBUILD_BATCH);
+
+            // 先在锁外重放大部分变更并刷盘，锁内只重放最后一小段
+            replay(pending, posts, comments);
+            posts.flush();
+            comments.flush();
+            synchronized (swapLock) {
+                replay(pending, posts, comments);
+                Path pointer = root.resolve(CURRENT + ".tmp");
+                Files.writeString(pointer, next.getFileName().toString());
+                Files.move(pointer, root.resolve(CURRENT), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                postIndex = posts;
+                commentIndex = comments;
+                previous = activeDir;
+                activeDir = next;
+                replay = null;
+            }
+        } catch (IOException | RuntimeException e) {
+            synchronized (swapLock) {
+                replay = null;
+            }
+            deleteTree(next);
+            throw e;
+        }
+        synchronized (flushLock) {
+            if (previous.equals(root)) {
+                deleteTree(root.resolve("posts"));
+                deleteTree(root.resolve("comments"));
+            } else {
+                deleteTree(previous);
+            }
+        }
+        log.info("Search index rebuilt: {} posts, {} comments in {} ms",
+                posts.docCount(), comments.docCount(), System.currentTimeMillis() - start);
+    }
+
+    /** 按数据库最新状态把重建期间变更的文档写入新索引；调用方已从 {@code pending} 取出的 ID 不再重复 */
+    private void replay(Replay pending, InvertedIndex posts, InvertedIndex comments) {
+        List<Long> postIds;
+        List<Long> commentIds;
+        synchronized (swapLock) {
+            postIds = new ArrayList<>(pending.posts);
+            commentIds = new ArrayList<>(pending.comments);
+            pending.posts.clear();
+            pending.comments.clear();
+        }
+        for (Long id : postIds) {
+            apply(posts, id, postRepository.findById(id).map(this::postDocument).orElse(null));
+        }
+        for (Long id : commentIds) {
+            apply(comments, id, commentRepository.findById(id).map(this::commentDocument).orElse(null));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.flush-interval-ms:30000}")
+    public void scheduledFlush() {
+        try {
+            flush();
+        } catch (IOException e) {
+            log.warn("Failed to flush search index", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        flush();
+    }
+
+    private void flush() throws IOException {
+        synchronized (flushLock) {
+            // 先取水位再刷盘：水位之前的日志已写入内存表，随本次刷盘落盘
+            long flushed = watermark;
+            InvertedIndex posts = postIndex;
+            InvertedIndex comments = commentIndex;
+            posts.flush();
+            posts.maybeMerge(MAX_SEGMENTS);
+            comments.flush();
+            comments.maybeMerge(MAX_SEGMENTS);
+            if (distributed) {
+                Path root = Path.of(indexDir);
+                Path pointer = root.resolve(WATERMARK + ".tmp");
+                Files.writeString(pointer, Long.toString(flushed));
+                Files.move(pointer, root.resolve(WATERMARK), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+    }
+
+    /**
+     * 读取上次刷盘时的水位；没有水位文件时从日志末尾开始（新索引由全量重建填充）。
+     *
+     * @return 水位文件是否仍在日志保留期内；为假时其后的日志可能已被删除，须全量重建
+     */
+    private boolean loadWatermark(Path root) throws IOException {
+        Path file = root.resolve(WATERMARK);
+        if (!Files.exists(file)) {
+            watermark = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM search_index_changes", Long.class);
+            return true;
+        }
+        watermark = Long.parseLong(Files.readString(file).trim());
+        Instant written = Files.getLastModifiedTime(file).toInstant();
+        return written.isAfter(Instant.now().minus(Duration.ofHours(changeLogRetentionHours)));
+    }
+
+    /** 删除未被 {@code CURRENT} 指向的一代目录（上次重建中断或切换后未删除） */
+    private void deleteStaleGenerations(Path root) throws IOException {
+        try (Stream<Path> files = Files.list(root)) {
+            for (Path dir : (Iterable<Path>) files::iterator) {
+                if (dir.getFileName().toString().startsWith(GENERATION_PREFIX) && !dir.equals(activeDir)) {
+                    deleteTree(dir);
+                }
+            }
+        }
+        if (!activeDir.equals(root)) {
+            deleteTree(root.resolve("posts"));
+            deleteTree(root.resolve("comments"));
+        }
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static void apply(InvertedIndex index, long id, Document document) {
+        try {
+            if (document == null) {
+                index.remove(id);
+            } else {
+                index.put(id, document.termFreqs(), document.length());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
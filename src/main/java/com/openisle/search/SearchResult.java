@@ -0,0 +1,22 @@
+package com.openisle.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * SearchResult
+ *
+ * 检索结果：当前页命中的文档 ID（按相关度降序）与命中总数。
+ */
+@Getter
+@AllArgsConstructor
+public class SearchResult {
+    private final List<Long> ids;
+    private final long total;
+
+    public static SearchResult empty() {
+        return new SearchResult(List.of(), 0);
+    }
+}
@@ -0,0 +1,116 @@
+package com.openisle.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * SearchTokenizer
+ *
+ * 全文检索分词器，兼顾中英文混排内容。
+ *
+ * 规则：
+ * - 拉丁字母/数字连续片段作为一个词，统一小写，超长片段（> {@value #MAX_WORD_LENGTH}）丢弃。
+ * - 中日韩文字连续片段切分为重叠二元组（bigram），例如“数据库” → “数据”“据库”；
+ *   建索引时额外保留单字，使单字查询也能命中。
+ * - 其余字符（标点、空白、Markdown 符号等）作为分隔符。
+ */
+public final class SearchTokenizer {
+    static final int MAX_WORD_LENGTH = 64;
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * 建索引用分词：返回词 → 出现次数。
+     *
+     * @param text   文本
+     * @param weight 每次出现计入的权重（如标题加权）
+     * @param into   累加目标
+     * @return 计入的词条总数（已乘权重），用作文档长度
+     */
+    public static int indexTerms(String text, int weight, Map<String, Integer> into) {
+        int[] length = {0};
+        scan(text, true, token -> {
+            into.merge(token, weight, Integer::sum);
+            length[0] += weight;
+        });
+        return length[0];
+    }
+
+    /**
+     * 查询用分词：去重后的词列表。中日韩片段只取二元组（单字片段取单字）。
+     */
+    public static List<String> queryTerms(String text) {
+        LinkedHashSet<String> terms = new LinkedHashSet<>();
+        scan(text, false, terms::add);
+        return new ArrayList<>(terms);
+    }
+
+    /** 便于测试与调试：建索引用词频 */
+    static Map<String, Integer> indexTerms(String text) {
+        Map<String, Integer> terms = new HashMap<>();
+        indexTerms(text, 1, terms);
+        return terms;
+    }
+
+    private static void scan(String text, boolean withUnigrams, Consumer<String> sink) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        StringBuilder word = new StringBuilder();
+        List<Integer> cjk = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            if (isCjk(cp)) {
+                emitWord(word, sink);
+                cjk.add(cp);
+            } else if (Character.isLetterOrDigit(cp)) {
+                emitCjk(cjk, withUnigrams, sink);
+                word.appendCodePoint(cp);
+            } else {
+                emitWord(word, sink);
+                emitCjk(cjk, withUnigrams, sink);
+            }
+        }
+        emitWord(word, sink);
+        emitCjk(cjk, withUnigrams, sink);
+    }
+
+    private static void emitWord(StringBuilder word, Consumer<String> sink) {
+        if (word.length() > 0 && word.length() <= MAX_WORD_LENGTH) {
+            sink.accept(word.toString().toLowerCase(Locale.ROOT));
+        }
+        word.setLength(0);
+    }
+
+    private static void emitCjk(List<Integer> run, boolean withUnigrams, Consumer<String> sink) {
+        int n = run.size();
+        if (n == 0) {
+            return;
+        }
+        if (n == 1 || withUnigrams) {
+            for (int cp : run) {
+                sink.accept(new String(Character.toChars(cp)));
+            }
+        }
+        for (int k = 0; k + 1 < n; k++) {
+            sink.accept(new StringBuilder(4).appendCodePoint(run.get(k)).appendCodePoint(run.get(k + 1)).toString());
+        }
+        run.clear();
+    }
+
+    private static boolean isCjk(int cp) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
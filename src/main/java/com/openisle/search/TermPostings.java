@@ -0,0 +1,11 @@
+package com.openisle.search;
+
+/**
+ * 单个词的倒排表，{@code docIds} 升序排列，写段文件时使用。
+ *
+ * @param term   词的 UTF-8 字节
+ * @param docIds 文档 ID（升序）
+ * @param tfs    与 docIds 一一对应的词频
+ */
+record TermPostings(byte[] term, long[] docIds, int[] tfs) {
+}
@@ -0,0 +1,219 @@
+package com.openisle.service;
+
+import com.openisle.dto.AuthPrincipal;
+import com.openisle.model.NotificationType;
+import com.openisle.model.Role;
+import com.openisle.push.PushBus;
+import com.openisle.push.PushEvent;
+import com.openisle.push.PushService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AuthPrincipalCache
+ *
+ * 按用户名缓存已认证用户的快照（{@link AuthPrincipal}）：JWT 验证后解析主题不再每个请求
+ * 加载 {@code User} 实体与两个通知偏好集合，稳定状态下鉴权不查询数据库。
+ *
+ * 设计要点：
+ * - 未命中时两条 SQL 加载：用户行只取 ID、用户名、角色与审核/验证状态；两张偏好表合并为一次查询，转换为位掩码。
+ * - 失效：用户更新/删除时由 {@link AuthPrincipalListener} 调用 {@link #userChanged(long)}，本机立即失效，
+ *   事务提交后再失效一次，并经 {@link PushService} 广播 {@link PushEvent.Kind#USER} 事件使其他节点失效。
+ *   加载期间若同一用户（按 ID 分为 {@value #GENERATION_STRIPES} 组的失效计数）发生过失效，结果只返回不缓存，
+ *   避免旧数据在失效后写回；其他用户的失效不影响本次缓存。
+ * - 有界与过期：条目在 {@code ttl-ms} 后重新加载，作为漏掉失效事件（如批量 SQL 更新）时的兜底；
+ *   条目数达到上限时先清理过期条目，仍超出时任意淘汰至上限的 90%。
+ * - 不缓存不存在的用户名。
+ */
+@Service
+@RequiredArgsConstructor
+public class AuthPrincipalCache {
+    /** 失效计数的分组数（2 的幂） */
+    static final int GENERATION_STRIPES = 64;
+
+    private record Entry(AuthPrincipal principal, long expiresAt) {
+    }
+
+    /** 指标快照 */
+    public record Snapshot(long hits, long loads, long invalidations, long evicted, int size, double hitRate) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectProvider<PushService> pushService;
+    private final ObjectProvider<PushBus> pushBus;
+
+    @Value("${app.auth.principal-cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${app.auth.principal-cache.max-entries:100000}")
+    private int maxEntries = 100_000;
+
+    @Value("${app.auth.principal-cache.ttl-ms:300000}")
+    private long ttlMillis = 300_000;
+
+    private final Map<String, Entry> byUsername = new ConcurrentHashMap<>();
+    /** 用户 ID -> 用户名，失效按 ID 进行（用户名可能已被修改） */
+    private final Map<Long, String> usernames = new ConcurrentHashMap<>();
+    /** 按用户 ID 分组的失效计数，加载前后该用户所在组不一致时不缓存 */
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    @PostConstruct
+    void subscribe() {
+        pushBus.ifAvailable(bus -> bus.subscribe(event -> {
+            if (event.getKind() == PushEvent.Kind.USER) {
+                invalidate(event.getTargetId());
+            }
+        }));
+    }
+
+    /**
+     * 按用户名查找快照。
+     *
+     * @param username JWT 主题中的用户名
+     * @return 用户不存在时为空
+     */
+    public Optional<AuthPrincipal> find(String username) {
+        if (username == null) {
+            return Optional.empty();
+        }
+        if (enabled) {
+            Entry entry = byUsername.get(username);
+            if (entry != null) {
+                if (System.currentTimeMillis() < entry.expiresAt()) {
+                    hits.increment();
+                    return Optional.of(entry.principal());
+                }
+                byUsername.remove(username, entry);
+            }
+        }
+        // 加载前不知道用户 ID，记录全部分组（仅未命中时，相对两条 SQL 可忽略）
+        long[] before = new long[GENERATION_STRIPES];
+        for (int i = 0; i < GENERATION_STRIPES; i++) {
+            before[i] = generations.get(i);
+        }
+        loads.increment();
+        AuthPrincipal principal = load(username);
+        int stripe = principal == null ? 0 : stripe(principal.getId());
+        if (principal != null && enabled && generations.get(stripe) == before[stripe]) {
+            if (byUsername.size() >= maxEntries) {
+                sweep();
+            }
+            byUsername.put(username, new Entry(principal, System.currentTimeMillis() + ttlMillis));
+            String previous = usernames.put(principal.getId(), username);
+            if (previous != null && !previous.equals(username)) {
+                byUsername.remove(previous);
+            }
+        }
+        return Optional.ofNullable(principal);
+    }
+
+    /** 用户资料、权限或通知偏好已修改：本机立即失效，提交后再次失效并通知其他节点 */
+    public void userChanged(long userId) {
+        invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(userId);
+                }
+            });
+        }
+        pushService.ifAvailable(s -> s.userChanged(userId));
+    }
+
+    /** 仅失效本机快照 */
+    public void invalidate(long userId) {
+        generations.incrementAndGet(stripe(userId));
+        invalidations.increment();
+        String username = usernames.remove(userId);
+        if (username != null) {
+            byUsername.remove(username);
+        }
+    }
+
+    public Snapshot snapshot() {
+        long hits = this.hits.sum();
+        long total = hits + loads.sum();
+        return new Snapshot(hits, loads.sum(), invalidations.sum(), evicted.sum(), byUsername.size(),
+                total == 0 ? 0 : (double) hits / total);
+    }
+
+    private static int stripe(long userId) {
+        return (int) (userId * 0x9E3779B97F4A7C15L >>> 58) & (GENERATION_STRIPES - 1);
+    }
+
+    private AuthPrincipal load(String username) {
+        List<Object[]> rows = jdbcTemplate.query(
+                "SELECT id, role, approved, verified FROM users WHERE username = ?",
+                (rs, i) -> new Object[]{rs.getLong(1), rs.getString(2), rs.getBoolean(3), rs.getBoolean(4)},
+                username);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Object[] row = rows.get(0);
+        long id = (Long) row[0];
+        int[] masks = new int[2];
+        jdbcTemplate.query(
+                "SELECT 0, notification_type FROM user_disabled_notification_types WHERE user_id = ? " +
+                        "UNION ALL SELECT 1, notification_type FROM user_disabled_email_notification_types WHERE user_id = ?",
+                rs -> {
+                    NotificationType type = type(rs.getString(2));
+                    if (type != null) {
+                        masks[rs.getInt(1)] |= 1 << type.ordinal();
+                    }
+                },
+                id, id);
+        return new AuthPrincipal(id, username, Role.valueOf((String) row[1]), (Boolean) row[2], (Boolean) row[3],
+                masks[0], masks[1]);
+    }
+
+    private static NotificationType type(String name) {
+        try {
+            return name == null ? null : NotificationType.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void sweep() {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            int before = byUsername.size();
+            byUsername.values().removeIf(e -> now >= e.expiresAt());
+            int target = maxEntries - maxEntries / 10;
+            Iterator<String> it = byUsername.keySet().iterator();
+            while (byUsername.size() > target && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+            usernames.values().removeIf(username -> !byUsername.containsKey(username));
+            evicted.add(Math.max(0, before - byUsername.size()));
+        } finally {
+            sweeping.set(false);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.openisle.service;
+
+import com.openisle.model.User;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * AuthPrincipalListener
+ *
+ * 用户实体更新或删除时失效 {@link AuthPrincipalCache} 中的快照（本机立即失效，提交后广播到所有节点）。
+ * 只有快照包含的字段（用户名、角色、审核/验证状态）或通知偏好集合实际变化时才失效，
+ * 经验值、积分、头像等频繁更新不影响缓存。
+ * 只修改通知偏好集合时 Hibernate 不触发实体的更新回调，JPQL 批量更新也不经过此监听器，
+ * 需自行调用 {@link AuthPrincipalCache#userChanged(long)}，否则快照最多在缓存时长后更新。
+ */
+@Component
+@RequiredArgsConstructor
+public class AuthPrincipalListener {
+    private final ObjectProvider<AuthPrincipalCache> cache;
+
+    @PostLoad
+    @PostPersist
+    public void onSync(User user) {
+        user.setStoredPrincipalState(state(user));
+    }
+
+    @PostUpdate
+    public void onUpdate(User user) {
+        String state = state(user);
+        boolean changed = !Objects.equals(state, user.getStoredPrincipalState())
+                || modified(user.getDisabledNotificationTypes())
+                || modified(user.getDisabledEmailNotificationTypes());
+        user.setStoredPrincipalState(state);
+        if (changed) {
+            cache.ifAvailable(c -> c.userChanged(user.getId()));
+        }
+    }
+
+    @PostRemove
+    public void onRemove(User user) {
+        cache.ifAvailable(c -> c.userChanged(user.getId()));
+    }
+
+    /** 快照中来自用户行的字段 */
+    private static String state(User user) {
+        return user.getUsername() + '\n' + user.getRole() + '\n' + user.isApproved() + '\n' + user.isVerified();
+    }
+
+    /** 偏好集合是否在本次刷新中被修改；未加载的集合不可能被修改，被整体替换的集合视为已修改 */
+    private static boolean modified(Collection<?> collection) {
+        return collection instanceof PersistentCollection<?> persistent ? persistent.isDirty() : collection != null;
+    }
+}
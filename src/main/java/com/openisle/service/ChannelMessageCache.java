@@ -0,0 +1,516 @@
+package com.openisle.service;
+
+import com.openisle.dto.CursorCodec;
+import com.openisle.dto.MessageItem;
+import com.openisle.push.PushBus;
+import com.openisle.push.PushEvent;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ChannelMessageCache
+ *
+ * 频道消息历史的读穿缓存，替代热门频道翻页时反复执行的 {@code findByConversationId(id, pageable)}。
+ * 页码语义与按创建时间倒序分页一致（第 0 页为最新消息）；消息 ID 自增，按 ID 倒序即按时间倒序。
+ *
+ * 设计要点：
+ * - 每个频道缓存最新的一段连续消息（窗口，最多 {@code window-messages} 条），由不可变的消息段组成：
+ *   每段 {@link #SEGMENT_MESSAGES} 条定长二进制记录，按 ID 升序；读取不加锁，直接从段中解码。
+ * - 新消息：通过 {@link PushBus} 收到（各节点都会收到）后只记录宣告的最大 ID，下次读取前一条范围查询补齐，
+ *   追加到尾段（尾段写时复制，写满后新开一段）；窗口超长时丢弃最旧的段。
+ *   宣告的 ID 不在窗口内又比窗口最新消息旧（提交顺序与 ID 顺序不一致）时整个窗口失效，下次读取重新加载。
+ *   补齐期间宣告的 ID 逐个记录，安装补齐结果时若有 ID 比新窗口最新消息旧却不在其中（查询之后才提交），窗口同样失效。
+ * - 读穿：请求超出窗口但未超过上限时向前加载更早的段；超过上限的深翻页与私聊直接查库。
+ *   查到的私聊会话 ID 记在本机（最多 {@value #MAX_DIRECT_CONVERSATIONS} 个，满后清空），之后翻页不再查询会话类型。
+ * - 总线会丢消息：每个窗口每隔 {@code verify-ms} 由一次读取查询频道在库中的最大消息 ID，比已知的新就按宣告处理（计为找回），
+ *   未宣告的新消息最多延迟这么久可见；窗口加载后 {@code ttl-ms} 过期，兜底丢失的、ID 比窗口最新消息旧的宣告。
+ * - 容量：全部窗口的字节数不超过 {@code max-bytes}，按最近访问淘汰整个窗口。
+ * - 指标：每次读取计为命中、加载或直查之一（补齐另计），累计值通过 {@link #snapshot()} 读取，每分钟输出一次命中率。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChannelMessageCache {
+    /** 单页最多消息数 */
+    static final int MAX_PAGE_SIZE = 100;
+    /** 每段消息数 */
+    static final int SEGMENT_MESSAGES = 64;
+    /** 每条记录的字节数：id, sender_id, reply_to_id（无为 0）, created_at（UTC 微秒） */
+    static final int RECORD_BYTES = 32;
+    /** 无窗口时收到新消息的分段计数数，用于判断首次加载期间是否有并发写入 */
+    private static final int STRIPES = 64;
+    /** 记住的私聊会话数上限 */
+    static final int MAX_DIRECT_CONVERSATIONS = 100_000;
+    private static final String SELECT = "SELECT id, sender_id, reply_to_id, created_at FROM messages WHERE conversation_id = ? ";
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    /** 不可变的消息段 */
+    private record Segment(byte[] data) {
+        int size() {
+            return data.length / RECORD_BYTES;
+        }
+
+        long id(int index) {
+            return (long) LONGS.get(data, index * RECORD_BYTES);
+        }
+
+        MessageItem item(int index) {
+            int offset = index * RECORD_BYTES;
+            long replyTo = (long) LONGS.get(data, offset + 16);
+            return new MessageItem((long) LONGS.get(data, offset), (long) LONGS.get(data, offset + 8),
+                    replyTo == 0 ? null : replyTo, CursorCodec.fromMicros((long) LONGS.get(data, offset + 24)));
+        }
+    }
+
+    /** 一个频道的缓存窗口：段数组不可变，追加与向前加载都生成新窗口 */
+    private static final class Window {
+        final Segment[] segments;
+        final int count;
+        final long bytes;
+        /** 已包含频道最早的消息 */
+        final boolean complete;
+        final long loadedAt;
+        /** 上次与数据库核对最大消息 ID 的时间 */
+        final AtomicLong verifiedAt = new AtomicLong(System.currentTimeMillis());
+        /** 总线宣告的最大消息 ID */
+        final AtomicLong announced;
+        /** 宣告的、比窗口最新消息新的 ID，尚未补齐；由 windows 锁保护 */
+        final List<Long> pending = new ArrayList<>();
+
+        Window(Segment[] segments, boolean complete, long loadedAt, long announced) {
+            this.segments = segments;
+            int count = 0;
+            for (Segment segment : segments) {
+                count += segment.size();
+            }
+            this.count = count;
+            this.bytes = (long) count * RECORD_BYTES;
+            this.complete = complete;
+            this.loadedAt = loadedAt;
+            this.announced = new AtomicLong(announced);
+        }
+
+        long newestId() {
+            return count == 0 ? 0 : segments[segments.length - 1].id(segments[segments.length - 1].size() - 1);
+        }
+
+        long oldestId() {
+            return count == 0 ? Long.MAX_VALUE : segments[0].id(0);
+        }
+
+        boolean contains(long id) {
+            for (Segment segment : segments) {
+                int lo = 0;
+                int hi = segment.size() - 1;
+                if (hi < 0 || id > segment.id(hi)) {
+                    continue;
+                }
+                while (lo <= hi) {
+                    int mid = (lo + hi) >>> 1;
+                    long value = segment.id(mid);
+                    if (value == id) {
+                        return true;
+                    } else if (value < id) {
+                        lo = mid + 1;
+                    } else {
+                        hi = mid - 1;
+                    }
+                }
+                return false;
+            }
+            return false;
+        }
+
+        /** 第 from 至 to-1 条（0 为最新），倒序返回 */
+        List<MessageItem> slice(int from, int to) {
+            List<MessageItem> items = new ArrayList<>();
+            int remaining = Math.min(to, count) - from;
+            if (remaining <= 0) {
+                return items;
+            }
+            int index = count - 1 - from;
+            int s = 0;
+            while (index >= segments[s].size()) {
+                index -= segments[s].size();
+                s++;
+            }
+            for (; remaining > 0; remaining--) {
+                items.add(segments[s].item(index));
+                if (--index < 0 && --s >= 0) {
+                    index = segments[s].size() - 1;
+                }
+            }
+            return items;
+        }
+    }
+
+    /** 指标快照 */
+    public record Snapshot(long hits, long loads, long refreshes, long recovered, long bypassed, long invalidated, long evicted,
+                           int windows, long bytes, double hitRate) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectProvider<PushBus> pushBus;
+
+    @Value("${app.messages.channel-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.messages.channel-cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${app.messages.channel-cache.window-messages:2000}")
+    private int windowMessages;
+
+    @Value("${app.messages.channel-cache.ttl-ms:60000}")
+    private long ttlMillis;
+
+    @Value("${app.messages.channel-cache.verify-ms:1000}")
+    private long verifyMillis;
+
+    /** 插入顺序即访问顺序：读取时移到末尾，总线事件只查看不改变顺序 */
+    private final LinkedHashMap<Long, Window> windows = new LinkedHashMap<>();
+    private long totalBytes;
+    private final AtomicLongArray missedAppends = new AtomicLongArray(STRIPES);
+    /** 已知的私聊会话（会话类型创建后不变） */
+    private final Set<Long> directConversations = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder recovered = new LongAdder();
+    private final LongAdder bypassed = new LongAdder();
+    private final LongAdder invalidated = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder windowHits = new LongAdder();
+    private final LongAdder windowRequests = new LongAdder();
+
+    @PostConstruct
+    void subscribe() {
+        PushBus bus = pushBus.getIfAvailable();
+        if (bus == null) {
+            // 收不到新消息的宣告就无法保证窗口最新，不启用缓存
+            enabled = false;
+            return;
+        }
+        bus.subscribe(event -> {
+            if (event.getKind() == PushEvent.Kind.MESSAGE && event.getRefId() != null) {
+                announced(event.getTargetId(), event.getRefId());
+            }
+        });
+    }
+
+    /**
+     * 按页读取会话消息（按时间倒序），频道走缓存，私聊直接查库。
+     *
+     * @param conversationId 会话 ID
+     * @param page           页码（从 0 开始）
+     * @param size           每页条数
+     */
+    public List<MessageItem> page(long conversationId, int page, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        int from = Math.max(0, page) * limit;
+        int to = from + limit;
+        windowRequests.increment();
+        Window window = enabled ? window(conversationId) : null;
+        if (window != null) {
+            verify(conversationId, window);
+        }
+        if (window != null && window.announced.get() > window.newestId()) {
+            refreshes.increment();
+            window = refresh(conversationId, window);
+        }
+        if (window == null) {
+            if (!enabled || to > windowMessages || !channel(conversationId)) {
+                bypassed.increment();
+                return query(conversationId, from, limit);
+            }
+            loads.increment();
+            return load(conversationId, to).slice(from, to);
+        }
+        if (to <= window.count || window.complete) {
+            hits.increment();
+            windowHits.increment();
+            return window.slice(from, to);
+        }
+        if (to > windowMessages) {
+            bypassed.increment();
+            return query(conversationId, from, limit);
+        }
+        loads.increment();
+        return extend(conversationId, window, to).slice(from, to);
+    }
+
+    /** 总线宣告新消息：只记录 ID，补齐留给下次读取 */
+    void announced(long conversationId, long messageId) {
+        synchronized (windows) {
+            Window window = windows.get(conversationId);
+            if (window == null) {
+                missedAppends.incrementAndGet(stripe(conversationId));
+            } else if (messageId > window.newestId()) {
+                window.announced.accumulateAndGet(messageId, Math::max);
+                window.pending.add(messageId);
+            } else if (!window.contains(messageId) && (window.complete || messageId > window.oldestId())) {
+                remove(conversationId);
+                invalidated.increment();
+            }
+        }
+    }
+
+    /** 到期时核对库中最大消息 ID，找回总线丢失的宣告；同一窗口每个周期只有一次读取执行查询 */
+    private void verify(long conversationId, Window window) {
+        long now = System.currentTimeMillis();
+        long checked = window.verifiedAt.get();
+        if (now - checked < verifyMillis || !window.verifiedAt.compareAndSet(checked, now)) {
+            return;
+        }
+        Long newest = jdbcTemplate.queryForObject("SELECT MAX(id) FROM messages WHERE conversation_id = ?", Long.class, conversationId);
+        if (newest != null && newest > Math.max(window.newestId(), window.announced.get())) {
+            recovered.increment();
+            announced(conversationId, newest);
+        }
+    }
+
+    private Window window(long conversationId) {
+        synchronized (windows) {
+            Window window = windows.remove(conversationId);
+            if (window == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() - window.loadedAt > ttlMillis) {
+                totalBytes -= window.bytes;
+                return null;
+            }
+            windows.put(conversationId, window);
+            return window;
+        }
+    }
+
+    /** 首次加载最新的消息；加载期间有新消息写入时不安装，只用于本次读取 */
+    private Window load(long conversationId, int need) {
+        int stripe = stripe(conversationId);
+        long seq = missedAppends.get(stripe);
+        int n = Math.min(roundUp(need), windowMessages);
+        List<long[]> rows = jdbcTemplate.query(SELECT + "ORDER BY id DESC LIMIT ?", ChannelMessageCache::row, conversationId, n);
+        Collections.reverse(rows);
+        Window window = new Window(encode(rows), rows.size() < n, System.currentTimeMillis(), 0);
+        synchronized (windows) {
+            if (missedAppends.get(stripe) == seq && !windows.containsKey(conversationId)) {
+                install(conversationId, window);
+            }
+        }
+        return window;
+    }
+
+    /** 补齐宣告的新消息并追加到尾段 */
+    private Window refresh(long conversationId, Window window) {
+        List<long[]> rows = jdbcTemplate.query(SELECT + "AND id > ? ORDER BY id LIMIT ?", ChannelMessageCache::row,
+                conversationId, window.newestId(), windowMessages + 1);
+        synchronized (windows) {
+            Window current = windows.get(conversationId);
+            if (current != window) {
+                return current;
+            }
+            if (rows.size() > windowMessages) {
+                remove(conversationId);
+                return null;
+            }
+            Window appended = append(window, rows);
+            long newest = appended.newestId();
+            for (long id : window.pending) {
+                if (id > newest) {
+                    appended.pending.add(id);
+                } else if (!appended.contains(id)) {
+                    // 查询之后才提交的较小 ID：窗口已不连续，只用于本次读取
+                    remove(conversationId);
+                    invalidated.increment();
+                    return appended;
+                }
+            }
+            install(conversationId, appended);
+            return appended;
+        }
+    }
+
+    /** 向前加载更早的段；窗口在此期间被替换时不安装，只用于本次读取 */
+    private Window extend(long conversationId, Window window, int need) {
+        int n = Math.min(roundUp(need - window.count), windowMessages - window.count);
+        List<long[]> rows = jdbcTemplate.query(SELECT + "AND id < ? ORDER BY id DESC LIMIT ?", ChannelMessageCache::row,
+                conversationId, window.oldestId(), n);
+        Collections.reverse(rows);
+        Segment[] older = encode(rows);
+        synchronized (windows) {
+            Window current = windows.get(conversationId);
+            Window base = current != null && current.segments.length > 0 && current.segments[0] == window.segments[0]
+                    ? current : window;
+            Segment[] segments = Arrays.copyOf(older, older.length + base.segments.length);
+            System.arraycopy(base.segments, 0, segments, older.length, base.segments.length);
+            Window extended = new Window(segments, rows.size() < n, base.loadedAt, base.announced.get());
+            extended.verifiedAt.set(base.verifiedAt.get());
+            extended.pending.addAll(base.pending);
+            if (base == current) {
+                install(conversationId, extended);
+            }
+            return extended;
+        }
+    }
+
+    /** 追加到尾段（写时复制），超出窗口上限时丢弃最旧的段 */
+    private Window append(Window window, List<long[]> rows) {
+        List<Segment> segments = new ArrayList<>(Arrays.asList(window.segments));
+        int from = 0;
+        if (!segments.isEmpty() && segments.get(segments.size() - 1).size() < SEGMENT_MESSAGES && !rows.isEmpty()) {
+            Segment tail = segments.remove(segments.size() - 1);
+            int take = Math.min(SEGMENT_MESSAGES - tail.size(), rows.size());
+            byte[] data = Arrays.copyOf(tail.data(), tail.data().length + take * RECORD_BYTES);
+            for (int i = 0; i < take; i++) {
+                write(data, tail.size() + i, rows.get(i));
+            }
+            segments.add(new Segment(data));
+            from = take;
+        }
+        segments.addAll(Arrays.asList(encode(rows.subList(from, rows.size()))));
+        int count = window.count + rows.size();
+        boolean complete = window.complete;
+        while (segments.size() > 1 && count - segments.get(0).size() >= windowMessages) {
+            count -= segments.remove(0).size();
+            complete = false;
+        }
+        return new Window(segments.toArray(new Segment[0]), complete, window.loadedAt, window.announced.get());
+    }
+
+    /** 调用方持有 windows 锁 */
+    private void install(long conversationId, Window window) {
+        Window previous = windows.remove(conversationId);
+        if (previous != null) {
+            totalBytes -= previous.bytes;
+        }
+        windows.put(conversationId, window);
+        totalBytes += window.bytes;
+        Iterator<Map.Entry<Long, Window>> eldest = windows.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<Long, Window> entry = eldest.next();
+            if (entry.getKey() == conversationId) {
+                continue;
+            }
+            totalBytes -= entry.getValue().bytes;
+            eldest.remove();
+            evicted.increment();
+        }
+    }
+
+    /** 调用方持有 windows 锁 */
+    private void remove(long conversationId) {
+        Window previous = windows.remove(conversationId);
+        if (previous != null) {
+            totalBytes -= previous.bytes;
+        }
+    }
+
+    private boolean channel(long conversationId) {
+        if (directConversations.contains(conversationId)) {
+            return false;
+        }
+        List<Boolean> channel = jdbcTemplate.queryForList("SELECT channel FROM message_conversations WHERE id = ?",
+                Boolean.class, conversationId);
+        if (channel.isEmpty()) {
+            return false;
+        }
+        if (Boolean.TRUE.equals(channel.get(0))) {
+            return true;
+        }
+        if (directConversations.size() >= MAX_DIRECT_CONVERSATIONS) {
+            directConversations.clear();
+        }
+        directConversations.add(conversationId);
+        return false;
+    }
+
+    private List<MessageItem> query(long conversationId, int offset, int limit) {
+        return jdbcTemplate.query(SELECT + "ORDER BY id DESC LIMIT ? OFFSET ?", (rs, i) -> {
+            return new MessageItem(rs.getLong(1), rs.getLong(2), rs.getObject(3, Long.class),
+                    rs.getTimestamp(4).toLocalDateTime());
+        }, conversationId, limit, offset);
+    }
+
+    public Snapshot snapshot() {
+        long hits = this.hits.sum();
+        long requests = hits + loads.sum() + bypassed.sum();
+        synchronized (windows) {
+            return new Snapshot(hits, loads.sum(), refreshes.sum(), recovered.sum(), bypassed.sum(), invalidated.sum(), evicted.sum(),
+                    windows.size(), totalBytes, requests == 0 ? 0 : (double) hits / requests);
+        }
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void report() {
+        long requests = windowRequests.sumThenReset();
+        long windowHits = this.windowHits.sumThenReset();
+        if (requests == 0) {
+            return;
+        }
+        Snapshot s = snapshot();
+        log.info("Channel message cache: {}% hit rate over {} reads in last window; {} windows, {} bytes, {} evicted, {} invalidated, " +
+                        "{} lost announcements recovered", windowHits * 100 / requests, requests, s.windows(), s.bytes(), s.evicted(),
+                s.invalidated(), s.recovered());
+    }
+
+    private static Segment[] encode(List<long[]> rows) {
+        Segment[] segments = new Segment[(rows.size() + SEGMENT_MESSAGES - 1) / SEGMENT_MESSAGES];
+        for (int s = 0; s < segments.length; s++) {
+            int from = s * SEGMENT_MESSAGES;
+            int to = Math.min(from + SEGMENT_MESSAGES, rows.size());
+            byte[] data = new byte[(to - from) * RECORD_BYTES];
+            for (int i = from; i < to; i++) {
+                write(data, i - from, rows.get(i));
+            }
+            segments[s] = new Segment(data);
+        }
+        return segments;
+    }
+
+    private static void write(byte[] data, int index, long[] row) {
+        int offset = index * RECORD_BYTES;
+        for (int i = 0; i < 4; i++) {
+            LONGS.set(data, offset + i * 8, row[i]);
+        }
+    }
+
+    private static long[] row(ResultSet rs, int rowNum) throws SQLException {
+        Timestamp createdAt = rs.getTimestamp(4);
+        return new long[]{rs.getLong(1), rs.getLong(2), rs.getLong(3), CursorCodec.toMicros(createdAt.toLocalDateTime())};
+    }
+
+    private static int roundUp(int messages) {
+        return Math.max(1, (messages + SEGMENT_MESSAGES - 1) / SEGMENT_MESSAGES) * SEGMENT_MESSAGES;
+    }
+
+    private static int stripe(long conversationId) {
+        return (int) (conversationId & (STRIPES - 1));
+    }
+}
@@ -0,0 +1,46 @@
+package com.openisle.service;
+
+import com.openisle.model.Comment;
+import com.openisle.model.Reaction;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * CommentScoreListener
+ *
+ * 评论与表态的实体监听器：在同一事务内维护评论互动分，见 {@link CommentScoreService}。
+ */
+@Component
+@RequiredArgsConstructor
+public class CommentScoreListener {
+    private final ObjectProvider<CommentScoreService> commentScoreService;
+
+    @PostPersist
+    public void onPersist(Object entity) {
+        CommentScoreService service = commentScoreService.getIfAvailable();
+        if (service == null) {
+            return;
+        }
+        if (entity instanceof Comment comment && comment.getParent() != null) {
+            service.replyAdded(comment.getParent().getId());
+        } else if (entity instanceof Reaction reaction && reaction.getComment() != null) {
+            service.reactionChanged(reaction.getComment().getId(), 1);
+        }
+    }
+
+    @PostRemove
+    public void onRemove(Object entity) {
+        CommentScoreService service = commentScoreService.getIfAvailable();
+        if (service == null) {
+            return;
+        }
+        if (entity instanceof Comment comment) {
+            service.commentRemoved(comment.getId(), comment.getParent() == null ? null : comment.getParent().getId());
+        } else if (entity instanceof Reaction reaction && reaction.getComment() != null) {
+            service.reactionChanged(reaction.getComment().getId(), -1);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.openisle.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * CommentScoreService
+ *
+ * 维护评论互动分 {@code comments.interaction_score}（子树回复数 + 自身收到的表态数），
+ * 支撑 {@code CommentSort.MOST_INTERACTIONS} 排序。
+ *
+ * 设计要点：
+ * - 增量：新回复使其全部祖先 +1，表态新增/撤销使该评论 ±1，均在写入的同一事务内执行。
+ *   祖先链由一条递归查询取出，只沿未删除的评论向上；链在到达根评论前断开（某个祖先已删除）时，
+ *   该回复本就不展示、不计分，与全量重算一致。
+ * - 删除评论隐藏其整棵子树：只锁定该评论一行，以其互动分减去自身表态数得到子树回复数，
+ *   其祖先各减去（子树回复数 + 1），不再锁定整帖评论重算；被隐藏子树内部的分数留给全量重建修正。
+ * - 全量重建按帖子 ID 分段、多线程并行；每段在事务内先锁定评论行再统计，并发的增量会等待该段提交。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CommentScoreService {
+    /** 重建时每段的帖子 ID 跨度 */
+    static final int REBUILD_CHUNK = 200;
+    /** 回复链的最大回溯深度，防止脏数据成环 */
+    private static final int MAX_DEPTH = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.comment-score.rebuild-on-startup:false}")
+    private boolean rebuildOnStartup;
+
+    @Value("${app.comment-score.rebuild-threads:4}")
+    private int rebuildThreads;
+
+    /**
+     * 新回复：父评论及其全部祖先的互动分 +1。
+     *
+     * @param parentId 父评论 ID
+     */
+    public void replyAdded(long parentId) {
+        adjustAncestors(parentId, 1);
+    }
+
+    /**
+     * 评论被删除：其祖先减去该评论及其子树的回复数。
+     *
+     * @param commentId 被删除的评论 ID
+     * @param parentId  父评论 ID，根评论为 {@code null}
+     */
+    public void commentRemoved(long commentId, Long parentId) {
+        if (parentId == null) {
+            return;
+        }
+        List<Long> scores = jdbcTemplate.queryForList("SELECT interaction_score FROM comments WHERE id = ? FOR UPDATE",
+                Long.class, commentId);
+        if (scores.isEmpty()) {
+            return;
+        }
+        Long reactions = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reactions WHERE comment_id = ?",
+                Long.class, commentId);
+        long subtree = Math.max(0, scores.get(0) - (reactions == null ? 0 : reactions));
+        adjustAncestors(parentId, -(subtree + 1));
+    }
+
+    /**
+     * 评论上的表态新增/撤销。
+     *
+     * @param commentId 评论 ID
+     * @param delta     +1 新增，-1 撤销
+     */
+    public void reactionChanged(long commentId, int delta) {
+        jdbcTemplate.update("UPDATE comments SET interaction_score = GREATEST(interaction_score + ?, 0) WHERE id = ?",
+                delta, commentId);
+    }
+
+    /**
+     * 重算一个帖子下全部评论的互动分，在调用方事务内执行。
+     *
+     * @param postId 帖子 ID
+     * @return 被修正的评论数
+     */
+    public int recomputePost(long postId) {
+        return recomputeRange(postId, postId);
+    }
+
+    /** 启动时按需执行一次全量重建（{@code app.comment-score.rebuild-on-startup}） */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (!rebuildOnStartup) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.error("Comment score rebuild failed", e);
+            }
+        }, "comment-score-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 全量重建：按帖子 ID 分段并行重算。
+     *
+     * @return 被修正的评论数
+     */
+    public long rebuild() {
+        long start = System.currentTimeMillis();
+        Long minId = jdbcTemplate.queryForObject("SELECT MIN(post_id) FROM comments", Long.class);
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(post_id) FROM comments", Long.class);
+        if (minId == null) {
+            return 0;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, rebuildThreads), r -> {
+            Thread t = new Thread(r, "comment-score-rebuild-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        List<Future<Integer>> chunks = new ArrayList<>();
+        try {
+            for (long lo = minId; lo <= maxId; lo += REBUILD_CHUNK) {
+                long from = lo;
+                long to = Math.min(lo + REBUILD_CHUNK - 1, maxId);
+                chunks.add(pool.submit(() -> transactionTemplate.execute(status -> recomputeRange(from, to))));
+            }
+            long updated = 0;
+            for (Future<Integer> chunk : chunks) {
+                Integer count = chunk.get();
+                updated += count == null ? 0 : count;
+            }
+            log.info("Comment scores rebuilt: {} comments corrected in {} chunks, {} ms",
+                    updated, chunks.size(), System.currentTimeMillis() - start);
+            return updated;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Comment score rebuild interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Comment score rebuild failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * 从 startId 起沿未删除的评论向上，给整条祖先链加上 delta；链未到达根评论即断开时不调整。
+     */
+    private void adjustAncestors(long startId, long delta) {
+        List<Object> ancestors = new ArrayList<>();
+        boolean[] attached = new boolean[1];
+        jdbcTemplate.query("WITH RECURSIVE chain (id, parent_id, depth) AS (" +
+                "SELECT id, parent_id, 1 FROM comments WHERE id = ? AND deleted_at IS NULL " +
+                "UNION ALL SELECT c.id, c.parent_id, chain.depth + 1 FROM comments c JOIN chain ON c.id = chain.parent_id " +
+                "WHERE c.deleted_at IS NULL AND chain.depth < ?) " +
+                "SELECT id, parent_id FROM chain ORDER BY depth", rs -> {
+            ancestors.add(rs.getLong(1));
+            rs.getLong(2);
+            attached[0] = rs.wasNull();
+        }, startId, MAX_DEPTH);
+        if (ancestors.isEmpty() || !attached[0]) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder(
+                "UPDATE comments SET interaction_score = GREATEST(interaction_score + ?, 0) WHERE id IN (");
+        for (int i = 0; i < ancestors.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        ancestors.add(0, delta);
+        jdbcTemplate.update(sql.append(')').toString(), ancestors.toArray());
+    }
+
+    /**
+     * 重算一段帖子下的互动分，只写回有变化的评论。
+     * 先锁定评论行再统计表态，保证与并发增量串行。
+     */
+    private int recomputeRange(long fromPostId, long toPostId) {
+        List<long[]> rows = jdbcTemplate.query("SELECT id, parent_id, interaction_score FROM comments " +
+                        "WHERE post_id BETWEEN ? AND ? AND deleted_at IS NULL ORDER BY id FOR UPDATE",
+                (rs, i) -> new long[]{rs.getLong(1), rs.getLong(2), rs.getLong(3)}, fromPostId, toPostId);
+        int n = rows.size();
+        if (n == 0) {
+            return 0;
+        }
+        long[] ids = new long[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = rows.get(i)[0];
+        }
+        Map<Long, Long> reactions = new HashMap<>();
+        jdbcTemplate.query("SELECT r.comment_id, COUNT(*) FROM reactions r JOIN comments c ON c.id = r.comment_id " +
+                "WHERE c.post_id BETWEEN ? AND ? AND c.deleted_at IS NULL GROUP BY r.comment_id", rs -> {
+            reactions.put(rs.getLong(1), rs.getLong(2));
+        }, fromPostId, toPostId);
+        // 回复的 ID 总大于父评论：逆序扫描即可把子树回复数累加到父节点；父评论已删除的子树不计入
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) {
+            long parentId = rows.get(i)[1];
+            parent[i] = parentId == 0 ? -1 : Arrays.binarySearch(ids, 0, i, parentId);
+        }
+        long[] replies = new long[n];
+        boolean[] detached = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            detached[i] = rows.get(i)[1] != 0 && (parent[i] < 0 || detached[parent[i]]);
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            if (!detached[i] && parent[i] >= 0) {
+                replies[parent[i]] += replies[i] + 1;
+            }
+        }
+        List<Object[]> updates = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            long score = replies[i] + reactions.getOrDefault(ids[i], 0L);
+            if (score != rows.get(i)[2]) {
+                updates.add(new Object[]{score, ids[i]});
+            }
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE comments SET interaction_score = ? WHERE id = ?", updates);
+        }
+        return updates.size();
+    }
+}
@@ -0,0 +1,230 @@
+package com.openisle.service;
+
+import com.openisle.dto.CommentCursor;
+import com.openisle.dto.CommentNode;
+import com.openisle.dto.CursorPage;
+import com.openisle.exception.FieldException;
+import com.openisle.model.Comment;
+import com.openisle.model.CommentSort;
+import com.openisle.repository.CommentRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * CommentThreadService
+ *
+ * 帖子评论树加载，取代“根评论 + 逐层 {@code findByParentOrderByCreatedAtAsc}”的 N+1 递归查询。
+ *
+ * 设计要点：
+ * - 一条查询按 ID 升序取出帖子下全部未删除评论（作者一并抓取），走 {@code (post_id, deleted_at, id)} 索引。
+ * - 在内存中用数组组装树：ID 有序数组二分查找得到下标，父/首子/兄弟关系都是 int 下标，不为每条评论建哈希表项。
+ *   回复总比父评论后创建、ID 更大，因此一次正序扫描即可确定父节点，一次逆序扫描即可累计子树回复数。
+ * - 父评论已删除的回复不展示（与原逐层查询的结果一致）。
+ * - 根评论按 {@link CommentSort} 排序并用 {@link CommentCursor} 游标分页，楼中楼回复按发布时间正序全部返回。
+ * - {@link CommentSort#MOST_INTERACTIONS} 使用预先维护的 {@code interaction_score}（见 {@link CommentScoreService}）；
+ *   只需根评论时可用 {@link #rootsByInteractions}，直接走 {@code (post_id, interaction_score DESC, id)} 索引范围扫描。
+ */
+@Service
+@RequiredArgsConstructor
+public class CommentThreadService {
+    /** 单页最多根评论数 */
+    static final int MAX_PAGE_SIZE = 100;
+    private static final int ROOT = -1;
+    private static final int DETACHED = -2;
+
+    private final CommentRepository commentRepository;
+
+    /**
+     * 按游标查询一页根评论及其全部回复。
+     *
+     * @param postId 帖子 ID
+     * @param sort   根评论排序方式
+     * @param cursor 上一页返回的续传令牌（首页传 {@code null}）
+     * @param size   每页根评论数
+     * @return 当前页评论树与下一页令牌
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<CommentNode> thread(Long postId, CommentSort sort, String cursor, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        CommentCursor after = CommentCursor.decode(cursor);
+        if (after != null && after.getSort() != sort) {
+            throw new FieldException("cursor", "Cursor does not match sort");
+        }
+
+        Tree tree = new Tree(commentRepository.findThreadByPostId(postId));
+        Comparator<Integer> order = order(tree, sort);
+        List<Integer> roots = tree.roots();
+        roots.sort(order);
+
+        int from = 0;
+        if (after != null) {
+            while (from < roots.size() && compare(sort, tree, roots.get(from), after) <= 0) {
+                from++;
+            }
+        }
+        int to = Math.min(from + limit, roots.size());
+        List<CommentNode> page = tree.subtrees(roots.subList(from, to));
+        String next = null;
+        if (to < roots.size()) {
+            int last = roots.get(to - 1);
+            next = new CommentCursor(sort, tree.createdAt(last), tree.score[last], tree.ids[last]).encode();
+        }
+        return new CursorPage<>(page, next);
+    }
+
+    /**
+     * 按互动分查询一页根评论（不含回复），索引范围扫描，不加载整棵评论树。
+     *
+     * @param postId 帖子 ID
+     * @param cursor 上一页返回的续传令牌（首页传 {@code null}）
+     * @param size   每页条数
+     * @return 当前页根评论与下一页令牌
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Comment> rootsByInteractions(Long postId, String cursor, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        CommentCursor after = CommentCursor.decode(cursor);
+        if (after != null && after.getSort() != CommentSort.MOST_INTERACTIONS) {
+            throw new FieldException("cursor", "Cursor does not match sort");
+        }
+        List<Comment> rows = commentRepository.findRootsByInteractionScore(postId,
+                after == null ? Long.MAX_VALUE : after.getScore(), after == null ? 0L : after.getId(),
+                PageRequest.of(0, limit + 1));
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        List<Comment> page = new ArrayList<>(rows.subList(0, limit));
+        Comment last = page.get(limit - 1);
+        return new CursorPage<>(page,
+                new CommentCursor(CommentSort.MOST_INTERACTIONS, null, last.getInteractionScore(), last.getId()).encode());
+    }
+
+    /** 根评论顺序，与游标比较保持一致 */
+    private static Comparator<Integer> order(Tree tree, CommentSort sort) {
+        return switch (sort) {
+            case NEWEST -> Comparator.comparing((Integer i) -> tree.createdAt(i))
+                    .thenComparingLong(i -> tree.ids[i]).reversed();
+            case OLDEST -> Comparator.comparing((Integer i) -> tree.createdAt(i))
+                    .thenComparingLong(i -> tree.ids[i]);
+            case MOST_INTERACTIONS -> Comparator.comparingLong((Integer i) -> -tree.score[i])
+                    .thenComparingLong(i -> tree.ids[i]);
+        };
+    }
+
+    /** 根评论 {@code i} 相对游标的位置：大于 0 表示排在游标之后 */
+    private static int compare(CommentSort sort, Tree tree, int i, CommentCursor after) {
+        return switch (sort) {
+            case NEWEST -> {
+                int c = after.getCreatedAt().compareTo(tree.createdAt(i));
+                yield c != 0 ? c : Long.compare(after.getId(), tree.ids[i]);
+            }
+            case OLDEST -> {
+                int c = tree.createdAt(i).compareTo(after.getCreatedAt());
+                yield c != 0 ? c : Long.compare(tree.ids[i], after.getId());
+            }
+            case MOST_INTERACTIONS -> {
+                int c = Long.compare(after.getScore(), tree.score[i]);
+                yield c != 0 ? c : Long.compare(tree.ids[i], after.getId());
+            }
+        };
+    }
+
+    /** 以下标数组表示的评论树 */
+    static final class Tree {
+        final Comment[] comments;
+        final long[] ids;
+        /** 父节点下标；{@link #ROOT} 为根评论，{@link #DETACHED} 为祖先已删除 */
+        final int[] parent;
+        final int[] firstChild;
+        final int[] nextSibling;
+        final int[] replyCount;
+        final long[] score;
+
+        Tree(List<Comment> byId) {
+            int n = byId.size();
+            comments = byId.toArray(new Comment[0]);
+            ids = new long[n];
+            parent = new int[n];
+            firstChild = new int[n];
+            nextSibling = new int[n];
+            replyCount = new int[n];
+            score = new long[n];
+            Arrays.fill(firstChild, -1);
+            Arrays.fill(nextSibling, -1);
+            for (int i = 0; i < n; i++) {
+                ids[i] = comments[i].getId();
+                Comment p = comments[i].getParent();
+                if (p == null) {
+                    parent[i] = ROOT;
+                } else {
+                    int j = Arrays.binarySearch(ids, 0, i, p.getId());
+                    parent[i] = j < 0 || parent[j] == DETACHED ? DETACHED : j;
+                }
+            }
+            for (int i = n - 1; i >= 0; i--) {
+                int p = parent[i];
+                if (p >= 0) {
+                    replyCount[p] += replyCount[i] + 1;
+                    nextSibling[i] = firstChild[p];
+                    firstChild[p] = i;
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                score[i] = comments[i].getInteractionScore();
+            }
+        }
+
+        LocalDateTime createdAt(int i) {
+            return comments[i].getCreatedAt();
+        }
+
+        List<Integer> roots() {
+            List<Integer> roots = new ArrayList<>();
+            for (int i = 0; i < parent.length; i++) {
+                if (parent[i] == ROOT) {
+                    roots.add(i);
+                }
+            }
+            return roots;
+        }
+
+        /** 组装若干根评论的完整子树（迭代，避免深层回复链导致栈溢出） */
+        List<CommentNode> subtrees(List<Integer> roots) {
+            List<CommentNode> result = new ArrayList<>(roots.size());
+            CommentNode[] nodes = new CommentNode[ids.length];
+            Deque<Integer> stack = new ArrayDeque<>();
+            for (int root : roots) {
+                nodes[root] = node(root);
+                result.add(nodes[root]);
+                stack.push(root);
+            }
+            while (!stack.isEmpty()) {
+                int i = stack.pop();
+                for (int c = firstChild[i]; c >= 0; c = nextSibling[c]) {
+                    nodes[c] = node(c);
+                    nodes[i].getReplies().add(nodes[c]);
+                    stack.push(c);
+                }
+            }
+            return result;
+        }
+
+        private CommentNode node(int i) {
+            CommentNode node = new CommentNode();
+            node.setComment(comments[i]);
+            node.setReplyCount(replyCount[i]);
+            node.setScore(score[i]);
+            return node;
+        }
+    }
+}
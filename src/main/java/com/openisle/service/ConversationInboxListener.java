@@ -0,0 +1,43 @@
+package com.openisle.service;
+
+import com.openisle.model.Message;
+import com.openisle.model.MessageParticipant;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * ConversationInboxListener
+ *
+ * 消息与会话参与者的实体监听器：在同一事务内维护会话收件箱，见 {@link ConversationInboxService}。
+ */
+@Component
+@RequiredArgsConstructor
+public class ConversationInboxListener {
+    private final ObjectProvider<ConversationInboxService> inboxService;
+
+    @PostPersist
+    public void onPersist(Object entity) {
+        ConversationInboxService service = inboxService.getIfAvailable();
+        if (service == null) {
+            return;
+        }
+        if (entity instanceof Message message) {
+            service.messageSent(message.getConversation().getId(), message.getConversation().isChannel(), message.getId(),
+                    message.getSender().getId(), message.getCreatedAt());
+        } else if (entity instanceof MessageParticipant participant) {
+            service.participantAdded(participant.getConversation().getId(), participant.getConversation().isChannel(),
+                    participant.getUser().getId());
+        }
+    }
+
+    @PostRemove
+    public void onRemove(Object entity) {
+        ConversationInboxService service = inboxService.getIfAvailable();
+        if (service != null && entity instanceof MessageParticipant participant) {
+            service.participantRemoved(participant.getConversation().getId(), participant.getUser().getId());
+        }
+    }
+}
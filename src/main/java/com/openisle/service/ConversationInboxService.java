@@ -0,0 +1,312 @@
+package com.openisle.service;
+
+import com.openisle.dto.CursorPage;
+import com.openisle.dto.InboxCursor;
+import com.openisle.dto.InboxEntry;
+import com.openisle.dto.UserSummary;
+import com.openisle.model.ConversationInbox;
+import com.openisle.model.MessageConversation;
+import com.openisle.model.MessageParticipant;
+import com.openisle.repository.ConversationInboxRepository;
+import com.openisle.repository.MessageConversationRepository;
+import com.openisle.repository.MessageParticipantRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * ConversationInboxService
+ *
+ * 维护会话列表的读模型，取代 {@code findConversationsByUserIdOrderByLastMessageDesc} 的多重 JOIN FETCH + DISTINCT + 表达式排序：
+ * 私聊为收件箱 {@code conversation_inbox}（每个参与者每个会话一行），频道为 {@code channel_activity}（每个频道一行）。
+ *
+ * 设计要点：
+ * - 写入：私聊参与者加入时插入收件箱行，消息发送时一条 UPDATE 刷新两位参与者的行，参与者退出时删除；
+ *   频道消息只更新该频道的一行，写入量与成员数无关。均由 {@link ConversationInboxListener} 在写入的同一事务内触发。
+ * - 并发发送时只在消息 ID 更大时覆盖最近消息字段，提交顺序不影响最终结果。
+ * - 读取：按 (lastActivityAt, conversationId) 键集分页，私聊为一次索引范围扫描，频道由用户的参与记录连接 {@code channel_activity}
+ *   排序（规模为用户加入的频道数），两者各取一页后归并；
+ *   会话元信息一条 IN 查询，私聊参与者一条批量查询（频道不加载成员列表），
+ *   未读数取自 {@code message_participants.unread_count}（见 {@link MessageUnreadService}），同样一条查询。
+ * - {@code messages} 表不保存正文摘要，{@link #updatePreview} 供发送方写入摘要，仅对仍是最近一条的消息生效。
+ * - 回填：{@link #backfill()} 按会话 ID 分段补齐缺少的收件箱行与频道行，已有的行由监听器维护、不再改写，重复执行几乎没有写入；
+ *   启动时执行需开启 {@code app.messages.inbox.backfill-on-startup}（默认关闭，只在上线或恢复数据后开启一次）。
+ *   {@link #rebuild()} 按会话 ID 分段删除并从参与者、消息全量重建，按需手动执行。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ConversationInboxService {
+    /** 单页最多会话数 */
+    static final int MAX_PAGE_SIZE = 100;
+    /** 摘要最大长度，与列宽一致 */
+    static final int PREVIEW_LENGTH = 200;
+    /** 回填时每段的会话 ID 跨度 */
+    static final int REBUILD_CHUNK = 500;
+    private static final Comparator<ConversationInbox> NEWEST_FIRST = Comparator
+            .comparing(ConversationInbox::getLastActivityAt, Comparator.reverseOrder())
+            .thenComparing(ConversationInbox::getConversationId, Comparator.reverseOrder());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ConversationInboxRepository inboxRepository;
+    private final MessageConversationRepository conversationRepository;
+    private final MessageParticipantRepository participantRepository;
+    private final MessageUnreadService unreadService;
+
+    @Value("${app.messages.inbox.backfill-on-startup:false}")
+    private boolean backfillOnStartup;
+
+    /** 参与者加入会话：私聊以会话最近一条消息（无消息时为会话创建时间）作为最近活动，频道只需确保频道行存在 */
+    public void participantAdded(long conversationId, boolean channel, long userId) {
+        if (channel) {
+            jdbcTemplate.update("INSERT INTO channel_activity (conversation_id, last_activity_at, last_message_id, last_sender_id) " +
+                    "SELECT c.id, COALESCE(m.created_at, c.created_at), m.id, m.sender_id FROM message_conversations c " +
+                    "LEFT JOIN messages m ON m.id = c.last_message_id WHERE c.id = ? " +
+                    "AND NOT EXISTS (SELECT 1 FROM channel_activity a WHERE a.conversation_id = c.id)", conversationId);
+            return;
+        }
+        jdbcTemplate.update("INSERT INTO conversation_inbox (user_id, conversation_id, last_activity_at, last_message_id, last_sender_id) " +
+                "SELECT ?, c.id, COALESCE(m.created_at, c.created_at), m.id, m.sender_id FROM message_conversations c " +
+                "LEFT JOIN messages m ON m.id = c.last_message_id WHERE c.id = ? " +
+                "AND NOT EXISTS (SELECT 1 FROM conversation_inbox i WHERE i.conversation_id = c.id AND i.user_id = ?)",
+                userId, conversationId, userId);
+    }
+
+    /** 参与者退出会话 */
+    public void participantRemoved(long conversationId, long userId) {
+        jdbcTemplate.update("DELETE FROM conversation_inbox WHERE conversation_id = ? AND user_id = ?", conversationId, userId);
+    }
+
+    /** 新消息：私聊刷新参与者的收件箱行，频道只刷新频道行 */
+    public void messageSent(long conversationId, boolean channel, long messageId, long senderId, LocalDateTime createdAt) {
+        Timestamp at = Timestamp.valueOf(createdAt);
+        jdbcTemplate.update("UPDATE " + table(channel) + " SET " +
+                        "last_activity_at = CASE WHEN last_message_id IS NULL OR last_message_id < ? THEN ? ELSE last_activity_at END, " +
+                        "last_sender_id = CASE WHEN last_message_id IS NULL OR last_message_id < ? THEN ? ELSE last_sender_id END, " +
+                        "last_message_preview = CASE WHEN last_message_id IS NULL OR last_message_id < ? THEN NULL ELSE last_message_preview END, " +
+                        "last_message_id = CASE WHEN last_message_id IS NULL OR last_message_id < ? THEN ? ELSE last_message_id END " +
+                        "WHERE conversation_id = ?",
+                messageId, at, messageId, senderId, messageId, messageId, messageId, conversationId);
+    }
+
+    /**
+     * 写入最近一条消息的摘要；消息已不是最近一条时不生效。
+     *
+     * @return 更新的行数（私聊为参与者数，频道为 1）
+     */
+    public int updatePreview(long conversationId, long messageId, String preview) {
+        String text = preview == null || preview.length() <= PREVIEW_LENGTH ? preview : preview.substring(0, PREVIEW_LENGTH);
+        int updated = jdbcTemplate.update("UPDATE conversation_inbox SET last_message_preview = ? WHERE conversation_id = ? AND last_message_id = ?",
+                text, conversationId, messageId);
+        if (updated > 0) {
+            return updated;
+        }
+        return jdbcTemplate.update("UPDATE channel_activity SET last_message_preview = ? WHERE conversation_id = ? AND last_message_id = ?",
+                text, conversationId, messageId);
+    }
+
+    /**
+     * 按游标查询一页收件箱（按最近活动倒序）。
+     *
+     * @param userId 用户 ID
+     * @param cursor 上一页返回的续传令牌（首页传 {@code null}）
+     * @param size   每页条数
+     * @return 当前页会话与下一页令牌
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<InboxEntry> inbox(Long userId, String cursor, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        InboxCursor after = InboxCursor.decode(cursor);
+        PageRequest page = PageRequest.of(0, limit + 1);
+        List<ConversationInbox> rows = new ArrayList<>(after == null
+                ? inboxRepository.findFirstPage(userId, page)
+                : inboxRepository.findPageAfter(userId, after.getLastActivityAt(), after.getConversationId(), page));
+        rows.addAll(channels(userId, after, limit + 1));
+        rows.sort(NEWEST_FIRST);
+        String next = null;
+        if (rows.size() > limit) {
+            rows = rows.subList(0, limit);
+            ConversationInbox last = rows.get(limit - 1);
+            next = new InboxCursor(last.getLastActivityAt(), last.getConversationId()).encode();
+        }
+        return new CursorPage<>(hydrate(userId, rows), next);
+    }
+
+    /** 用户加入的频道中游标之后的一页，按频道行排序，映射为收件箱行以便与私聊归并 */
+    private List<ConversationInbox> channels(Long userId, InboxCursor after, int limit) {
+        String sql = "SELECT a.conversation_id, a.last_activity_at, a.last_message_id, a.last_sender_id, a.last_message_preview " +
+                "FROM message_participants p JOIN channel_activity a ON a.conversation_id = p.conversation_id WHERE p.user_id = ? ";
+        String order = "ORDER BY a.last_activity_at DESC, a.conversation_id DESC LIMIT ?";
+        RowMapper<ConversationInbox> mapper = (rs, i) -> {
+            ConversationInbox row = new ConversationInbox();
+            row.setUserId(userId);
+            row.setConversationId(rs.getLong(1));
+            row.setLastActivityAt(rs.getTimestamp(2).toLocalDateTime());
+            row.setLastMessageId(rs.getObject(3, Long.class));
+            row.setLastSenderId(rs.getObject(4, Long.class));
+            row.setLastMessagePreview(rs.getString(5));
+            return row;
+        };
+        if (after == null) {
+            return jdbcTemplate.query(sql + order, mapper, userId, limit);
+        }
+        Timestamp at = Timestamp.valueOf(after.getLastActivityAt());
+        return jdbcTemplate.query(sql + "AND (a.last_activity_at < ? OR (a.last_activity_at = ? AND a.conversation_id < ?)) " + order,
+                mapper, userId, at, at, after.getConversationId(), limit);
+    }
+
+    private static String table(boolean channel) {
+        return channel ? "channel_activity" : "conversation_inbox";
+    }
+
+    /** 填充会话元信息、未读数与私聊参与者：各一条批量查询 */
+    private List<InboxEntry> hydrate(Long userId, List<ConversationInbox> rows) {
+        if (rows.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> ids = rows.stream().map(ConversationInbox::getConversationId).toList();
+        Map<Long, MessageConversation> conversations = conversationRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(MessageConversation::getId, Function.identity()));
+        Map<Long, Long> unread = unreadService.unreadCounts(userId, ids);
+        List<Long> direct = ids.stream()
+                .filter(id -> conversations.containsKey(id) && !conversations.get(id).isChannel())
+                .toList();
+        Map<Long, List<UserSummary>> participants = new HashMap<>();
+        if (!direct.isEmpty()) {
+            for (MessageParticipant p : participantRepository.findWithUsersByConversationIds(direct)) {
+                participants.computeIfAbsent(p.getConversation().getId(), k -> new ArrayList<>())
+                        .add(new UserSummary(p.getUser().getId(), p.getUser().getUsername(), p.getUser().getAvatar()));
+            }
+        }
+        List<InboxEntry> entries = new ArrayList<>(rows.size());
+        for (ConversationInbox row : rows) {
+            MessageConversation conversation = conversations.get(row.getConversationId());
+            if (conversation == null) {
+                continue;
+            }
+            InboxEntry entry = new InboxEntry();
+            entry.setConversationId(row.getConversationId());
+            entry.setChannel(conversation.isChannel());
+            entry.setName(conversation.getName());
+            entry.setAvatar(conversation.getAvatar());
+            entry.setLastActivityAt(row.getLastActivityAt());
+            entry.setUnreadCount(unread.getOrDefault(row.getConversationId(), 0L));
+            entry.setLastMessageId(row.getLastMessageId());
+            entry.setLastSenderId(row.getLastSenderId());
+            entry.setLastMessagePreview(row.getLastMessagePreview());
+            entry.setParticipants(participants.getOrDefault(row.getConversationId(), new ArrayList<>()));
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    /** 启动时回填（{@code app.messages.inbox.backfill-on-startup}） */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                backfill();
+            } catch (RuntimeException e) {
+                log.error("Conversation inbox backfill failed", e);
+            }
+        }, "conversation-inbox-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 为缺少收件箱行的私聊参与者与缺少频道行的频道补齐，按会话 ID 分段；与参与者加入并发插入同一行时重试该段，已存在的行被跳过。
+     *
+     * @return 新增的行数
+     */
+    public long backfill() {
+        long start = System.currentTimeMillis();
+        Long minId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM message_conversations", Long.class);
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM message_conversations", Long.class);
+        if (minId == null) {
+            return 0;
+        }
+        long rows = 0;
+        for (long lo = minId; lo <= maxId; lo += REBUILD_CHUNK) {
+            long from = lo;
+            long to = Math.min(lo + REBUILD_CHUNK - 1, maxId);
+            Integer inserted;
+            try {
+                inserted = transactionTemplate.execute(status -> backfillRange(from, to));
+            } catch (DuplicateKeyException e) {
+                inserted = transactionTemplate.execute(status -> backfillRange(from, to));
+            }
+            rows += inserted == null ? 0 : inserted;
+        }
+        log.info("Conversation inbox backfilled: {} rows in {} ms", rows, System.currentTimeMillis() - start);
+        return rows;
+    }
+
+    private int backfillRange(long fromConversationId, long toConversationId) {
+        int rows = jdbcTemplate.update("INSERT INTO conversation_inbox (user_id, conversation_id, last_activity_at, last_message_id, last_sender_id) " +
+                        "SELECT p.user_id, c.id, COALESCE(m.created_at, c.created_at), m.id, m.sender_id " +
+                        "FROM message_participants p JOIN message_conversations c ON c.id = p.conversation_id " +
+                        "LEFT JOIN messages m ON m.id = (SELECT MAX(y.id) FROM messages y WHERE y.conversation_id = c.id) " +
+                        "WHERE c.id BETWEEN ? AND ? AND c.channel = FALSE " +
+                        "AND NOT EXISTS (SELECT 1 FROM conversation_inbox i WHERE i.conversation_id = c.id AND i.user_id = p.user_id)",
+                fromConversationId, toConversationId);
+        return rows + jdbcTemplate.update("INSERT INTO channel_activity (conversation_id, last_activity_at, last_message_id, last_sender_id) " +
+                        "SELECT c.id, COALESCE(m.created_at, c.created_at), m.id, m.sender_id FROM message_conversations c " +
+                        "LEFT JOIN messages m ON m.id = (SELECT MAX(y.id) FROM messages y WHERE y.conversation_id = c.id) " +
+                        "WHERE c.id BETWEEN ? AND ? AND c.channel = TRUE " +
+                        "AND NOT EXISTS (SELECT 1 FROM channel_activity a WHERE a.conversation_id = c.id)",
+                fromConversationId, toConversationId);
+    }
+
+    /**
+     * 全量回填：按会话 ID 分段，每段在一个事务内删除收件箱行与频道行并从参与者、消息重建。
+     *
+     * @return 写入的行数
+     */
+    public long rebuild() {
+        long start = System.currentTimeMillis();
+        Long minId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM message_conversations", Long.class);
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM message_conversations", Long.class);
+        if (minId == null) {
+            return 0;
+        }
+        long rows = 0;
+        for (long lo = minId; lo <= maxId; lo += REBUILD_CHUNK) {
+            long from = lo;
+            long to = Math.min(lo + REBUILD_CHUNK - 1, maxId);
+            Integer inserted = transactionTemplate.execute(status -> rebuildRange(from, to));
+            rows += inserted == null ? 0 : inserted;
+        }
+        log.info("Conversation inbox rebuilt: {} rows in {} ms", rows, System.currentTimeMillis() - start);
+        return rows;
+    }
+
+    private int rebuildRange(long fromConversationId, long toConversationId) {
+        jdbcTemplate.update("DELETE FROM conversation_inbox WHERE conversation_id BETWEEN ? AND ?", fromConversationId, toConversationId);
+        jdbcTemplate.update("DELETE FROM channel_activity WHERE conversation_id BETWEEN ? AND ?", fromConversationId, toConversationId);
+        return backfillRange(fromConversationId, toConversationId);
+    }
+}
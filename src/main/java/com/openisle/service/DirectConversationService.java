@@ -0,0 +1,232 @@
+package com.openisle.service;
+
+import com.openisle.exception.FieldException;
+import com.openisle.exception.NotFoundException;
+import com.openisle.model.DirectConversationPair;
+import com.openisle.model.MessageConversation;
+import com.openisle.model.MessageParticipant;
+import com.openisle.model.User;
+import com.openisle.repository.DirectConversationPairRepository;
+import com.openisle.repository.MessageConversationRepository;
+import com.openisle.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * DirectConversationService
+ *
+ * 私聊会话的查找与创建，取代 {@code findConversationsByUsers} 对全部非频道会话的
+ * {@code size(participants) = 2} + 两个关联 EXISTS 子查询。
+ *
+ * 设计要点：
+ * - 查找：两位用户按 ID 排序后在 {@code direct_conversation_pairs} 上做一次唯一键探测。
+ * - 创建：在独立事务中创建会话、参与者并写入索引行；并发创建同一对用户时由唯一约束裁决，
+ *   落败方的事务整体回滚（不留下孤立会话），随后读取胜出方的会话。
+ * - 迁移：{@link #backfill()} 按会话 ID 分段，从恰有两位参与者的非频道会话回填索引，
+ *   同一对用户存在多个历史会话时取最新的一个（与原查询按创建时间倒序取首个一致）。
+ *   回填完成前，索引未命中时退回旧查询，避免为已有私聊重复建会话。
+ *   完成标记经 {@link JobLockService} 持久化：启动回填在整个集群只由一个节点执行一次，其他节点与之后的重启读取标记即可。
+ */
+@Slf4j
+@Service
+public class DirectConversationService {
+    /** 回填时每段的会话 ID 跨度 */
+    static final int BACKFILL_CHUNK = 1000;
+    /** 回填任务的租约名与完成标记 */
+    static final String BACKFILL_JOB = "direct-conversation-backfill";
+
+    private final DirectConversationPairRepository pairRepository;
+    private final MessageConversationRepository conversationRepository;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate requiresNew;
+    private final JobLockService jobLockService;
+
+    @Value("${app.messages.dm-pairs.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    @Value("${app.messages.dm-pairs.backfill-lease-minutes:60}")
+    private long backfillLeaseMinutes;
+
+    /** 已读到回填完成标记（只缓存完成）；完成后索引未命中即表示私聊不存在 */
+    private volatile boolean backfilled;
+
+    public DirectConversationService(DirectConversationPairRepository pairRepository,
+                                     MessageConversationRepository conversationRepository,
+                                     UserRepository userRepository,
+                                     JdbcTemplate jdbcTemplate,
+                                     TransactionTemplate transactionTemplate,
+                                     PlatformTransactionManager transactionManager,
+                                     JobLockService jobLockService) {
+        this.pairRepository = pairRepository;
+        this.conversationRepository = conversationRepository;
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.jobLockService = jobLockService;
+    }
+
+    /**
+     * 查找两位用户之间的私聊会话 ID。
+     */
+    public Optional<Long> findConversationId(long userA, long userB) {
+        Optional<Long> id = pairRepository.findByMinUserIdAndMaxUserId(Math.min(userA, userB), Math.max(userA, userB))
+                .map(DirectConversationPair::getConversationId);
+        if (id.isPresent() || backfilled()) {
+            return id;
+        }
+        return legacyLookup(userA, userB);
+    }
+
+    private boolean backfilled() {
+        if (!backfilled && jobLockService.completed(BACKFILL_JOB)) {
+            backfilled = true;
+        }
+        return backfilled;
+    }
+
+    /**
+     * 获取两位用户之间的私聊会话，不存在时创建；并发调用只会得到同一个会话。
+     *
+     * @return 私聊会话 ID
+     * @throws FieldException    两位用户相同时
+     * @throws NotFoundException 用户不存在时
+     */
+    public long getOrCreate(long userA, long userB) {
+        if (userA == userB) {
+            throw new FieldException("userId", "Cannot start a conversation with yourself");
+        }
+        Optional<Long> existing = findConversationId(userA, userB);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        try {
+            Long created = requiresNew.execute(status -> create(userA, userB));
+            if (created != null) {
+                return created;
+            }
+        } catch (DuplicateKeyException e) {
+            // 并发创建落败，本事务已回滚，读取胜出方的会话
+        }
+        return pairRepository.findByMinUserIdAndMaxUserId(Math.min(userA, userB), Math.max(userA, userB))
+                .map(DirectConversationPair::getConversationId)
+                .orElseThrow(() -> new IllegalStateException("Direct conversation disappeared after creation race"));
+    }
+
+    private Long create(long userA, long userB) {
+        User a = userRepository.findById(userA).orElseThrow(() -> new NotFoundException("User not found"));
+        User b = userRepository.findById(userB).orElseThrow(() -> new NotFoundException("User not found"));
+        MessageConversation conversation = new MessageConversation();
+        conversation.setChannel(false);
+        for (User user : List.of(a, b)) {
+            MessageParticipant participant = new MessageParticipant();
+            participant.setConversation(conversation);
+            participant.setUser(user);
+            conversation.getParticipants().add(participant);
+        }
+        long conversationId = conversationRepository.saveAndFlush(conversation).getId();
+        jdbcTemplate.update("INSERT INTO direct_conversation_pairs (min_user_id, max_user_id, conversation_id) VALUES (?, ?, ?)",
+                Math.min(userA, userB), Math.max(userA, userB), conversationId);
+        return conversationId;
+    }
+
+    /** 回填前的兜底：旧查询找到的会话顺带写入索引 */
+    @SuppressWarnings("deprecation")
+    private Optional<Long> legacyLookup(long userA, long userB) {
+        Optional<User> a = userRepository.findById(userA);
+        Optional<User> b = userRepository.findById(userB);
+        if (a.isEmpty() || b.isEmpty()) {
+            return Optional.empty();
+        }
+        List<MessageConversation> conversations = conversationRepository.findConversationsByUsers(a.get(), b.get());
+        if (conversations.isEmpty()) {
+            return Optional.empty();
+        }
+        long conversationId = conversations.get(0).getId();
+        try {
+            requiresNew.executeWithoutResult(status -> jdbcTemplate.update(
+                    "INSERT INTO direct_conversation_pairs (min_user_id, max_user_id, conversation_id) VALUES (?, ?, ?)",
+                    Math.min(userA, userB), Math.max(userA, userB), conversationId));
+        } catch (DuplicateKeyException e) {
+            // 已由并发请求或回填写入
+        }
+        return Optional.of(conversationId);
+    }
+
+    /** 启动时回填（{@code app.messages.dm-pairs.backfill-on-startup}），已完成过或其他节点正在执行时跳过 */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                jobLockService.runOnce(BACKFILL_JOB, Duration.ofMinutes(backfillLeaseMinutes), this::backfill);
+            } catch (RuntimeException e) {
+                log.error("Direct conversation pair backfill failed", e);
+            }
+        }, "direct-conversation-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 从现有私聊回填索引，按会话 ID 升序分段；已有索引行只会被更新的会话覆盖。
+     *
+     * @return 新增或更新的索引行数
+     */
+    public long backfill() {
+        long start = System.currentTimeMillis();
+        Long minId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM message_conversations WHERE channel = FALSE", Long.class);
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM message_conversations WHERE channel = FALSE", Long.class);
+        long written = 0;
+        if (minId != null) {
+            for (long lo = minId; lo <= maxId; lo += BACKFILL_CHUNK) {
+                long from = lo;
+                long to = Math.min(lo + BACKFILL_CHUNK - 1, maxId);
+                Integer count = transactionTemplate.execute(status -> backfillRange(from, to));
+                written += count == null ? 0 : count;
+            }
+        }
+        jobLockService.markCompleted(BACKFILL_JOB);
+        backfilled = true;
+        log.info("Direct conversation pairs backfilled: {} rows in {} ms", written, System.currentTimeMillis() - start);
+        return written;
+    }
+
+    private int backfillRange(long fromId, long toId) {
+        List<long[]> pairs = jdbcTemplate.query("SELECT p.conversation_id, MIN(p.user_id), MAX(p.user_id) FROM message_participants p " +
+                        "JOIN message_conversations c ON c.id = p.conversation_id " +
+                        "WHERE c.channel = FALSE AND c.id BETWEEN ? AND ? " +
+                        "GROUP BY p.conversation_id HAVING COUNT(*) = 2 AND MIN(p.user_id) <> MAX(p.user_id) " +
+                        "ORDER BY p.conversation_id",
+                (rs, i) -> new long[]{rs.getLong(1), rs.getLong(2), rs.getLong(3)}, fromId, toId);
+        int written = 0;
+        for (long[] pair : pairs) {
+            int updated = jdbcTemplate.update("UPDATE direct_conversation_pairs SET conversation_id = ? " +
+                    "WHERE min_user_id = ? AND max_user_id = ? AND conversation_id < ?", pair[0], pair[1], pair[2], pair[0]);
+            if (updated == 0) {
+                updated = jdbcTemplate.update("INSERT INTO direct_conversation_pairs (min_user_id, max_user_id, conversation_id) " +
+                        "SELECT ?, ?, ? FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM direct_conversation_pairs " +
+                        "WHERE min_user_id = ? AND max_user_id = ?)", pair[1], pair[2], pair[0], pair[1], pair[2]);
+            }
+            written += updated;
+        }
+        return written;
+    }
+}
@@ -0,0 +1,77 @@
+package com.openisle.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * InMemoryRevocationStore
+ *
+ * 进程内的吊销存储（{@code app.jwt.revocation.store=memory}），用于测试与单机部署；进程退出后吊销记录丢失。
+ * 广播在单独线程上异步投递，与 Redis pub/sub 一样存在传播延迟；同一实例被多个
+ * {@link TokenRevocationService} 共享时即模拟多节点。
+ */
+@Component
+@ConditionalOnProperty(name = "app.jwt.revocation.store", havingValue = "memory")
+public class InMemoryRevocationStore implements RevocationStore {
+    private final Map<String, Long> revokedIds = new ConcurrentHashMap<>();
+    private final Map<String, Long> watermarks = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService delivery = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "revocation-broadcast");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Override
+    public void saveRevokedId(String tokenId, long expiresAt) {
+        revokedIds.merge(tokenId, expiresAt, Math::max);
+    }
+
+    @Override
+    public boolean isRevokedId(String tokenId) {
+        Long expiresAt = revokedIds.get(tokenId);
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    @Override
+    public void forEachRevokedId(Consumer<String> action) {
+        long now = System.currentTimeMillis();
+        revokedIds.entrySet().removeIf(e -> e.getValue() <= now);
+        revokedIds.keySet().forEach(action);
+    }
+
+    @Override
+    public long raiseWatermark(String field, long watermark) {
+        return watermarks.merge(field, watermark, Math::max);
+    }
+
+    @Override
+    public Map<String, Long> watermarks() {
+        return new HashMap<>(watermarks);
+    }
+
+    @Override
+    public void publish(String message) {
+        delivery.execute(() -> listeners.forEach(listener -> listener.accept(message)));
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        delivery.shutdownNow();
+    }
+}
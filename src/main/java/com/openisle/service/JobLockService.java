@@ -0,0 +1,129 @@
+package com.openisle.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * JobLockService
+ *
+ * 多节点部署下只应由一个节点执行的定时任务（DDL、批量删除、对账等）的互斥，基于数据库表 {@code job_locks} 的租约。
+ *
+ * 设计要点：
+ * - 获取：一条条件 UPDATE 接管已过期或本节点持有的租约；行不存在时 INSERT，并发插入由主键裁决。
+ * - 释放：任务结束后把租约置为已过期，其他节点下次调度即可获取；持有节点崩溃时等租约自然到期。
+ * - 一次性任务：{@link #runOnce} 在租约内执行并持久化完成标记，多节点、多次重启也只完整执行一次；中途失败不写标记，下次启动重试。
+ * - 租约应长于任务的最长执行时间，否则到期后可能有第二个节点开始执行。
+ * - 不依赖 Redis，数据库不可用时任务本身也无法执行。
+ */
+@Slf4j
+@Service
+public class JobLockService {
+    private final JdbcTemplate jdbcTemplate;
+    /** 本节点标识：进程名 + 随机后缀，区分同一主机上的多个实例 */
+    private final String owner;
+
+    public JobLockService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        String node = name + "/" + UUID.randomUUID().toString().substring(0, 8);
+        this.owner = node.length() > 128 ? node.substring(node.length() - 128) : node;
+    }
+
+    /**
+     * 在持有租约期间执行任务；其他节点持有租约时直接返回。
+     *
+     * @param name  任务名
+     * @param lease 租约时长，应长于任务的最长执行时间
+     * @param task  任务
+     * @return 是否执行了任务
+     */
+    public boolean runExclusively(String name, Duration lease, Runnable task) {
+        if (!tryAcquire(name, lease)) {
+            log.debug("Job {} is running on another node, skipped", name);
+            return false;
+        }
+        try {
+            task.run();
+        } finally {
+            release(name);
+        }
+        return true;
+    }
+
+    /**
+     * 只执行一次的任务（启动回填、迁移重算等）：已完成或其他节点正在执行时直接返回，成功后写入完成标记。
+     *
+     * @return 是否执行了任务
+     */
+    public boolean runOnce(String name, Duration lease, Runnable task) {
+        if (completed(name)) {
+            return false;
+        }
+        boolean[] ran = new boolean[1];
+        runExclusively(name, lease, () -> {
+            // 获取租约前另一节点可能刚刚完成
+            if (!completed(name)) {
+                task.run();
+                markCompleted(name);
+                ran[0] = true;
+            }
+        });
+        return ran[0];
+    }
+
+    /** 一次性任务是否已完成 */
+    public boolean completed(String name) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM job_locks WHERE name = ? AND completed_at IS NOT NULL",
+                Long.class, name);
+        return count != null && count > 0;
+    }
+
+    /** 记录一次性任务已完成（也供手动执行的任务调用） */
+    public void markCompleted(String name) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        if (jdbcTemplate.update("UPDATE job_locks SET completed_at = ? WHERE name = ?", now, name) > 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update("INSERT INTO job_locks (name, owner, locked_until, completed_at) VALUES (?, ?, ?, ?)",
+                    name, owner, now, now);
+        } catch (DuplicateKeyException e) {
+            jdbcTemplate.update("UPDATE job_locks SET completed_at = ? WHERE name = ?", now, name);
+        }
+    }
+
+    /** 获取或续期租约 */
+    public boolean tryAcquire(String name, Duration lease) {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp until = Timestamp.valueOf(now.plus(lease));
+        int updated = jdbcTemplate.update("UPDATE job_locks SET owner = ?, locked_until = ? " +
+                "WHERE name = ? AND (locked_until < ? OR owner = ?)", owner, until, name, Timestamp.valueOf(now), owner);
+        if (updated > 0) {
+            return true;
+        }
+        try {
+            return jdbcTemplate.update("INSERT INTO job_locks (name, owner, locked_until) VALUES (?, ?, ?)",
+                    name, owner, until) > 0;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /** 释放本节点持有的租约 */
+    public void release(String name) {
+        try {
+            jdbcTemplate.update("UPDATE job_locks SET locked_until = ? WHERE name = ? AND owner = ?",
+                    Timestamp.valueOf(LocalDateTime.now().minusSeconds(1)), name, owner);
+        } catch (RuntimeException e) {
+            log.warn("Failed to release job lock {}, it expires with its lease", name, e);
+        }
+    }
+}
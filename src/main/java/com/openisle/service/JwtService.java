@@ -1,16 +1,35 @@
 package com.openisle.service;
 
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.stereotype.Service;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.io.Serializer;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
 
+import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
@@ -19,13 +38,44 @@ import java.util.Date;
  * JWT 令牌服务，提供多种场景下的令牌生成与验证能力。
  *
  * 设计要点：
- * - 支持四种不同用途的令牌：普通令牌、注册理由令牌、密码重置令牌、邀请令牌。
+ * - 支持四种不同用途的令牌（{@link TokenType}）：普通令牌、注册理由令牌、密码重置令牌、邀请令牌。
  * - 每种令牌使用独立的密钥（secret），提高安全性。
  * - 密钥通过 SHA-256 哈希处理，确保符合 HMAC 算法要求。
  * - 所有令牌共享相同的过期时间配置。
+ * - 启动时为每种用途派生一次密钥并构建解析器（{@link KeyRing}，不可变、线程安全），签发与验证不再重复派生密钥、构建解析器。
+ * - 密钥轮换由配置驱动：每种用途可配置上一把密钥（{@code app.jwt.previous.*}），所有节点必须使用同一组密钥。
+ *   多节点分两步滚动发布，任一时刻各节点都能验证彼此签发的令牌：先把新密钥配置为上一把密钥（仅用于验证），
+ *   全部节点发布后再交换两者（新密钥签发、原密钥降为上一把）。密钥不经推送总线广播。
+ *   新令牌头部带密钥标识（kid）并用当前密钥签名；验证时按 kid 选择密钥，
+ *   无 kid 的旧令牌先用当前密钥验证，签名不符再用上一把密钥验证。
+ * - 验证结果缓存（{@link VerifiedTokenCache}，{@code app.jwt.cache.*}）：同一令牌再次验证只做一次摘要与查表；
+ *   命中后仍经 {@link TokenRevocationCheck} 检查吊销，密钥轮换时清空对应用途的缓存。
+ * - 每个令牌带唯一 ID（jti），可单独吊销，见 {@link TokenRevocationService}；另带微秒级签发时间（{@code iat_us}），
+ *   取自本机单调递增的签发时钟，按时间吊销时吊销之后签发的令牌不受影响（标准 {@code iat} 只精确到秒）。
  */
 @Service
 public class JwtService {
+    /** 令牌用途 */
+    public enum TokenType {
+        ACCESS,  // 普通令牌
+        REASON,  // 注册理由令牌
+        RESET,   // 密码重置令牌
+        INVITE   // 邀请令牌
+    }
+
+    /**
+     * 验证通过的令牌（时间均为毫秒，无过期时间时为 {@link Long#MAX_VALUE}）。
+     * {@code id} 为令牌 ID（jti），旧令牌没有时为 {@code null}；
+     * {@code issuedAtMicros} 为微秒级签发时间，旧令牌没有时由秒级 {@code iat} 换算。
+     */
+    public record VerifiedToken(String subject, long issuedAt, long expiresAt, String id, long issuedAtMicros) {
+    }
+
+    /** 微秒级签发时间的声明名 */
+    static final String ISSUED_AT_MICROS = "iat_us";
+    /** 本机签发时钟（微秒），严格递增 */
+    private static final AtomicLong ISSUE_CLOCK = new AtomicLong();
+
     /** 普通令牌密钥（从配置文件读取） */
     @Value("${app.jwt.secret}")
     private String secret;
@@ -42,10 +92,128 @@ public class JwtService {
     @Value("${app.jwt.invite-secret}")
     private String inviteSecret;
 
+    /** 轮换前的各用途密钥（可选，为空表示没有上一把密钥） */
+    @Value("${app.jwt.previous.secret:}")
+    private String previousSecret;
+
+    @Value("${app.jwt.previous.reason-secret:}")
+    private String previousReasonSecret;
+
+    @Value("${app.jwt.previous.reset-secret:}")
+    private String previousResetSecret;
+
+    @Value("${app.jwt.previous.invite-secret:}")
+    private String previousInviteSecret;
+
     /** 令牌过期时间（毫秒，从配置文件读取） */
     @Value("${app.jwt.expiration}")
     private long expiration;
 
+    /** 是否缓存验证结果 */
+    @Value("${app.jwt.cache.enabled:true}")
+    private boolean cacheEnabled = true;
+
+    /** 验证结果缓存的最大条目数 */
+    @Value("${app.jwt.cache.max-entries:100000}")
+    private int cacheMaxEntries = 100_000;
+
+    /** 验证结果最长缓存时间（毫秒），早于令牌过期时以此为准 */
+    @Value("${app.jwt.cache.ttl-ms:600000}")
+    private long cacheTtlMillis = 600_000;
+
+    private VerifiedTokenCache cache;
+
+    private TokenRevocationCheck revocationCheck;
+
+    /** 各用途的密钥环，轮换时整体替换 */
+    private volatile Map<TokenType, KeyRing> rings;
+
+    /** JSON 序列化器只查找一次（否则每次签发都会经 ServiceLoader 查找） */
+    private Serializer<Map<String, ?>> serializer;
+
+    /**
+     * 一种用途的签名密钥与解析器，创建后不可变，可被任意线程共享。
+     */
+    private static final class KeyRing {
+        final SecretKey current;
+        final String currentId;
+        final SecretKey previous;
+        final String previousId;
+        /** 按 kid 选择密钥的解析器 */
+        final JwtParser parser;
+        /** 只用上一把密钥的解析器，用于无 kid 的旧令牌 */
+        final JwtParser previousParser;
+
+        KeyRing(SecretKey current, SecretKey previous) {
+            this.current = current;
+            this.currentId = keyId(current);
+            this.previous = previous;
+            this.previousId = previous == null ? null : keyId(previous);
+            this.parser = Jwts.parserBuilder()
+                    .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                        // jjwt 0.11 的适配器以原始类型 JwsHeader 声明该方法，写成 JwsHeader<?> 无法覆盖（擦除后同名冲突）
+                        @Override
+                        @SuppressWarnings("rawtypes")
+                        public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                            String kid = header.getKeyId();
+                            return kid != null && kid.equals(KeyRing.this.previousId) ? KeyRing.this.previous : KeyRing.this.current;
+                        }
+                    })
+                    .build();
+            this.previousParser = previous == null ? null : Jwts.parserBuilder().setSigningKey(previous).build();
+        }
+
+        Claims parse(String token) {
+            try {
+                return parser.parseClaimsJws(token).getBody();
+            } catch (SignatureException e) {
+                if (previousParser == null) {
+                    throw e;
+                }
+                return previousParser.parseClaimsJws(token).getBody();
+            }
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        @SuppressWarnings("unchecked")
+        Serializer<Map<String, ?>> found = ServiceLoader.load(Serializer.class).findFirst().orElse(null);
+        serializer = found;
+        Map<TokenType, KeyRing> built = new EnumMap<>(TokenType.class);
+        built.put(TokenType.ACCESS, ring(secret, previousSecret));
+        built.put(TokenType.REASON, ring(reasonSecret, previousReasonSecret));
+        built.put(TokenType.RESET, ring(resetSecret, previousResetSecret));
+        built.put(TokenType.INVITE, ring(inviteSecret, previousInviteSecret));
+        rings = built;
+        cache = new VerifiedTokenCache(cacheMaxEntries, cacheTtlMillis);
+    }
+
+    @Autowired(required = false)
+    public void setRevocationCheck(TokenRevocationCheck revocationCheck) {
+        this.revocationCheck = revocationCheck;
+    }
+
+    /**
+     * 在本机轮换某一用途的密钥：新密钥用于签发，原当前密钥降为上一把密钥，仍可验证未过期的令牌。
+     * 只影响本节点，仅供测试；线上轮换按类注释经配置在所有节点上进行。
+     *
+     * @param type      令牌用途
+     * @param newSecret 新的原始密钥字符串
+     */
+    synchronized void rotate(TokenType type, String newSecret) {
+        Map<TokenType, KeyRing> next = new EnumMap<>(rings);
+        next.put(type, new KeyRing(getSigningKeyForSecret(newSecret), rings.get(type).current));
+        rings = next;
+        cache.clear(type);
+    }
+
+    private KeyRing ring(String currentSecret, String previousSecret) {
+        SecretKey previous = previousSecret == null || previousSecret.isBlank() || previousSecret.equals(currentSecret)
+                ? null : getSigningKeyForSecret(previousSecret);
+        return new KeyRing(getSigningKeyForSecret(currentSecret), previous);
+    }
+
     /**
      * 根据提供的密钥字符串生成 HMAC 签名密钥。
      * 使用 SHA-256 对密钥进行哈希处理，确保密钥长度符合 HMAC 要求。
@@ -54,16 +222,110 @@ public class JwtService {
      * @return HMAC 签名密钥
      * @throws IllegalStateException 当 SHA-256 算法不可用时
      */
-    private Key getSigningKeyForSecret(String signSecret) {
+    private static SecretKey getSigningKeyForSecret(String signSecret) {
+        return Keys.hmacShaKeyFor(sha256(signSecret.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /** 密钥标识：派生密钥再做一次 SHA-256 取前 6 字节，不泄露密钥本身 */
+    private static String keyId(SecretKey key) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(sha256(key.getEncoded()), 6));
+    }
+
+    /** 令牌 ID：128 位随机数（令牌已签名，无需不可预测，只需全局唯一） */
+    private static String tokenId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        byte[] bytes = ByteBuffer.allocate(16).putLong(random.nextLong()).putLong(random.nextLong()).array();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * 本机签发时钟的下一个时刻（微秒）：不早于当前时间，且严格大于此前返回的所有值。
+     * 签发与按时间吊销共用，先吊销后签发的令牌一定晚于水位线。
+     */
+    static long nextIssueMicros() {
+        Instant now = Instant.now();
+        long micros = now.getEpochSecond() * 1_000_000 + now.getNano() / 1_000;
+        return ISSUE_CLOCK.accumulateAndGet(micros, (last, current) -> Math.max(last + 1, current));
+    }
+
+    private static byte[] sha256(byte[] input) {
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] keyBytes = digest.digest(signSecret.getBytes(StandardCharsets.UTF_8));
-            return Keys.hmacShaKeyFor(keyBytes);
+            return MessageDigest.getInstance("SHA-256").digest(input);
         } catch (NoSuchAlgorithmException e) {
             throw new IllegalStateException("SHA-256 algorithm not available", e);
         }
     }
 
+    /**
+     * 用指定用途的当前密钥签发令牌。
+     *
+     * @param type    令牌用途
+     * @param subject 令牌主题（通常是用户ID或用户名）
+     * @return JWT 令牌字符串
+     */
+    public String generate(TokenType type, String subject) {
+        KeyRing ring = rings.get(type);
+        long issuedAtMicros = nextIssueMicros();
+        Date now = new Date(issuedAtMicros / 1_000);
+        JwtBuilder builder = Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, ring.currentId)
+                .setId(tokenId())
+                .setSubject(subject)
+                .setIssuedAt(now)
+                .claim(ISSUED_AT_MICROS, issuedAtMicros)
+                .setExpiration(new Date(now.getTime() + expiration))
+                .signWith(ring.current);
+        if (serializer != null) {
+            builder.serializeToJsonWith(serializer);
+        }
+        return builder.compact();
+    }
+
+    /**
+     * 验证指定用途的令牌并返回其声明。
+     *
+     * @param type  令牌用途
+     * @param token JWT 令牌字符串
+     * @return 令牌声明
+     * @throws io.jsonwebtoken.JwtException 当令牌无效、过期或签名验证失败时
+     */
+    public Claims parse(TokenType type, String token) {
+        return rings.get(type).parse(token);
+    }
+
+    /**
+     * 验证指定用途的令牌，优先使用缓存的验证结果，并检查吊销。
+     *
+     * @param type  令牌用途
+     * @param token JWT 令牌字符串
+     * @return 验证通过的令牌
+     * @throws JwtException 当令牌无效、过期、签名验证失败或已吊销时
+     */
+    public VerifiedToken verify(TokenType type, String token) {
+        VerifiedToken verified = cacheEnabled ? cache.get(type, token) : null;
+        if (verified == null) {
+            Claims claims = parse(type, token);
+            long issuedAt = claims.getIssuedAt() == null ? 0 : claims.getIssuedAt().getTime();
+            Long issuedAtMicros = claims.get(ISSUED_AT_MICROS, Long.class);
+            verified = new VerifiedToken(claims.getSubject(), issuedAt,
+                    claims.getExpiration() == null ? Long.MAX_VALUE : claims.getExpiration().getTime(),
+                    claims.getId(), issuedAtMicros == null ? issuedAt * 1_000 : issuedAtMicros);
+            if (cacheEnabled) {
+                cache.put(type, token, verified);
+            }
+        }
+        if (revocationCheck != null && revocationCheck.isRevoked(type, verified)) {
+            cache.invalidate(type, token);
+            throw new JwtException("Token revoked");
+        }
+        return verified;
+    }
+
+    /** 验证结果缓存，用于主动失效与读取指标 */
+    public VerifiedTokenCache cache() {
+        return cache;
+    }
+
     /**
      * 生成普通用途的 JWT 令牌。
      * 用于常规的身份认证场景。
@@ -72,14 +334,7 @@ public class JwtService {
      * @return JWT 令牌字符串
      */
     public String generateToken(String subject) {
-        Date now = new Date();
-        Date expiryDate = new Date(now.getTime() + expiration);
-        return Jwts.builder()
-                .setSubject(subject)
-                .setIssuedAt(now)
-                .setExpiration(expiryDate)
-                .signWith(getSigningKeyForSecret(secret))
-                .compact();
+        return generate(TokenType.ACCESS, subject);
     }
 
     /**
@@ -90,14 +345,7 @@ public class JwtService {
      * @return JWT 令牌字符串
      */
     public String generateReasonToken(String subject) {
-        Date now = new Date();
-        Date expiryDate = new Date(now.getTime() + expiration);
-        return Jwts.builder()
-                .setSubject(subject)
-                .setIssuedAt(now)
-                .setExpiration(expiryDate)
-                .signWith(getSigningKeyForSecret(reasonSecret))
-                .compact();
+        return generate(TokenType.REASON, subject);
     }
 
     /**
@@ -108,14 +356,7 @@ public class JwtService {
      * @return JWT 令牌字符串
      */
     public String generateResetToken(String subject) {
-        Date now = new Date();
-        Date expiryDate = new Date(now.getTime() + expiration);
-        return Jwts.builder()
-                .setSubject(subject)
-                .setIssuedAt(now)
-                .setExpiration(expiryDate)
-                .signWith(getSigningKeyForSecret(resetSecret))
-                .compact();
+        return generate(TokenType.RESET, subject);
     }
 
     /**
@@ -126,14 +367,7 @@ public class JwtService {
      * @return JWT 令牌字符串
      */
     public String generateInviteToken(String subject) {
-        Date now = new Date();
-        Date expiryDate = new Date(now.getTime() + expiration);
-        return Jwts.builder()
-                .setSubject(subject)
-                .setIssuedAt(now)
-                .setExpiration(expiryDate)
-                .signWith(getSigningKeyForSecret(inviteSecret))
-                .compact();
+        return generate(TokenType.INVITE, subject);
     }
 
     /**
@@ -145,12 +379,7 @@ public class JwtService {
      * @throws io.jsonwebtoken.JwtException 当令牌无效、过期或签名验证失败时
      */
     public String validateAndGetSubject(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKeyForSecret(secret))
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return claims.getSubject();
+        return verify(TokenType.ACCESS, token).subject();
     }
 
     /**
@@ -161,12 +390,7 @@ public class JwtService {
      * @throws io.jsonwebtoken.JwtException 当令牌无效、过期或签名验证失败时
      */
     public String validateAndGetSubjectForReason(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKeyForSecret(reasonSecret))
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return claims.getSubject();
+        return verify(TokenType.REASON, token).subject();
     }
 
     /**
@@ -177,12 +401,7 @@ public class JwtService {
      * @throws io.jsonwebtoken.JwtException 当令牌无效、过期或签名验证失败时
      */
     public String validateAndGetSubjectForReset(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKeyForSecret(resetSecret))
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return claims.getSubject();
+        return verify(TokenType.RESET, token).subject();
     }
 
     /**
@@ -193,11 +412,6 @@ public class JwtService {
      * @throws io.jsonwebtoken.JwtException 当令牌无效、过期或签名验证失败时
      */
     public String validateAndGetSubjectForInvite(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKeyForSecret(inviteSecret))
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return claims.getSubject();
+        return verify(TokenType.INVITE, token).subject();
     }
 }
@@ -0,0 +1,53 @@
+package com.openisle.service;
+
+import com.openisle.model.Comment;
+import com.openisle.model.Reaction;
+import com.openisle.model.ReactionTargetType;
+import com.openisle.model.ReactionType;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * LikeLeaderboardListener
+ *
+ * 点赞新增/撤销与评论删除的实体监听器，变更在事务提交后应用到 {@link LikeLeaderboardService} 的排行。
+ */
+@Component
+@RequiredArgsConstructor
+public class LikeLeaderboardListener {
+    private final ObjectProvider<LikeLeaderboardService> likeLeaderboardService;
+
+    @PostPersist
+    public void onPersist(Object entity) {
+        if (entity instanceof Reaction reaction) {
+            likeChanged(reaction, 1);
+        }
+    }
+
+    @PostRemove
+    public void onRemove(Object entity) {
+        if (entity instanceof Reaction reaction) {
+            likeChanged(reaction, -1);
+        } else if (entity instanceof Comment comment) {
+            likeLeaderboardService.ifAvailable(s -> s.commentRemoved(comment.getAuthor().getId()));
+        }
+    }
+
+    private void likeChanged(Reaction reaction, int delta) {
+        if (reaction.getType() != ReactionType.LIKE) {
+            return;
+        }
+        LikeLeaderboardService service = likeLeaderboardService.getIfAvailable();
+        if (service == null) {
+            return;
+        }
+        if (reaction.getPost() != null) {
+            service.likeChanged(ReactionTargetType.POST, reaction.getPost().getId(), delta);
+        } else if (reaction.getComment() != null) {
+            service.likeChanged(ReactionTargetType.COMMENT, reaction.getComment().getId(), delta);
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.openisle.service;
+
+import com.openisle.model.ReactionTargetType;
+import com.openisle.repository.ReactionRepository;
+import com.openisle.push.PushBus;
+import com.openisle.push.PushEvent;
+import com.openisle.push.PushService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * LikeLeaderboardService
+ *
+ * 个人主页“最受欢迎的帖子/评论”排行，替代每次浏览都对作者全部点赞执行
+ * {@code GROUP BY ... ORDER BY COUNT(r.id)} 的 {@code findTopPostIds}/{@code findTopCommentIds}。
+ *
+ * 设计要点：
+ * - 每个作者、每类内容一个有界排行（最多 {@value #CAPACITY} 项），按（点赞数降序, ID 降序）有序，
+ *   读取前 N 项为 O(N)；排序规则与 SQL 路径 {@code findTopLikedPostsByAuthorId} 完全一致。
+ * - 冷启动或排行失效时回退到 SQL，并用结果建立排行；{@code floor} 记录未收录项点赞数的上界，
+ *   前 N 项中出现不高于 {@code floor} 的项时无法保证正确，改走 SQL 重建。新增项超出容量时淘汰末位并抬高 {@code floor}。
+ * - 点赞新增/撤销在事务提交后应用；事务进行中或建立期间发生变更的作者不缓存 SQL 结果，避免重复计入。
+ * - 多节点：变更经 {@link PushService} 广播 {@link PushEvent.Kind#LEADERBOARD}，其他节点丢弃该作者的排行，下次读取时重建；
+ *   排行建立 {@code app.leaderboard.ttl-ms} 后过期重建，作为漏掉事件时的兜底。
+ * - 最多缓存 {@value #MAX_AUTHORS} 个作者，按最近访问淘汰。
+ */
+@Service
+@RequiredArgsConstructor
+public class LikeLeaderboardService {
+    /** 每个排行最多收录的项数；请求的 N 超过该值时直接走 SQL */
+    static final int CAPACITY = 100;
+    static final int MAX_AUTHORS = 10_000;
+
+    private final ReactionRepository reactionRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectProvider<PushService> pushService;
+    private final ObjectProvider<PushBus> pushBus;
+
+    @Value("${app.leaderboard.ttl-ms:600000}")
+    private long ttlMillis = 600_000;
+
+    /** 本节点标识，收到自己发布的失效事件时忽略（本机已增量应用） */
+    private final long nodeId = ThreadLocalRandom.current().nextLong();
+
+    private final Map<Long, AuthorState> authors = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, AuthorState> eldest) {
+            return size() > MAX_AUTHORS && eldest.getValue().inFlight == 0;
+        }
+    };
+
+    /** 单个作者的排行与变更状态，受服务锁保护 */
+    private static final class AuthorState {
+        /** 已登记、尚未完成的变更数 */
+        int inFlight;
+        /** 变更序号，用于判断 SQL 读取期间是否有变更 */
+        long seq;
+        Board posts;
+        Board comments;
+    }
+
+    /** 有界排行 */
+    static final class Board {
+        private static final Comparator<long[]> ORDER = Comparator
+                .comparingLong((long[] e) -> e[1]).reversed()
+                .thenComparing(Comparator.comparingLong((long[] e) -> e[0]).reversed());
+
+        /** 内容 ID → [ID, 点赞数] */
+        private final Map<Long, long[]> entries = new HashMap<>();
+        private final TreeSet<long[]> ranking = new TreeSet<>(ORDER);
+        private final int capacity;
+        /** 过期时间（毫秒） */
+        private final long expiresAt;
+        /** 未收录项的点赞数上界 */
+        private long floor;
+
+        Board(List<Object[]> rows, int capacity, long expiresAt) {
+            this.capacity = capacity;
+            this.expiresAt = expiresAt;
+            for (Object[] row : rows) {
+                long[] entry = {((Number) row[0]).longValue(), ((Number) row[1]).longValue()};
+                entries.put(entry[0], entry);
+                ranking.add(entry);
+            }
+            floor = rows.size() < capacity ? 0 : ranking.last()[1];
+        }
+
+        /**
+         * 应用一次点赞变更。
+         *
+         * @return 排行是否仍然可信；返回 {@code false} 时应丢弃
+         */
+        boolean apply(long targetId, int delta) {
+            long[] entry = entries.get(targetId);
+            if (entry == null) {
+                if (delta < 0) {
+                    return true; // 未收录项本就不高于 floor
+                }
+                if (floor > 0) {
+                    return false; // 未收录项原值未知
+                }
+                entry = new long[]{targetId, 0};
+                entries.put(targetId, entry);
+            } else {
+                ranking.remove(entry);
+            }
+            entry[1] += delta;
+            if (entry[1] > 0) {
+                ranking.add(entry);
+            } else {
+                entries.remove(targetId);
+            }
+            if (ranking.size() > capacity) {
+                long[] last = ranking.pollLast();
+                entries.remove(last[0]);
+                floor = Math.max(floor, last[1]);
+            }
+            return true;
+        }
+
+        int size() {
+            return ranking.size();
+        }
+
+        boolean expired(long now) {
+            return now >= expiresAt;
+        }
+
+        /** 前 N 项；无法保证正确时返回 {@code null} */
+        List<Long> top(int n) {
+            List<Long> ids = new ArrayList<>(Math.min(n, ranking.size()));
+            Iterator<long[]> it = ranking.iterator();
+            while (ids.size() < n && it.hasNext()) {
+                long[] entry = it.next();
+                if (floor > 0 && entry[1] <= floor) {
+                    return null;
+                }
+                ids.add(entry[0]);
+            }
+            if (ids.size() < n && floor > 0) {
+                return null;
+            }
+            return ids;
+        }
+    }
+
+    /**
+     * 作者点赞数最多的帖子。
+     *
+     * @param authorId 作者 ID
+     * @param n        条数
+     * @return 帖子 ID（点赞数降序，同票时 ID 降序）
+     */
+    public List<Long> topPostIds(long authorId, int n) {
+        return top(ReactionTargetType.POST, authorId, n);
+    }
+
+    /**
+     * 作者点赞数最多的评论。
+     *
+     * @param authorId 作者 ID
+     * @param n        条数
+     * @return 评论 ID（点赞数降序，同票时 ID 降序）
+     */
+    public List<Long> topCommentIds(long authorId, int n) {
+        return top(ReactionTargetType.COMMENT, authorId, n);
+    }
+
+    /**
+     * 登记一次点赞变更，事务提交后应用到排行；无事务时立即应用。
+     *
+     * @param targetType 内容类型（帖子或评论）
+     * @param targetId   内容 ID
+     * @param delta      +1 点赞，-1 取消
+     */
+    public void likeChanged(ReactionTargetType targetType, long targetId, int delta) {
+        Long authorId = authorId(targetType, targetId);
+        if (authorId == null) {
+            return;
+        }
+        afterCompletion(authorId, state -> {
+            Board board = board(state, targetType);
+            if (board != null && !board.apply(targetId, delta)) {
+                setBoard(state, targetType, null);
+            }
+        });
+    }
+
+    /** 评论被删除：事务提交后丢弃作者的评论排行，下次读取时从 SQL 重建 */
+    public void commentRemoved(long authorId) {
+        afterCompletion(authorId, state -> state.comments = null);
+    }
+
+    /** 仅丢弃本机缓存的作者排行；进行中的 SQL 读取结果不再缓存 */
+    public synchronized void invalidate(long authorId) {
+        AuthorState state = authors.get(authorId);
+        if (state != null) {
+            state.posts = null;
+            state.comments = null;
+            state.seq++;
+        }
+    }
+
+    @PostConstruct
+    void subscribe() {
+        pushBus.ifAvailable(bus -> bus.subscribe(event -> {
+            if (event.getKind() == PushEvent.Kind.LEADERBOARD && !Long.valueOf(nodeId).equals(event.getOriginNode())) {
+                invalidate(event.getTargetId());
+            }
+        }));
+    }
+
+    /** SQL 路径：排序规则与排行一致 */
+    List<Object[]> sqlTop(ReactionTargetType targetType, long authorId, int n) {
+        PageRequest page = PageRequest.of(0, n);
+        return targetType == ReactionTargetType.POST
+                ? reactionRepository.findTopLikedPostsByAuthorId(authorId, page)
+                : reactionRepository.findTopLikedCommentsByAuthorId(authorId, page);
+    }
+
+    /** 作者的排行当前是否已缓存 */
+    synchronized boolean cached(ReactionTargetType targetType, long authorId) {
+        AuthorState state = authors.get(authorId);
+        return state != null && board(state, targetType) != null;
+    }
+
+    private List<Long> top(ReactionTargetType targetType, long authorId, int n) {
+        if (n <= 0) {
+            return List.of();
+        }
+        if (n > CAPACITY) {
+            return ids(sqlTop(targetType, authorId, n));
+        }
+        long seq;
+        synchronized (this) {
+            AuthorState state = authors.computeIfAbsent(authorId, k -> new AuthorState());
+            Board board = board(state, targetType);
+            if (board != null && board.expired(System.currentTimeMillis())) {
+                setBoard(state, targetType, null);
+                board = null;
+            }
+            if (board != null) {
+                List<Long> ids = board.top(n);
+                if (ids != null) {
+                    return ids;
+                }
+                setBoard(state, targetType, null);
+            }
+            seq = state.inFlight == 0 ? state.seq : -1;
+        }
+        List<Object[]> rows = sqlTop(targetType, authorId, CAPACITY);
+        Board board = new Board(rows, CAPACITY, System.currentTimeMillis() + ttlMillis);
+        synchronized (this) {
+            AuthorState state = authors.get(authorId);
+            if (seq >= 0 && state != null && state.seq == seq && state.inFlight == 0) {
+                setBoard(state, targetType, board);
+            }
+        }
+        List<Long> ids = ids(rows);
+        return ids.size() > n ? new ArrayList<>(ids.subList(0, n)) : ids;
+    }
+
+    /** 登记变更；事务提交后在服务锁内执行 {@code change}，回滚时只结束登记 */
+    private void afterCompletion(long authorId, Consumer<AuthorState> change) {
+        synchronized (this) {
+            AuthorState state = authors.computeIfAbsent(authorId, k -> new AuthorState());
+            state.inFlight++;
+            state.seq++;
+        }
+        pushService.ifAvailable(s -> s.leaderboardChanged(authorId, nodeId));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    complete(authorId, status == STATUS_COMMITTED ? change : null);
+                }
+            });
+        } else {
+            complete(authorId, change);
+        }
+    }
+
+    private synchronized void complete(long authorId, Consumer<AuthorState> change) {
+        AuthorState state = authors.get(authorId);
+        if (state == null) {
+            return;
+        }
+        state.inFlight--;
+        state.seq++;
+        if (change != null) {
+            change.accept(state);
+        }
+    }
+
+    private Long authorId(ReactionTargetType targetType, long targetId) {
+        String table = targetType == ReactionTargetType.POST ? "posts" : "comments";
+        List<Long> ids = jdbcTemplate.queryForList("SELECT author_id FROM " + table + " WHERE id = ?", Long.class, targetId);
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    private static Board board(AuthorState state, ReactionTargetType targetType) {
+        return targetType == ReactionTargetType.POST ? state.posts : state.comments;
+    }
+
+    private static void setBoard(AuthorState state, ReactionTargetType targetType, Board board) {
+        if (targetType == ReactionTargetType.POST) {
+            state.posts = board;
+        } else {
+            state.comments = board;
+        }
+    }
+
+    private static List<Long> ids(List<Object[]> rows) {
+        List<Long> ids = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            ids.add(((Number) row[0]).longValue());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,58 @@
+package com.openisle.service;
+
+import com.openisle.model.Message;
+import com.openisle.model.MessageParticipant;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * MessageUnreadListener
+ *
+ * 消息与会话参与者的实体监听器：在同一事务内维护会话未读数，见 {@link MessageUnreadService}。
+ * 只有 {@code lastReadAt} 实际变化的参与者更新才视为已读。
+ */
+@Component
+@RequiredArgsConstructor
+public class MessageUnreadListener {
+    private final ObjectProvider<MessageUnreadService> unreadService;
+
+    @PostLoad
+    public void onLoad(Object entity) {
+        if (entity instanceof MessageParticipant participant) {
+            participant.setStoredLastReadAt(participant.getLastReadAt());
+        }
+    }
+
+    @PostPersist
+    public void onPersist(Object entity) {
+        if (entity instanceof Message message) {
+            MessageUnreadService service = unreadService.getIfAvailable();
+            if (service != null) {
+                service.messageSent(message.getConversation().getId(), message.getSender().getId());
+            }
+        } else if (entity instanceof MessageParticipant participant) {
+            participant.setStoredLastReadAt(participant.getLastReadAt());
+        }
+    }
+
+    @PostUpdate
+    public void onUpdate(Object entity) {
+        if (!(entity instanceof MessageParticipant participant)
+                || participant.getLastReadAt() == null
+                || Objects.equals(participant.getLastReadAt(), participant.getStoredLastReadAt())) {
+            return;
+        }
+        participant.setStoredLastReadAt(participant.getLastReadAt());
+        MessageUnreadService service = unreadService.getIfAvailable();
+        if (service != null) {
+            service.conversationRead(participant.getConversation().getId(), participant.getUser().getId(),
+                    participant.getLastReadAt());
+        }
+    }
+}
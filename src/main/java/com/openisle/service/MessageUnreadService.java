@@ -0,0 +1,164 @@
+package com.openisle.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MessageUnreadService
+ *
+ * 维护每个参与者在会话内的未读消息数 {@code message_participants.unread_count}，取代逐会话
+ * {@code countByConversationIdAndCreatedAtAfterAndSenderIdNot} 的范围计数。
+ *
+ * 设计要点：
+ * - 发送：一条 UPDATE 为会话内发送者以外的全部参与者 +1（频道同样只有一条语句）。
+ * - 已读：更新 {@code lastReadAt} 时，在已锁定的参与者行上按 {@code (conversation_id, created_at)} 索引
+ *   统计读取时间之后的他人消息并写回，通常为 0 行范围。发送方先插入消息再加锁递增，
+ *   因此已提交的递增一定被统计到，未提交的递增在已读提交后再叠加，计数只会偏多、不会漏记。
+ * - 读取：某用户全部会话的未读数为一条按 {@code user_id} 的查询。
+ * - 均由 {@link MessageUnreadListener} 在写入的同一事务内触发；{@link #rebuild()} 按会话分段全量重算。
+ * - 迁移：新增列的默认值为 0，启动时默认执行一次重算（{@code app.messages.unread.rebuild-on-startup}），
+ *   只改写与实际不符的行；经 {@link JobLockService#runOnce} 在整个集群只由一个节点执行一次，之后的重启不再重算。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MessageUnreadService {
+    /** 重算时每段的会话 ID 跨度 */
+    static final int REBUILD_CHUNK = 500;
+    /** 启动重算的租约名与完成标记 */
+    static final String REBUILD_JOB = "message-unread-rebuild";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final JobLockService jobLockService;
+
+    @Value("${app.messages.unread.rebuild-on-startup:true}")
+    private boolean rebuildOnStartup;
+
+    @Value("${app.messages.unread.rebuild-lease-minutes:60}")
+    private long rebuildLeaseMinutes;
+
+    /** 新消息：会话内除发送者外的参与者未读数 +1 */
+    public void messageSent(long conversationId, long senderId) {
+        jdbcTemplate.update("UPDATE message_participants SET unread_count = unread_count + 1 WHERE conversation_id = ? AND user_id <> ?",
+                conversationId, senderId);
+    }
+
+    /** 参与者已读到 {@code readAt}：按剩余的他人消息重新统计 */
+    public void conversationRead(long conversationId, long userId, LocalDateTime readAt) {
+        jdbcTemplate.queryForList("SELECT id FROM message_participants WHERE conversation_id = ? AND user_id = ? FOR UPDATE",
+                Long.class, conversationId, userId);
+        Long remaining = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM messages WHERE conversation_id = ? AND created_at > ? " +
+                "AND sender_id <> ?", Long.class, conversationId, Timestamp.valueOf(readAt), userId);
+        jdbcTemplate.update("UPDATE message_participants SET unread_count = ? WHERE conversation_id = ? AND user_id = ?",
+                remaining == null ? 0 : remaining, conversationId, userId);
+    }
+
+    /**
+     * 用户在全部会话中的未读数，一条查询。
+     *
+     * @return 会话 ID → 未读数，只包含未读数大于 0 的会话
+     */
+    public Map<Long, Long> unreadCounts(long userId) {
+        Map<Long, Long> counts = new HashMap<>();
+        jdbcTemplate.query("SELECT conversation_id, unread_count FROM message_participants WHERE user_id = ? AND unread_count > 0",
+                rs -> {
+                    counts.put(rs.getLong(1), rs.getLong(2));
+                }, userId);
+        return counts;
+    }
+
+    /** 用户在指定会话中的未读数，一条查询 */
+    public Map<Long, Long> unreadCounts(long userId, Collection<Long> conversationIds) {
+        Map<Long, Long> counts = new HashMap<>();
+        if (conversationIds.isEmpty()) {
+            return counts;
+        }
+        List<Object> args = new ArrayList<>(conversationIds.size() + 1);
+        args.add(userId);
+        StringBuilder sql = new StringBuilder("SELECT conversation_id, unread_count FROM message_participants " +
+                "WHERE user_id = ? AND unread_count > 0 AND conversation_id IN (");
+        for (Long id : conversationIds) {
+            sql.append(args.size() == 1 ? "?" : ", ?");
+            args.add(id);
+        }
+        jdbcTemplate.query(sql.append(')').toString(), rs -> {
+            counts.put(rs.getLong(1), rs.getLong(2));
+        }, args.toArray());
+        return counts;
+    }
+
+    /** 用户全部会话的未读总数 */
+    public long totalUnread(long userId) {
+        Long total = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(unread_count), 0) FROM message_participants WHERE user_id = ?",
+                Long.class, userId);
+        return total == null ? 0 : total;
+    }
+
+    /** 启动时重算（{@code app.messages.unread.rebuild-on-startup}），已完成过或其他节点正在执行时跳过 */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (!rebuildOnStartup) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                jobLockService.runOnce(REBUILD_JOB, Duration.ofMinutes(rebuildLeaseMinutes), this::rebuild);
+            } catch (RuntimeException e) {
+                log.error("Message unread count rebuild failed", e);
+            }
+        }, "message-unread-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 全量重算：按会话 ID 分段，每段一个事务，先锁定参与者行再统计。
+     *
+     * @return 被修正的参与者记录数
+     */
+    public long rebuild() {
+        long start = System.currentTimeMillis();
+        Long minId = jdbcTemplate.queryForObject("SELECT MIN(conversation_id) FROM message_participants", Long.class);
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(conversation_id) FROM message_participants", Long.class);
+        if (minId == null) {
+            return 0;
+        }
+        long updated = 0;
+        for (long lo = minId; lo <= maxId; lo += REBUILD_CHUNK) {
+            long from = lo;
+            long to = Math.min(lo + REBUILD_CHUNK - 1, maxId);
+            Integer count = transactionTemplate.execute(status -> rebuildRange(from, to));
+            updated += count == null ? 0 : count;
+        }
+        log.info("Message unread counts rebuilt: {} participants corrected in {} ms", updated, System.currentTimeMillis() - start);
+        return updated;
+    }
+
+    private int rebuildRange(long fromConversationId, long toConversationId) {
+        jdbcTemplate.queryForList("SELECT id FROM message_participants WHERE conversation_id BETWEEN ? AND ? FOR UPDATE",
+                Long.class, fromConversationId, toConversationId);
+        return jdbcTemplate.update("UPDATE message_participants p SET unread_count = " +
+                        "(SELECT COUNT(*) FROM messages m WHERE m.conversation_id = p.conversation_id AND m.sender_id <> p.user_id " +
+                        "AND (p.last_read_at IS NULL OR m.created_at > p.last_read_at)) " +
+                        "WHERE p.conversation_id BETWEEN ? AND ? AND unread_count <> " +
+                        "(SELECT COUNT(*) FROM messages m WHERE m.conversation_id = p.conversation_id AND m.sender_id <> p.user_id " +
+                        "AND (p.last_read_at IS NULL OR m.created_at > p.last_read_at))",
+                fromConversationId, toConversationId);
+    }
+}
@@ -0,0 +1,116 @@
+package com.openisle.service;
+
+import com.openisle.dto.CursorPage;
+import com.openisle.dto.FeedCursor;
+import com.openisle.dto.PostFeedFilter;
+import com.openisle.dto.PostSummary;
+import com.openisle.exception.FieldException;
+import com.openisle.model.Post;
+import com.openisle.model.PostSort;
+import com.openisle.repository.PostRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * PostFeedService
+ *
+ * 帖子信息流服务，基于 {@link PostFeedFilter} 与游标（keyset）分页返回帖子列表。
+ *
+ * 设计要点：
+ * - 第一阶段只查询 id 与排序键，第二阶段按 id 批量加载当前页；
+ *   列表渲染应优先使用 {@link #feedSummaries}，以固定条数的查询加载不含正文的投影。
+ * - {@link PostSort#LATEST}: 先翻置顶段 (pinnedAt, createdAt, id)，置顶段耗尽后在同一页内
+ *   接续普通段 (createdAt, id)，保证分页边界跨段时不重不漏。
+ * - {@link PostSort#MOST_VIEWED}: 单段 (views, id)。
+ * - 每段多取一条用于判断是否还有下一页，不执行 COUNT。
+ */
+@Service
+@RequiredArgsConstructor
+public class PostFeedService {
+    /** 单页最大条数，防止客户端传入过大的 size */
+    static final int MAX_PAGE_SIZE = 100;
+
+    private final PostRepository postRepository;
+    private final PostSummaryService postSummaryService;
+
+    /**
+     * 按游标查询一页帖子。
+     *
+     * @param filter 筛选条件
+     * @param cursor 上一页返回的续传令牌（首页传 {@code null}）
+     * @param size   每页条数
+     * @return 当前页帖子与下一页令牌
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Post> feed(PostFeedFilter filter, String cursor, int size) {
+        CursorPage<FeedCursor> keys = feedKeys(filter, cursor, size);
+        List<Long> ids = keys.getItems().stream().map(FeedCursor::getId).toList();
+        Map<Long, Post> byId = postRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Post::getId, Function.identity()));
+        List<Post> posts = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Post post = byId.get(id);
+            if (post != null) {
+                posts.add(post);
+            }
+        }
+        return new CursorPage<>(posts, keys.getNextCursor());
+    }
+
+    /**
+     * 按游标查询一页帖子的列表投影（不含正文），用于信息流渲染。
+     * 除第一阶段的 ID 查询外，整页固定最多 4 条 SQL，与页大小无关。
+     *
+     * @param filter 筛选条件
+     * @param cursor 上一页返回的续传令牌（首页传 {@code null}）
+     * @param size   每页条数
+     * @return 当前页帖子摘要与下一页令牌
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<PostSummary> feedSummaries(PostFeedFilter filter, String cursor, int size) {
+        CursorPage<FeedCursor> keys = feedKeys(filter, cursor, size);
+        List<Long> ids = keys.getItems().stream().map(FeedCursor::getId).toList();
+        return new CursorPage<>(postSummaryService.load(ids), keys.getNextCursor());
+    }
+
+    /**
+     * 按游标查询一页帖子的 id 与排序键（第一阶段），供不同的加载方式复用。
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<FeedCursor> feedKeys(PostFeedFilter filter, String cursor, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        FeedCursor after = FeedCursor.decode(cursor);
+        boolean byViews = filter.getSort() == PostSort.MOST_VIEWED;
+        if (after != null && (after.getKind() == FeedCursor.Kind.VIEWS) != byViews) {
+            throw new FieldException("cursor", "Cursor does not match sort");
+        }
+
+        List<FeedCursor> keys = new ArrayList<>(limit + 1);
+        if (byViews) {
+            keys.addAll(postRepository.findFeedKeys(filter, FeedCursor.Kind.VIEWS, after, limit + 1));
+        } else {
+            FeedCursor latestAfter = after;
+            if (after == null || after.getKind() == FeedCursor.Kind.PINNED) {
+                keys.addAll(postRepository.findFeedKeys(filter, FeedCursor.Kind.PINNED, after, limit + 1));
+                latestAfter = null; // 置顶段未翻完时不会进入普通段；翻完后普通段从头开始
+            }
+            if (keys.size() <= limit) {
+                keys.addAll(postRepository.findFeedKeys(filter, FeedCursor.Kind.LATEST,
+                        latestAfter, limit + 1 - keys.size()));
+            }
+        }
+
+        if (keys.size() <= limit) {
+            return new CursorPage<>(keys, null);
+        }
+        List<FeedCursor> page = new ArrayList<>(keys.subList(0, limit));
+        return new CursorPage<>(page, page.get(limit - 1).encode());
+    }
+}
@@ -0,0 +1,95 @@
+package com.openisle.service;
+
+import com.openisle.dto.CategorySummary;
+import com.openisle.dto.PostSummary;
+import com.openisle.dto.TagSummary;
+import com.openisle.dto.UserSummary;
+import com.openisle.repository.CategoryRepository;
+import com.openisle.repository.PostRepository;
+import com.openisle.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * PostSummaryService
+ *
+ * 帖子列表的第二阶段加载：给定一页帖子 ID，以固定条数的查询组装列表投影。
+ *
+ * 查询次数与页大小无关，最多 4 条：
+ * 1. 帖子标量字段（不含 LONGTEXT 正文，作者/分类只取外键）；
+ * 2. 作者摘要，按去重后的作者 ID 批量查询；
+ * 3. 分类摘要，按去重后的分类 ID 批量查询；
+ * 4. 标签，经 {@code post_tags} 一次联表取回整页帖子的标签。
+ *
+ * 取代逐条访问懒加载的 {@code author}/{@code category}/{@code tags} 产生的 N+1 查询。
+ */
+@Service
+@RequiredArgsConstructor
+public class PostSummaryService {
+    private final PostRepository postRepository;
+    private final UserRepository userRepository;
+    private final CategoryRepository categoryRepository;
+
+    /**
+     * 按 ID 加载帖子列表投影，结果顺序与传入的 ID 顺序一致；不存在的 ID 被跳过。
+     *
+     * @param ids 帖子 ID（通常为一页）
+     * @return 帖子摘要列表
+     */
+    @Transactional(readOnly = true)
+    public List<PostSummary> load(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, PostSummary> byId = new HashMap<>();
+        Set<Long> authorIds = new HashSet<>();
+        Set<Long> categoryIds = new HashSet<>();
+        for (PostSummary summary : postRepository.findSummariesByIdIn(ids)) {
+            byId.put(summary.getId(), summary);
+            authorIds.add(summary.getAuthorId());
+            categoryIds.add(summary.getCategoryId());
+        }
+        if (byId.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, UserSummary> authors = new HashMap<>();
+        for (UserSummary author : userRepository.findSummariesByIdIn(authorIds)) {
+            authors.put(author.getId(), author);
+        }
+        Map<Long, CategorySummary> categories = new HashMap<>();
+        for (CategorySummary category : categoryRepository.findSummariesByIdIn(categoryIds)) {
+            categories.put(category.getId(), category);
+        }
+        attachTags(byId, byId.keySet());
+
+        List<PostSummary> result = new ArrayList<>(byId.size());
+        for (Long id : ids) {
+            PostSummary summary = byId.get(id);
+            if (summary != null) {
+                summary.setAuthor(authors.get(summary.getAuthorId()));
+                summary.setCategory(categories.get(summary.getCategoryId()));
+                result.add(summary);
+            }
+        }
+        return result;
+    }
+
+    private void attachTags(Map<Long, PostSummary> byId, Collection<Long> postIds) {
+        for (Object[] row : postRepository.findTagRowsByPostIdIn(postIds)) {
+            PostSummary summary = byId.get((Long) row[0]);
+            if (summary != null) {
+                summary.getTags().add(new TagSummary((Long) row[1], (String) row[2], (String) row[3], (String) row[4]));
+            }
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.openisle.service;
+
+import com.openisle.model.Post;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * PostViewCounter
+ *
+ * 帖子浏览量的写回（write-behind）计数器。
+ *
+ * 设计要点：
+ * - 每次浏览只在内存中对该帖子的 {@link LongAdder} 自增，不再逐次执行
+ *   {@code UPDATE posts SET views = ...}，热门帖子的读者之间不再争抢同一行锁。
+ * - 定时（{@code app.post.views.flush-interval-ms}）将累计增量合并为
+ *   {@code UPDATE posts SET views = views + CASE id WHEN ... END WHERE id IN (...)} 批量写回，应用关闭时再写回一次。
+ * - 计数按“代”累计：写回时切换到新一代，并等待仍在旧一代上自增的线程退出后再求和，增量不丢不重。
+ * - 读取时返回 “已落库值 + 未落库增量”，见 {@link #currentViews(Post)}；写回中的一代每批提交后即移除该批帖子，
+ *   已落库的增量不会被重复计入。
+ * - 崩溃丢失上界：进程异常退出最多丢失一个刷新周期内的浏览量，且未落库总量超过
+ *   {@code app.post.views.max-pending} 时会提前触发写回，因此丢失量同时不超过该阈值（采样检查，略有超出）。
+ * - 写回失败时增量退回内存，下个周期重试。
+ * - 每批写回成功后把增量同步到作者的统计快照（{@link UserStatsService#addViews(Map)}）；同步失败只记日志，由重建校正。
+ */
+@Slf4j
+@Service
+public class PostViewCounter {
+    /** 单条 UPDATE 最多合并的帖子数 */
+    static final int BATCH_SIZE = 500;
+
+    /** 一代计数：关闭后不再接受自增，进入中的线程全部退出后即可安全求和 */
+    private static final class Generation {
+        final ConcurrentHashMap<Long, LongAdder> counts = new ConcurrentHashMap<>();
+        final LongAdder entered = new LongAdder();
+        final LongAdder exited = new LongAdder();
+        volatile boolean closed;
+
+        long get(Long postId) {
+            LongAdder adder = counts.get(postId);
+            return adder == null ? 0L : adder.sum();
+        }
+
+        /** 先读退出数再读进入数：只要还有线程未退出，二者必不相等 */
+        boolean quiescent() {
+            long out = exited.sum();
+            return out == entered.sum();
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long maxPending;
+    /** 每批写回成功后的回调：帖子 ID → 已写回增量 */
+    private final Consumer<Map<Long, Long>> onWritten;
+
+    private volatile Generation current = new Generation();
+    /** 正在写回的一代，写回完成前仍计入读取结果 */
+    private volatile Generation flushing;
+    /** 未落库的浏览总量，用于触发提前写回 */
+    private final LongAdder unflushed = new LongAdder();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "post-view-flush");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @Autowired
+    public PostViewCounter(JdbcTemplate jdbcTemplate,
+                           ObjectProvider<UserStatsService> userStatsService,
+                           @Value("${app.post.views.max-pending:100000}") long maxPending) {
+        this(jdbcTemplate, maxPending, deltas -> userStatsService.ifAvailable(s -> s.addViews(deltas)));
+    }
+
+    PostViewCounter(JdbcTemplate jdbcTemplate, long maxPending) {
+        this(jdbcTemplate, maxPending, deltas -> {
+        });
+    }
+
+    PostViewCounter(JdbcTemplate jdbcTemplate, long maxPending, Consumer<Map<Long, Long>> onWritten) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxPending = maxPending;
+        this.onWritten = onWritten;
+    }
+
+    /**
+     * 记录一次浏览。
+     *
+     * @param postId 帖子 ID
+     */
+    public void increment(Long postId) {
+        add(postId, 1L);
+        unflushed.increment();
+        // 采样检查，避免每次自增都对 unflushed 求和
+        if ((ThreadLocalRandom.current().nextInt() & 0x3FF) == 0 && unflushed.sum() >= maxPending
+                && flushRequested.compareAndSet(false, true)) {
+            flushExecutor.execute(this::flush);
+        }
+    }
+
+    /**
+     * 尚未写回数据库的浏览增量。
+     *
+     * @param postId 帖子 ID
+     * @return 未落库的增量
+     */
+    public long pendingDelta(Long postId) {
+        Generation inFlight = flushing;
+        return current.get(postId) + (inFlight == null ? 0L : inFlight.get(postId));
+    }
+
+    /**
+     * 帖子当前浏览量：实体中的已落库值加上未落库增量。
+     *
+     * @param post 帖子
+     * @return 浏览量
+     */
+    public long currentViews(Post post) {
+        return post.getViews() + pendingDelta(post.getId());
+    }
+
+    /** 定时写回 */
+    @Scheduled(fixedDelayString = "${app.post.views.flush-interval-ms:5000}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    /**
+     * 将累计的增量批量写回数据库。
+     *
+     * @return 本次成功写回的帖子数
+     */
+    public synchronized int flush() {
+        flushRequested.set(false);
+        Generation batch = current;
+        flushing = batch;
+        current = new Generation();
+        batch.closed = true;
+        while (!batch.quiescent()) {
+            Thread.onSpinWait();
+        }
+        int written = write(batch.counts);
+        flushing = null;
+        return written;
+    }
+
+    /** 应用关闭时写回剩余增量 */
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdown();
+        flush();
+    }
+
+    private void add(Long postId, long delta) {
+        for (;;) {
+            Generation g = current;
+            g.entered.increment();
+            try {
+                if (!g.closed) {
+                    LongAdder adder = g.counts.get(postId);
+                    if (adder == null) {
+                        adder = g.counts.computeIfAbsent(postId, k -> new LongAdder());
+                    }
+                    adder.add(delta);
+                    return;
+                }
+            } finally {
+                g.exited.increment();
+            }
+        }
+    }
+
+    /**
+     * 分批执行 CASE 更新；某一批失败时，该批及之后未写入的增量退回内存等待下次重试。
+     *
+     * @return 成功写回的帖子数
+     */
+    private int write(Map<Long, LongAdder> counts) {
+        // 按 ID 排序，多节点并发写回时加锁顺序一致，避免死锁
+        List<Long> ids = new ArrayList<>(counts.keySet());
+        ids.sort(null);
+        int from = 0;
+        long written = 0;
+        try {
+            for (; from < ids.size(); from += BATCH_SIZE) {
+                List<Long> chunk = ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()));
+                StringBuilder sql = new StringBuilder("UPDATE posts SET views = views + CASE id");
+                List<Object> args = new ArrayList<>(chunk.size() * 3);
+                Map<Long, Long> deltas = new HashMap<>(chunk.size() * 2);
+                long chunkViews = 0;
+                for (Long id : chunk) {
+                    long delta = counts.get(id).sum();
+                    sql.append(" WHEN ? THEN ?");
+                    args.add(id);
+                    args.add(delta);
+                    deltas.put(id, delta);
+                    chunkViews += delta;
+                }
+                sql.append(" ELSE 0 END WHERE id IN (");
+                for (int i = 0; i < chunk.size(); i++) {
+                    sql.append(i == 0 ? "?" : ", ?");
+                    args.add(chunk.get(i));
+                }
+                sql.append(')');
+                jdbcTemplate.update(sql.toString(), args.toArray());
+                chunk.forEach(counts::remove);
+                written += chunkViews;
+                notifyWritten(deltas);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush {} post view counters, will retry", ids.size() - from, e);
+            for (Long id : ids.subList(from, ids.size())) {
+                add(id, counts.remove(id).sum());
+            }
+        }
+        unflushed.add(-written);
+        return Math.min(from, ids.size());
+    }
+
+    /** 已落库的增量不能再退回重试，下游同步失败只记录日志 */
+    private void notifyWritten(Map<Long, Long> deltas) {
+        try {
+            onWritten.accept(deltas);
+        } catch (RuntimeException e) {
+            log.warn("Failed to propagate {} post view deltas", deltas.size(), e);
+        }
+    }
+}
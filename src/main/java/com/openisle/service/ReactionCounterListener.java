@@ -0,0 +1,44 @@
+package com.openisle.service;
+
+import com.openisle.model.Reaction;
+import com.openisle.model.ReactionTargetType;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * ReactionCounterListener
+ *
+ * 表态实体监听器：新增/撤销表态时在同一事务内调整对应内容的 {@code reaction_counters} 计数。
+ */
+@Component
+@RequiredArgsConstructor
+public class ReactionCounterListener {
+    private final ObjectProvider<ReactionCounterService> reactionCounterService;
+
+    @PostPersist
+    public void onPersist(Reaction reaction) {
+        apply(reaction, 1);
+    }
+
+    @PostRemove
+    public void onRemove(Reaction reaction) {
+        apply(reaction, -1);
+    }
+
+    private void apply(Reaction reaction, int delta) {
+        ReactionCounterService service = reactionCounterService.getIfAvailable();
+        if (service == null) {
+            return;
+        }
+        if (reaction.getPost() != null) {
+            service.apply(ReactionTargetType.POST, reaction.getPost().getId(), reaction.getType(), delta);
+        } else if (reaction.getComment() != null) {
+            service.apply(ReactionTargetType.COMMENT, reaction.getComment().getId(), reaction.getType(), delta);
+        } else if (reaction.getMessage() != null) {
+            service.apply(ReactionTargetType.MESSAGE, reaction.getMessage().getId(), reaction.getType(), delta);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.openisle.service;
+
+import com.openisle.dto.ReactionCounts;
+import com.openisle.model.ReactionCounter;
+import com.openisle.model.ReactionTargetType;
+import com.openisle.model.ReactionType;
+import com.openisle.repository.ReactionCounterRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ReactionCounterService
+ *
+ * 维护并读取 {@code reaction_counters} 表态计数，替代 {@code ReactionRepository.findByPost/findByComment/findByMessage}
+ * 加载全部表态实体再在内存中计数的做法。
+ *
+ * 设计要点：
+ * - 写：表态新增/撤销时在同一事务内 {@code SELECT ... FOR UPDATE} 锁定计数行，改写计数数组；
+ *   行不存在时按明细表现算补建（结果已包含本事务的写入）。
+ * - 读：{@link #counts(ReactionTargetType, Collection)} 一条 IN 查询读出一页内容的计数；
+ *   尚未建立计数行的内容（历史数据）再用一条分组查询现算。
+ * - 历史数据可由 {@link #backfill()} 分段补齐（{@code app.reaction-counters.backfill-on-startup}）。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReactionCounterService {
+    /** 回填时每段的内容 ID 跨度 */
+    static final int BACKFILL_CHUNK = 5000;
+
+    private final ReactionCounterRepository reactionCounterRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.reaction-counters.backfill-on-startup:false}")
+    private boolean backfillOnStartup;
+
+    /**
+     * 批量读取一组内容的表态计数。
+     *
+     * @param targetType 内容类型
+     * @param targetIds  内容 ID
+     * @return 内容 ID → 计数（没有表态的内容返回空计数）
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, ReactionCounts> counts(ReactionTargetType targetType, Collection<Long> targetIds) {
+        Map<Long, ReactionCounts> result = new HashMap<>();
+        if (targetIds.isEmpty()) {
+            return result;
+        }
+        for (ReactionCounter counter : reactionCounterRepository.findByTargetTypeAndTargetIdIn(targetType, targetIds)) {
+            result.put(counter.getTargetId(), ReactionCounts.decode(counter.getCounts()));
+        }
+        List<Long> missing = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(targetIds)) {
+            if (!result.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            result.putAll(aggregate(targetType, missing));
+            for (Long id : missing) {
+                result.putIfAbsent(id, ReactionCounts.empty());
+            }
+        }
+        return result;
+    }
+
+    /** 单个内容的表态计数 */
+    @Transactional(readOnly = true)
+    public ReactionCounts counts(ReactionTargetType targetType, Long targetId) {
+        return counts(targetType, List.of(targetId)).get(targetId);
+    }
+
+    /**
+     * 表态新增/撤销后调整计数，须在写入表态的事务内调用。
+     *
+     * @param targetType 内容类型
+     * @param targetId   内容 ID
+     * @param type       表态类型
+     * @param delta      +1 新增，-1 撤销
+     */
+    public void apply(ReactionTargetType targetType, long targetId, ReactionType type, int delta) {
+        if (adjust(targetType, targetId, type, delta)) {
+            return;
+        }
+        ReactionCounts counts = aggregate(targetType, List.of(targetId)).getOrDefault(targetId, ReactionCounts.empty());
+        try {
+            insert(targetType, targetId, counts);
+        } catch (DuplicateKeyException e) {
+            // 并发补建：对方的现算结果不含本事务未提交的写入，需再应用一次差量
+            adjust(targetType, targetId, type, delta);
+        }
+    }
+
+    /** 启动时按需回填历史数据 */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                backfill();
+            } catch (RuntimeException e) {
+                log.error("Reaction counter backfill failed", e);
+            }
+        }, "reaction-counter-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 按明细表重新计算全部计数行。每段在事务内先锁定已有计数行再聚合，并发的增量会等待该段提交。
+     *
+     * @return 写入（新建或覆盖）的计数行数
+     */
+    public long backfill() {
+        long written = 0;
+        for (ReactionTargetType targetType : ReactionTargetType.values()) {
+            String column = targetType.column();
+            Long minId = jdbcTemplate.queryForObject("SELECT MIN(" + column + ") FROM reactions", Long.class);
+            Long maxId = jdbcTemplate.queryForObject("SELECT MAX(" + column + ") FROM reactions", Long.class);
+            if (minId == null) {
+                continue;
+            }
+            for (long lo = minId; lo <= maxId; lo += BACKFILL_CHUNK) {
+                long from = lo;
+                long to = Math.min(lo + BACKFILL_CHUNK - 1, maxId);
+                Long count = transactionTemplate.execute(status -> backfillRange(targetType, from, to));
+                written += count == null ? 0 : count;
+            }
+        }
+        log.info("Reaction counters backfilled: {} rows", written);
+        return written;
+    }
+
+    private long backfillRange(ReactionTargetType targetType, long from, long to) {
+        List<Long> existing = jdbcTemplate.queryForList("SELECT target_id FROM reaction_counters " +
+                "WHERE target_type = ? AND target_id BETWEEN ? AND ? FOR UPDATE", Long.class, targetType.name(), from, to);
+        Map<Long, ReactionCounts> actual = new HashMap<>();
+        jdbcTemplate.query("SELECT " + targetType.column() + ", type, COUNT(*) FROM reactions WHERE " +
+                targetType.column() + " BETWEEN ? AND ? GROUP BY " + targetType.column() + ", type", rs -> {
+            actual.computeIfAbsent(rs.getLong(1), k -> ReactionCounts.empty())
+                    .add(ReactionType.valueOf(rs.getString(2)), rs.getInt(3));
+        }, from, to);
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+        for (Long id : existing) {
+            ReactionCounts counts = actual.remove(id);
+            if (counts == null) {
+                counts = ReactionCounts.empty();
+            }
+            updates.add(new Object[]{counts.encode(), counts.total(), targetType.name(), id});
+        }
+        actual.forEach((id, counts) -> inserts.add(new Object[]{targetType.name(), id, counts.encode(), counts.total()}));
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE reaction_counters SET counts = ?, total = ? WHERE target_type = ? AND target_id = ?", updates);
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO reaction_counters (target_type, target_id, counts, total) VALUES (?, ?, ?, ?)", inserts);
+        }
+        return updates.size() + inserts.size();
+    }
+
+    /** 锁定并改写计数行；行不存在时返回 {@code false} */
+    private boolean adjust(ReactionTargetType targetType, long targetId, ReactionType type, int delta) {
+        List<byte[]> rows = jdbcTemplate.query("SELECT counts FROM reaction_counters WHERE target_type = ? AND target_id = ? FOR UPDATE",
+                (rs, i) -> rs.getBytes(1), targetType.name(), targetId);
+        if (rows.isEmpty()) {
+            return false;
+        }
+        ReactionCounts counts = ReactionCounts.decode(rows.get(0));
+        counts.add(type, delta);
+        jdbcTemplate.update("UPDATE reaction_counters SET counts = ?, total = ? WHERE target_type = ? AND target_id = ?",
+                counts.encode(), counts.total(), targetType.name(), targetId);
+        return true;
+    }
+
+    private void insert(ReactionTargetType targetType, long targetId, ReactionCounts counts) {
+        jdbcTemplate.update("INSERT INTO reaction_counters (target_type, target_id, counts, total) VALUES (?, ?, ?, ?)",
+                targetType.name(), targetId, counts.encode(), counts.total());
+    }
+
+    /** 按明细表现算一组内容的计数（一条分组查询），没有表态的内容不出现在结果中 */
+    private Map<Long, ReactionCounts> aggregate(ReactionTargetType targetType, List<Long> targetIds) {
+        String column = targetType.column();
+        StringBuilder sql = new StringBuilder("SELECT ").append(column).append(", type, COUNT(*) FROM reactions WHERE ")
+                .append(column).append(" IN (");
+        for (int i = 0; i < targetIds.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(") GROUP BY ").append(column).append(", type");
+        Map<Long, ReactionCounts> result = new HashMap<>();
+        jdbcTemplate.query(sql.toString(), rs -> {
+            result.computeIfAbsent(rs.getLong(1), k -> ReactionCounts.empty())
+                    .add(ReactionType.valueOf(rs.getString(2)), rs.getInt(3));
+        }, targetIds.toArray());
+        return result;
+    }
+}
@@ -0,0 +1,140 @@
+package com.openisle.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * RedisRevocationStore
+ *
+ * 默认的吊销存储（{@code app.jwt.revocation.store=redis}）：
+ * - 吊销的令牌 ID：{@code jwt:revoked:{jti}}，过期时间与令牌一致，到期自动清除。
+ * - 水位线：哈希 {@code jwt:watermarks}，字段为 {@code 用途:主题}，只增不减（脚本内比较）。
+ * - 广播：频道 {@code jwt:revocations}，各节点据此更新本机的布隆过滤器与水位线。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.jwt.revocation.store", havingValue = "redis", matchIfMissing = true)
+public class RedisRevocationStore implements RevocationStore, SmartLifecycle {
+    static final String ID_PREFIX = "jwt:revoked:";
+    static final String WATERMARKS = "jwt:watermarks";
+    static final String CHANNEL = "jwt:revocations";
+    private static final int SCAN_BATCH = 1000;
+
+    /** 新值更大时写入，返回生效的水位线 */
+    private static final RedisScript<Long> RAISE = new DefaultRedisScript<>(
+            "local v = tonumber(redis.call('HGET', KEYS[1], ARGV[1]) or '0') " +
+            "local n = tonumber(ARGV[2]) " +
+            "if n > v then redis.call('HSET', KEYS[1], ARGV[1], ARGV[2]) return n end " +
+            "return v", Long.class);
+
+    private final StringRedisTemplate redis;
+    private final RedisMessageListenerContainer container;
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean running;
+
+    public RedisRevocationStore(StringRedisTemplate redis, RedisConnectionFactory connectionFactory) {
+        this.redis = redis;
+        this.container = new RedisMessageListenerContainer();
+        this.container.setConnectionFactory(connectionFactory);
+        this.container.addMessageListener((message, pattern) -> {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            listeners.forEach(listener -> listener.accept(body));
+        }, new ChannelTopic(CHANNEL));
+    }
+
+    @Override
+    public void saveRevokedId(String tokenId, long expiresAt) {
+        long ttl = expiresAt - System.currentTimeMillis();
+        if (ttl > 0) {
+            redis.opsForValue().set(ID_PREFIX + tokenId, Long.toString(expiresAt), Duration.ofMillis(ttl));
+        }
+    }
+
+    @Override
+    public boolean isRevokedId(String tokenId) {
+        return Boolean.TRUE.equals(redis.hasKey(ID_PREFIX + tokenId));
+    }
+
+    @Override
+    public void forEachRevokedId(Consumer<String> action) {
+        redis.execute((RedisCallback<Void>) connection -> {
+            ScanOptions options = ScanOptions.scanOptions().match(ID_PREFIX + "*").count(SCAN_BATCH).build();
+            try (Cursor<byte[]> cursor = connection.keyCommands().scan(options)) {
+                while (cursor.hasNext()) {
+                    action.accept(new String(cursor.next(), StandardCharsets.UTF_8).substring(ID_PREFIX.length()));
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public long raiseWatermark(String field, long watermark) {
+        Long effective = redis.execute(RAISE, List.of(WATERMARKS), field, Long.toString(watermark));
+        return effective == null ? watermark : effective;
+    }
+
+    @Override
+    public Map<String, Long> watermarks() {
+        Map<String, Long> result = new HashMap<>();
+        redis.opsForHash().entries(WATERMARKS).forEach((field, value) ->
+                result.put(field.toString(), Long.parseLong(value.toString())));
+        return result;
+    }
+
+    @Override
+    public void publish(String message) {
+        redis.convertAndSend(CHANNEL, message);
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void start() {
+        try {
+            container.afterPropertiesSet();
+            container.start();
+        } catch (RuntimeException e) {
+            log.warn("Revocation channel subscription failed, revocations from other nodes arrive only on rebuild: {}", e.getMessage());
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            container.stop();
+            container.destroy();
+        } catch (Exception e) {
+            log.debug("Revocation channel shutdown failed", e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,32 @@
+package com.openisle.service;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 令牌吊销记录的共享存储与跨节点广播，见 {@link TokenRevocationService}。
+ */
+public interface RevocationStore {
+    /** 记录被吊销的令牌 ID，保存到令牌过期为止 */
+    void saveRevokedId(String tokenId, long expiresAt);
+
+    boolean isRevokedId(String tokenId);
+
+    /** 遍历全部未过期的吊销令牌 ID（用于重建布隆过滤器） */
+    void forEachRevokedId(Consumer<String> action);
+
+    /**
+     * 提高水位线：只在新值更大时写入。
+     *
+     * @return 生效的水位线
+     */
+    long raiseWatermark(String field, long watermark);
+
+    /** 全部水位线：字段为 {@code 用途:主题} */
+    Map<String, Long> watermarks();
+
+    /** 广播给所有节点（含自身） */
+    void publish(String message);
+
+    void subscribe(Consumer<String> listener);
+}
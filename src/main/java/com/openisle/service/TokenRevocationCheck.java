@@ -0,0 +1,8 @@
+package com.openisle.service;
+
+/**
+ * 令牌吊销检查：{@link JwtService} 在每次验证（含缓存命中）后调用，返回真时令牌视为无效。
+ */
+public interface TokenRevocationCheck {
+    boolean isRevoked(JwtService.TokenType type, JwtService.VerifiedToken token);
+}
@@ -0,0 +1,393 @@
+package com.openisle.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TokenRevocationService
+ *
+ * 令牌吊销：覆盖全部四种令牌（登录、注册理由、密码重置、邀请），每次验证（含缓存命中）由 {@link JwtService} 调用检查。
+ *
+ * 设计要点：
+ * - 两种吊销方式：按令牌 ID（jti）吊销单个令牌，如退出登录、重置/邀请令牌用后作废；
+ *   按水位线吊销某用户某用途在某时刻之前签发的全部令牌，如修改密码后退出所有设备。
+ * - 检查不访问网络：水位线全部常驻本机（只有做过吊销的用户才有）；令牌 ID 先查本机布隆过滤器，
+ *   绝大多数令牌在这里判定未吊销。过滤器命中时查本机已知吊销集合，仍未确定才访问共享存储，结果在本机缓存。
+ * - 共享存储与广播见 {@link RevocationStore}（默认 Redis）。吊销先在本机生效再写存储并广播，
+ *   其他节点收到广播后更新本机状态；传播延迟（发布到应用）计入指标。写存储失败的吊销留在本机重试队列中。
+ * - 布隆过滤器不能删除，按 {@code rebuild-interval-ms} 从存储重建，顺带清除已过期的吊销；重建期间的新吊销同时写入新旧过滤器。
+ * - 水位线按令牌的微秒级签发时间（{@link JwtService.VerifiedToken#issuedAtMicros()}）比较，
+ *   {@link #revokeAll} 的水位线取自与签发相同的本机单调时钟，吊销后立即签发的新令牌（如修改密码后重新登录）不受影响；
+ *   跨节点时仍受节点间时钟偏差影响。没有微秒签发时间的旧令牌按秒级 {@code iat} 比较。
+ * - 启动时加载失败（如 Redis 不可用）不会等到下次重建：按重试间隔反复加载直到成功，
+ *   期间跳过布隆过滤器，令牌 ID 直接查共享存储。
+ * - 需要查共享存储而存储不可用时：重置、邀请、注册理由令牌一律按已吊销处理（宁可让用户重试，不让作废的令牌再次生效）；
+ *   登录令牌由 {@code app.jwt.revocation.fail-open-access} 决定，默认按未吊销放行，避免存储故障时全站掉线。
+ */
+@Slf4j
+@Service
+public class TokenRevocationService implements TokenRevocationCheck {
+    private static final String ID = "I";
+    private static final String WATERMARK = "W";
+    /** 本机已知吊销集合与误判缓存的上限 */
+    private static final int MAX_LOCAL = 100_000;
+    /** 布隆过滤器误判结果（未吊销）的缓存时长 */
+    private static final long NEGATIVE_TTL_MS = 60_000;
+
+    /** 指标快照 */
+    public record Snapshot(long checks, long revoked, long filterPositives, long storeLookups, long propagated,
+                           long lastPropagationMillis, double avgPropagationMillis, int pending) {
+    }
+
+    /** 布隆过滤器：双重哈希，位数组可并发置位 */
+    static final class BloomFilter {
+        private final AtomicLongArray bits;
+        private final long size;
+        private final int hashes;
+
+        BloomFilter(long expected, double falsePositiveRate) {
+            long n = Math.max(1, expected);
+            long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.size = Math.max(64, (m + 63) / 64 * 64);
+            this.hashes = Math.max(1, (int) Math.round((double) size / n * Math.log(2)));
+            this.bits = new AtomicLongArray((int) (size / 64));
+        }
+
+        void add(String value) {
+            long h1 = hash(value);
+            long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, size);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current;
+                while (((current = bits.get(word)) & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                    // 重试直到置位成功
+                }
+            }
+        }
+
+        boolean mightContain(String value) {
+            long h1 = hash(value);
+            long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, size);
+                if ((bits.get((int) (bit >>> 6)) & 1L << bit) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /** FNV-1a 后再混合，令牌 ID 只含 ASCII 字符 */
+        private static long hash(String value) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                h = (h ^ value.charAt(i)) * 0x100000001b3L;
+            }
+            return mix(h);
+        }
+
+        private static long mix(long h) {
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+
+    private final RevocationStore store;
+    private final long bloomExpected;
+    private final double bloomFalsePositiveRate;
+    /** 存储不可用时登录令牌是否按未吊销放行 */
+    private final boolean failOpenAccess;
+
+    private volatile BloomFilter filter;
+    /** 是否已从存储加载过一次；未加载时过滤器不完整，不能据此判定未吊销 */
+    private volatile boolean loaded;
+    /** 重建中的过滤器，期间新吊销同时写入 */
+    private volatile BloomFilter rebuilding;
+    /** 本机已知的吊销令牌 ID -> 过期时间 */
+    private final Map<String, Long> knownRevoked = new ConcurrentHashMap<>();
+    /** 过滤器误判、经存储确认未吊销的令牌 ID -> 确认时间 */
+    private final Map<String, Long> confirmedValid = new ConcurrentHashMap<>();
+    private final Map<JwtService.TokenType, Map<String, Long>> watermarks = new EnumMap<>(JwtService.TokenType.class);
+    /** 写存储失败、待重试的消息 */
+    private final ConcurrentLinkedQueue<String> pending = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder revoked = new LongAdder();
+    private final LongAdder filterPositives = new LongAdder();
+    private final LongAdder storeLookups = new LongAdder();
+    private final LongAdder propagated = new LongAdder();
+    private final LongAdder propagationTotal = new LongAdder();
+    private final AtomicLong lastPropagation = new AtomicLong();
+    private final LongAccumulator windowMaxPropagation = new LongAccumulator(Math::max, 0);
+
+    public TokenRevocationService(RevocationStore store,
+                                  @Value("${app.jwt.revocation.bloom-expected:1000000}") long bloomExpected,
+                                  @Value("${app.jwt.revocation.bloom-fpp:0.01}") double bloomFalsePositiveRate,
+                                  @Value("${app.jwt.revocation.fail-open-access:true}") boolean failOpenAccess) {
+        this.store = store;
+        this.bloomExpected = bloomExpected;
+        this.bloomFalsePositiveRate = bloomFalsePositiveRate;
+        this.failOpenAccess = failOpenAccess;
+        this.filter = new BloomFilter(bloomExpected, bloomFalsePositiveRate);
+        for (JwtService.TokenType type : JwtService.TokenType.values()) {
+            watermarks.put(type, new ConcurrentHashMap<>());
+        }
+        store.subscribe(this::received);
+        load();
+    }
+
+    /** 首次加载；失败时由 {@link #retryPending()} 按重试间隔继续 */
+    private void load() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("Token revocations not loaded, retrying: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean isRevoked(JwtService.TokenType type, JwtService.VerifiedToken token) {
+        checks.increment();
+        Long watermark = watermarks.get(type).get(token.subject());
+        if (watermark != null && token.issuedAtMicros() <= watermark) {
+            revoked.increment();
+            return true;
+        }
+        String id = token.id();
+        if (id == null || loaded && !filter.mightContain(id)) {
+            return false;
+        }
+        filterPositives.increment();
+        if (knownRevoked.containsKey(id)) {
+            revoked.increment();
+            return true;
+        }
+        Long confirmedAt = confirmedValid.get(id);
+        if (confirmedAt != null && System.currentTimeMillis() - confirmedAt < NEGATIVE_TTL_MS) {
+            return false;
+        }
+        storeLookups.increment();
+        boolean result;
+        try {
+            result = store.isRevokedId(id);
+        } catch (RuntimeException e) {
+            boolean failOpen = type == JwtService.TokenType.ACCESS && failOpenAccess;
+            log.warn("Revocation store unavailable, treating {} token as {}: {}",
+                    type, failOpen ? "valid" : "revoked", e.getMessage());
+            return !failOpen;
+        }
+        if (result) {
+            remember(id, token.expiresAt());
+            revoked.increment();
+        } else if (confirmedValid.size() < MAX_LOCAL) {
+            confirmedValid.put(id, System.currentTimeMillis());
+        }
+        return result;
+    }
+
+    /**
+     * 吊销单个令牌（退出登录、重置/邀请令牌用后作废）。没有令牌 ID 的旧令牌改为吊销该用户该用途此前签发的全部令牌。
+     *
+     * @param type  令牌用途
+     * @param token 已验证的令牌
+     */
+    public void revoke(JwtService.TokenType type, JwtService.VerifiedToken token) {
+        if (token.id() == null) {
+            raiseWatermark(type, token.subject(), token.issuedAtMicros());
+            return;
+        }
+        if (token.expiresAt() <= System.currentTimeMillis()) {
+            return;
+        }
+        apply(message(ID, token.expiresAt(), token.id()));
+    }
+
+    /**
+     * 吊销某用户某用途在给定时刻（毫秒）及之前签发的全部令牌。
+     */
+    public void revokeIssuedBefore(JwtService.TokenType type, String subject, long issuedAt) {
+        raiseWatermark(type, subject, issuedAt * 1_000 + 999);
+    }
+
+    /** 吊销某用户全部用途的现有令牌（如修改密码、封禁），之后签发的令牌不受影响 */
+    public void revokeAll(String subject) {
+        long watermark = JwtService.nextIssueMicros();
+        for (JwtService.TokenType type : JwtService.TokenType.values()) {
+            raiseWatermark(type, subject, watermark);
+        }
+    }
+
+    /** 水位线为微秒级签发时间，不晚于它签发的令牌失效 */
+    private void raiseWatermark(JwtService.TokenType type, String subject, long issuedAtMicros) {
+        apply(message(WATERMARK, issuedAtMicros, type.name() + ":" + subject));
+    }
+
+    /** 本机生效、写存储、广播；失败时进入重试队列 */
+    private void apply(String message) {
+        received(message);
+        try {
+            persist(message);
+        } catch (RuntimeException e) {
+            log.warn("Revocation not persisted, queued for retry: {}", e.getMessage());
+            pending.add(message);
+        }
+    }
+
+    private void persist(String message) {
+        String[] parts = message.split("\\|", 4);
+        if (ID.equals(parts[0])) {
+            store.saveRevokedId(parts[3], Long.parseLong(parts[1]));
+        } else {
+            store.raiseWatermark(parts[3], Long.parseLong(parts[1]));
+        }
+        // 广播时间替换为实际发布时间，用于统计传播延迟
+        store.publish(parts[0] + "|" + parts[1] + "|" + System.currentTimeMillis() + "|" + parts[3]);
+    }
+
+    /** 定期重试写存储失败的吊销，以及启动时失败的首次加载 */
+    @Scheduled(fixedDelayString = "${app.jwt.revocation.retry-interval-ms:10000}")
+    public void retryPending() {
+        if (!loaded) {
+            load();
+        }
+        String message;
+        int retried = 0;
+        int size = pending.size();
+        while (retried < size && (message = pending.poll()) != null) {
+            retried++;
+            try {
+                persist(message);
+            } catch (RuntimeException e) {
+                pending.add(message);
+                return;
+            }
+        }
+    }
+
+    /** 应用本机或广播收到的吊销：{@code 类型|值|发布时间|令牌ID或字段} */
+    private void received(String message) {
+        String[] parts = message.split("\\|", 4);
+        if (parts.length != 4) {
+            log.warn("Dropping malformed revocation message: {}", message);
+            return;
+        }
+        long value = Long.parseLong(parts[1]);
+        long publishedAt = Long.parseLong(parts[2]);
+        if (ID.equals(parts[0])) {
+            remember(parts[3], value);
+        } else {
+            setWatermark(parts[3], value);
+        }
+        if (publishedAt > 0) {
+            long lag = Math.max(0, System.currentTimeMillis() - publishedAt);
+            propagated.increment();
+            propagationTotal.add(lag);
+            lastPropagation.set(lag);
+            windowMaxPropagation.accumulate(lag);
+        }
+    }
+
+    private void remember(String id, long expiresAt) {
+        filter.add(id);
+        BloomFilter next = rebuilding;
+        if (next != null) {
+            next.add(id);
+        }
+        confirmedValid.remove(id);
+        if (knownRevoked.size() >= MAX_LOCAL) {
+            long now = System.currentTimeMillis();
+            knownRevoked.values().removeIf(expires -> expires <= now);
+        }
+        if (knownRevoked.size() < MAX_LOCAL) {
+            knownRevoked.put(id, expiresAt);
+        }
+    }
+
+    private void setWatermark(String field, long watermark) {
+        int colon = field.indexOf(':');
+        JwtService.TokenType type;
+        try {
+            type = JwtService.TokenType.valueOf(field.substring(0, Math.max(0, colon)));
+        } catch (IllegalArgumentException e) {
+            log.warn("Dropping watermark for unknown token type: {}", field);
+            return;
+        }
+        watermarks.get(type).merge(field.substring(colon + 1), watermark, Math::max);
+    }
+
+    /**
+     * 从存储重建布隆过滤器并重新加载水位线，清除本机已过期的吊销。
+     *
+     * @return 过滤器中的令牌 ID 数
+     */
+    @Scheduled(initialDelayString = "${app.jwt.revocation.rebuild-interval-ms:3600000}",
+            fixedDelayString = "${app.jwt.revocation.rebuild-interval-ms:3600000}")
+    public synchronized long rebuild() {
+        long start = System.currentTimeMillis();
+        BloomFilter next = new BloomFilter(bloomExpected, bloomFalsePositiveRate);
+        rebuilding = next;
+        long[] count = new long[1];
+        try {
+            store.forEachRevokedId(id -> {
+                next.add(id);
+                count[0]++;
+            });
+            long now = System.currentTimeMillis();
+            knownRevoked.entrySet().removeIf(e -> e.getValue() <= now);
+            knownRevoked.keySet().forEach(next::add);
+            store.watermarks().forEach(this::setWatermark);
+            filter = next;
+            loaded = true;
+        } finally {
+            rebuilding = null;
+        }
+        confirmedValid.clear();
+        if (count[0] > bloomExpected) {
+            log.warn("Revoked token count {} exceeds app.jwt.revocation.bloom-expected {}, false positives will rise",
+                    count[0], bloomExpected);
+        }
+        log.info("Token revocation filter rebuilt: {} revoked ids in {} ms", count[0], System.currentTimeMillis() - start);
+        return count[0];
+    }
+
+    public Snapshot snapshot() {
+        long propagated = this.propagated.sum();
+        return new Snapshot(checks.sum(), revoked.sum(), filterPositives.sum(), storeLookups.sum(), propagated,
+                lastPropagation.get(), propagated == 0 ? 0 : (double) propagationTotal.sum() / propagated, pending.size());
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void report() {
+        long maxPropagation = windowMaxPropagation.getThenReset();
+        if (maxPropagation == 0 && pending.isEmpty()) {
+            return;
+        }
+        Snapshot s = snapshot();
+        log.info("Token revocation: max propagation {} ms in last window, avg {} ms; {} checks, {} revoked, " +
+                        "{} filter positives, {} store lookups, {} pending",
+                maxPropagation, String.format("%.1f", s.avgPropagationMillis()), s.checks(), s.revoked(),
+                s.filterPositives(), s.storeLookups(), s.pending());
+    }
+
+    /** 发布时间为 0：本机直接应用，不计传播延迟 */
+    private static String message(String kind, long value, String key) {
+        return kind + "|" + value + "|0|" + key;
+    }
+}
@@ -0,0 +1,525 @@
+package com.openisle.service;
+
+import com.openisle.model.NotificationType;
+import com.openisle.push.PushService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * UnreadNotificationCounter
+ *
+ * 按通知类型维护每个用户的未读数，替代角标轮询时对 notifications 大表的
+ * {@code COUNT(*) ... type NOT IN (...)}。
+ *
+ * 设计要点：
+ * - 每个用户 {@link #TYPES} 个计数器，下标为 {@link NotificationType} 的序号；排除列表转换为位掩码，
+ *   读数时对未被屏蔽的计数求和，耗时与通知总量无关。
+ * - 存储：Redis 哈希 {@code notif:unread:{userId}}，字段为类型序号；缺失时从数据库分组统计加载，
+ *   并设置过期时间，长期不活跃的用户自然淘汰，重新加载也顺带纠正偏差。
+ * - 加载期间的增量：查库前先建立加载日志 {@code notif:unread-load:{userId}}，计数不存在而日志存在时增量记入日志；
+ *   加载脚本写入查库结果后补上日志中的增量并删除日志。日志不存在（已过期或期间被失效）时不写入，下次读取重新加载。
+ *   查库前已提交、但在日志建立后才应用的增量会被重复计入，窗口只有提交到应用之间，由对账修正。
+ * - 回退：Redis 不可用（未配置或访问失败）时使用本机计数，本机计数在 {@code local-ttl-ms} 后从数据库重新加载；
+ *   访问失败后暂停访问 Redis 一段时间，期间丢失增量的用户在恢复后删除其 Redis 计数以便重新加载。
+ * - 写：未读通知新增、已读状态变化、删除时产生增量，事务内按用户合并，提交后统一应用；回滚则丢弃。
+ * - 推送：增量应用后通知 {@link PushService}，在线客户端据此刷新角标，无需轮询。
+ * - 对账：{@link #reconcile()} 定期将计数与数据库比对，仅在计数未被并发修改时覆盖（比较后写入）。
+ *   本机计数各节点各自对账；Redis 计数为各节点共享，经 {@link JobLockService} 每个周期只由一个节点对账。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UnreadNotificationCounter {
+    /** 计数器个数（通知类型数） */
+    static final int TYPES = NotificationType.values().length;
+    static final String KEY_PREFIX = "notif:unread:";
+    /** 加载日志的键前缀，不与 {@link #KEY_PREFIX} 的扫描模式重叠 */
+    static final String LOAD_KEY_PREFIX = "notif:unread-load:";
+    /** 加载日志的过期时间，应长于一次查库 */
+    private static final long LOAD_JOURNAL_TTL_MS = 60_000;
+    /** 本机计数最多保留的用户数 */
+    private static final int MAX_LOCAL_USERS = 10_000;
+    /** 对账时每批处理的用户数 */
+    private static final int RECONCILE_BATCH = 500;
+    /** Redis 访问失败后暂停访问的时长 */
+    private static final long REDIS_BACKOFF_MS = 30_000;
+    /** 记录丢失增量的用户数上限，超出的部分交给对账修正 */
+    private static final int MAX_LOST_USERS = 100_000;
+
+    /** 计数存在时才累加，并保证不小于 0；计数不存在时记入加载日志（KEYS[2]）返回 -2，日志也不存在时返回 -1 */
+    private static final RedisScript<Long> INCREMENT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then " +
+            "if redis.call('EXISTS', KEYS[2]) == 1 then redis.call('HINCRBY', KEYS[2], ARGV[1], ARGV[2]) return -2 end " +
+            "return -1 end " +
+            "local v = redis.call('HINCRBY', KEYS[1], ARGV[1], ARGV[2]) " +
+            "if v < 0 then redis.call('HSET', KEYS[1], ARGV[1], 0) v = 0 end " +
+            "return v", Long.class);
+    /** 开始加载：建立加载日志（KEYS[1]，字段 {@code _} 仅作占位）并设置过期时间（ARGV[1]） */
+    private static final RedisScript<Long> BEGIN_LOAD = new DefaultRedisScript<>(
+            "redis.call('HSETNX', KEYS[1], '_', '0') " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[1]) " +
+            "return 1", Long.class);
+    /**
+     * 计数不存在且加载日志（KEYS[2]）仍在时整体写入，补上日志中的增量（不小于 0），删除日志并设置过期时间（ARGV[1]）；
+     * 其余参数依次为各类型的计数
+     */
+    private static final RedisScript<Long> LOAD = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 or redis.call('EXISTS', KEYS[2]) == 0 then " +
+            "redis.call('DEL', KEYS[2]) return 0 end " +
+            "for i = 2, #ARGV do redis.call('HSET', KEYS[1], tostring(i - 2), ARGV[i]) end " +
+            "local journal = redis.call('HGETALL', KEYS[2]) " +
+            "for i = 1, #journal, 2 do if journal[i] ~= '_' then " +
+            "if redis.call('HINCRBY', KEYS[1], journal[i], journal[i + 1]) < 0 then redis.call('HSET', KEYS[1], journal[i], 0) end " +
+            "end end " +
+            "redis.call('DEL', KEYS[2]) " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[1]) " +
+            "return 1", Long.class);
+    /** 字段仍等于对账前读到的值时才覆盖 */
+    private static final RedisScript<Long> COMPARE_AND_SET = new DefaultRedisScript<>(
+            "if redis.call('HGET', KEYS[1], ARGV[1]) == ARGV[2] then " +
+            "redis.call('HSET', KEYS[1], ARGV[1], ARGV[3]) return 1 end " +
+            "return 0", Long.class);
+
+    private static final Map<String, NotificationType> TYPES_BY_NAME = new HashMap<>();
+
+    static {
+        for (NotificationType type : NotificationType.values()) {
+            TYPES_BY_NAME.put(type.name(), type);
+        }
+    }
+
+    private static final class LocalEntry {
+        final long[] counts;
+        final long loadedAt;
+
+        LocalEntry(long[] counts) {
+            this.counts = counts;
+            this.loadedAt = System.currentTimeMillis();
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectProvider<StringRedisTemplate> redisTemplate;
+    private final ObjectProvider<PushService> pushService;
+    private final ObjectProvider<JobLockService> jobLockService;
+
+    @Value("${app.notifications.unread.key-ttl-ms:86400000}")
+    private long keyTtlMillis;
+
+    @Value("${app.notifications.unread.local-ttl-ms:30000}")
+    private long localTtlMillis;
+
+    @Value("${app.notifications.unread.reconcile-interval-ms:600000}")
+    private long reconcileIntervalMillis;
+
+    private final LinkedHashMap<Long, LocalEntry> local = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, LocalEntry> eldest) {
+            return size() > MAX_LOCAL_USERS;
+        }
+    };
+    private final Set<Long> lostUsers = ConcurrentHashMap.newKeySet();
+    private volatile long redisRetryAt;
+
+    /** 排除类型集合对应的位掩码 */
+    public static int mask(Collection<NotificationType> types) {
+        int mask = 0;
+        if (types != null) {
+            for (NotificationType type : types) {
+                mask |= 1 << type.ordinal();
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * 用户的未读通知数，排除给定类型。
+     *
+     * @param userId   用户 ID
+     * @param excluded 排除的类型，可为空
+     */
+    public long unreadCount(long userId, Collection<NotificationType> excluded) {
+        return unreadCount(userId, mask(excluded));
+    }
+
+    /**
+     * 用户的未读通知数，排除掩码中置位的类型。
+     *
+     * @param userId       用户 ID
+     * @param excludedMask 见 {@link #mask(Collection)}
+     */
+    public long unreadCount(long userId, int excludedMask) {
+        long[] counts = counts(userId);
+        long total = 0;
+        for (int i = 0; i < TYPES; i++) {
+            if ((excludedMask >>> i & 1) == 0) {
+                total += counts[i];
+            }
+        }
+        return total;
+    }
+
+    /** 用户按类型序号排列的未读数 */
+    public long[] counts(long userId) {
+        StringRedisTemplate redis = redis();
+        if (redis != null) {
+            try {
+                Map<Object, Object> hash = redis.opsForHash().entries(key(userId));
+                if (!hash.isEmpty()) {
+                    return decode(hash);
+                }
+                redis.execute(BEGIN_LOAD, List.of(loadKey(userId)), Long.toString(LOAD_JOURNAL_TTL_MS));
+                long[] counts = load(List.of(userId)).get(userId);
+                redis.execute(LOAD, List.of(key(userId), loadKey(userId)), loadArgs(counts));
+                return counts;
+            } catch (RuntimeException e) {
+                redisFailed(e);
+            }
+        }
+        return localCounts(userId);
+    }
+
+    /**
+     * 未读数变化：在当前事务提交后应用，无事务时立即应用。
+     *
+     * @param userId 接收者 ID
+     * @param type   通知类型
+     * @param delta  +1 新增未读，-1 已读或删除
+     */
+    public void changed(long userId, NotificationType type, int delta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            int[] deltas = new int[TYPES];
+            deltas[type.ordinal()] = delta;
+            apply(userId, deltas);
+            return;
+        }
+        Map<Long, int[]> pending = pending();
+        pending.computeIfAbsent(userId, k -> new int[TYPES])[type.ordinal()] += delta;
+    }
+
+    /**
+     * 丢弃用户的计数，下次读取时从数据库重新加载。用于无法逐条计算增量的批量更新，
+     * 在当前事务提交后执行。
+     */
+    public void invalidate(long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(userId);
+                }
+            });
+        } else {
+            evict(userId);
+        }
+    }
+
+    /**
+     * 对账：将本机与 Redis 中的计数与数据库比对并修正。Redis 部分每个周期只由取得租约的一个节点执行，
+     * 租约不主动释放，到期后（一个对账周期）下次调度重新竞争。
+     *
+     * @return 修正的计数器个数
+     */
+    @Scheduled(initialDelayString = "${app.notifications.unread.reconcile-interval-ms:600000}",
+            fixedDelayString = "${app.notifications.unread.reconcile-interval-ms:600000}")
+    public long reconcile() {
+        long start = System.currentTimeMillis();
+        long[] stats = new long[2]; // 修正个数, 偏差总量
+        List<Long> users;
+        synchronized (local) {
+            users = new ArrayList<>(local.keySet());
+        }
+        for (int from = 0; from < users.size(); from += RECONCILE_BATCH) {
+            reconcileLocal(users.subList(from, Math.min(from + RECONCILE_BATCH, users.size())), stats);
+        }
+        StringRedisTemplate redis = redis();
+        JobLockService locks = jobLockService.getIfAvailable();
+        if (redis != null && (locks == null
+                || locks.tryAcquire("unread-notification-reconcile", Duration.ofMillis(reconcileIntervalMillis)))) {
+            try {
+                redis.execute((RedisCallback<Void>) connection -> {
+                    ScanOptions options = ScanOptions.scanOptions().match(KEY_PREFIX + "*").count(RECONCILE_BATCH).build();
+                    List<Long> batch = new ArrayList<>();
+                    try (Cursor<byte[]> cursor = connection.keyCommands().scan(options)) {
+                        while (cursor.hasNext()) {
+                            String key = new String(cursor.next(), StandardCharsets.UTF_8);
+                            batch.add(Long.parseLong(key.substring(KEY_PREFIX.length())));
+                            if (batch.size() == RECONCILE_BATCH) {
+                                reconcileRedis(redis, batch, stats);
+                                batch.clear();
+                            }
+                        }
+                    }
+                    reconcileRedis(redis, batch, stats);
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                redisFailed(e);
+            }
+        }
+        if (stats[0] > 0) {
+            log.info("Unread notification counters reconciled: {} counters corrected, total drift {}, {} ms",
+                    stats[0], stats[1], System.currentTimeMillis() - start);
+        }
+        return stats[0];
+    }
+
+    private void reconcileLocal(List<Long> users, long[] stats) {
+        Map<Long, long[]> actual = load(users);
+        for (Long userId : users) {
+            LocalEntry entry;
+            synchronized (local) {
+                entry = local.get(userId);
+            }
+            if (entry == null) {
+                continue;
+            }
+            long[] expected = actual.get(userId);
+            synchronized (entry) {
+                for (int i = 0; i < TYPES; i++) {
+                    if (entry.counts[i] != expected[i]) {
+                        stats[0]++;
+                        stats[1] += Math.abs(entry.counts[i] - expected[i]);
+                        entry.counts[i] = expected[i];
+                    }
+                }
+            }
+        }
+    }
+
+    private void reconcileRedis(StringRedisTemplate redis, List<Long> users, long[] stats) {
+        if (users.isEmpty()) {
+            return;
+        }
+        // 先读计数再查库：查库期间发生的增量会使比较失败，留给下一轮
+        Map<Long, Map<Object, Object>> snapshots = new HashMap<>();
+        for (Long userId : users) {
+            snapshots.put(userId, redis.opsForHash().entries(key(userId)));
+        }
+        Map<Long, long[]> actual = load(users);
+        for (Long userId : users) {
+            Map<Object, Object> snapshot = snapshots.get(userId);
+            if (snapshot.isEmpty()) {
+                continue;
+            }
+            long[] counts = decode(snapshot);
+            long[] expected = actual.get(userId);
+            for (int i = 0; i < TYPES; i++) {
+                if (counts[i] == expected[i]) {
+                    continue;
+                }
+                Object current = snapshot.get(Integer.toString(i));
+                Long set = redis.execute(COMPARE_AND_SET, List.of(key(userId)),
+                        Integer.toString(i), current == null ? "" : current.toString(), Long.toString(expected[i]));
+                if (set != null && set == 1) {
+                    stats[0]++;
+                    stats[1] += Math.abs(counts[i] - expected[i]);
+                }
+            }
+        }
+    }
+
+    private Map<Long, int[]> pending() {
+        @SuppressWarnings("unchecked")
+        Map<Long, int[]> pending = (Map<Long, int[]>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+        Map<Long, int[]> created = new HashMap<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(UnreadNotificationCounter.this);
+                if (status == STATUS_COMMITTED) {
+                    created.forEach(UnreadNotificationCounter.this::apply);
+                }
+            }
+        });
+        return created;
+    }
+
+    private void apply(long userId, int[] deltas) {
+        push(userId, deltas);
+        LocalEntry entry;
+        synchronized (local) {
+            entry = local.get(userId);
+        }
+        if (entry != null) {
+            synchronized (entry) {
+                for (int i = 0; i < TYPES; i++) {
+                    entry.counts[i] = Math.max(0, entry.counts[i] + deltas[i]);
+                }
+            }
+        }
+        StringRedisTemplate redis = redis();
+        if (redis == null) {
+            lost(userId);
+            return;
+        }
+        try {
+            for (int i = 0; i < TYPES; i++) {
+                if (deltas[i] != 0) {
+                    redis.execute(INCREMENT, List.of(key(userId), loadKey(userId)), Integer.toString(i),
+                            Integer.toString(deltas[i]));
+                }
+            }
+        } catch (RuntimeException e) {
+            redisFailed(e);
+            lost(userId);
+        }
+    }
+
+    private void push(long userId, int[] deltas) {
+        PushService push = pushService.getIfAvailable();
+        if (push == null) {
+            return;
+        }
+        for (int delta : deltas) {
+            if (delta != 0) {
+                push.notificationsChanged(userId);
+                return;
+            }
+        }
+    }
+
+    private void evict(long userId) {
+        synchronized (local) {
+            local.remove(userId);
+        }
+        StringRedisTemplate redis = redis();
+        if (redis == null) {
+            lost(userId);
+            return;
+        }
+        try {
+            redis.delete(List.of(key(userId), loadKey(userId)));
+        } catch (RuntimeException e) {
+            redisFailed(e);
+            lost(userId);
+        }
+    }
+
+    private long[] localCounts(long userId) {
+        LocalEntry entry;
+        synchronized (local) {
+            entry = local.get(userId);
+        }
+        if (entry == null || System.currentTimeMillis() - entry.loadedAt > localTtlMillis) {
+            entry = new LocalEntry(load(List.of(userId)).get(userId));
+            synchronized (local) {
+                local.put(userId, entry);
+            }
+        }
+        synchronized (entry) {
+            return entry.counts.clone();
+        }
+    }
+
+    /** Redis 可用时返回模板；暂停期结束后先清理丢失增量的用户计数 */
+    private StringRedisTemplate redis() {
+        StringRedisTemplate redis = redisTemplate.getIfAvailable();
+        if (redis == null || System.currentTimeMillis() < redisRetryAt) {
+            return null;
+        }
+        if (!lostUsers.isEmpty()) {
+            try {
+                List<Long> users = new ArrayList<>(lostUsers);
+                redis.delete(users.stream().map(UnreadNotificationCounter::key).toList());
+                users.forEach(lostUsers::remove);
+                log.info("Unread notification counters dropped for {} users after Redis recovered", users.size());
+            } catch (RuntimeException e) {
+                redisFailed(e);
+                return null;
+            }
+        }
+        return redis;
+    }
+
+    /** 配置了 Redis 但增量未能写入：记录用户，恢复后删除其计数 */
+    private void lost(long userId) {
+        if (redisTemplate.getIfAvailable() != null && lostUsers.size() < MAX_LOST_USERS) {
+            lostUsers.add(userId);
+        }
+    }
+
+    private void redisFailed(RuntimeException e) {
+        if (System.currentTimeMillis() >= redisRetryAt) {
+            log.warn("Redis unavailable for unread notification counters, using local counters for {} ms: {}",
+                    REDIS_BACKOFF_MS, e.getMessage());
+        }
+        redisRetryAt = System.currentTimeMillis() + REDIS_BACKOFF_MS;
+    }
+
+    /** 从数据库分组统计一批用户的未读数（走 (user_id, is_read, type) 索引） */
+    private Map<Long, long[]> load(List<Long> userIds) {
+        Map<Long, long[]> result = new HashMap<>();
+        for (Long userId : userIds) {
+            result.put(userId, new long[TYPES]);
+        }
+        StringBuilder sql = new StringBuilder("SELECT user_id, type, COUNT(*) FROM notifications WHERE is_read = FALSE AND user_id IN (");
+        for (int i = 0; i < userIds.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(") GROUP BY user_id, type");
+        jdbcTemplate.query(sql.toString(), rs -> {
+            NotificationType type = TYPES_BY_NAME.get(rs.getString(2));
+            if (type != null) {
+                result.get(rs.getLong(1))[type.ordinal()] = rs.getLong(3);
+            }
+        }, userIds.toArray());
+        return result;
+    }
+
+    private Object[] loadArgs(long[] counts) {
+        Object[] args = new Object[TYPES + 1];
+        args[0] = Long.toString(keyTtlMillis);
+        for (int i = 0; i < TYPES; i++) {
+            args[i + 1] = Long.toString(counts[i]);
+        }
+        return args;
+    }
+
+    private static long[] decode(Map<Object, Object> hash) {
+        long[] counts = new long[TYPES];
+        hash.forEach((field, value) -> {
+            int ordinal = Integer.parseInt(field.toString());
+            if (ordinal < TYPES) {
+                counts[ordinal] = Long.parseLong(value.toString());
+            }
+        });
+        return counts;
+    }
+
+    private static String key(long userId) {
+        return KEY_PREFIX + userId;
+    }
+
+    private static String loadKey(long userId) {
+        return LOAD_KEY_PREFIX + userId;
+    }
+}
@@ -0,0 +1,53 @@
+package com.openisle.service;
+
+import com.openisle.model.Notification;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * UnreadNotificationListener
+ *
+ * 通知实体监听器：新增未读、已读状态变化与删除（含 {@code deleteBy...} 撤销路径，逐条触发）时
+ * 向 {@link UnreadNotificationCounter} 提交增量。已读状态的变化通过加载/写入时记录的
+ * {@code storedRead} 判断。JPQL 批量更新不经过此监听器，需自行调用 {@link UnreadNotificationCounter#invalidate(long)}。
+ */
+@Component
+@RequiredArgsConstructor
+public class UnreadNotificationListener {
+    private final ObjectProvider<UnreadNotificationCounter> counter;
+
+    @PostLoad
+    public void onLoad(Notification notification) {
+        notification.setStoredRead(notification.isRead());
+    }
+
+    @PostPersist
+    public void onPersist(Notification notification) {
+        notification.setStoredRead(notification.isRead());
+        if (!notification.isRead()) {
+            counter.ifAvailable(c -> c.changed(notification.getUser().getId(), notification.getType(), 1));
+        }
+    }
+
+    @PostUpdate
+    public void onUpdate(Notification notification) {
+        if (notification.isRead() == notification.isStoredRead()) {
+            return;
+        }
+        notification.setStoredRead(notification.isRead());
+        int delta = notification.isRead() ? -1 : 1;
+        counter.ifAvailable(c -> c.changed(notification.getUser().getId(), notification.getType(), delta));
+    }
+
+    @PostRemove
+    public void onRemove(Notification notification) {
+        if (!notification.isStoredRead()) {
+            counter.ifAvailable(c -> c.changed(notification.getUser().getId(), notification.getType(), -1));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.openisle.service;
+
+import com.openisle.model.Comment;
+import com.openisle.model.Post;
+import com.openisle.model.PostStatus;
+import com.openisle.model.Reaction;
+import com.openisle.model.ReactionType;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * UserStatsListener
+ *
+ * 帖子/评论/表态的 JPA 实体监听器：在写入语句执行后、同一事务内增量维护 {@code user_stats}，
+ * 与业务数据一同提交或回滚。只使用关联实体的 ID，不会触发懒加载。
+ * 帖子更新只有状态或作者实际变化时才重新聚合作者的帖子统计，编辑标题、正文等不产生额外 SQL。
+ */
+@Component
+@RequiredArgsConstructor
+public class UserStatsListener {
+    private final ObjectProvider<UserStatsService> userStatsService;
+
+    @PostLoad
+    public void onLoad(Object entity) {
+        if (entity instanceof Post post) {
+            remember(post);
+        }
+    }
+
+    @PostPersist
+    public void onPersist(Object entity) {
+        if (entity instanceof Post post) {
+            remember(post);
+        }
+        UserStatsService service = userStatsService.getIfAvailable();
+        if (service == null) {
+            return;
+        }
+        if (entity instanceof Post post) {
+            service.postCreated(post.getAuthor().getId(), post.getStatus() == PostStatus.PUBLISHED, createdAt(post.getCreatedAt()));
+        } else if (entity instanceof Comment comment) {
+            service.commentCreated(comment.getAuthor().getId(), createdAt(comment.getCreatedAt()));
+        } else if (entity instanceof Reaction reaction) {
+            reactionChanged(service, reaction, 1);
+        }
+    }
+
+    @PostUpdate
+    public void onUpdate(Object entity) {
+        if (!(entity instanceof Post post)) {
+            return;
+        }
+        Long previousAuthorId = post.getStoredAuthorId();
+        long authorId = post.getAuthor().getId();
+        boolean statusChanged = post.getStatus() != post.getStoredStatus();
+        boolean authorChanged = !Objects.equals(previousAuthorId, authorId);
+        remember(post);
+        if (!statusChanged && !authorChanged) {
+            return;
+        }
+        userStatsService.ifAvailable(s -> {
+            s.refreshPosts(authorId);
+            if (authorChanged && previousAuthorId != null) {
+                // 帖子收到的表态随作者转移，被表态数一并重新聚合
+                s.refreshPosts(previousAuthorId);
+                s.refreshComments(previousAuthorId);
+                s.refreshComments(authorId);
+            }
+        });
+    }
+
+    @PostRemove
+    public void onRemove(Object entity) {
+        UserStatsService service = userStatsService.getIfAvailable();
+        if (service == null) {
+            return;
+        }
+        if (entity instanceof Post post) {
+            service.refreshPosts(post.getAuthor().getId());
+        } else if (entity instanceof Comment comment) {
+            service.refreshComments(comment.getAuthor().getId());
+        } else if (entity instanceof Reaction reaction) {
+            reactionChanged(service, reaction, -1);
+        }
+    }
+
+    private static void remember(Post post) {
+        post.setStoredStatus(post.getStatus());
+        post.setStoredAuthorId(post.getAuthor() == null ? null : post.getAuthor().getId());
+    }
+
+    private static void reactionChanged(UserStatsService service, Reaction reaction, int delta) {
+        Long targetAuthorId = null;
+        if (reaction.getPost() != null) {
+            targetAuthorId = service.postAuthorId(reaction.getPost().getId());
+        } else if (reaction.getComment() != null) {
+            targetAuthorId = service.commentAuthorId(reaction.getComment().getId());
+        }
+        service.reactionChanged(reaction.getUser().getId(), targetAuthorId, reaction.getType() == ReactionType.LIKE, delta);
+    }
+
+    private static LocalDateTime createdAt(LocalDateTime createdAt) {
+        return createdAt == null ? LocalDateTime.now() : createdAt;
+    }
+}
@@ -0,0 +1,362 @@
+package com.openisle.service;
+
+import com.openisle.dto.UserStatsRebuildReport;
+import com.openisle.model.UserStats;
+import com.openisle.repository.UserStatsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * UserStatsService
+ *
+ * 维护 {@code user_stats} 用户统计快照，替代个人主页上逐项执行的聚合查询
+ * （{@code sumViews}、{@code findLastPostTime}、{@code countByAuthor_Id}、{@code countLikesReceived} 等）。
+ *
+ * 设计要点：
+ * - 读取：{@link #get(Long)} 一次主键查询；行不存在时按明细表现算并补建。
+ * - 增量：由 {@link UserStatsListener} 在写入帖子/评论/表态的同一事务内调用，计数列使用原子
+ *   {@code col = col + ?} 更新；删除、状态变化等无法用差量表达的事件，按作者范围重新聚合相关列。
+ * - 浏览量：{@link PostViewCounter} 写回后调用 {@link #addViews(Map)} 同步累加。
+ * - 校正：{@link #rebuild()} 按用户 ID 分段重新聚合，与存储值比对后写回，并报告偏差。
+ *   每段在事务内先锁定快照行再聚合，期间并发的增量会等待该段提交，不会被覆盖。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserStatsService {
+    /** 全量重建时每段的用户 ID 跨度 */
+    static final int REBUILD_CHUNK = 1000;
+
+    private static final String INSERT_SQL = "INSERT INTO user_stats (user_id, post_count, published_views, last_post_at, " +
+            "comment_count, last_comment_at, likes_sent, likes_received, reactions_received) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String OVERWRITE_SQL = "UPDATE user_stats SET post_count = ?, published_views = ?, last_post_at = ?, " +
+            "comment_count = ?, last_comment_at = ?, likes_sent = ?, likes_received = ?, reactions_received = ? WHERE user_id = ?";
+
+    private final UserStatsRepository userStatsRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.user-stats.rebuild-on-startup:false}")
+    private boolean rebuildOnStartup;
+
+    /**
+     * 获取用户统计快照。
+     *
+     * @param userId 用户 ID
+     * @return 统计快照；用户不存在时返回 {@code null}
+     */
+    @Transactional
+    public UserStats get(Long userId) {
+        return userStatsRepository.findById(userId).orElseGet(() -> {
+            ensureRow(userId);
+            return userStatsRepository.findById(userId).orElse(null);
+        });
+    }
+
+    /** 新帖子：发帖数 +1；已发布时推进最近发帖时间 */
+    public void postCreated(long authorId, boolean published, LocalDateTime createdAt) {
+        if (published) {
+            update(authorId, "post_count = post_count + 1, " + advance("last_post_at"), ts(createdAt), ts(createdAt));
+        } else {
+            update(authorId, "post_count = post_count + 1");
+        }
+    }
+
+    /** 帖子状态变化或删除：重新聚合该作者的帖子相关列 */
+    public void refreshPosts(long authorId) {
+        update(authorId, "post_count = (SELECT COUNT(*) FROM posts WHERE author_id = ?), " +
+                        "published_views = (SELECT COALESCE(SUM(views), 0) FROM posts WHERE author_id = ? AND status = 'PUBLISHED'), " +
+                        "last_post_at = (SELECT MAX(created_at) FROM posts WHERE author_id = ? AND status = 'PUBLISHED')",
+                authorId, authorId, authorId);
+    }
+
+    /** 新评论：评论数 +1，推进最近评论时间 */
+    public void commentCreated(long authorId, LocalDateTime createdAt) {
+        update(authorId, "comment_count = comment_count + 1, " + advance("last_comment_at"), ts(createdAt), ts(createdAt));
+    }
+
+    /** 评论删除：重新聚合该作者的评论相关列，以及随之失效的被表态数 */
+    public void refreshComments(long authorId) {
+        update(authorId, "comment_count = (SELECT COUNT(*) FROM comments WHERE author_id = ? AND deleted_at IS NULL), " +
+                        "last_comment_at = (SELECT MAX(created_at) FROM comments WHERE author_id = ? AND deleted_at IS NULL), " +
+                        "likes_received = " + receivedSubquery(true) + ", " +
+                        "reactions_received = " + receivedSubquery(false),
+                authorId, authorId, authorId, authorId, authorId, authorId);
+    }
+
+    /**
+     * 表态新增/撤销。
+     *
+     * @param senderId        表态发起者
+     * @param targetAuthorId  被表态内容的作者（消息上的表态为 {@code null}）
+     * @param like            是否为点赞
+     * @param delta           +1 新增，-1 撤销
+     */
+    public void reactionChanged(long senderId, Long targetAuthorId, boolean like, int delta) {
+        if (like) {
+            update(senderId, "likes_sent = likes_sent + ?", delta);
+        }
+        if (targetAuthorId != null) {
+            update(targetAuthorId, "likes_received = likes_received + ?, reactions_received = reactions_received + ?",
+                    like ? delta : 0, delta);
+        }
+    }
+
+    /** 帖子作者 ID；帖子不存在时返回 {@code null} */
+    public Long postAuthorId(Long postId) {
+        List<Long> ids = jdbcTemplate.queryForList("SELECT author_id FROM posts WHERE id = ?", Long.class, postId);
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    /** 评论作者 ID；评论不存在时返回 {@code null} */
+    public Long commentAuthorId(Long commentId) {
+        List<Long> ids = jdbcTemplate.queryForList("SELECT author_id FROM comments WHERE id = ?", Long.class, commentId);
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    /**
+     * 累加已写回的浏览量（只计已发布帖子，作者尚无快照行时忽略，由读取或重建补齐）。
+     *
+     * @param postDeltas 帖子 ID → 浏览增量
+     */
+    public void addViews(Map<Long, Long> postDeltas) {
+        List<Object[]> args = new ArrayList<>(postDeltas.size());
+        postDeltas.forEach((postId, delta) -> args.add(new Object[]{delta, postId}));
+        jdbcTemplate.batchUpdate("UPDATE user_stats SET published_views = published_views + ? " +
+                "WHERE user_id = (SELECT author_id FROM posts WHERE id = ? AND status = 'PUBLISHED')", args);
+    }
+
+    /** 启动时按需执行一次全量重建（{@code app.user-stats.rebuild-on-startup}） */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (!rebuildOnStartup) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.error("User stats rebuild failed", e);
+            }
+        }, "user-stats-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 全量重建：按用户 ID 分段重新聚合，校正存储值并报告偏差。
+     *
+     * @return 偏差报告
+     */
+    public UserStatsRebuildReport rebuild() {
+        long start = System.currentTimeMillis();
+        UserStatsRebuildReport report = new UserStatsRebuildReport();
+        Long minId = jdbcTemplate.queryForObject("SELECT MIN(user_id) FROM " +
+                "(SELECT id AS user_id FROM users UNION ALL SELECT user_id FROM user_stats) ids", Long.class);
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(user_id) FROM " +
+                "(SELECT id AS user_id FROM users UNION ALL SELECT user_id FROM user_stats) ids", Long.class);
+        if (minId != null) {
+            for (long lo = minId; lo <= maxId; lo += REBUILD_CHUNK) {
+                long from = lo;
+                long to = Math.min(lo + REBUILD_CHUNK - 1, maxId);
+                transactionTemplate.executeWithoutResult(status -> rebuildRange(from, to, report));
+            }
+        }
+        report.finished(System.currentTimeMillis() - start);
+        log.info("User stats rebuilt: {}", report);
+        return report;
+    }
+
+    private void rebuildRange(long from, long to, UserStatsRebuildReport report) {
+        Map<Long, UserStats> stored = new TreeMap<>();
+        for (UserStats row : jdbcTemplate.query("SELECT * FROM user_stats WHERE user_id BETWEEN ? AND ? FOR UPDATE",
+                new BeanPropertyRowMapper<>(UserStats.class), from, to)) {
+            stored.put(row.getUserId(), row);
+        }
+        Map<Long, UserStats> actual = aggregate(from, to);
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> overwrites = new ArrayList<>();
+        for (UserStats expected : actual.values()) {
+            report.scanned();
+            UserStats current = stored.remove(expected.getUserId());
+            if (current == null) {
+                report.inserted();
+                inserts.add(insertArgs(expected));
+            } else if (compare(current, expected, report)) {
+                report.corrected();
+                Object[] args = insertArgs(expected);
+                overwrites.add(rotateIdToEnd(args));
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+        }
+        if (!overwrites.isEmpty()) {
+            jdbcTemplate.batchUpdate(OVERWRITE_SQL, overwrites);
+        }
+        for (Long orphan : stored.keySet()) {
+            report.removed();
+            jdbcTemplate.update("DELETE FROM user_stats WHERE user_id = ?", orphan);
+        }
+    }
+
+    /** 比对存储值与实际值，有偏差时返回 {@code true} */
+    private static boolean compare(UserStats stored, UserStats actual, UserStatsRebuildReport report) {
+        boolean drifted = false;
+        drifted |= count(report, "post_count", stored.getPostCount(), actual.getPostCount());
+        drifted |= count(report, "published_views", stored.getPublishedViews(), actual.getPublishedViews());
+        drifted |= time(report, "last_post_at", stored.getLastPostAt(), actual.getLastPostAt());
+        drifted |= count(report, "comment_count", stored.getCommentCount(), actual.getCommentCount());
+        drifted |= time(report, "last_comment_at", stored.getLastCommentAt(), actual.getLastCommentAt());
+        drifted |= count(report, "likes_sent", stored.getLikesSent(), actual.getLikesSent());
+        drifted |= count(report, "likes_received", stored.getLikesReceived(), actual.getLikesReceived());
+        drifted |= count(report, "reactions_received", stored.getReactionsReceived(), actual.getReactionsReceived());
+        return drifted;
+    }
+
+    private static boolean count(UserStatsRebuildReport report, String column, long stored, long actual) {
+        if (stored == actual) {
+            return false;
+        }
+        report.drift(column, Math.abs(stored - actual));
+        return true;
+    }
+
+    private static boolean time(UserStatsRebuildReport report, String column, LocalDateTime stored, LocalDateTime actual) {
+        if (Objects.equals(stored, actual)) {
+            return false;
+        }
+        report.drift(column, 0);
+        return true;
+    }
+
+    /**
+     * 按明细表聚合一段用户的统计值，口径与 {@code PostRepository}/{@code CommentRepository}/{@code ReactionRepository}
+     * 中的对应查询一致。
+     */
+    Map<Long, UserStats> aggregate(long from, long to) {
+        Map<Long, UserStats> stats = new TreeMap<>();
+        for (Long id : jdbcTemplate.queryForList("SELECT id FROM users WHERE id BETWEEN ? AND ?", Long.class, from, to)) {
+            UserStats row = new UserStats();
+            row.setUserId(id);
+            stats.put(id, row);
+        }
+        if (stats.isEmpty()) {
+            return stats;
+        }
+        jdbcTemplate.query("SELECT author_id, COUNT(*), " +
+                "COALESCE(SUM(CASE WHEN status = 'PUBLISHED' THEN views ELSE 0 END), 0), " +
+                "MAX(CASE WHEN status = 'PUBLISHED' THEN created_at END) " +
+                "FROM posts WHERE author_id BETWEEN ? AND ? GROUP BY author_id", rs -> {
+            UserStats row = stats.get(rs.getLong(1));
+            if (row != null) {
+                row.setPostCount(rs.getLong(2));
+                row.setPublishedViews(rs.getLong(3));
+                row.setLastPostAt(time(rs.getTimestamp(4)));
+            }
+        }, from, to);
+        jdbcTemplate.query("SELECT author_id, COUNT(*), MAX(created_at) FROM comments " +
+                "WHERE author_id BETWEEN ? AND ? AND deleted_at IS NULL GROUP BY author_id", rs -> {
+            UserStats row = stats.get(rs.getLong(1));
+            if (row != null) {
+                row.setCommentCount(rs.getLong(2));
+                row.setLastCommentAt(time(rs.getTimestamp(3)));
+            }
+        }, from, to);
+        jdbcTemplate.query("SELECT user_id, COUNT(*) FROM reactions " +
+                "WHERE user_id BETWEEN ? AND ? AND type = 'LIKE' GROUP BY user_id", rs -> {
+            UserStats row = stats.get(rs.getLong(1));
+            if (row != null) {
+                row.setLikesSent(rs.getLong(2));
+            }
+        }, from, to);
+        for (String target : List.of(
+                "JOIN posts t ON t.id = r.post_id",
+                "JOIN comments t ON t.id = r.comment_id AND t.deleted_at IS NULL")) {
+            jdbcTemplate.query("SELECT t.author_id, COUNT(*), SUM(CASE WHEN r.type = 'LIKE' THEN 1 ELSE 0 END) " +
+                    "FROM reactions r " + target + " WHERE t.author_id BETWEEN ? AND ? GROUP BY t.author_id", rs -> {
+                UserStats row = stats.get(rs.getLong(1));
+                if (row != null) {
+                    row.setReactionsReceived(row.getReactionsReceived() + rs.getLong(2));
+                    row.setLikesReceived(row.getLikesReceived() + rs.getLong(3));
+                }
+            }, from, to);
+        }
+        return stats;
+    }
+
+    /**
+     * 对单个用户执行原子更新；快照行不存在时按明细表现算补建。
+     * 同一连接上现算的结果已包含本事务的写入，因此补建后无需再应用本次差量。
+     */
+    private void update(long userId, String assignments, Object... args) {
+        Object[] all = Arrays.copyOf(args, args.length + 1);
+        all[args.length] = userId;
+        String sql = "UPDATE user_stats SET " + assignments + " WHERE user_id = ?";
+        if (jdbcTemplate.update(sql, all) == 0) {
+            try {
+                ensureRow(userId);
+            } catch (DuplicateKeyException e) {
+                // 并发补建：对方的现算结果不含本事务未提交的写入，需再应用一次差量
+                jdbcTemplate.update(sql, all);
+            }
+        }
+    }
+
+    private void ensureRow(long userId) {
+        UserStats row = aggregate(userId, userId).get(userId);
+        if (row != null) {
+            jdbcTemplate.update(INSERT_SQL, insertArgs(row));
+        }
+    }
+
+    private static String advance(String column) {
+        return column + " = CASE WHEN " + column + " IS NULL OR " + column + " < ? THEN ? ELSE " + column + " END";
+    }
+
+    private static String receivedSubquery(boolean likesOnly) {
+        String type = likesOnly ? " AND r.type = 'LIKE'" : "";
+        return "((SELECT COUNT(*) FROM reactions r JOIN posts t ON t.id = r.post_id WHERE t.author_id = ?" + type + ") + " +
+                "(SELECT COUNT(*) FROM reactions r JOIN comments t ON t.id = r.comment_id AND t.deleted_at IS NULL " +
+                "WHERE t.author_id = ?" + type + "))";
+    }
+
+    private static Object[] insertArgs(UserStats s) {
+        return new Object[]{s.getUserId(), s.getPostCount(), s.getPublishedViews(), ts(s.getLastPostAt()),
+                s.getCommentCount(), ts(s.getLastCommentAt()), s.getLikesSent(), s.getLikesReceived(), s.getReactionsReceived()};
+    }
+
+    /** INSERT 参数（ID 在首位）转为 UPDATE 参数（ID 在末位） */
+    private static Object[] rotateIdToEnd(Object[] insertArgs) {
+        Object[] args = new Object[insertArgs.length];
+        System.arraycopy(insertArgs, 1, args, 0, insertArgs.length - 1);
+        args[args.length - 1] = insertArgs[0];
+        return args;
+    }
+
+    private static Timestamp ts(LocalDateTime time) {
+        return time == null ? null : Timestamp.valueOf(time);
+    }
+
+    private static LocalDateTime time(Timestamp ts) {
+        return ts == null ? null : ts.toLocalDateTime();
+    }
+}
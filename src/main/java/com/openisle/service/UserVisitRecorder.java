@@ -0,0 +1,273 @@
+package com.openisle.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * UserVisitRecorder
+ *
+ * 每日访问记录（{@code user_visits}）的缓冲写入器，取代逐请求的 {@code findByUserAndVisitDate} + 插入。
+ *
+ * 设计要点：
+ * - 本机维护“今日已见”集合（按用户 ID 分片），只有用户当天在本机的第一次访问进入待写队列，其余访问只做一次集合查找；
+ *   日期变化时整体切换到新的一天，旧集合丢弃。
+ * - 待写队列定时（{@code app.user-visits.flush-interval-ms}）或积满一批时批量写入：MySQL 用多行 {@code INSERT IGNORE}，
+ *   其他数据库用 {@code INSERT ... WHERE NOT EXISTS}；其他节点或重启前已写入的同日记录被唯一约束吸收，不抛异常。
+ * - 稳定状态下每个用户每天每个节点最多一次写入；重启或多节点时的重复写入由上述语句忽略。
+ * - 已见集合有上限（{@code app.user-visits.max-seen}），超出后的用户每次访问都入队（仍只写入一条）。
+ * - 写入失败时记录退回队列重试；队列超过 {@code app.user-visits.max-pending} 时丢弃最早的记录并移出已见集合，
+ *   该用户下次访问时重新入队。应用关闭时再写入一次。
+ */
+@Slf4j
+@Service
+public class UserVisitRecorder {
+    /** 单条 INSERT 最多合并的记录数 */
+    static final int BATCH_SIZE = 500;
+    private static final int SHARDS = 16;
+
+    private record Visit(long userId, LocalDate date) {
+    }
+
+    /** 一天的已见集合 */
+    private static final class Day {
+        final LocalDate date;
+        final List<Set<Long>> shards = new ArrayList<>(SHARDS);
+        final AtomicInteger size = new AtomicInteger();
+
+        Day(LocalDate date) {
+            this.date = date;
+            for (int i = 0; i < SHARDS; i++) {
+                shards.add(ConcurrentHashMap.newKeySet());
+            }
+        }
+
+        Set<Long> shard(long userId) {
+            long h = userId * 0x9E3779B97F4A7C15L;
+            return shards.get((int) (h >>> 60) & (SHARDS - 1));
+        }
+    }
+
+    /** 指标快照；{@code written} 为实际插入的行数，不含已存在而被忽略的记录 */
+    public record Snapshot(long visits, long firstVisits, long written, long failed, long dropped, int pending,
+                           int seenToday) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxSeen;
+    private final int maxPending;
+
+    private volatile Day today;
+    private final Object rollover = new Object();
+    private final ConcurrentLinkedQueue<Visit> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingSize = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private volatile Boolean mysql;
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "user-visit-flush");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final LongAdder visits = new LongAdder();
+    private final LongAdder firstVisits = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    @Autowired
+    public UserVisitRecorder(JdbcTemplate jdbcTemplate,
+                             @Value("${app.user-visits.max-seen:1000000}") int maxSeen,
+                             @Value("${app.user-visits.max-pending:100000}") int maxPending) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxSeen = maxSeen;
+        this.maxPending = maxPending;
+        this.today = new Day(LocalDate.now());
+    }
+
+    /**
+     * 记录用户今天的访问。
+     *
+     * @param userId 用户 ID
+     */
+    public void record(long userId) {
+        record(userId, LocalDate.now());
+    }
+
+    void record(long userId, LocalDate date) {
+        visits.increment();
+        Day day = day(date);
+        if (day == null) {
+            // 跨日瞬间仍在处理前一天的请求：直接入队，由写入语句去重
+            firstVisits.increment();
+            enqueue(new Visit(userId, date), true);
+            return;
+        }
+        Set<Long> shard = day.shard(userId);
+        if (shard.contains(userId)) {
+            return;
+        }
+        if (day.size.get() < maxSeen) {
+            if (!shard.add(userId)) {
+                return;
+            }
+            day.size.incrementAndGet();
+        }
+        firstVisits.increment();
+        enqueue(new Visit(userId, date), true);
+    }
+
+    /** 定时写入 */
+    @Scheduled(fixedDelayString = "${app.user-visits.flush-interval-ms:5000}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    /**
+     * 将待写记录批量写入数据库。
+     *
+     * @return 本次处理的记录数（含已存在而被忽略的）
+     */
+    public synchronized int flush() {
+        flushRequested.set(false);
+        List<Visit> batch = new ArrayList<>();
+        Visit visit;
+        while ((visit = pending.poll()) != null) {
+            pendingSize.decrementAndGet();
+            batch.add(visit);
+        }
+        int from = 0;
+        try {
+            for (; from < batch.size(); from += BATCH_SIZE) {
+                write(batch.subList(from, Math.min(from + BATCH_SIZE, batch.size())));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to record {} user visits, will retry", batch.size() - from, e);
+            failed.add(batch.size() - from);
+            for (Visit v : batch.subList(from, batch.size())) {
+                enqueue(v, false);
+            }
+        }
+        return from;
+    }
+
+    /** 应用关闭时写入剩余记录 */
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdown();
+        flush();
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(visits.sum(), firstVisits.sum(), written.sum(), failed.sum(), dropped.sum(),
+                pendingSize.get(), today.size.get());
+    }
+
+    /** 当天的已见集合；日期前进时切换，日期早于当天时返回 {@code null} */
+    private Day day(LocalDate date) {
+        Day day = today;
+        if (day.date.equals(date)) {
+            return day;
+        }
+        if (date.isBefore(day.date)) {
+            return null;
+        }
+        synchronized (rollover) {
+            day = today;
+            if (date.isAfter(day.date)) {
+                day = new Day(date);
+                today = day;
+            }
+            return day.date.equals(date) ? day : null;
+        }
+    }
+
+    /** 入队；写入失败退回时不提前触发写入，等下个周期重试 */
+    private void enqueue(Visit visit, boolean flushWhenFull) {
+        pending.add(visit);
+        if (pendingSize.incrementAndGet() > maxPending) {
+            Visit oldest = pending.poll();
+            if (oldest != null) {
+                pendingSize.decrementAndGet();
+                dropped.increment();
+                forget(oldest);
+            }
+        }
+        if (flushWhenFull && pendingSize.get() >= BATCH_SIZE && flushRequested.compareAndSet(false, true)) {
+            flushExecutor.execute(this::flush);
+        }
+    }
+
+    /** 丢弃的记录移出已见集合，用户下次访问时重新入队 */
+    private void forget(Visit visit) {
+        Day day = today;
+        if (day.date.equals(visit.date()) && day.shard(visit.userId()).remove(visit.userId())) {
+            day.size.decrementAndGet();
+        }
+    }
+
+    private void write(List<Visit> chunk) {
+        if (mysql()) {
+            StringBuilder sql = new StringBuilder("INSERT IGNORE INTO user_visits (user_id, visit_date) VALUES ");
+            List<Object> args = new ArrayList<>(chunk.size() * 2);
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+                args.add(chunk.get(i).userId());
+                args.add(Date.valueOf(chunk.get(i).date()));
+            }
+            written.add(jdbcTemplate.update(sql.toString(), args.toArray()));
+        } else {
+            List<Object[]> args = new ArrayList<>(chunk.size());
+            for (Visit v : chunk) {
+                Date date = Date.valueOf(v.date());
+                args.add(new Object[]{v.userId(), date, v.userId(), date});
+            }
+            String sql = "INSERT INTO user_visits (user_id, visit_date) SELECT ?, ? WHERE NOT EXISTS " +
+                    "(SELECT 1 FROM user_visits WHERE user_id = ? AND visit_date = ?)";
+            try {
+                for (int rows : jdbcTemplate.batchUpdate(sql, args)) {
+                    // 驱动不返回行数（SUCCESS_NO_INFO）时为负，不计入
+                    written.add(Math.max(0, rows));
+                }
+            } catch (DuplicateKeyException e) {
+                // 与其他节点并发插入同一条：逐条重试，已存在的记录被 NOT EXISTS 跳过（批内失败前已插入的行不再计入）
+                for (Object[] row : args) {
+                    try {
+                        written.add(jdbcTemplate.update(sql, row));
+                    } catch (DuplicateKeyException ignored) {
+                        // 已由其他节点写入
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean mysql() {
+        Boolean result = mysql;
+        if (result == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+            result = product != null && product.toLowerCase().contains("mysql");
+            mysql = result;
+        }
+        return result;
+    }
+}
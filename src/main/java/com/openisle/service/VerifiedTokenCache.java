@@ -0,0 +1,128 @@
+package com.openisle.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * VerifiedTokenCache
+ *
+ * 已验证令牌的本机缓存，由 {@link JwtService} 持有：同一令牌在会话内反复出现时，
+ * 验证退化为一次 SHA-256 与一次哈希表查找，不再重复 Base64 解码、JSON 解析与 HMAC 校验。
+ *
+ * 设计要点：
+ * - 键为 (用途, 令牌 SHA-256 的前 128 位)，不保存令牌原文；值为主题、签发与过期时间。
+ * - 过期感知：条目在令牌过期时间与缓存时长（{@code ttl}）二者较早者失效，失效后重新完整验证。
+ * - 有界：条目数达到上限时先清理失效条目，仍超出时任意淘汰至上限的 90%，清理同一时刻只有一个线程执行。
+ * - 只缓存验证成功的结果；吊销由 {@link JwtService} 在命中后另行检查，并可按令牌、主题、用途主动失效。
+ */
+public class VerifiedTokenCache {
+    private record Key(int type, long hi, long lo) {
+    }
+
+    private record Entry(JwtService.VerifiedToken token, long validUntil) {
+    }
+
+    /** 指标快照 */
+    public record Snapshot(long hits, long misses, long evicted, int size, double hitRate) {
+    }
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    });
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    public VerifiedTokenCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /** 命中且未失效时返回验证结果，否则返回 {@code null} */
+    public JwtService.VerifiedToken get(JwtService.TokenType type, String token) {
+        Key key = key(type, token);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (System.currentTimeMillis() >= entry.validUntil()) {
+            entries.remove(key, entry);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.token();
+    }
+
+    public void put(JwtService.TokenType type, String token, JwtService.VerifiedToken verified) {
+        long validUntil = Math.min(verified.expiresAt(), System.currentTimeMillis() + ttlMillis);
+        if (entries.size() >= maxEntries) {
+            sweep();
+        }
+        entries.put(key(type, token), new Entry(verified, validUntil));
+    }
+
+    /** 失效单个令牌 */
+    public void invalidate(JwtService.TokenType type, String token) {
+        entries.remove(key(type, token));
+    }
+
+    /** 失效某主题在指定时间（毫秒）之前签发的全部令牌 */
+    public void invalidateSubject(String subject, long issuedBefore) {
+        entries.values().removeIf(e -> e.token().subject().equals(subject) && e.token().issuedAt() < issuedBefore);
+    }
+
+    /** 失效某用途的全部令牌（密钥轮换时） */
+    public void clear(JwtService.TokenType type) {
+        entries.keySet().removeIf(k -> k.type() == type.ordinal());
+    }
+
+    public Snapshot snapshot() {
+        long hits = this.hits.sum();
+        long total = hits + misses.sum();
+        return new Snapshot(hits, misses.sum(), evicted.sum(), entries.size(), total == 0 ? 0 : (double) hits / total);
+    }
+
+    private void sweep() {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            int before = entries.size();
+            entries.values().removeIf(e -> now >= e.validUntil());
+            int target = maxEntries - maxEntries / 10;
+            Iterator<Key> it = entries.keySet().iterator();
+            while (entries.size() > target && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+            evicted.add(Math.max(0, before - entries.size()));
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    private static Key key(JwtService.TokenType type, String token) {
+        byte[] digest = SHA256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+        ByteBuffer buffer = ByteBuffer.wrap(digest);
+        return new Key(type.ordinal(), buffer.getLong(), buffer.getLong());
+    }
+}
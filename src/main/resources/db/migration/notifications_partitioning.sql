@@ -0,0 +1,39 @@
+-- Convert notifications to monthly RANGE COLUMNS(created_at) partitions (MySQL 8 only).
+--
+-- Run once, manually, during a low-traffic window: every statement rebuilds the whole table.
+-- Afterwards set NOTIFICATION_PARTITIONING_ENABLED=true so the daily retention job keeps
+-- creating partitions ahead of time and drops archived months.
+--
+-- Partitioned tables cannot carry foreign keys and every unique key must include the
+-- partitioning column, so the foreign keys on notifications are dropped and the primary key
+-- becomes (id, created_at).
+
+SET SESSION group_concat_max_len = 1000000;
+
+-- 1. Drop the foreign keys (their names are generated by Hibernate, look them up)
+SET @fks = (SELECT GROUP_CONCAT(CONCAT('DROP FOREIGN KEY `', CONSTRAINT_NAME, '`') SEPARATOR ', ')
+            FROM information_schema.REFERENTIAL_CONSTRAINTS
+            WHERE CONSTRAINT_SCHEMA = DATABASE() AND TABLE_NAME = 'notifications');
+SET @ddl = IF(@fks IS NULL, 'DO 0', CONCAT('ALTER TABLE notifications ', @fks));
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 2. Include the partitioning column in the primary key
+ALTER TABLE notifications DROP PRIMARY KEY, ADD PRIMARY KEY (id, created_at);
+
+-- 3. One partition per month from the oldest notification to three months ahead, plus pmax
+SET @parts = (WITH RECURSIVE months (m) AS (
+                  SELECT CAST(DATE_FORMAT(COALESCE(MIN(created_at), NOW()), '%Y-%m-01') AS DATE) FROM notifications
+                  UNION ALL
+                  SELECT m + INTERVAL 1 MONTH FROM months
+                  WHERE m < CAST(DATE_FORMAT(NOW() + INTERVAL 3 MONTH, '%Y-%m-01') AS DATE))
+              SELECT GROUP_CONCAT(CONCAT('PARTITION p', DATE_FORMAT(m, '%Y%m'),
+                                         ' VALUES LESS THAN (''', m + INTERVAL 1 MONTH, ' 00:00:00'')')
+                                  ORDER BY m SEPARATOR ', ')
+              FROM months);
+SET @ddl = CONCAT('ALTER TABLE notifications PARTITION BY RANGE COLUMNS(created_at) (',
+                  @parts, ', PARTITION pmax VALUES LESS THAN (MAXVALUE))');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,63 @@
+package com.openisle;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * 测试共用的 JDBC 数据工具。
+ *
+ * 用于 {@code @Transactional(propagation = Propagation.NOT_SUPPORTED)} 的 DataJpaTest：数据实际提交，
+ * 由测试直接插入最小合法的行，并在 {@code @AfterEach} 中按外键顺序清空。
+ */
+public final class TestDatabase {
+
+    private TestDatabase() {
+    }
+
+    /**
+     * 插入一个已验证、已审核的普通用户。
+     *
+     * @return 用户 ID
+     */
+    public static long insertUser(JdbcTemplate jdbc, String username) {
+        jdbc.update("INSERT INTO users (username, email, password, verified, experience, point, approved, role) " +
+                "VALUES (?, ?, 'x', TRUE, 0, 0, TRUE, 'USER')", username, username + "@example.com");
+        return jdbc.queryForObject("SELECT id FROM users WHERE username = ?", Long.class, username);
+    }
+
+    /**
+     * 插入一个分类。
+     *
+     * @return 分类 ID
+     */
+    public static long insertCategory(JdbcTemplate jdbc, String name) {
+        jdbc.update("INSERT INTO categories (name, icon, description) VALUES (?, 'i', 'd')", name);
+        return jdbc.queryForObject("SELECT id FROM categories WHERE name = ?", Long.class, name);
+    }
+
+    /**
+     * 插入一篇当前时间发布的普通帖子。
+     *
+     * @return 帖子 ID
+     */
+    public static long insertPost(JdbcTemplate jdbc, long authorId, long categoryId) {
+        jdbc.update("INSERT INTO posts (title, content, created_at, author_id, category_id, views, status, type, closed, rss_excluded) " +
+                "VALUES ('t', 'c', CURRENT_TIMESTAMP, ?, ?, 0, 'PUBLISHED', 'NORMAL', FALSE, TRUE)", authorId, categoryId);
+        return jdbc.queryForObject("SELECT MAX(id) FROM posts WHERE author_id = ?", Long.class, authorId);
+    }
+
+    /**
+     * 清空用户及其元素集合表：经实体保存的用户带有默认的通知偏好行，须先于用户删除。调用前先清空引用用户的业务表。
+     */
+    public static void deleteUsers(JdbcTemplate jdbc) {
+        deleteAll(jdbc, "user_disabled_notification_types", "user_disabled_email_notification_types", "users");
+    }
+
+    /**
+     * 依次清空给定的表，先子表后父表。
+     */
+    public static void deleteAll(JdbcTemplate jdbc, String... tables) {
+        for (String table : tables) {
+            jdbc.update("DELETE FROM " + table);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.openisle.notification;
+
+import com.openisle.dto.BulkUpdateResult;
+import com.openisle.model.NotificationType;
+import com.openisle.service.UnreadNotificationCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.openisle.TestDatabase.deleteAll;
+import static com.openisle.TestDatabase.deleteUsers;
+import static com.openisle.TestDatabase.insertUser;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@DataJpaTest
+@Import({NotificationBulkService.class, NotificationCoalescer.class, UnreadNotificationCounter.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NotificationBulkServiceTest {
+
+    @Autowired
+    private NotificationBulkService bulkService;
+
+    @Autowired
+    private UnreadNotificationCounter unreadCounter;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @AfterEach
+    void cleanUp() {
+        deleteAll(jdbc, "notification_actors", "notifications");
+        deleteUsers(jdbc);
+    }
+
+    @Test
+    void markReadAndRevokeWorkInChunksAndReportAffectedRows() {
+        long userId = insertUser(jdbc, "reader");
+        long followerId = insertUser(jdbc, "follower");
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 2600; i++) {
+            rows.add(new Object[]{i < 2500 ? "POST_UPDATED" : "USER_FOLLOWED", userId, followerId, i % 26 == 25});
+        }
+        jdbc.batchUpdate("INSERT INTO notifications (type, user_id, from_user_id, is_read, created_at) VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP)", rows);
+        List<Long> ids = jdbc.queryForList("SELECT id FROM notifications ORDER BY id", Long.class);
+        long unread = jdbc.queryForObject("SELECT COUNT(*) FROM notifications WHERE is_read = FALSE", Long.class);
+        assertEquals(unread, unreadCounter.unreadCount(userId, 0));
+
+        BulkUpdateResult page = bulkService.markRead(userId, 0, 100);
+        assertEquals(100, page.getAffectedRows());
+        long cursor = page.getNextCursor();
+
+        long watermark = ids.get(1999);
+        long expected = jdbc.queryForObject("SELECT COUNT(*) FROM notifications WHERE is_read = FALSE AND id <= ?", Long.class, watermark);
+        BulkUpdateResult all = bulkService.markAllRead(userId, watermark);
+        assertEquals(expected, all.getAffectedRows());
+        assertEquals(2, all.getChunks());
+        assertNull(all.getNextCursor());
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM notifications WHERE is_read = FALSE AND id <= ?", Long.class, watermark));
+        assertEquals(unread - 100 - expected, unreadCounter.unreadCount(userId, 0));
+        // 水位线之后的通知保持未读，游标继续向后推进
+        assertEquals(100, bulkService.markRead(userId, cursor, 100).getAffectedRows());
+
+        BulkUpdateResult revoked = bulkService.revoke(NotificationType.POST_UPDATED, followerId, null, null, null);
+        assertEquals(2500, revoked.getAffectedRows());
+        assertEquals(3, revoked.getChunks());
+        assertEquals(100, jdbc.queryForObject("SELECT COUNT(*) FROM notifications", Long.class));
+        assertEquals(jdbc.queryForObject("SELECT COUNT(*) FROM notifications WHERE is_read = FALSE", Long.class),
+                unreadCounter.unreadCount(userId, 0));
+    }
+}
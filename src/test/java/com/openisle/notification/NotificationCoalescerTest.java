@@ -0,0 +1,114 @@
+package com.openisle.notification;
+
+import com.openisle.model.NotificationType;
+import com.openisle.model.ReactionType;
+import com.openisle.service.UnreadNotificationCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.openisle.TestDatabase.deleteAll;
+import static com.openisle.TestDatabase.deleteUsers;
+import static com.openisle.TestDatabase.insertCategory;
+import static com.openisle.TestDatabase.insertPost;
+import static com.openisle.TestDatabase.insertUser;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import({NotificationCoalescer.class, UnreadNotificationCounter.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NotificationCoalescerTest {
+
+    @Autowired
+    private NotificationCoalescer coalescer;
+
+    @Autowired
+    private UnreadNotificationCounter unreadCounter;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @AfterEach
+    void cleanUp() {
+        deleteAll(jdbc, "notification_actors", "notifications", "comments", "posts", "categories");
+        deleteUsers(jdbc);
+    }
+
+    @Test
+    void replayedViralPostCollapsesIntoAggregateRowsAndRevokesExactly() {
+        long authorId = insertUser(jdbc, "author");
+        List<Long> fans = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            fans.add(insertUser(jdbc, "fan" + i));
+        }
+        long postId = insertPost(jdbc, authorId, insertCategory(jdbc, "c"));
+        jdbc.update("INSERT INTO comments (content, created_at, author_id, post_id) VALUES ('c', CURRENT_TIMESTAMP, ?, ?)", authorId, postId);
+        long commentId = jdbc.queryForObject("SELECT MAX(id) FROM comments", Long.class);
+
+        // 回放事件日志：每位粉丝点赞帖子，部分粉丝另加表情、点赞评论，并伴随大量浏览
+        Random random = new Random(11);
+        int events = 0;
+        for (int i = 0; i < fans.size(); i++) {
+            long fan = fans.get(i);
+            coalescer.record(NotificationType.REACTION, authorId, fan, postId, null, ReactionType.LIKE, null);
+            events++;
+            if (i % 6 == 0) {
+                coalescer.record(NotificationType.REACTION, authorId, fan, postId, null, ReactionType.SMILE, null);
+                events++;
+            }
+            if (i % 10 == 0) {
+                coalescer.record(NotificationType.REACTION, authorId, fan, null, commentId, ReactionType.LIKE, null);
+                events++;
+            }
+            for (int v = random.nextInt(3); v > 0; v--) {
+                coalescer.record(NotificationType.POST_VIEWED, authorId, fans.get(random.nextInt(fans.size())), postId, null, null, null);
+                events++;
+            }
+        }
+        coalescer.record(NotificationType.USER_FOLLOWED, authorId, fans.get(0), null, null, null, null);
+        events++;
+
+        long rows = jdbc.queryForObject("SELECT COUNT(*) FROM notifications", Long.class);
+        assertEquals(5, rows);
+        assertTrue(rows * 10 < events, events + " events -> " + rows + " rows");
+        assertEquals(5, unreadCounter.unreadCount(authorId, 0));
+        assertEquals(300, actorCount(postId, "LIKE"));
+        assertEquals(50, actorCount(postId, "SMILE"));
+        long lastFan = fans.get(fans.size() - 1);
+        assertTrue(jdbc.queryForObject("SELECT recent_actor_ids FROM notifications WHERE post_id = ? AND reaction_type = 'LIKE'",
+                String.class, postId).startsWith(lastFan + ","));
+
+        // 撤销只扣除该参与者
+        assertEquals(1, coalescer.revoke(NotificationType.REACTION, lastFan, postId, null, ReactionType.LIKE));
+        assertEquals(299, actorCount(postId, "LIKE"));
+        assertEquals(fans.get(fans.size() - 2), jdbc.queryForObject(
+                "SELECT from_user_id FROM notifications WHERE post_id = ? AND reaction_type = 'LIKE'", Long.class, postId));
+        assertEquals(0, coalescer.revoke(NotificationType.REACTION, lastFan, postId, null, ReactionType.LIKE));
+
+        // 参与者全部撤销后删除聚合行，未读数同步减少
+        for (int i = 0; i < fans.size(); i += 6) {
+            coalescer.revoke(NotificationType.REACTION, fans.get(i), postId, null, ReactionType.SMILE);
+        }
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM notifications WHERE reaction_type = 'SMILE'", Long.class));
+        assertEquals(4, unreadCounter.unreadCount(authorId, 0));
+        assertEquals(1, coalescer.revoke(NotificationType.USER_FOLLOWED, fans.get(0), null, null, null));
+        assertEquals(3, unreadCounter.unreadCount(authorId, 0));
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM notification_actors a WHERE NOT EXISTS " +
+                "(SELECT 1 FROM notifications n WHERE n.id = a.notification_id)", Long.class));
+    }
+
+    private long actorCount(long postId, String reactionType) {
+        return jdbc.queryForObject("SELECT actor_count FROM notifications WHERE type = 'REACTION' AND post_id = ? AND reaction_type = ?",
+                Long.class, postId, reactionType);
+    }
+}
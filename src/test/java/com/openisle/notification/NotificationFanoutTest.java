@@ -0,0 +1,85 @@
+package com.openisle.notification;
+
+import com.openisle.model.NotificationType;
+import com.openisle.service.UnreadNotificationCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.openisle.TestDatabase.deleteAll;
+import static com.openisle.TestDatabase.deleteUsers;
+import static com.openisle.TestDatabase.insertUser;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+        "app.notifications.fanout.broker=memory",
+        "app.notifications.fanout.batch-size=20"
+})
+@Import({NotificationFanoutService.class, NotificationFanoutWriter.class, InMemoryFanoutBroker.class,
+        FanoutMetrics.class, UnreadNotificationCounter.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NotificationFanoutTest {
+
+    @Autowired
+    private NotificationFanoutService fanoutService;
+
+    @Autowired
+    private InMemoryFanoutBroker broker;
+
+    @Autowired
+    private FanoutMetrics metrics;
+
+    @Autowired
+    private UnreadNotificationCounter unreadCounter;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @AfterEach
+    void cleanUp() {
+        deleteAll(jdbc, "notifications");
+        deleteUsers(jdbc);
+    }
+
+    @Test
+    void fanOutFiltersDisabledRecipientsAndBatchesPerShard() throws Exception {
+        long authorId = insertUser(jdbc, "author");
+        List<Long> followers = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            long id = insertUser(jdbc, "follower" + i);
+            followers.add(id);
+            if (i % 3 == 0) {
+                jdbc.update("INSERT INTO user_disabled_notification_types (user_id, notification_type) VALUES (?, 'FOLLOWED_POST')", id);
+            }
+        }
+        followers.add(authorId);
+        followers.add(followers.get(1));
+
+        fanoutService.fanout(NotificationType.FOLLOWED_POST, authorId, null, null, null, followers);
+        assertTrue(broker.awaitIdle(30, TimeUnit.SECONDS));
+
+        assertEquals(400, jdbc.queryForObject("SELECT COUNT(*) FROM notifications WHERE type = 'FOLLOWED_POST'", Long.class));
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM notifications WHERE user_id = ?", Long.class, authorId));
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM (SELECT user_id FROM notifications GROUP BY user_id HAVING COUNT(*) > 1) d",
+                Long.class));
+        assertEquals(1, unreadCounter.unreadCount(followers.get(1), 0));
+        assertEquals(0, unreadCounter.unreadCount(followers.get(0), 0));
+
+        FanoutMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(0, snapshot.backlog());
+        assertEquals(400, snapshot.inserted());
+        assertEquals(200, snapshot.filtered());
+        assertTrue(snapshot.published() >= fanoutService.shards());
+        assertTrue(snapshot.avgBatchSize() <= 20);
+    }
+}
@@ -0,0 +1,184 @@
+package com.openisle.notification;
+
+import com.openisle.dto.BulkUpdateResult;
+import com.openisle.model.User;
+import com.openisle.repository.UserRepository;
+import com.openisle.service.JobLockService;
+import com.openisle.service.UnreadNotificationCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+import static com.openisle.TestDatabase.deleteAll;
+import static com.openisle.TestDatabase.deleteUsers;
+import static com.openisle.TestDatabase.insertUser;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import({NotificationRetentionService.class, NotificationQueryService.class, UnreadNotificationCounter.class,
+        LocalNotificationArchiveStore.class, JobLockService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NotificationRetentionServiceTest {
+
+    @TempDir
+    static Path archiveDir;
+
+    @DynamicPropertySource
+    static void archiveProperties(DynamicPropertyRegistry registry) {
+        registry.add("app.notifications.archive.dir", archiveDir::toString);
+    }
+
+    @Autowired
+    private NotificationRetentionService retentionService;
+
+    @Autowired
+    private NotificationQueryService queryService;
+
+    @Autowired
+    private UnreadNotificationCounter unreadCounter;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @AfterEach
+    void cleanUp() {
+        deleteAll(jdbc, "notification_actors", "notifications", "job_locks");
+        deleteUsers(jdbc);
+    }
+
+    @Test
+    void purgesOldReadNotificationsAndArchivesExpiredMonths() throws IOException {
+        long userId = insertUser(jdbc, "reader");
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expired = YearMonth.now().minusMonths(14).atDay(10).atTime(12, 0);
+        LocalDateTime halfYear = now.minusDays(200);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            rows.add(new Object[]{userId, i % 3 == 1, Timestamp.valueOf(expired.plusMinutes(i))});
+        }
+        for (int i = 0; i < 50; i++) {
+            rows.add(new Object[]{userId, i < 40, Timestamp.valueOf(halfYear.plusMinutes(i))});
+        }
+        for (int i = 0; i < 20; i++) {
+            rows.add(new Object[]{userId, i < 5, Timestamp.valueOf(now.minusMinutes(i))});
+        }
+        jdbc.batchUpdate("INSERT INTO notifications (type, user_id, is_read, created_at) VALUES ('POST_UPDATED', ?, ?, ?)", rows);
+        long archivedId = jdbc.queryForObject("SELECT MIN(id) FROM notifications", Long.class);
+        jdbc.update("INSERT INTO notification_actors (notification_id, actor_id, acted_at) VALUES (?, ?, ?)",
+                archivedId, userId, Timestamp.valueOf(expired));
+        assertEquals(20 + 10 + 15, unreadCounter.unreadCount(userId, 0));
+
+        User user = userRepository.findById(userId).orElseThrow();
+        assertEquals(20, queryService.list(user, null, null, false, PageRequest.of(0, 50)).getTotalElements());
+        assertEquals(15, queryService.list(user, false, null, false, PageRequest.of(0, 50)).getTotalElements());
+        assertEquals(100, queryService.list(user, null, null, true, PageRequest.of(0, 50)).getTotalElements());
+
+        // 其他节点持有维护租约时本节点跳过
+        assertTrue(new JobLockService(jdbc).tryAcquire("notification-retention", Duration.ofMinutes(5)));
+        retentionService.maintain();
+        assertEquals(100, jdbc.queryForObject("SELECT COUNT(*) FROM notifications", Long.class));
+
+        // 过期月份与半年前的已读通知
+        BulkUpdateResult purged = retentionService.purgeRead();
+        assertEquals(10 + 40, purged.getAffectedRows());
+
+        BulkUpdateResult archived = retentionService.archive();
+        assertEquals(20, archived.getAffectedRows());
+        Path file = archiveDir.resolve("notifications-" + YearMonth.from(expired) + ".jsonl.gz");
+        List<String> lines;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            lines = reader.lines().toList();
+        }
+        assertEquals(20, lines.size());
+        assertTrue(lines.get(0).contains("\"id\":" + archivedId));
+
+        assertEquals(30, jdbc.queryForObject("SELECT COUNT(*) FROM notifications", Long.class));
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM notification_actors", Long.class));
+        assertEquals(30, queryService.list(user, null, null, true, PageRequest.of(0, 50)).getTotalElements());
+        assertEquals(jdbc.queryForObject("SELECT COUNT(*) FROM notifications WHERE is_read = FALSE", Long.class),
+                unreadCounter.unreadCount(userId, 0));
+    }
+
+    /**
+     * 存储基准：按 24 个月均匀生成通知，对比最近分区查询与全量历史查询，并测量清理与归档吞吐。
+     * 运行方式：{@code mvn test -Dtest=NotificationRetentionServiceTest -Dbenchmark=true -Dbenchmark.rows=100000000}
+     * （1 亿行需使用 MySQL，先执行 {@code db/migration/notifications_partitioning.sql} 并开启
+     * {@code app.notifications.partitioning.enabled}；默认 H2 上建议 100 万行）
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void storageBenchmark() {
+        int rows = Integer.getInteger("benchmark.rows", 1_000_000);
+        int users = Math.max(1, rows / 1000);
+        for (int i = 0; i < users; i++) {
+            insertUser(jdbc, "u" + i);
+        }
+        long firstUser = jdbc.queryForObject("SELECT MIN(id) FROM users", Long.class);
+        Random random = new Random(15);
+        LocalDateTime start = YearMonth.now().minusMonths(23).atDay(1).atStartOfDay();
+        long span = Duration.between(start, LocalDateTime.now()).toMinutes();
+        long seeding = System.currentTimeMillis();
+        List<Object[]> batch = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            LocalDateTime createdAt = start.plusMinutes((long) i * span / rows);
+            batch.add(new Object[]{firstUser + random.nextInt(users), random.nextInt(10) < 8, Timestamp.valueOf(createdAt)});
+            if (batch.size() == 10_000 || i == rows - 1) {
+                jdbc.batchUpdate("INSERT INTO notifications (type, user_id, is_read, created_at) VALUES ('POST_UPDATED', ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        System.out.printf("seeded %d rows in %d ms%n", rows, System.currentTimeMillis() - seeding);
+
+        User user = userRepository.findById(firstUser).orElseThrow();
+        long recent = median(() -> queryService.list(user, null, null, false, PageRequest.of(0, 20)));
+        long history = median(() -> queryService.list(user, null, null, true, PageRequest.of(0, 20)));
+        BulkUpdateResult purged = retentionService.purgeRead();
+        BulkUpdateResult archived = retentionService.archive();
+        System.out.printf("rows=%d partitioned=%s recent page=%dus history page=%dus | purge %d rows in %d ms | archive %d rows in %d ms%n",
+                rows, retentionService.partitioned(), recent / 1000, history / 1000,
+                purged.getAffectedRows(), purged.getElapsedMillis(), archived.getAffectedRows(), archived.getElapsedMillis());
+    }
+
+    private static long median(Supplier<?> query) {
+        long[] samples = new long[15];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            query.get();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+}
@@ -0,0 +1,168 @@
+package com.openisle.push;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PushDispatcherTest {
+
+    /** 模拟一个节点上的连接：记录每个目标的本机连接数与收到的帧 */
+    private static class SimulatedSink implements PushSink {
+        final Map<String, Integer> connections = new ConcurrentHashMap<>();
+        final List<PushPayload> sent = new ArrayList<>();
+        final ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        final LongAdder deliveries = new LongAdder();
+
+        void connect(PushEvent.Kind kind, long targetId) {
+            connections.merge(kind + ":" + targetId, 1, Integer::sum);
+        }
+
+        @Override
+        public boolean connected(PushEvent.Kind kind, long targetId) {
+            return connections.containsKey(kind + ":" + targetId);
+        }
+
+        @Override
+        public synchronized void send(PushPayload payload) {
+            sent.add(payload);
+            int receivers = connections.getOrDefault(payload.getKind() + ":" + payload.getTargetId(), 0);
+            deliveries.add(receivers);
+            latencies.add(System.currentTimeMillis() - payload.getPublishedAt());
+        }
+    }
+
+    @Test
+    void coalescesPerTargetAndOnlyDeliversOnSubscribedNodes() {
+        LocalPushBus bus = new LocalPushBus();
+        SimulatedSink first = new SimulatedSink();
+        SimulatedSink second = new SimulatedSink();
+        PushDispatcher a = new PushDispatcher(bus, first, 2, 3);
+        PushDispatcher b = new PushDispatcher(bus, second, 2, 3);
+        first.connect(PushEvent.Kind.MESSAGE, 1);
+        first.connect(PushEvent.Kind.NOTIFICATION, 7);
+        second.connect(PushEvent.Kind.MESSAGE, 2);
+
+        for (long id = 1; id <= 5; id++) {
+            bus.publish(new PushEvent(PushEvent.Kind.MESSAGE, 1, id, 9L, System.currentTimeMillis()));
+        }
+        bus.publish(new PushEvent(PushEvent.Kind.NOTIFICATION, 7, null, null, System.currentTimeMillis()));
+        bus.publish(new PushEvent(PushEvent.Kind.NOTIFICATION, 7, null, null, System.currentTimeMillis()));
+        bus.publish(new PushEvent(PushEvent.Kind.MESSAGE, 3, 6L, 9L, System.currentTimeMillis()));
+
+        assertEquals(2, a.flush());
+        assertEquals(0, b.flush());
+        PushPayload messages = first.sent.stream().filter(p -> p.getKind() == PushEvent.Kind.MESSAGE).findFirst().orElseThrow();
+        assertEquals(List.of(1L, 2L, 3L), messages.getIds());
+        assertEquals(5, messages.getCount());
+        assertTrue(messages.isResync());
+        PushPayload notifications = first.sent.stream().filter(p -> p.getKind() == PushEvent.Kind.NOTIFICATION).findFirst().orElseThrow();
+        assertEquals(2, notifications.getCount());
+        assertFalse(notifications.isResync());
+        assertTrue(second.sent.isEmpty());
+        assertEquals(8, b.snapshot().filtered());
+
+        // 待下发目标已满时新目标被丢弃，已在等待的目标继续合并
+        first.connect(PushEvent.Kind.MESSAGE, 4);
+        bus.publish(new PushEvent(PushEvent.Kind.MESSAGE, 1, 7L, 9L, System.currentTimeMillis()));
+        bus.publish(new PushEvent(PushEvent.Kind.NOTIFICATION, 7, null, null, System.currentTimeMillis()));
+        bus.publish(new PushEvent(PushEvent.Kind.MESSAGE, 4, 8L, 9L, System.currentTimeMillis()));
+        bus.publish(new PushEvent(PushEvent.Kind.MESSAGE, 1, 9L, 9L, System.currentTimeMillis()));
+        assertEquals(2, a.flush());
+        PushDispatcher.Snapshot snapshot = a.snapshot();
+        assertEquals(1, snapshot.dropped());
+        assertEquals(4, snapshot.frames());
+        assertEquals(10, snapshot.events());
+        assertEquals(0, snapshot.pending());
+    }
+
+    /**
+     * 负载基准：多个节点共享一条广播通道，共模拟 10k 个连接（每个连接一个用户队列，并订阅一个会话），
+     * 多线程持续发布消息与通知事件，统计每秒投递数与发布到下发的延迟分布。
+     * 运行方式：{@code mvn test -Dtest=PushDispatcherTest -Dbenchmark=true -Dbenchmark.connections=10000}
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void loadHarness() throws Exception {
+        int connections = Integer.getInteger("benchmark.connections", 10_000);
+        int nodes = Integer.getInteger("benchmark.nodes", 4);
+        int conversations = Math.max(1, connections / 10);
+        int seconds = Integer.getInteger("benchmark.seconds", 10);
+        long coalesceMillis = Long.getLong("benchmark.coalesce-ms", 100);
+        LocalPushBus bus = new LocalPushBus();
+        List<SimulatedSink> sinks = new ArrayList<>();
+        List<PushDispatcher> dispatchers = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            SimulatedSink sink = new SimulatedSink();
+            sinks.add(sink);
+            dispatchers.add(new PushDispatcher(bus, sink, 50_000, 50));
+        }
+        Random random = new Random(19);
+        for (int c = 0; c < connections; c++) {
+            SimulatedSink sink = sinks.get(c % nodes);
+            sink.connect(PushEvent.Kind.NOTIFICATION, c);
+            sink.connect(PushEvent.Kind.MESSAGE, random.nextInt(conversations));
+        }
+
+        ScheduledExecutorService flushers = Executors.newScheduledThreadPool(nodes);
+        for (PushDispatcher dispatcher : dispatchers) {
+            flushers.scheduleWithFixedDelay(dispatcher::flush, coalesceMillis, coalesceMillis, TimeUnit.MILLISECONDS);
+        }
+        int producers = 8;
+        ExecutorService publishers = Executors.newFixedThreadPool(producers);
+        LongAdder published = new LongAdder();
+        long deadline = System.currentTimeMillis() + seconds * 1000L;
+        for (int p = 0; p < producers; p++) {
+            int seed = p;
+            publishers.submit(() -> {
+                Random r = new Random(seed);
+                long id = (long) seed << 40;
+                while (System.currentTimeMillis() < deadline) {
+                    if (r.nextInt(4) == 0) {
+                        bus.publish(new PushEvent(PushEvent.Kind.NOTIFICATION, r.nextInt(connections), null, null,
+                                System.currentTimeMillis()));
+                    } else {
+                        bus.publish(new PushEvent(PushEvent.Kind.MESSAGE, r.nextInt(conversations), ++id, 1L,
+                                System.currentTimeMillis()));
+                    }
+                    published.increment();
+                }
+            });
+        }
+        publishers.shutdown();
+        publishers.awaitTermination(seconds + 30L, TimeUnit.SECONDS);
+        flushers.shutdown();
+        flushers.awaitTermination(10, TimeUnit.SECONDS);
+        dispatchers.forEach(PushDispatcher::flush);
+
+        long deliveries = sinks.stream().mapToLong(s -> s.deliveries.sum()).sum();
+        long[] latencies = sinks.stream().flatMap(s -> s.latencies.stream()).mapToLong(Long::longValue).toArray();
+        Arrays.sort(latencies);
+        long dropped = dispatchers.stream().mapToLong(d -> d.snapshot().dropped()).sum();
+        long frames = dispatchers.stream().mapToLong(d -> d.snapshot().frames()).sum();
+        System.out.printf("connections=%d nodes=%d events=%d (%d/s) frames=%d deliveries=%d (%d/s) dropped=%d " +
+                        "latency p50=%dms p99=%dms max=%dms%n",
+                connections, nodes, published.sum(), published.sum() / seconds, frames, deliveries, deliveries / seconds,
+                dropped, percentile(latencies, 0.50), percentile(latencies, 0.99),
+                latencies.length == 0 ? 0 : latencies[latencies.length - 1]);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted.length == 0 ? 0 : sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+    }
+}
@@ -0,0 +1,40 @@
+package com.openisle.push;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StompAuthInterceptorTest {
+
+    private static Message<byte[]> frame(StompCommand command, String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setDestination(destination);
+        accessor.setUser(() -> "1");
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    @Test
+    void clientFramesOtherThanSubscriptionsAreRejected() {
+        StompAuthInterceptor interceptor = new StompAuthInterceptor(null, null, null);
+        // 已认证用户也不能向会话主题或用户队列发送帧
+        assertThrows(MessageDeliveryException.class,
+                () -> interceptor.preSend(frame(StompCommand.SEND, "/topic/conversations/1"), null));
+        assertThrows(MessageDeliveryException.class,
+                () -> interceptor.preSend(frame(StompCommand.SEND, "/user/2/queue/notifications"), null));
+        assertThrows(MessageDeliveryException.class, () -> interceptor.preSend(frame(StompCommand.BEGIN, null), null));
+        assertThrows(MessageDeliveryException.class,
+                () -> interceptor.preSend(frame(StompCommand.SUBSCRIBE, "/topic/other"), null));
+
+        Message<byte[]> own = frame(StompCommand.SUBSCRIBE, "/user" + StompPushSink.NOTIFICATION_QUEUE);
+        assertSame(own, interceptor.preSend(own, null));
+        Message<byte[]> unsubscribe = frame(StompCommand.UNSUBSCRIBE, null);
+        assertSame(unsubscribe, interceptor.preSend(unsubscribe, null));
+    }
+}
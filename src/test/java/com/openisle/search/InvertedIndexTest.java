@@ -0,0 +1,149 @@
+package com.openisle.search;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InvertedIndexTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void tokenizerSplitsCjkIntoBigramsAndLowercasesWords() {
+        assertEquals(List.of("数据", "据库", "mysql"), SearchTokenizer.queryTerms("数据库 MySQL！"));
+        assertEquals(List.of("库"), SearchTokenizer.queryTerms("库"));
+        Map<String, Integer> terms = SearchTokenizer.indexTerms("数据库");
+        assertTrue(terms.keySet().containsAll(List.of("数", "据", "库", "数据", "据库")));
+    }
+
+    @Test
+    void matchesAllTermsAndRanksByRelevance() throws Exception {
+        InvertedIndex index = new InvertedIndex(dir, 100);
+        put(index, 1, "数据库索引优化", "");
+        put(index, 2, "闲聊", "今天聊聊数据库，顺便说说索引");
+        put(index, 3, "数据库", "只有数据库没有另一个词");
+
+        assertEquals(List.of(1L, 2L), search(index, "数据库 索引"));
+        assertEquals(3, index.search(SearchTokenizer.queryTerms("数据库"), 0, 10).getTotal());
+        assertEquals(List.of(), search(index, "不存在的词"));
+    }
+
+    @Test
+    void updatesAndDeletesSurviveFlushAndReopen() throws Exception {
+        InvertedIndex index = new InvertedIndex(dir, 100);
+        put(index, 1, "spring boot", "");
+        put(index, 2, "spring data", "");
+        index.flush();
+        put(index, 1, "hibernate", "");
+        index.remove(2);
+
+        assertEquals(List.of(), search(index, "spring"));
+        assertEquals(List.of(1L), search(index, "hibernate"));
+
+        index.flush();
+        InvertedIndex reopened = new InvertedIndex(dir, 100);
+        assertEquals(1, reopened.docCount());
+        assertEquals(List.of(), search(reopened, "spring"));
+        assertEquals(List.of(1L), search(reopened, "hibernate"));
+    }
+
+    @Test
+    void mergeKeepsOnlyLiveDocumentsAndPaginates() throws Exception {
+        InvertedIndex index = new InvertedIndex(dir, 10);
+        for (long id = 1; id <= 50; id++) {
+            put(index, id, "公告 " + id, "");
+        }
+        for (long id = 1; id <= 50; id += 5) {
+            index.remove(id);
+        }
+        index.flush();
+        assertTrue(index.segmentCount() > 1);
+        assertTrue(index.maybeMerge(1));
+        assertEquals(1, index.segmentCount());
+
+        List<Long> all = new ArrayList<>();
+        for (int page = 0; page < 5; page++) {
+            SearchResult result = index.search(SearchTokenizer.queryTerms("公告"), page * 10, 10);
+            assertEquals(40, result.getTotal());
+            all.addAll(result.getIds());
+        }
+        assertEquals(40, all.stream().distinct().count());
+        assertTrue(all.stream().noneMatch(id -> id % 5 == 1));
+
+        InvertedIndex reopened = new InvertedIndex(dir, 10);
+        assertEquals(40, reopened.docCount());
+    }
+
+    /**
+     * 50 万帖子下与 {@code LIKE '%kw%'} 的对比，默认跳过。
+     * 运行方式：{@code mvn test -Dtest=InvertedIndexTest -Dbenchmark=true}
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void searchVersusLikeBenchmark() throws Exception {
+        int docs = Integer.getInteger("benchmark.docs", 500_000);
+        String[] words = "数据库 索引 缓存 分页 并发 事务 消息 通知 搜索 排序 前端 后端 部署 监控 日志 测试".split(" ");
+        Random random = new Random(42);
+
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:search" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE posts (id BIGINT PRIMARY KEY, title VARCHAR(255), content CLOB)");
+        InvertedIndex index = new InvertedIndex(dir, 50_000);
+
+        List<Object[]> batch = new ArrayList<>();
+        for (long id = 1; id <= docs; id++) {
+            StringBuilder content = new StringBuilder();
+            for (int w = 0; w < 40; w++) {
+                content.append(words[random.nextInt(words.length)]).append(w % 7 == 0 ? "。" : "");
+            }
+            String title = words[random.nextInt(words.length)] + "问题 " + id;
+            put(index, id, title, content.toString());
+            batch.add(new Object[]{id, title, content.toString()});
+            if (batch.size() == 5_000) {
+                jdbc.batchUpdate("INSERT INTO posts (id, title, content) VALUES (?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        index.flush();
+        index.maybeMerge(1);
+
+        String keyword = "事务消息";
+        long start = System.nanoTime();
+        List<Long> like = jdbc.queryForList(
+                "SELECT id FROM posts WHERE LOWER(title) LIKE ? OR LOWER(content) LIKE ? LIMIT 20",
+                Long.class, "%" + keyword + "%", "%" + keyword + "%");
+        long likeMicros = (System.nanoTime() - start) / 1000;
+
+        start = System.nanoTime();
+        SearchResult result = index.search(SearchTokenizer.queryTerms(keyword), 0, 20);
+        long indexMicros = (System.nanoTime() - start) / 1000;
+
+        System.out.printf("docs=%d LIKE: %d us (%d rows) | index: %d us (%d hits, %d segments)%n",
+                docs, likeMicros, like.size(), indexMicros, result.getTotal(), index.segmentCount());
+    }
+
+    private static void put(InvertedIndex index, long id, String title, String content) throws Exception {
+        Map<String, Integer> terms = new HashMap<>();
+        int length = SearchTokenizer.indexTerms(title, SearchIndexService.TITLE_WEIGHT, terms)
+                + SearchTokenizer.indexTerms(content, 1, terms);
+        index.put(id, terms, length);
+    }
+
+    private static List<Long> search(InvertedIndex index, String keyword) {
+        return index.search(SearchTokenizer.queryTerms(keyword), 0, 10).getIds();
+    }
+}
@@ -0,0 +1,89 @@
+package com.openisle.search;
+
+import com.openisle.model.SearchDocumentType;
+import com.openisle.push.LocalPushBus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.openisle.TestDatabase.deleteAll;
+import static com.openisle.TestDatabase.deleteUsers;
+import static com.openisle.TestDatabase.insertCategory;
+import static com.openisle.TestDatabase.insertPost;
+import static com.openisle.TestDatabase.insertUser;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = {
+        "app.push.bus=local",
+        "app.search.catch-up-settle-ms=0"
+})
+@Import({SearchIndexService.class, LocalPushBus.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SearchIndexServiceTest {
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @DynamicPropertySource
+    static void indexDir(DynamicPropertyRegistry registry) throws IOException {
+        String dir = Files.createTempDirectory("search-index").toString();
+        registry.add("app.search.index-dir", () -> dir);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        deleteAll(jdbc, "search_index_changes", "posts", "categories");
+        deleteUsers(jdbc);
+    }
+
+    @Test
+    void catchUpReplaysChangesMissedByTheBus() {
+        long author = insertUser(jdbc, "author");
+        long post = insertPost(jdbc, author, insertCategory(jdbc, "c"));
+
+        // 只写日志、不发布事件，模拟广播丢失
+        jdbc.update("UPDATE posts SET title = 'lighthouse' WHERE id = ?", post);
+        searchIndexService.recordChange(SearchDocumentType.POST, post);
+        searchIndexService.catchUp();
+        assertEquals(List.of(post), searchIndexService.searchPosts("lighthouse", 0, 10).getIds());
+
+        jdbc.update("UPDATE posts SET title = 'harbor' WHERE id = ?", post);
+        searchIndexService.recordChange(SearchDocumentType.POST, post);
+        searchIndexService.catchUp();
+        assertEquals(List.of(), searchIndexService.searchPosts("lighthouse", 0, 10).getIds());
+        assertEquals(List.of(post), searchIndexService.searchPosts("harbor", 0, 10).getIds());
+
+        jdbc.update("DELETE FROM posts WHERE id = ?", post);
+        searchIndexService.recordChange(SearchDocumentType.POST, post);
+        searchIndexService.catchUp();
+        assertEquals(List.of(), searchIndexService.searchPosts("harbor", 0, 10).getIds());
+    }
+
+    @Test
+    void catchUpPrunesExpiredChangeLog() {
+        jdbc.update("INSERT INTO search_index_changes (target_type, target_id, created_at) VALUES ('POST', 1, ?)",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(2)));
+        searchIndexService.recordChange(SearchDocumentType.COMMENT, 1);
+
+        searchIndexService.catchUp();
+
+        assertEquals(List.of("COMMENT"),
+                jdbc.queryForList("SELECT target_type FROM search_index_changes", String.class));
+    }
+}
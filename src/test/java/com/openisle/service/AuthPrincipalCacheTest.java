@@ -0,0 +1,90 @@
+package com.openisle.service;
+
+import com.openisle.dto.AuthPrincipal;
+import com.openisle.model.NotificationType;
+import com.openisle.model.Role;
+import com.openisle.model.User;
+import com.openisle.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static com.openisle.TestDatabase.deleteUsers;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import(AuthPrincipalCache.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AuthPrincipalCacheTest {
+
+    @Autowired
+    private AuthPrincipalCache cache;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @AfterEach
+    void cleanUp() {
+        deleteUsers(jdbc);
+    }
+
+    @Test
+    void snapshotIsCachedAndInvalidatedOnUserUpdate() {
+        User user = new User();
+        user.setUsername("alice");
+        user.setEmail("alice@example.com");
+        user.setPassword("x");
+        user.setVerified(true);
+        user.getDisabledEmailNotificationTypes().add(NotificationType.MENTION);
+        user = userRepository.save(user);
+
+        AuthPrincipal principal = cache.find("alice").orElseThrow();
+        assertEquals(user.getId(), principal.getId());
+        assertEquals(Role.USER, principal.getRole());
+        assertTrue(principal.isVerified());
+        assertTrue(principal.isNotificationDisabled(NotificationType.POST_VIEWED));
+        assertTrue(principal.isNotificationDisabled(NotificationType.USER_ACTIVITY));
+        assertFalse(principal.isNotificationDisabled(NotificationType.MENTION));
+        assertTrue(principal.isEmailNotificationDisabled(NotificationType.MENTION));
+        assertEquals(user.getDisabledNotificationTypes(), principal.getDisabledNotificationTypes());
+
+        // 稳定状态：再次查找不查库，绕过实体的 SQL 更新在失效前不可见
+        jdbc.update("UPDATE users SET approved = FALSE WHERE id = ?", user.getId());
+        assertTrue(cache.find("alice").orElseThrow().isApproved());
+        assertEquals(1, cache.snapshot().hits());
+        assertEquals(1, cache.snapshot().loads());
+        cache.userChanged(user.getId());
+        assertFalse(cache.find("alice").orElseThrow().isApproved());
+
+        // 与快照无关的字段更新不失效；其他用户的失效不影响本用户
+        jdbc.update("UPDATE users SET approved = TRUE WHERE id = ?", user.getId());
+        user = userRepository.findById(user.getId()).orElseThrow();
+        user.setPoint(user.getPoint() + 5);
+        user = userRepository.save(user);
+        cache.invalidate(user.getId() + 1);
+        assertFalse(cache.find("alice").orElseThrow().isApproved());
+
+        // 经实体更新（含改名）由监听器失效
+        user = userRepository.findById(user.getId()).orElseThrow();
+        user.setRole(Role.ADMIN);
+        user.setUsername("alice2");
+        userRepository.save(user);
+        assertTrue(cache.find("alice").isEmpty());
+        assertTrue(cache.find("alice2").orElseThrow().isAdmin());
+        assertTrue(cache.find("alice2").orElseThrow().isApproved());
+
+        userRepository.deleteById(user.getId());
+        assertTrue(cache.find("alice2").isEmpty());
+        assertEquals(0, cache.snapshot().size());
+    }
+}
@@ -0,0 +1,180 @@
+package com.openisle.service;
+
+import com.openisle.dto.MessageItem;
+import com.openisle.push.LocalPushBus;
+import com.openisle.push.PushEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.openisle.TestDatabase.deleteAll;
+import static com.openisle.TestDatabase.deleteUsers;
+import static com.openisle.TestDatabase.insertUser;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+        "app.push.bus=local",
+        "app.messages.channel-cache.window-messages=200",
+        "app.messages.channel-cache.max-bytes=5000",
+        "app.messages.channel-cache.verify-ms=0"
+})
+@Import({ChannelMessageCache.class, LocalPushBus.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ChannelMessageCacheTest {
+
+    @Autowired
+    private ChannelMessageCache cache;
+
+    @Autowired
+    private LocalPushBus bus;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @AfterEach
+    void cleanUp() {
+        jdbc.update("UPDATE messages SET reply_to_id = NULL");
+        deleteAll(jdbc, "messages", "message_conversations");
+        deleteUsers(jdbc);
+    }
+
+    @Test
+    void servesHistoryFromSegmentsAndFollowsNewMessages() {
+        long sender = insertUser(jdbc, "sender");
+        long channel = conversation(true);
+        long direct = conversation(false);
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+        long interleaved = 0;
+        for (int i = 0; i < 150; i++) {
+            if (i == 75) {
+                interleaved = message(direct, sender, null, start.plusSeconds(i));
+            }
+            message(channel, sender, i % 10 == 0 && i > 0 ? lastId() : null, start.plusSeconds(i));
+        }
+
+        cache.page(channel, 0, 50);
+        cache.page(channel, 1, 50);
+        cache.page(channel, 0, 50);
+        cache.page(channel, 2, 50);
+        assertTrue(cache.page(channel, 3, 50).isEmpty());
+        for (int page = 0; page < 3; page++) {
+            assertEquals(fromDatabase(channel, page, 50), cache.page(channel, page, 50));
+        }
+
+        long newest = 0;
+        for (int i = 0; i < 3; i++) {
+            newest = message(channel, sender, null, LocalDateTime.now());
+            bus.publish(new PushEvent(PushEvent.Kind.MESSAGE, channel, newest, sender, System.currentTimeMillis()));
+        }
+        List<MessageItem> latest = cache.page(channel, 0, 50);
+        assertEquals(newest, latest.get(0).getId());
+        assertEquals(fromDatabase(channel, 0, 50), latest);
+
+        assertEquals(fromDatabase(direct, 0, 50), cache.page(direct, 0, 50));
+        assertTrue(cache.page(channel, 5, 50).isEmpty());
+
+        // 提交顺序与 ID 顺序不一致时窗口失效
+        bus.publish(new PushEvent(PushEvent.Kind.MESSAGE, channel, interleaved, sender, System.currentTimeMillis()));
+        cache.page(channel, 0, 50);
+
+        long other = conversation(true);
+        for (int i = 0; i < 100; i++) {
+            message(other, sender, null, start.plusSeconds(i));
+        }
+        // 超出窗口上限的深翻页直接查库
+        assertTrue(cache.page(other, 4, 50).isEmpty());
+        cache.page(other, 0, 50);
+        cache.page(other, 1, 50);
+
+        ChannelMessageCache.Snapshot snapshot = cache.snapshot();
+        assertEquals(7, snapshot.hits());
+        assertEquals(6, snapshot.loads());
+        assertEquals(1, snapshot.refreshes());
+        assertEquals(2, snapshot.bypassed());
+        assertEquals(1, snapshot.invalidated());
+        assertEquals(1, snapshot.evicted());
+        assertEquals(1, snapshot.windows());
+        assertEquals(100L * ChannelMessageCache.RECORD_BYTES, snapshot.bytes());
+        assertEquals(fromDatabase(other, 1, 50), cache.page(other, 1, 50));
+    }
+
+    @Test
+    void messageCommittedDuringRefreshInvalidatesWindow() {
+        long sender = insertUser(jdbc, "sender");
+        long channel = conversation(true);
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+        for (int i = 0; i < 10; i++) {
+            message(channel, sender, null, start.plusSeconds(i));
+        }
+        cache.page(channel, 0, 50);
+
+        // 较小的 ID 在补齐查询时尚未提交：以删除模拟，查询只见到较大的 ID
+        LocalDateTime late = LocalDateTime.now();
+        long lower = message(channel, sender, null, late);
+        long higher = message(channel, sender, null, late);
+        jdbc.update("DELETE FROM messages WHERE id = ?", lower);
+        bus.publish(new PushEvent(PushEvent.Kind.MESSAGE, channel, lower, sender, System.currentTimeMillis()));
+        bus.publish(new PushEvent(PushEvent.Kind.MESSAGE, channel, higher, sender, System.currentTimeMillis()));
+        assertEquals(higher, cache.page(channel, 0, 50).get(0).getId());
+        assertEquals(1, cache.snapshot().invalidated());
+        assertEquals(0, cache.snapshot().windows());
+
+        jdbc.update("INSERT INTO messages (id, conversation_id, sender_id, created_at) VALUES (?, ?, ?, ?)",
+                lower, channel, sender, Timestamp.valueOf(late));
+        assertEquals(fromDatabase(channel, 0, 50), cache.page(channel, 0, 50));
+    }
+
+    @Test
+    void lostAnnouncementIsRecoveredFromDatabase() {
+        long sender = insertUser(jdbc, "sender");
+        long channel = conversation(true);
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+        for (int i = 0; i < 10; i++) {
+            message(channel, sender, null, start.plusSeconds(i));
+        }
+        cache.page(channel, 0, 50);
+
+        // 新消息的宣告在总线上丢失
+        long lost = message(channel, sender, null, LocalDateTime.now());
+        assertEquals(lost, cache.page(channel, 0, 50).get(0).getId());
+        assertEquals(fromDatabase(channel, 0, 50), cache.page(channel, 0, 50));
+        assertEquals(1, cache.snapshot().recovered());
+        assertEquals(1, cache.snapshot().refreshes());
+        assertEquals(1, cache.snapshot().windows());
+    }
+
+    private List<MessageItem> fromDatabase(long conversationId, int page, int size) {
+        return jdbc.query("SELECT id, sender_id, reply_to_id, created_at FROM messages WHERE conversation_id = ? " +
+                "ORDER BY created_at DESC, id DESC LIMIT ? OFFSET ?", (rs, i) -> {
+            return new MessageItem(rs.getLong(1), rs.getLong(2), rs.getObject(3, Long.class),
+                    rs.getTimestamp(4).toLocalDateTime());
+        }, conversationId, size, page * size);
+    }
+
+    private long message(long conversationId, long senderId, Long replyToId, LocalDateTime createdAt) {
+        jdbc.update("INSERT INTO messages (conversation_id, sender_id, reply_to_id, created_at) VALUES (?, ?, ?, ?)",
+                conversationId, senderId, replyToId, Timestamp.valueOf(createdAt));
+        return lastId();
+    }
+
+    private long lastId() {
+        return jdbc.queryForObject("SELECT MAX(id) FROM messages", Long.class);
+    }
+
+    private long conversation(boolean channel) {
+        jdbc.update("INSERT INTO message_conversations (channel, created_at) VALUES (?, ?)", channel, Timestamp.valueOf(LocalDateTime.now()));
+        return jdbc.queryForObject("SELECT MAX(id) FROM message_conversations", Long.class);
+    }
+}
@@ -0,0 +1,221 @@
+package com.openisle.service;
+
+import com.openisle.dto.CommentNode;
+import com.openisle.dto.CursorPage;
+import com.openisle.model.Comment;
+import com.openisle.model.CommentSort;
+import com.openisle.model.Post;
+import com.openisle.repository.CommentRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.openisle.TestDatabase.insertCategory;
+import static com.openisle.TestDatabase.insertPost;
+import static com.openisle.TestDatabase.insertUser;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({CommentThreadService.class, CommentScoreService.class})
+class CommentThreadServiceTest {
+
+    @Autowired
+    private CommentThreadService commentThreadService;
+
+    @Autowired
+    private CommentScoreService commentScoreService;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private long userId;
+    private long postId;
+
+    @Test
+    void rootPagesFollowSortAndRepliesFormTree() {
+        seedPost();
+        long a = comment(null, 1);
+        long b = comment(null, 2);
+        long c = comment(null, 3);
+        long d = comment(null, 4);
+        long e = comment(null, 5);
+        long a1 = comment(a, 6);
+        long a1a = comment(a1, 7);
+        long b1 = comment(b, 8);
+        comment(d, 9); // 父评论已删除，不展示
+        comment(e, 10);
+        comment(e, 11);
+        jdbc.update("UPDATE comments SET deleted_at = CURRENT_TIMESTAMP WHERE id = ?", d);
+        for (String type : List.of("LIKE", "SMILE", "FIRE")) {
+            jdbc.update("INSERT INTO reactions (type, created_at, user_id, comment_id) VALUES (?, CURRENT_TIMESTAMP, ?, ?)",
+                    type, userId, c);
+        }
+        commentScoreService.recomputePost(postId);
+
+        assertEquals(List.of(e, c, b, a), rootIds(CommentSort.NEWEST));
+        assertEquals(List.of(a, b, c, e), rootIds(CommentSort.OLDEST));
+        assertEquals(List.of(c, a, e, b), rootIds(CommentSort.MOST_INTERACTIONS));
+        List<Long> byIndex = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<Comment> page = commentThreadService.rootsByInteractions(postId, cursor, 3);
+            page.getItems().forEach(comment -> byIndex.add(comment.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(List.of(c, a, e, b), byIndex);
+
+        CommentNode root = commentThreadService.thread(postId, CommentSort.OLDEST, null, 1).getItems().get(0);
+        assertEquals(a, root.getComment().getId());
+        assertEquals(2, root.getReplyCount());
+        assertEquals(a1, root.getReplies().get(0).getComment().getId());
+        assertEquals(a1a, root.getReplies().get(0).getReplies().get(0).getComment().getId());
+        CommentNode second = commentThreadService.thread(postId, CommentSort.OLDEST, null, 2).getItems().get(1);
+        assertEquals(List.of(b1), second.getReplies().stream().map(n -> n.getComment().getId()).toList());
+    }
+
+    @Test
+    void incrementalScoresMatchRecompute() {
+        seedPost();
+        long root = comment(null, 1);
+        long a = comment(root, 2);
+        long b = comment(a, 3);
+        long c = comment(b, 4);
+        long d = comment(root, 5);
+        for (long parent : List.of(root, a, b, root)) {
+            commentScoreService.replyAdded(parent);
+        }
+        jdbc.update("INSERT INTO reactions (type, created_at, user_id, comment_id) VALUES ('LIKE', CURRENT_TIMESTAMP, ?, ?)",
+                userId, b);
+        commentScoreService.reactionChanged(b, 1);
+        assertEquals(0, commentScoreService.recomputePost(postId));
+        assertEquals(4, score(root));
+
+        // 删除 b：祖先减去 b 与其子树，已隐藏子树下的新回复不计分
+        jdbc.update("UPDATE comments SET deleted_at = CURRENT_TIMESTAMP WHERE id = ?", b);
+        commentScoreService.commentRemoved(b, a);
+        comment(c, 6);
+        commentScoreService.replyAdded(c);
+        assertEquals(2, score(root));
+        assertEquals(0, score(a));
+        assertEquals(0, score(d));
+        assertEquals(0, commentScoreService.recomputePost(postId));
+    }
+
+    @Test
+    void wholeThreadLoadsInOneStatement() {
+        seedPost();
+        Random random = new Random(3);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Long parent = ids.isEmpty() || random.nextInt(4) == 0 ? null : ids.get(random.nextInt(ids.size()));
+            ids.add(comment(parent, i));
+        }
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        String cursor = null;
+        int roots = 0;
+        do {
+            CursorPage<CommentNode> page = commentThreadService.thread(postId, CommentSort.NEWEST, cursor, 20);
+            roots += page.getItems().size();
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        long pages = (roots + 19) / 20;
+        assertEquals(pages, statistics.getPrepareStatementCount());
+    }
+
+    /**
+     * 1 万条评论的帖子：逐层查询与一次性加载的对比，默认跳过。
+     * 运行方式：{@code mvn test -Dtest=CommentThreadServiceTest -Dbenchmark=true}
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void tenThousandCommentThreadBenchmark() {
+        seedPost();
+        Random random = new Random(42);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            Long parent = ids.isEmpty() || random.nextInt(5) == 0 ? null : ids.get(random.nextInt(ids.size()));
+            ids.add(comment(parent, i));
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Post post = entityManager.find(Post.class, postId);
+
+        for (int round = 0; round < 3; round++) {
+            entityManager.clear();
+            statistics.clear();
+            long start = System.nanoTime();
+            int walked = 0;
+            List<Comment> level = commentRepository.findByPostAndParentIsNullOrderByCreatedAtAsc(post);
+            while (!level.isEmpty()) {
+                List<Comment> next = new ArrayList<>();
+                for (Comment comment : level) {
+                    walked++;
+                    next.addAll(commentRepository.findByParentOrderByCreatedAtAsc(comment));
+                }
+                level = next;
+            }
+            long walkMillis = (System.nanoTime() - start) / 1_000_000;
+            long walkStatements = statistics.getPrepareStatementCount();
+
+            entityManager.clear();
+            statistics.clear();
+            start = System.nanoTime();
+            CursorPage<CommentNode> page = commentThreadService.thread(postId, CommentSort.NEWEST, null, 20);
+            long loadMillis = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.printf("comments=%d N+1 walk: %d ms / %d statements | thread loader: %d ms / %d statements (%d roots on page)%n",
+                    walked, walkMillis, walkStatements, loadMillis, statistics.getPrepareStatementCount(), page.getItems().size());
+        }
+    }
+
+    private List<Long> rootIds(CommentSort sort) {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<CommentNode> page = commentThreadService.thread(postId, sort, cursor, 2);
+            page.getItems().forEach(n -> ids.add(n.getComment().getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private long score(long commentId) {
+        return jdbc.queryForObject("SELECT interaction_score FROM comments WHERE id = ?", Long.class, commentId);
+    }
+
+    private void seedPost() {
+        userId = insertUser(jdbc, "thread");
+        postId = insertPost(jdbc, userId, insertCategory(jdbc, "thread"));
+    }
+
+    private long comment(Long parentId, int minute) {
+        jdbc.update("INSERT INTO comments (content, created_at, author_id, post_id, parent_id) VALUES ('c', ?, ?, ?, ?)",
+                Timestamp.valueOf(LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(minute)), userId, postId, parentId);
+        return jdbc.queryForObject("SELECT MAX(id) FROM comments", Long.class);
+    }
+}
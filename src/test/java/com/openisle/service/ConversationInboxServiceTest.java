@@ -0,0 +1,166 @@
+package com.openisle.service;
+
+import com.openisle.dto.CursorPage;
+import com.openisle.dto.InboxEntry;
+import com.openisle.model.Message;
+import com.openisle.model.MessageConversation;
+import com.openisle.model.MessageParticipant;
+import com.openisle.model.User;
+import com.openisle.repository.MessageConversationRepository;
+import com.openisle.repository.MessageParticipantRepository;
+import com.openisle.repository.MessageRepository;
+import com.openisle.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static com.openisle.TestDatabase.deleteAll;
+import static com.openisle.TestDatabase.deleteUsers;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import({ConversationInboxService.class, MessageUnreadService.class, JobLockService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ConversationInboxServiceTest {
+
+    @Autowired
+    private ConversationInboxService inboxService;
+
+    @Autowired
+    private MessageConversationRepository conversationRepository;
+
+    @Autowired
+    private MessageParticipantRepository participantRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @AfterEach
+    void cleanUp() {
+        jdbc.update("UPDATE message_conversations SET last_message_id = NULL");
+        deleteAll(jdbc, "conversation_inbox", "channel_activity", "messages", "message_participants", "message_conversations");
+        deleteUsers(jdbc);
+    }
+
+    @Test
+    void inboxFollowsSendsAndReadsAndMatchesRebuild() throws InterruptedException {
+        User alice = user("alice");
+        User bob = user("bob");
+        User carol = user("carol");
+        long direct = conversation(false, alice, bob);
+        long channel = conversation(true, alice, bob, carol);
+        long other = conversation(false, alice, carol);
+
+        send(direct, bob);
+        send(direct, bob);
+        send(channel, carol);
+        send(other, alice);
+        send(channel, bob);
+
+        CursorPage<InboxEntry> first = inboxService.inbox(alice.getId(), null, 2);
+        assertEquals(List.of(channel, other), first.getItems().stream().map(InboxEntry::getConversationId).toList());
+        assertEquals(2, first.getItems().get(0).getUnreadCount());
+        assertTrue(first.getItems().get(0).getParticipants().isEmpty());
+        assertEquals(0, first.getItems().get(1).getUnreadCount());
+        assertEquals(2, first.getItems().get(1).getParticipants().size());
+        CursorPage<InboxEntry> second = inboxService.inbox(alice.getId(), first.getNextCursor(), 2);
+        assertEquals(List.of(direct), second.getItems().stream().map(InboxEntry::getConversationId).toList());
+        assertEquals(2, second.getItems().get(0).getUnreadCount());
+        assertNull(second.getNextCursor());
+
+        long lastId = send(direct, bob);
+        // 私聊的两位参与者各一行
+        assertEquals(2, inboxService.updatePreview(direct, lastId, "hello"));
+        transactionTemplate.executeWithoutResult(status -> participantRepository.findByConversationIdAndUserId(direct, alice.getId())
+                .ifPresent(p -> p.setLastReadAt(LocalDateTime.now())));
+        InboxEntry top = inboxService.inbox(alice.getId(), null, 1).getItems().get(0);
+        assertEquals(direct, top.getConversationId());
+        assertEquals(0, top.getUnreadCount());
+        assertEquals("hello", top.getLastMessagePreview());
+        List<InboxEntry> bobs = inboxService.inbox(bob.getId(), null, 10).getItems();
+        assertEquals(List.of(direct, channel), bobs.stream().map(InboxEntry::getConversationId).toList());
+        assertEquals(List.of(0L, 1L), bobs.stream().map(InboxEntry::getUnreadCount).toList());
+
+        // 频道消息只更新频道行，成员没有收件箱行
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM conversation_inbox WHERE conversation_id = ?", Long.class, channel));
+        long channelMessage = send(channel, carol);
+        assertEquals(1, inboxService.updatePreview(channel, channelMessage, "hi all"));
+        InboxEntry latest = inboxService.inbox(alice.getId(), null, 1).getItems().get(0);
+        assertEquals(channel, latest.getConversationId());
+        assertEquals("hi all", latest.getLastMessagePreview());
+        assertEquals(carol.getId(), latest.getLastSenderId());
+
+        // 回填结果与增量维护一致
+        String inboxRows = "SELECT user_id, conversation_id, last_activity_at, last_message_id FROM conversation_inbox ORDER BY user_id, conversation_id";
+        String channelRows = "SELECT conversation_id, last_activity_at, last_message_id, last_sender_id FROM channel_activity ORDER BY conversation_id";
+        List<Map<String, Object>> before = jdbc.queryForList(inboxRows);
+        List<Map<String, Object>> channelsBefore = jdbc.queryForList(channelRows);
+        assertEquals(2 + 2 + 1, inboxService.rebuild());
+        assertEquals(before, jdbc.queryForList(inboxRows));
+        assertEquals(channelsBefore, jdbc.queryForList(channelRows));
+
+        // 启动回填只补齐缺失的行（如功能上线前的会话），已有的行不改写
+        assertEquals(0, inboxService.backfill());
+        jdbc.update("DELETE FROM conversation_inbox WHERE conversation_id = ?", direct);
+        jdbc.update("DELETE FROM channel_activity WHERE conversation_id = ?", channel);
+        assertEquals(2 + 1, inboxService.backfill());
+        assertEquals(before, jdbc.queryForList(inboxRows));
+        assertEquals(channelsBefore, jdbc.queryForList(channelRows));
+    }
+
+    private long conversation(boolean channel, User... users) {
+        return transactionTemplate.execute(status -> {
+            MessageConversation conversation = new MessageConversation();
+            conversation.setChannel(channel);
+            for (User user : users) {
+                MessageParticipant participant = new MessageParticipant();
+                participant.setConversation(conversation);
+                participant.setUser(user);
+                conversation.getParticipants().add(participant);
+            }
+            return conversationRepository.save(conversation).getId();
+        });
+    }
+
+    private long send(long conversationId, User sender) throws InterruptedException {
+        Thread.sleep(5);
+        return transactionTemplate.execute(status -> {
+            MessageConversation conversation = conversationRepository.findById(conversationId).orElseThrow();
+            Message message = new Message();
+            message.setConversation(conversation);
+            message.setSender(sender);
+            message = messageRepository.save(message);
+            conversation.setLastMessage(message);
+            return message.getId();
+        });
+    }
+
+    private User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("x");
+        return userRepository.save(user);
+    }
+}
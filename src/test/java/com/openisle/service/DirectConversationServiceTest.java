@@ -0,0 +1,124 @@
+package com.openisle.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.openisle.TestDatabase.deleteAll;
+import static com.openisle.TestDatabase.deleteUsers;
+import static com.openisle.TestDatabase.insertUser;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.fail;
+
+@DataJpaTest(properties = "app.messages.dm-pairs.backfill-on-startup=false")
+@Import({DirectConversationService.class, JobLockService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DirectConversationServiceTest {
+
+    @Autowired
+    private DirectConversationService directConversationService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @AfterEach
+    void cleanUp() {
+        deleteAll(jdbc, "direct_conversation_pairs", "message_participants", "message_conversations", "job_locks");
+        deleteUsers(jdbc);
+        ReflectionTestUtils.setField(directConversationService, "backfilled", false);
+    }
+
+    @Test
+    void backfillPicksNewestLegacyConversationAndLookupIsOneProbe() {
+        long a = insertUser(jdbc, "a");
+        long b = insertUser(jdbc, "b");
+        long c = insertUser(jdbc, "c");
+        LocalDateTime now = LocalDateTime.now();
+        conversation(false, now.minusDays(2), a, b);
+        long newer = conversation(false, now.minusDays(1), b, a);
+        long ac = conversation(false, now, a, c);
+        conversation(true, now, a, b);
+        conversation(false, now, a, b, c);
+
+        // 回填前索引未命中时走旧查询，并顺带写入索引
+        assertEquals(Optional.of(newer), directConversationService.findConversationId(b, a));
+        assertEquals(1, count());
+
+        directConversationService.backfill();
+        assertEquals(2, count());
+        // 完成标记已持久化：其他节点与重启后的启动回填直接跳过
+        assertFalse(new JobLockService(jdbc).runOnce(DirectConversationService.BACKFILL_JOB, Duration.ofMinutes(1),
+                () -> fail("backfill ran twice")));
+        ReflectionTestUtils.setField(directConversationService, "backfilled", false);
+        assertEquals(Optional.of(newer), directConversationService.findConversationId(a, b));
+        assertEquals(Optional.of(ac), directConversationService.findConversationId(c, a));
+        assertEquals(Optional.empty(), directConversationService.findConversationId(b, c));
+        assertEquals(newer, directConversationService.getOrCreate(a, b));
+        // 再次回填不会退回旧会话
+        directConversationService.backfill();
+        assertEquals(Optional.of(newer), directConversationService.findConversationId(a, b));
+    }
+
+    @Test
+    void concurrentCreationYieldsSingleConversation() throws Exception {
+        long d = insertUser(jdbc, "d");
+        long e = insertUser(jdbc, "e");
+        directConversationService.backfill();
+
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            boolean flip = i % 2 == 0;
+            results.add(pool.submit(() -> {
+                start.await();
+                return flip ? directConversationService.getOrCreate(d, e) : directConversationService.getOrCreate(e, d);
+            }));
+        }
+        start.countDown();
+        Set<Long> ids = new HashSet<>();
+        for (Future<Long> result : results) {
+            ids.add(result.get());
+        }
+        pool.shutdown();
+
+        assertEquals(1, ids.size());
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM message_conversations", Long.class));
+        assertEquals(2, jdbc.queryForObject("SELECT COUNT(*) FROM message_participants", Long.class));
+        assertEquals(1, count());
+    }
+
+    private long count() {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM direct_conversation_pairs", Long.class);
+    }
+
+    private long conversation(boolean channel, LocalDateTime createdAt, long... userIds) {
+        jdbc.update("INSERT INTO message_conversations (channel, created_at) VALUES (?, ?)", channel, Timestamp.valueOf(createdAt));
+        long id = jdbc.queryForObject("SELECT MAX(id) FROM message_conversations", Long.class);
+        for (long userId : userIds) {
+            jdbc.update("INSERT INTO message_participants (conversation_id, user_id) VALUES (?, ?)", id, userId);
+        }
+        return id;
+    }
+}
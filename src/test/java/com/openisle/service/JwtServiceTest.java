@@ -0,0 +1,183 @@
+package com.openisle.service;
+
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JwtServiceTest {
+
+    private static JwtService service(String previousSecret) {
+        JwtService service = new JwtService();
+        ReflectionTestUtils.setField(service, "secret", "access");
+        ReflectionTestUtils.setField(service, "reasonSecret", "reason");
+        ReflectionTestUtils.setField(service, "resetSecret", "reset");
+        ReflectionTestUtils.setField(service, "inviteSecret", "invite");
+        ReflectionTestUtils.setField(service, "previousSecret", previousSecret);
+        ReflectionTestUtils.setField(service, "expiration", 60_000L);
+        service.init();
+        return service;
+    }
+
+    /** 轮换支持之前的签发方式：无 kid，每次现场派生密钥 */
+    private static String legacyToken(String secret, String subject) throws Exception {
+        byte[] key = MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8));
+        return Jwts.builder().setSubject(subject).setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(key)).compact();
+    }
+
+    @Test
+    void tokenFamiliesAreSeparatedAndRotationKeepsPreviousKey() throws Exception {
+        JwtService jwt = service("");
+        String access = jwt.generateToken("alice");
+        assertEquals("alice", jwt.validateAndGetSubject(access));
+        assertEquals("bob", jwt.validateAndGetSubjectForInvite(jwt.generateInviteToken("bob")));
+        assertThrows(JwtException.class, () -> jwt.validateAndGetSubjectForReset(access));
+        assertEquals("carol", jwt.validateAndGetSubject(legacyToken("access", "carol")));
+
+        jwt.rotate(JwtService.TokenType.ACCESS, "access-2");
+        String rotated = jwt.generateToken("dave");
+        assertEquals("alice", jwt.validateAndGetSubject(access));
+        assertEquals("carol", jwt.validateAndGetSubject(legacyToken("access", "carol")));
+        assertEquals("dave", jwt.validateAndGetSubject(rotated));
+        assertEquals("erin", jwt.validateAndGetSubjectForReason(jwt.generateReasonToken("erin")));
+
+        jwt.rotate(JwtService.TokenType.ACCESS, "access-3");
+        assertThrows(JwtException.class, () -> jwt.validateAndGetSubject(access));
+        assertEquals("dave", jwt.validateAndGetSubject(rotated));
+
+        JwtService configured = service("access-old");
+        assertEquals("frank", configured.validateAndGetSubject(legacyToken("access-old", "frank")));
+        assertThrows(JwtException.class, () -> configured.validateAndGetSubject(legacyToken("unknown", "grace")));
+    }
+
+    @Test
+    void cachedValidationHonorsExpiryAndRevocation() throws Exception {
+        JwtService jwt = service("");
+        String token = jwt.generateToken("alice");
+        assertEquals("alice", jwt.validateAndGetSubject(token));
+        assertEquals("alice", jwt.validateAndGetSubject(token));
+        assertEquals(1, jwt.cache().snapshot().hits());
+        assertEquals(1, jwt.cache().snapshot().misses());
+        // 同一令牌按其他用途验证不会命中
+        assertThrows(JwtException.class, () -> jwt.validateAndGetSubjectForInvite(token));
+
+        AtomicBoolean revoked = new AtomicBoolean(true);
+        jwt.setRevocationCheck((type, verified) -> revoked.get() && verified.subject().equals("alice"));
+        assertThrows(JwtException.class, () -> jwt.validateAndGetSubject(token));
+        revoked.set(false);
+        assertEquals("alice", jwt.validateAndGetSubject(token));
+        assertEquals(3, jwt.cache().snapshot().misses());
+
+        jwt.rotate(JwtService.TokenType.ACCESS, "access-2");
+        assertEquals(0, jwt.cache().snapshot().size());
+
+        JwtService shortLived = service("");
+        ReflectionTestUtils.setField(shortLived, "expiration", 1_000L);
+        String expiring = shortLived.generateToken("bob");
+        assertEquals("bob", shortLived.validateAndGetSubject(expiring));
+        Thread.sleep(1_100);
+        assertThrows(JwtException.class, () -> shortLived.validateAndGetSubject(expiring));
+    }
+
+    /**
+     * 吞吐基准：不同线程数下的签发与验证次数/秒，并与每次现场派生密钥、构建解析器的旧做法对比。
+     * 运行方式：{@code mvn test -Dtest=JwtServiceTest -Dbenchmark=true -Dbenchmark.seconds=5}
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void throughputBenchmark() throws Exception {
+        JwtService jwt = service("access-old");
+        String token = jwt.generateToken("alice");
+        String legacy = legacyToken("access", "alice");
+        long seconds = Long.getLong("benchmark.seconds", 5);
+        for (int threads : new int[]{1, 2, 4, 8, 16}) {
+            long validate = measure(threads, seconds, i -> jwt.validateAndGetSubject(token));
+            long generate = measure(threads, seconds, i -> jwt.generateToken("u" + i));
+            long legacyValidate = measure(threads, seconds, i -> {
+                try {
+                    byte[] key = MessageDigest.getInstance("SHA-256").digest("access".getBytes(StandardCharsets.UTF_8));
+                    Jwts.parserBuilder().setSigningKey(Keys.hmacShaKeyFor(key)).build().parseClaimsJws(legacy);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            System.out.printf("threads=%d validate=%d/s generate=%d/s legacy validate=%d/s%n",
+                    threads, validate / seconds, generate / seconds, legacyValidate / seconds);
+        }
+    }
+
+    /**
+     * 并发基准：一批活跃会话的令牌被多线程随机反复验证，对比开启与关闭缓存时的请求数/秒。
+     * 运行方式：{@code mvn test -Dtest=JwtServiceTest -Dbenchmark=true -Dbenchmark.sessions=10000}
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void cacheBenchmark() throws Exception {
+        int sessions = Integer.getInteger("benchmark.sessions", 10_000);
+        long seconds = Long.getLong("benchmark.seconds", 5);
+        int threads = Integer.getInteger("benchmark.threads", 16);
+        JwtService jwt = service("");
+        String[] tokens = new String[sessions];
+        for (int i = 0; i < sessions; i++) {
+            tokens[i] = jwt.generateToken("u" + i);
+        }
+        for (boolean enabled : new boolean[]{false, true}) {
+            ReflectionTestUtils.setField(jwt, "cacheEnabled", enabled);
+            long ops = measure(threads, seconds, i -> jwt.validateAndGetSubject(
+                    tokens[ThreadLocalRandom.current().nextInt(sessions)]));
+            System.out.printf("cache=%s threads=%d sessions=%d requests=%d/s hit rate=%.3f%n",
+                    enabled, threads, sessions, ops / seconds, jwt.cache().snapshot().hitRate());
+        }
+    }
+
+    private static long measure(int threads, long seconds, Consumer<Integer> operation) throws Exception {
+        for (int i = 0; i < 20_000; i++) {
+            operation.accept(i);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        LongAdder ops = new LongAdder();
+        long[] deadline = new long[1];
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(pool.submit(() -> {
+                start.await();
+                int i = 0;
+                while (System.nanoTime() < deadline[0]) {
+                    operation.accept(i++);
+                    ops.increment();
+                }
+                return null;
+            }));
+        }
+        deadline[0] = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        pool.shutdown();
+        return ops.sum();
+    }
+}
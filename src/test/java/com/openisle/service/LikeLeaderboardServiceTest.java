@@ -0,0 +1,154 @@
+package com.openisle.service;
+
+import com.openisle.model.ReactionTargetType;
+import com.openisle.push.LocalPushBus;
+import com.openisle.push.PushEvent;
+import com.openisle.push.PushService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.openisle.TestDatabase.deleteAll;
+import static com.openisle.TestDatabase.deleteUsers;
+import static com.openisle.TestDatabase.insertCategory;
+import static com.openisle.TestDatabase.insertPost;
+import static com.openisle.TestDatabase.insertUser;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "app.push.bus=local")
+@Import({LikeLeaderboardService.class, LocalPushBus.class, PushService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LikeLeaderboardServiceTest {
+
+    @Autowired
+    private LikeLeaderboardService leaderboard;
+
+    @Autowired
+    private LocalPushBus bus;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @AfterEach
+    void cleanUp() {
+        deleteAll(jdbc, "reactions", "comments", "posts", "categories");
+        deleteUsers(jdbc);
+    }
+
+    @Test
+    void maintainedRankingMatchesSqlRanking() {
+        long authorId = insertUser(jdbc, "author");
+        List<Long> likers = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            likers.add(insertUser(jdbc, "liker" + i));
+        }
+        long categoryId = insertCategory(jdbc, "c");
+        // 帖子数超过排行容量，覆盖 floor 失效后回退 SQL 的路径
+        List<Long> posts = new ArrayList<>();
+        for (int i = 0; i < LikeLeaderboardService.CAPACITY + 50; i++) {
+            posts.add(insertPost(jdbc, authorId, categoryId));
+        }
+        List<Long> comments = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            jdbc.update("INSERT INTO comments (content, created_at, author_id, post_id) VALUES ('c', CURRENT_TIMESTAMP, ?, ?)", authorId, posts.get(0));
+            comments.add(jdbc.queryForObject("SELECT MAX(id) FROM comments", Long.class));
+        }
+
+        Random random = new Random(7);
+        int servedFromBoard = 0;
+        for (int op = 1; op <= 3000; op++) {
+            boolean post = random.nextInt(3) > 0;
+            List<Long> targets = post ? posts : comments;
+            // 偏斜分布，制造头部热门与大量同票
+            long targetId = targets.get((int) (targets.size() * Math.pow(random.nextDouble(), 2)));
+            long userId = likers.get(random.nextInt(likers.size()));
+            toggleLike(post ? ReactionTargetType.POST : ReactionTargetType.COMMENT, targetId, userId);
+
+            if (op % 100 == 0) {
+                for (ReactionTargetType type : List.of(ReactionTargetType.POST, ReactionTargetType.COMMENT)) {
+                    for (int n : new int[]{1, 5, 10, 50}) {
+                        if (leaderboard.cached(type, authorId)) {
+                            servedFromBoard++;
+                        }
+                        List<Long> maintained = type == ReactionTargetType.POST
+                                ? leaderboard.topPostIds(authorId, n)
+                                : leaderboard.topCommentIds(authorId, n);
+                        List<Long> sql = new ArrayList<>();
+                        for (Object[] row : leaderboard.sqlTop(type, authorId, n)) {
+                            sql.add(((Number) row[0]).longValue());
+                        }
+                        assertEquals(sql, maintained, type + " top " + n + " after " + op + " ops");
+                    }
+                }
+            }
+        }
+        assertTrue(servedFromBoard > 0, "rankings should be served from the maintained board");
+    }
+
+    @Test
+    void boardStaysBoundedAndExpiresOrInvalidates() {
+        // 从空排行开始增量新增：超出容量时淘汰末位并抬高 floor，末位之后的名次改走 SQL
+        LikeLeaderboardService.Board board = new LikeLeaderboardService.Board(List.of(), 3, Long.MAX_VALUE);
+        for (long id = 1; id <= 3; id++) {
+            for (int i = 0; i < id; i++) {
+                assertTrue(board.apply(id, 1));
+            }
+        }
+        assertTrue(board.apply(4, 1));
+        assertEquals(3, board.size());
+        assertEquals(List.of(3L, 2L), board.top(2));
+        assertNull(board.top(3));
+        assertFalse(board.apply(5, 1));
+
+        long authorId = insertUser(jdbc, "author");
+        insertPost(jdbc, authorId, insertCategory(jdbc, "c"));
+        leaderboard.topPostIds(authorId, 5);
+        assertTrue(leaderboard.cached(ReactionTargetType.POST, authorId));
+        // 本节点发出的变更事件不影响本机排行，其他节点的事件丢弃本机排行
+        long nodeId = (long) ReflectionTestUtils.getField(leaderboard, "nodeId");
+        bus.publish(leaderboardEvent(authorId, nodeId));
+        assertTrue(leaderboard.cached(ReactionTargetType.POST, authorId));
+        bus.publish(leaderboardEvent(authorId, nodeId + 1));
+        assertFalse(leaderboard.cached(ReactionTargetType.POST, authorId));
+
+        // 过期后读取时重建
+        ReflectionTestUtils.setField(leaderboard, "ttlMillis", 0L);
+        try {
+            leaderboard.topPostIds(authorId, 5);
+            assertTrue(leaderboard.cached(ReactionTargetType.POST, authorId));
+            // 未获赞的帖子不进入排行
+            assertTrue(leaderboard.topPostIds(authorId, 5).isEmpty());
+        } finally {
+            ReflectionTestUtils.setField(leaderboard, "ttlMillis", 600_000L);
+        }
+    }
+
+    private static PushEvent leaderboardEvent(long authorId, long originNode) {
+        PushEvent event = new PushEvent(PushEvent.Kind.LEADERBOARD, authorId, null, null, System.currentTimeMillis());
+        event.setOriginNode(originNode);
+        return event;
+    }
+
+    private void toggleLike(ReactionTargetType type, long targetId, long userId) {
+        String column = type.column();
+        int removed = jdbc.update("DELETE FROM reactions WHERE type = 'LIKE' AND user_id = ? AND " + column + " = ?",
+                userId, targetId);
+        if (removed == 0) {
+            jdbc.update("INSERT INTO reactions (type, created_at, user_id, " + column + ") VALUES ('LIKE', CURRENT_TIMESTAMP, ?, ?)", userId, targetId);
+        }
+        leaderboard.likeChanged(type, targetId, removed == 0 ? 1 : -1);
+    }
+}
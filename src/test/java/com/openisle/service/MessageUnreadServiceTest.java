@@ -0,0 +1,167 @@
+package com.openisle.service;
+
+import com.openisle.model.Message;
+import com.openisle.model.MessageConversation;
+import com.openisle.model.MessageParticipant;
+import com.openisle.model.User;
+import com.openisle.repository.MessageConversationRepository;
+import com.openisle.repository.MessageParticipantRepository;
+import com.openisle.repository.MessageRepository;
+import com.openisle.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.openisle.TestDatabase.deleteAll;
+import static com.openisle.TestDatabase.deleteUsers;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import({MessageUnreadService.class, ConversationInboxService.class, JobLockService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MessageUnreadServiceTest {
+
+    @Autowired
+    private MessageUnreadService unreadService;
+
+    @Autowired
+    private MessageConversationRepository conversationRepository;
+
+    @Autowired
+    private MessageParticipantRepository participantRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @AfterEach
+    void cleanUp() {
+        deleteAll(jdbc, "conversation_inbox", "channel_activity", "messages", "message_participants", "message_conversations");
+        deleteUsers(jdbc);
+    }
+
+    @Test
+    void concurrentSendsAndReadsNeverLoseUnreadMessages() throws Exception {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            users.add(user("member" + i));
+        }
+        long channel = conversation(true, users);
+        long direct = conversation(false, users.subList(0, 2));
+        User reader = users.get(0);
+
+        ExecutorService pool = Executors.newFixedThreadPool(5);
+        AtomicBoolean sending = new AtomicBoolean(true);
+        List<Future<?>> senders = new ArrayList<>();
+        for (int t = 1; t <= 4; t++) {
+            User sender = users.get(t);
+            senders.add(pool.submit(() -> {
+                for (int i = 0; i < 50; i++) {
+                    send(channel, sender);
+                }
+                return null;
+            }));
+        }
+        Future<?> reads = pool.submit(() -> {
+            while (sending.get()) {
+                read(channel, reader);
+            }
+            return null;
+        });
+        for (Future<?> f : senders) {
+            f.get();
+        }
+        sending.set(false);
+        reads.get();
+        pool.shutdown();
+        send(direct, users.get(1));
+
+        // 未参与已读的成员：计数与逐条统计完全一致
+        for (User user : users.subList(1, users.size())) {
+            assertEquals(recount(channel, user), unread(channel, user));
+        }
+        // 已读与发送交错：计数只会偏多，不会漏记
+        assertTrue(unread(channel, reader) >= recount(channel, reader));
+
+        Map<Long, Long> counts = unreadService.unreadCounts(reader.getId());
+        assertEquals(1L, counts.get(direct));
+        assertEquals(unread(channel, reader), counts.getOrDefault(channel, 0L));
+        assertEquals(unread(channel, reader) + 1, unreadService.totalUnread(reader.getId()));
+
+        read(channel, reader);
+        assertEquals(0, unread(channel, reader));
+        assertEquals(Map.of(direct, 1L), unreadService.unreadCounts(reader.getId()));
+        assertEquals(0, unreadService.rebuild());
+    }
+
+    private long unread(long conversationId, User user) {
+        return jdbc.queryForObject("SELECT unread_count FROM message_participants WHERE conversation_id = ? AND user_id = ?",
+                Long.class, conversationId, user.getId());
+    }
+
+    private long recount(long conversationId, User user) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM messages m JOIN message_participants p ON p.conversation_id = m.conversation_id " +
+                "WHERE p.conversation_id = ? AND p.user_id = ? AND m.sender_id <> p.user_id " +
+                "AND (p.last_read_at IS NULL OR m.created_at > p.last_read_at)", Long.class, conversationId, user.getId());
+    }
+
+    private void read(long conversationId, User user) {
+        transactionTemplate.executeWithoutResult(status -> participantRepository.findByConversationIdAndUserId(conversationId, user.getId())
+                .ifPresent(p -> p.setLastReadAt(LocalDateTime.now())));
+    }
+
+    private long conversation(boolean channel, List<User> users) {
+        return transactionTemplate.execute(status -> {
+            MessageConversation conversation = new MessageConversation();
+            conversation.setChannel(channel);
+            for (User user : users) {
+                MessageParticipant participant = new MessageParticipant();
+                participant.setConversation(conversation);
+                participant.setUser(user);
+                conversation.getParticipants().add(participant);
+            }
+            return conversationRepository.save(conversation).getId();
+        });
+    }
+
+    private void send(long conversationId, User sender) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Message message = new Message();
+            message.setConversation(conversationRepository.getReferenceById(conversationId));
+            message.setSender(sender);
+            messageRepository.save(message);
+        });
+    }
+
+    private User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("x");
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,284 @@
+package com.openisle.service;
+
+import com.openisle.dto.CursorPage;
+import com.openisle.dto.FeedCursor;
+import com.openisle.dto.PostFeedFilter;
+import com.openisle.dto.PostSummary;
+import com.openisle.model.Post;
+import com.openisle.model.PostSort;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+
+import static com.openisle.TestDatabase.insertCategory;
+import static com.openisle.TestDatabase.insertUser;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.openisle.service.PostFeedServiceTest$SqlCapture",
+        "spring.jpa.properties.hibernate.criteria.value_handling_mode=inline",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({PostFeedService.class, PostSummaryService.class})
+class PostFeedServiceTest {
+
+    @Autowired
+    private PostFeedService postFeedService;
+
+    @Autowired
+    private PostSummaryService postSummaryService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /** 记录 Hibernate 发出的 SQL，用于校验查询形态 */
+    public static class SqlCapture implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+
+    @Test
+    void cursorPagesMatchFullOrdering() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        Seed seed = seed(jdbc, 500, 0.05);
+
+        List<Map<String, Object>> rows = jdbc.queryForList(
+                "SELECT id, pinned_at, created_at, views FROM posts WHERE status = 'PUBLISHED'");
+        Comparator<Map<String, Object>> latest = Comparator
+                .comparing((Map<String, Object> r) -> r.get("pinned_at") == null)
+                .thenComparing(r -> (Timestamp) r.get("pinned_at"), Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(r -> (Timestamp) r.get("created_at"), Comparator.reverseOrder())
+                .thenComparing(r -> id(r), Comparator.reverseOrder());
+        Comparator<Map<String, Object>> mostViewed = Comparator
+                .comparing((Map<String, Object> r) -> ((Number) r.get("views")).longValue(), Comparator.reverseOrder())
+                .thenComparing(r -> id(r), Comparator.reverseOrder());
+
+        assertEquals(expected(rows, latest, r -> true),
+                walk(filter(PostSort.LATEST, List.of(seed.categoryId), null, null), 7));
+        assertEquals(expected(rows, mostViewed, r -> true),
+                walk(filter(PostSort.MOST_VIEWED, null, null, null), 11));
+        assertEquals(expected(rows, latest, r -> id(r) % 2 == 0 || id(r) % 3 == 0),
+                walk(filter(PostSort.LATEST, null, seed.tagIds, PostFeedFilter.TagMatch.ANY), 9));
+        assertEquals(expected(rows, mostViewed, r -> id(r) % 2 == 0 && id(r) % 3 == 0),
+                walk(filter(PostSort.MOST_VIEWED, null, seed.tagIds, PostFeedFilter.TagMatch.ALL), 5));
+    }
+
+    @Test
+    void tagFiltersUseSemiJoinsAndSkipContent() throws SQLException {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        Seed seed = seed(jdbc, 50, 0.0);
+
+        for (PostFeedFilter.TagMatch match : PostFeedFilter.TagMatch.values()) {
+            SqlCapture.STATEMENTS.clear();
+            postFeedService.feedKeys(filter(PostSort.LATEST, List.of(seed.categoryId), seed.tagIds, match), null, 20);
+            String sql = SqlCapture.STATEMENTS.stream()
+                    .filter(s -> s.toLowerCase(Locale.ROOT).contains("post_tags"))
+                    .findFirst().orElseThrow();
+            String lower = sql.toLowerCase(Locale.ROOT);
+            assertTrue(lower.contains("exists"), sql);
+            assertFalse(lower.contains("group by"), sql);
+            assertFalse(lower.contains("having"), sql);
+            assertFalse(lower.contains("content"), sql);
+
+            String plan = explain(sql).toUpperCase(Locale.ROOT);
+            assertTrue(plan.contains("EXISTS"), plan);
+            assertFalse(plan.contains("GROUP BY"), plan);
+        }
+    }
+
+    @Test
+    void summaryPageCostsFixedNumberOfStatements() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        seed(jdbc, 120, 0.0);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        PostFeedFilter latest = filter(PostSort.LATEST, null, null, null);
+
+        for (int size : new int[]{5, 50}) {
+            List<Long> ids = postFeedService.feedKeys(latest, null, size).getItems().stream()
+                    .map(FeedCursor::getId).toList();
+            statistics.clear();
+            List<PostSummary> page = postSummaryService.load(ids);
+            assertEquals(size, page.size());
+            assertTrue(statistics.getPrepareStatementCount() <= 4,
+                    "statements for size " + size + ": " + statistics.getPrepareStatementCount());
+            assertEquals(ids, page.stream().map(PostSummary::getId).toList());
+            page.forEach(p -> {
+                assertEquals("bench", p.getAuthor().getUsername());
+                assertEquals("bench", p.getCategory().getName());
+                assertEquals((p.getId() % 2 == 0 ? 1 : 0) + (p.getId() % 3 == 0 ? 1 : 0), p.getTags().size());
+            });
+        }
+    }
+
+    /**
+     * 深翻页基准：对比 offset 与游标在第 1 页和末尾附近一页的耗时。
+     * 运行方式：{@code mvn test -Dtest=PostFeedServiceTest -Dbenchmark=true -Dbenchmark.rows=1000000}
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void deepPageLatencyBenchmark() {
+        int rows = Integer.getInteger("benchmark.rows", 1_000_000);
+        int size = 20;
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        seed(jdbc, rows, 0.0);
+
+        int deepPage = rows / size - 1;
+        Map<String, Object> anchor = jdbc.queryForMap(
+                "SELECT id, created_at FROM posts WHERE status = 'PUBLISHED' AND pinned_at IS NULL " +
+                        "ORDER BY created_at DESC, id DESC LIMIT 1 OFFSET ?", deepPage * size - 1);
+        String deepCursor = new FeedCursor(FeedCursor.Kind.LATEST, null,
+                ((Timestamp) anchor.get("created_at")).toLocalDateTime(), 0L, id(anchor)).encode();
+        PostFeedFilter latest = filter(PostSort.LATEST, null, null, null);
+
+        String offsetSql = "SELECT * FROM posts WHERE status = 'PUBLISHED' ORDER BY created_at DESC LIMIT ? OFFSET ?";
+        long offsetFirst = median(() -> jdbc.queryForList(offsetSql, size, 0));
+        long offsetDeep = median(() -> jdbc.queryForList(offsetSql, size, deepPage * size));
+        long keysetFirst = median(() -> postFeedService.feed(latest, null, size));
+        long keysetDeep = median(() -> postFeedService.feed(latest, deepCursor, size));
+
+        System.out.printf("rows=%d page=%d offset: first=%dus deep=%dus | keyset: first=%dus deep=%dus%n",
+                rows, deepPage, offsetFirst / 1000, offsetDeep / 1000, keysetFirst / 1000, keysetDeep / 1000);
+        assertTrue(keysetDeep < offsetDeep);
+    }
+
+    private List<Long> walk(PostFeedFilter filter, int size) {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<Post> page = postFeedService.feed(filter, cursor, size);
+            assertTrue(page.getItems().size() <= size);
+            page.getItems().forEach(p -> ids.add(p.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private String explain(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement("EXPLAIN " + sql)) {
+            // 取值已内联，剩余参数只有 limit/offset
+            for (int i = 1; i <= ps.getParameterMetaData().getParameterCount(); i++) {
+                ps.setInt(i, 21);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        }
+    }
+
+    private static PostFeedFilter filter(PostSort sort, List<Long> categoryIds, List<Long> tagIds,
+                                         PostFeedFilter.TagMatch match) {
+        PostFeedFilter filter = new PostFeedFilter();
+        filter.setSort(sort);
+        filter.setCategoryIds(categoryIds);
+        filter.setTagIds(tagIds);
+        if (match != null) {
+            filter.setTagMatch(match);
+        }
+        return filter;
+    }
+
+    private static List<Long> expected(List<Map<String, Object>> rows, Comparator<Map<String, Object>> order,
+                                       Predicate<Map<String, Object>> include) {
+        return rows.stream().filter(include).sorted(order).map(PostFeedServiceTest::id).toList();
+    }
+
+    private static long id(Map<String, Object> row) {
+        return ((Number) row.get("id")).longValue();
+    }
+
+    private record Seed(long categoryId, List<Long> tagIds) {
+    }
+
+    /**
+     * 直接用 JDBC 造数，绕过 @CreationTimestamp 以便构造相同时间戳与置顶数据。
+     * 标签 A 挂在 id 为偶数的帖子上，标签 B 挂在 id 为 3 的倍数的帖子上。
+     */
+    private static Seed seed(JdbcTemplate jdbc, int count, double pinnedRatio) {
+        long userId = insertUser(jdbc, "bench");
+        long categoryId = insertCategory(jdbc, "bench");
+        List<Long> tagIds = new ArrayList<>();
+        for (String name : List.of("A", "B")) {
+            jdbc.update("INSERT INTO tags (name, description, approved) VALUES (?, 'd', TRUE)", name);
+            tagIds.add(jdbc.queryForObject("SELECT id FROM tags WHERE name = ?", Long.class, name));
+        }
+
+        Random random = new Random(42);
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<Object[]> batch = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            // 每 3 条共享一个时间戳，覆盖 id 作为决胜键的场景
+            LocalDateTime createdAt = base.plusSeconds(i / 3);
+            Timestamp pinnedAt = random.nextDouble() < pinnedRatio
+                    ? Timestamp.valueOf(base.plusMinutes(random.nextInt(5))) : null;
+            String status = i % 10 == 9 ? "PENDING" : "PUBLISHED";
+            batch.add(new Object[]{"t" + i, "c", Timestamp.valueOf(createdAt), userId, categoryId,
+                    (long) random.nextInt(1000), status, pinnedAt});
+            if (batch.size() == 10_000) {
+                insertPosts(jdbc, batch);
+                batch.clear();
+            }
+        }
+        insertPosts(jdbc, batch);
+        jdbc.update("INSERT INTO post_tags (post_id, tag_id) SELECT id, ? FROM posts WHERE MOD(id, 2) = 0", tagIds.get(0));
+        jdbc.update("INSERT INTO post_tags (post_id, tag_id) SELECT id, ? FROM posts WHERE MOD(id, 3) = 0", tagIds.get(1));
+        return new Seed(categoryId, tagIds);
+    }
+
+    private static void insertPosts(JdbcTemplate jdbc, List<Object[]> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        jdbc.batchUpdate("INSERT INTO posts (title, content, created_at, author_id, category_id, views, status, " +
+                "type, closed, pinned_at, rss_excluded) VALUES (?, ?, ?, ?, ?, ?, ?, 'NORMAL', FALSE, ?, TRUE)", batch);
+    }
+
+    private static long median(Runnable task) {
+        for (int i = 0; i < 5; i++) {
+            task.run();
+        }
+        long[] samples = new long[21];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            task.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+}
@@ -0,0 +1,161 @@
+package com.openisle.service;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PostViewCounterTest {
+
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:views" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE posts (id BIGINT PRIMARY KEY, views BIGINT NOT NULL)");
+        for (long id = 1; id <= 3; id++) {
+            jdbc.update("INSERT INTO posts (id, views) VALUES (?, 10)", id);
+        }
+    }
+
+    @Test
+    void concurrentIncrementsAreNotLostAcrossFlushes() throws Exception {
+        PostViewCounter counter = new PostViewCounter(jdbc, Long.MAX_VALUE);
+        int threads = 8;
+        int perThread = 20_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    counter.increment((long) (i % 3) + 1);
+                }
+                return null;
+            }));
+        }
+        Future<?> flusher = pool.submit(() -> {
+            start.await();
+            while (running.get()) {
+                counter.flush();
+            }
+            return null;
+        });
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        running.set(false);
+        flusher.get();
+
+        long visible = 0;
+        for (long id = 1; id <= 3; id++) {
+            visible += views(id) + counter.pendingDelta(id);
+        }
+        assertEquals(30 + (long) threads * perThread, visible);
+
+        counter.flush();
+        long stored = 0;
+        for (long id = 1; id <= 3; id++) {
+            assertEquals(0, counter.pendingDelta(id));
+            stored += views(id);
+        }
+        assertEquals(30 + (long) threads * perThread, stored);
+        pool.shutdown();
+    }
+
+    @Test
+    void pendingDeltaIsVisibleBeforeFlush() {
+        PostViewCounter counter = new PostViewCounter(jdbc, Long.MAX_VALUE);
+        counter.increment(1L);
+        counter.increment(1L);
+        assertEquals(10, views(1L));
+        assertEquals(2, counter.pendingDelta(1L));
+        assertEquals(1, counter.flush());
+        assertEquals(12, views(1L));
+        assertEquals(0, counter.pendingDelta(1L));
+    }
+
+    @Test
+    void committedChunksLeaveTheInFlightGeneration() {
+        int posts = PostViewCounter.BATCH_SIZE + 1;
+        for (long id = 4; id <= posts; id++) {
+            jdbc.update("INSERT INTO posts (id, views) VALUES (?, 10)", id);
+        }
+        List<Long> mismatched = new ArrayList<>();
+        PostViewCounter[] holder = new PostViewCounter[1];
+        // 每批提交后读取全部帖子：已提交与未提交的帖子都应恰好多 1 次浏览
+        PostViewCounter counter = new PostViewCounter(jdbc, Long.MAX_VALUE, deltas -> {
+            for (long id = 1; id <= posts; id++) {
+                if (views(id) + holder[0].pendingDelta(id) != 11) {
+                    mismatched.add(id);
+                }
+            }
+        });
+        holder[0] = counter;
+        for (long id = 1; id <= posts; id++) {
+            counter.increment(id);
+        }
+        assertEquals(posts, counter.flush());
+        assertEquals(List.of(), mismatched);
+    }
+
+    /**
+     * 吞吐基准：多线程浏览同一热门帖子，对比逐次 UPDATE 与写回计数器。
+     * 运行方式：{@code mvn test -Dtest=PostViewCounterTest -Dbenchmark=true}
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void throughputBenchmark() throws Exception {
+        int threads = Integer.getInteger("benchmark.threads", 16);
+        long millis = Long.getLong("benchmark.millis", 3000);
+        PostViewCounter counter = new PostViewCounter(jdbc, 100_000);
+
+        double perView = run(threads, millis, () -> jdbc.update("UPDATE posts SET views = views + 1 WHERE id = ?", 1L));
+        double buffered = run(threads, millis, () -> counter.increment(1L));
+        counter.flush();
+
+        System.out.printf("threads=%d per-view update: %.0f views/s | write-behind: %.0f views/s (%.1fx)%n",
+                threads, perView, buffered, buffered / perView);
+    }
+
+    private static double run(int threads, long millis, Runnable view) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder done = new LongAdder();
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                while (running.get()) {
+                    view.run();
+                    done.increment();
+                }
+            });
+        }
+        Thread.sleep(millis);
+        running.set(false);
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+        return done.sum() * 1000.0 / millis;
+    }
+
+    private long views(long id) {
+        return jdbc.queryForObject("SELECT views FROM posts WHERE id = ?", Long.class, id);
+    }
+}
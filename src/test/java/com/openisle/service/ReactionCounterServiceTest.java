@@ -0,0 +1,162 @@
+package com.openisle.service;
+
+import com.openisle.dto.ReactionCounts;
+import com.openisle.model.ReactionTargetType;
+import com.openisle.model.ReactionType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.openisle.TestDatabase.deleteAll;
+import static com.openisle.TestDatabase.deleteUsers;
+import static com.openisle.TestDatabase.insertCategory;
+import static com.openisle.TestDatabase.insertPost;
+import static com.openisle.TestDatabase.insertUser;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import(ReactionCounterService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReactionCounterServiceTest {
+
+    @Autowired
+    private ReactionCounterService counterService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @AfterEach
+    void cleanUp() {
+        deleteAll(jdbc, "reaction_counters", "reactions", "posts", "categories");
+        deleteUsers(jdbc);
+    }
+
+    @Test
+    void countsWidthMatchesReactionTypes() {
+        assertEquals(ReactionType.values().length, ReactionCounts.WIDTH);
+        ReactionCounts counts = ReactionCounts.empty();
+        counts.add(ReactionType.LIKE, 2);
+        counts.add(ReactionType.SMILE, 1);
+        counts.add(ReactionType.SMILE, -5);
+        assertEquals(ReactionCounts.BYTES, counts.encode().length);
+        assertEquals(Map.of(ReactionType.LIKE, 2), ReactionCounts.decode(counts.encode()).asMap());
+        // 旧的较短数组按 0 补齐
+        assertEquals(2, ReactionCounts.decode(new byte[]{0, 0, 0, 2}).get(ReactionType.LIKE));
+    }
+
+    @Test
+    void concurrentReactionsMatchDetailTable() throws Exception {
+        long authorId = insertUser(jdbc, "author");
+        long postId = insertPost(jdbc, authorId, insertCategory(jdbc, "c"));
+        int threads = 8;
+        int perThread = 25;
+        List<Long> users = new ArrayList<>();
+        for (int i = 0; i < threads * perThread; i++) {
+            users.add(insertUser(jdbc, "u" + i));
+        }
+        ReactionType[] types = {ReactionType.LIKE, ReactionType.SMILE, ReactionType.RECOMMEND};
+        // 先建立计数行，并发部分只竞争行锁
+        transactionTemplate.executeWithoutResult(status -> {
+            react(authorId, postId, ReactionType.LIKE);
+            counterService.apply(ReactionTargetType.POST, postId, ReactionType.LIKE, 1);
+        });
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t * perThread;
+            workers.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    long userId = users.get(offset + i);
+                    ReactionType type = types[(offset + i) % types.length];
+                    transactionTemplate.executeWithoutResult(status -> {
+                        jdbc.update("INSERT INTO reactions (type, created_at, user_id, post_id) VALUES (?, CURRENT_TIMESTAMP, ?, ?)",
+                                type.name(), userId, postId);
+                        counterService.apply(ReactionTargetType.POST, postId, type, 1);
+                    });
+                    if (i % 5 == 0) {
+                        transactionTemplate.executeWithoutResult(status -> {
+                            jdbc.update("DELETE FROM reactions WHERE user_id = ? AND post_id = ?", userId, postId);
+                            counterService.apply(ReactionTargetType.POST, postId, type, -1);
+                        });
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        ReactionCounts counts = counterService.counts(ReactionTargetType.POST, postId);
+        for (ReactionType type : types) {
+            assertEquals(jdbc.queryForObject("SELECT COUNT(*) FROM reactions WHERE post_id = ? AND type = ?", Integer.class,
+                    postId, type.name()), counts.get(type), type.name());
+        }
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM reaction_counters", Integer.class));
+        assertEquals(jdbc.queryForObject("SELECT COUNT(*) FROM reactions", Integer.class),
+                jdbc.queryForObject("SELECT total FROM reaction_counters", Integer.class));
+    }
+
+    @Test
+    void batchReadFillsMissingRowsAndBackfillRepairsDrift() {
+        long authorId = insertUser(jdbc, "author");
+        long liker = insertUser(jdbc, "liker");
+        long categoryId = insertCategory(jdbc, "c");
+        long counted = insertPost(jdbc, authorId, categoryId);
+        long legacy = insertPost(jdbc, authorId, categoryId);
+        long quiet = insertPost(jdbc, authorId, categoryId);
+        transactionTemplate.executeWithoutResult(status -> {
+            react(liker, counted, ReactionType.LIKE);
+            counterService.apply(ReactionTargetType.POST, counted, ReactionType.LIKE, 1);
+        });
+        // 历史数据：有表态但没有计数行
+        react(liker, legacy, ReactionType.LIKE);
+        react(liker, legacy, ReactionType.SMILE);
+
+        int before = jdbc.queryForObject("SELECT COUNT(*) FROM reaction_counters", Integer.class);
+        Map<Long, ReactionCounts> page = counterService.counts(ReactionTargetType.POST, List.of(counted, legacy, quiet, counted));
+        assertEquals(3, page.size());
+        assertEquals(Map.of(ReactionType.LIKE, 1), page.get(counted).asMap());
+        assertEquals(Map.of(ReactionType.LIKE, 1, ReactionType.SMILE, 1), page.get(legacy).asMap());
+        assertTrue(page.get(quiet).asMap().isEmpty());
+        assertEquals(before, jdbc.queryForObject("SELECT COUNT(*) FROM reaction_counters", Integer.class));
+
+        // 启动回填：补建缺失行并覆盖漂移的计数
+        ReactionCounts drifted = ReactionCounts.empty();
+        drifted.add(ReactionType.LIKE, 7);
+        jdbc.update("UPDATE reaction_counters SET counts = ?, total = 7 WHERE target_id = ?", drifted.encode(), counted);
+        assertEquals(2, counterService.backfill());
+        assertEquals(1, counterService.counts(ReactionTargetType.POST, counted).get(ReactionType.LIKE));
+        byte[] stored = jdbc.queryForObject("SELECT counts FROM reaction_counters WHERE target_id = ?", byte[].class, legacy);
+        assertArrayEquals(page.get(legacy).encode(), stored);
+    }
+
+    private void react(long userId, long postId, ReactionType type) {
+        jdbc.update("INSERT INTO reactions (type, created_at, user_id, post_id) VALUES (?, CURRENT_TIMESTAMP, ?, ?)",
+                type.name(), userId, postId);
+    }
+}
@@ -0,0 +1,184 @@
+package com.openisle.service;
+
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenRevocationServiceTest {
+
+    private static JwtService jwt(TokenRevocationCheck check) {
+        JwtService service = new JwtService();
+        ReflectionTestUtils.setField(service, "secret", "access");
+        ReflectionTestUtils.setField(service, "reasonSecret", "reason");
+        ReflectionTestUtils.setField(service, "resetSecret", "reset");
+        ReflectionTestUtils.setField(service, "inviteSecret", "invite");
+        ReflectionTestUtils.setField(service, "previousSecret", "");
+        ReflectionTestUtils.setField(service, "expiration", 60_000L);
+        service.init();
+        service.setRevocationCheck(check);
+        return service;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "revocation not propagated");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void revocationsPropagateToOtherNodes() throws Exception {
+        InMemoryRevocationStore store = new InMemoryRevocationStore();
+        TokenRevocationService nodeA = new TokenRevocationService(store, 1_000, 0.01, true);
+        TokenRevocationService nodeB = new TokenRevocationService(store, 1_000, 0.01, true);
+        JwtService jwtA = jwt(nodeA);
+        JwtService jwtB = jwt(nodeB);
+
+        // 退出登录：按令牌 ID 吊销，同一用户的其他令牌不受影响
+        String session = jwtA.generateToken("alice");
+        String other = jwtA.generateToken("alice");
+        JwtService.VerifiedToken verified = jwtB.verify(JwtService.TokenType.ACCESS, session);
+        nodeA.revoke(JwtService.TokenType.ACCESS, verified);
+        assertThrows(JwtException.class, () -> jwtA.validateAndGetSubject(session));
+        await(() -> nodeB.isRevoked(JwtService.TokenType.ACCESS, verified));
+        assertThrows(JwtException.class, () -> jwtB.validateAndGetSubject(session));
+        assertEquals("alice", jwtB.validateAndGetSubject(other));
+        assertEquals(0, nodeB.snapshot().storeLookups());
+
+        // 重置与邀请令牌：用后作废，以及水位线吊销此前签发的全部令牌
+        String reset = jwtA.generateResetToken("bob");
+        String invite = jwtA.generateInviteToken("carol");
+        nodeA.revoke(JwtService.TokenType.RESET, jwtA.verify(JwtService.TokenType.RESET, reset));
+        nodeA.revokeIssuedBefore(JwtService.TokenType.INVITE, "carol", System.currentTimeMillis());
+        await(() -> nodeB.snapshot().propagated() >= 3);
+        assertThrows(JwtException.class, () -> jwtB.validateAndGetSubjectForReset(reset));
+        assertThrows(JwtException.class, () -> jwtB.validateAndGetSubjectForInvite(invite));
+        assertEquals("carol", jwtB.validateAndGetSubject(jwtB.generateToken("carol")));
+
+        // 修改密码：吊销全部现有令牌，随后（同一毫秒内也可能）签发的新令牌不受影响
+        String before = jwtA.generateToken("dave");
+        nodeA.revokeAll("dave");
+        String after = jwtA.generateToken("dave");
+        assertThrows(JwtException.class, () -> jwtA.validateAndGetSubject(before));
+        assertEquals("dave", jwtA.validateAndGetSubject(after));
+        await(() -> nodeB.snapshot().propagated() >= 3 + JwtService.TokenType.values().length);
+        assertThrows(JwtException.class, () -> jwtB.validateAndGetSubject(before));
+        assertEquals("dave", jwtB.validateAndGetSubject(after));
+        long now = System.currentTimeMillis();
+        JwtService.VerifiedToken old = new JwtService.VerifiedToken("dave", now - 1_000, now + 60_000, "old",
+                (now - 1_000) * 1_000);
+        for (JwtService.TokenType type : JwtService.TokenType.values()) {
+            assertTrue(nodeB.isRevoked(type, old));
+        }
+
+        // 新节点启动时从存储加载吊销记录
+        TokenRevocationService nodeC = new TokenRevocationService(store, 1_000, 0.01, true);
+        assertTrue(nodeC.isRevoked(JwtService.TokenType.ACCESS, verified));
+        assertTrue(nodeC.isRevoked(JwtService.TokenType.INVITE, old));
+        assertFalse(nodeC.isRevoked(JwtService.TokenType.ACCESS, jwtA.verify(JwtService.TokenType.ACCESS, other)));
+        assertTrue(nodeB.snapshot().avgPropagationMillis() >= 0);
+
+        // 启动时存储不可用：加载前直接查存储，重试成功后恢复过滤器
+        AtomicBoolean down = new AtomicBoolean(true);
+        InMemoryRevocationStore flaky = new InMemoryRevocationStore() {
+            @Override
+            public void forEachRevokedId(Consumer<String> action) {
+                if (down.get()) {
+                    throw new IllegalStateException("store down");
+                }
+                super.forEachRevokedId(action);
+            }
+        };
+        flaky.saveRevokedId(verified.id(), verified.expiresAt());
+        TokenRevocationService nodeD = new TokenRevocationService(flaky, 1_000, 0.01, true);
+        down.set(false);
+        assertTrue(nodeD.isRevoked(JwtService.TokenType.ACCESS, verified));
+        assertEquals(1, nodeD.snapshot().storeLookups());
+        nodeD.retryPending();
+        JwtService.VerifiedToken live = jwtA.verify(JwtService.TokenType.ACCESS, other);
+        assertFalse(nodeD.isRevoked(JwtService.TokenType.ACCESS, live));
+        assertTrue(nodeD.isRevoked(JwtService.TokenType.ACCESS, verified));
+        assertEquals(1, nodeD.snapshot().storeLookups());
+    }
+
+    @Test
+    void storeOutageFailsClosedExceptForConfiguredAccessTokens() {
+        InMemoryRevocationStore down = new InMemoryRevocationStore() {
+            @Override
+            public void forEachRevokedId(Consumer<String> action) {
+                throw new IllegalStateException("store down");
+            }
+
+            @Override
+            public boolean isRevokedId(String id) {
+                throw new IllegalStateException("store down");
+            }
+        };
+        long now = System.currentTimeMillis();
+        JwtService.VerifiedToken token = new JwtService.VerifiedToken("erin", now, now + 60_000, "t1", now * 1_000);
+
+        TokenRevocationService failOpen = new TokenRevocationService(down, 1_000, 0.01, true);
+        assertFalse(failOpen.isRevoked(JwtService.TokenType.ACCESS, token));
+        assertTrue(failOpen.isRevoked(JwtService.TokenType.RESET, token));
+        assertTrue(failOpen.isRevoked(JwtService.TokenType.INVITE, token));
+
+        TokenRevocationService failClosed = new TokenRevocationService(down, 1_000, 0.01, false);
+        assertTrue(failClosed.isRevoked(JwtService.TokenType.ACCESS, token));
+    }
+
+    /**
+     * 基准：未吊销令牌的检查耗时（纳秒/次，应在亚微秒级）与跨节点传播延迟分布。
+     * 运行方式：{@code mvn test -Dtest=TokenRevocationServiceTest -Dbenchmark=true -Dbenchmark.revoked=100000}
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void checkAndPropagationBenchmark() throws Exception {
+        int revokedCount = Integer.getInteger("benchmark.revoked", 100_000);
+        InMemoryRevocationStore store = new InMemoryRevocationStore();
+        TokenRevocationService nodeA = new TokenRevocationService(store, revokedCount, 0.01, true);
+        TokenRevocationService nodeB = new TokenRevocationService(store, revokedCount, 0.01, true);
+        long expiresAt = System.currentTimeMillis() + 600_000;
+        long[] lags = new long[1_000];
+        for (int i = 0; i < revokedCount; i++) {
+            JwtService.VerifiedToken token = new JwtService.VerifiedToken("u" + i, 0, expiresAt, "revoked-" + i, 0);
+            long start = System.nanoTime();
+            nodeA.revoke(JwtService.TokenType.ACCESS, token);
+            if (i < lags.length) {
+                await(() -> nodeB.isRevoked(JwtService.TokenType.ACCESS, token));
+                lags[i] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(lags);
+        System.out.printf("propagation p50=%d us p99=%d us%n", lags[lags.length / 2] / 1_000,
+                lags[lags.length * 99 / 100] / 1_000);
+
+        JwtService.VerifiedToken[] live = new JwtService.VerifiedToken[1 << 16];
+        for (int i = 0; i < live.length; i++) {
+            long issuedAt = System.currentTimeMillis();
+            live[i] = new JwtService.VerifiedToken("u" + i, issuedAt, expiresAt, "live-" + i, issuedAt * 1_000);
+        }
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            int revoked = 0;
+            for (int i = 0; i < 10_000_000; i++) {
+                if (nodeB.isRevoked(JwtService.TokenType.ACCESS, live[i & (live.length - 1)])) {
+                    revoked++;
+                }
+            }
+            System.out.printf("check=%.1f ns/op false positives=%d store lookups=%d%n",
+                    (System.nanoTime() - start) / 10_000_000.0, revoked, nodeB.snapshot().storeLookups());
+        }
+    }
+}
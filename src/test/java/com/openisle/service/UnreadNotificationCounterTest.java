@@ -0,0 +1,68 @@
+package com.openisle.service;
+
+import com.openisle.model.NotificationType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static com.openisle.TestDatabase.deleteAll;
+import static com.openisle.TestDatabase.deleteUsers;
+import static com.openisle.TestDatabase.insertUser;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@Import(UnreadNotificationCounter.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UnreadNotificationCounterTest {
+
+    @Autowired
+    private UnreadNotificationCounter counter;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @AfterEach
+    void cleanUp() {
+        deleteAll(jdbc, "notifications");
+        deleteUsers(jdbc);
+    }
+
+    @Test
+    void countsHonourExclusionMaskAndReconcileFixesDrift() {
+        long userId = insertUser(jdbc, "badge");
+        for (int i = 0; i < 3; i++) {
+            notify(userId, NotificationType.REACTION, false);
+        }
+        notify(userId, NotificationType.MENTION, false);
+        notify(userId, NotificationType.MENTION, false);
+        notify(userId, NotificationType.REACTION, true);
+
+        // 未配置 Redis：走本机计数
+        assertEquals(5, counter.unreadCount(userId, 0));
+        assertEquals(2, counter.unreadCount(userId, List.of(NotificationType.REACTION)));
+        assertEquals(0, counter.unreadCount(userId, List.of(NotificationType.REACTION, NotificationType.MENTION)));
+
+        notify(userId, NotificationType.POST_VIEWED, false);
+        counter.changed(userId, NotificationType.POST_VIEWED, 1);
+        assertEquals(6, counter.unreadCount(userId, 0));
+
+        // 绕过计数器的写入造成偏差，对账后恢复
+        jdbc.update("UPDATE notifications SET is_read = TRUE WHERE type = 'MENTION'");
+        assertEquals(6, counter.unreadCount(userId, 0));
+        assertEquals(1, counter.reconcile());
+        assertEquals(4, counter.unreadCount(userId, 0));
+        assertEquals(0, counter.reconcile());
+    }
+
+    private void notify(long userId, NotificationType type, boolean read) {
+        jdbc.update("INSERT INTO notifications (type, user_id, is_read, created_at) VALUES (?, ?, ?, CURRENT_TIMESTAMP)",
+                type.name(), userId, read);
+    }
+}
@@ -0,0 +1,164 @@
+package com.openisle.service;
+
+import com.openisle.dto.UserStatsRebuildReport;
+import com.openisle.model.Category;
+import com.openisle.model.Comment;
+import com.openisle.model.Post;
+import com.openisle.model.PostStatus;
+import com.openisle.model.Reaction;
+import com.openisle.model.ReactionType;
+import com.openisle.model.User;
+import com.openisle.model.UserStats;
+import com.openisle.repository.CategoryRepository;
+import com.openisle.repository.CommentRepository;
+import com.openisle.repository.PostRepository;
+import com.openisle.repository.ReactionRepository;
+import com.openisle.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+
+import static com.openisle.TestDatabase.deleteAll;
+import static com.openisle.TestDatabase.deleteUsers;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@Import(UserStatsService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserStatsServiceTest {
+
+    @Autowired
+    private UserStatsService userStatsService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private ReactionRepository reactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @AfterEach
+    void cleanUp() {
+        deleteAll(jdbc, "user_stats", "reactions", "comments", "posts", "categories");
+        deleteUsers(jdbc);
+    }
+
+    @Test
+    void listenerKeepsCountersInStepWithDetailTables() {
+        User alice = user("alice");
+        User bob = user("bob");
+        Category category = new Category();
+        category.setName("c");
+        category.setIcon("i");
+        category.setDescription("d");
+        category = categoryRepository.save(category);
+
+        Post published = post(alice, category, PostStatus.PUBLISHED);
+        Post pending = post(alice, category, PostStatus.PENDING);
+        Comment comment = new Comment();
+        comment.setContent("hi");
+        comment.setAuthor(bob);
+        comment.setPost(published);
+        commentRepository.save(comment);
+        react(bob, published, ReactionType.LIKE);
+        react(bob, published, ReactionType.SMILE);
+
+        UserStats aliceStats = userStatsService.get(alice.getId());
+        assertEquals(2, aliceStats.getPostCount());
+        assertEquals(published.getCreatedAt().withNano(0), aliceStats.getLastPostAt().withNano(0));
+        assertEquals(1, aliceStats.getLikesReceived());
+        assertEquals(2, aliceStats.getReactionsReceived());
+        UserStats bobStats = userStatsService.get(bob.getId());
+        assertEquals(1, bobStats.getCommentCount());
+        assertEquals(1, bobStats.getLikesSent());
+        assertEquals(0, userStatsService.rebuild().getRowsCorrected());
+
+        // 编辑标题不重新聚合；发布待审帖子时重新聚合
+        jdbc.update("UPDATE user_stats SET published_views = 999 WHERE user_id = ?", alice.getId());
+        pending = postRepository.findById(pending.getId()).orElseThrow();
+        pending.setTitle("edited");
+        pending = postRepository.save(pending);
+        assertEquals(999, stored(alice.getId(), "published_views"));
+        pending.setStatus(PostStatus.PUBLISHED);
+        postRepository.save(pending);
+        assertEquals(0, stored(alice.getId(), "published_views"));
+
+        // 删除帖子重新聚合帖子数
+        Post extra = post(alice, category, PostStatus.PUBLISHED);
+        assertEquals(3, stored(alice.getId(), "post_count"));
+        postRepository.deleteById(extra.getId());
+        assertEquals(2, stored(alice.getId(), "post_count"));
+    }
+
+    @Test
+    void rebuildReportsAndCorrectsDrift() {
+        User alice = user("alice");
+        User bob = user("bob");
+        userStatsService.get(alice.getId());
+        userStatsService.get(bob.getId());
+        jdbc.update("UPDATE user_stats SET likes_sent = likes_sent + 3, post_count = post_count + 1 WHERE user_id = ?", bob.getId());
+        jdbc.update("DELETE FROM user_stats WHERE user_id = ?", alice.getId());
+        jdbc.update("INSERT INTO user_stats (user_id, post_count, published_views, comment_count, likes_sent, likes_received, " +
+                "reactions_received) VALUES (?, 0, 0, 0, 0, 0, 0)", bob.getId() + 1000);
+
+        UserStatsRebuildReport report = userStatsService.rebuild();
+        assertEquals(2, report.getUsersScanned());
+        assertEquals(1, report.getRowsInserted());
+        assertEquals(1, report.getRowsCorrected());
+        assertEquals(1, report.getRowsRemoved());
+        assertEquals(Map.of("post_count", 1L, "likes_sent", 1L), report.getDriftedRows());
+        assertEquals(Map.of("post_count", 1L, "likes_sent", 3L), report.getTotalDrift());
+        assertEquals(0, stored(bob.getId(), "likes_sent"));
+
+        UserStatsRebuildReport clean = userStatsService.rebuild();
+        assertEquals(0, clean.getRowsInserted() + clean.getRowsCorrected() + clean.getRowsRemoved());
+    }
+
+    private User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("x");
+        return userRepository.save(user);
+    }
+
+    private Post post(User author, Category category, PostStatus status) {
+        Post post = new Post();
+        post.setTitle("t");
+        post.setContent("c");
+        post.setAuthor(author);
+        post.setCategory(category);
+        post.setStatus(status);
+        return postRepository.save(post);
+    }
+
+    private void react(User user, Post post, ReactionType type) {
+        Reaction reaction = new Reaction();
+        reaction.setType(type);
+        reaction.setUser(user);
+        reaction.setPost(post);
+        reactionRepository.save(reaction);
+    }
+
+    private long stored(long userId, String column) {
+        return jdbc.queryForObject("SELECT " + column + " FROM user_stats WHERE user_id = ?", Long.class, userId);
+    }
+}
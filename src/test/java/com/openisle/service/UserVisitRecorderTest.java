@@ -0,0 +1,90 @@
+package com.openisle.service;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UserVisitRecorderTest {
+
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:visits" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE user_visits (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_id BIGINT NOT NULL, " +
+                "visit_date DATE NOT NULL, CONSTRAINT uk_user_visit UNIQUE (user_id, visit_date))");
+    }
+
+    @Test
+    void onlyFirstVisitPerUserPerDayIsWritten() throws Exception {
+        LocalDate today = LocalDate.now();
+        // 其他节点已写入的记录被忽略
+        jdbc.update("INSERT INTO user_visits (user_id, visit_date) VALUES (1, ?)", java.sql.Date.valueOf(today));
+        UserVisitRecorder recorder = new UserVisitRecorder(jdbc, 1_000_000, 100_000);
+        int users = 2_000;
+        int threads = 8;
+        int perThread = 20_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    recorder.record(i % users + 1, today);
+                }
+                return null;
+            }));
+        }
+        Future<?> flusher = pool.submit(() -> {
+            start.await();
+            while (running.get()) {
+                recorder.flush();
+            }
+            return null;
+        });
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(30, TimeUnit.SECONDS);
+        }
+        running.set(false);
+        flusher.get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+        recorder.flush();
+
+        assertEquals(users, jdbc.queryForObject("SELECT COUNT(*) FROM user_visits", Long.class));
+        assertEquals((long) threads * perThread, recorder.snapshot().visits());
+        assertEquals(users, recorder.snapshot().firstVisits());
+        // 用户 1 的记录已存在，不计入写入行数
+        assertEquals(users - 1, recorder.snapshot().written());
+        assertEquals(0, recorder.snapshot().failed());
+
+        // 跨日：新的一天重新记录，前一天迟到的请求由写入语句去重
+        LocalDate tomorrow = today.plusDays(1);
+        recorder.record(1, tomorrow);
+        recorder.record(1, tomorrow);
+        recorder.record(2, today);
+        recorder.flush();
+        assertEquals(1, recorder.snapshot().seenToday());
+        assertEquals(users + 1, jdbc.queryForObject("SELECT COUNT(*) FROM user_visits", Long.class));
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM user_visits WHERE visit_date = ?", Long.class,
+                java.sql.Date.valueOf(tomorrow)));
+        assertEquals(users, recorder.snapshot().written());
+    }
+}